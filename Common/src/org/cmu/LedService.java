@@ -0,0 +1,164 @@
+package org.cmu;
+
+import java.util.Vector;
+import org.cmu.hal.StatusLeds;
+
+/**
+ * Point to Location Framework (PTLoc) -- plays LED patterns on its own
+ * thread. flash, setOn and setOff queue the pattern and return at once, so
+ * the switch handlers and the radio receiver never sleep for a flash.
+ * Patterns play in order; if MAX_PENDING are already waiting the oldest is
+ * dropped, as it would only show stale status. Until start() is called, and
+ * after stop(), patterns play on the caller's thread as before.
+ */
+public class LedService implements StatusLeds, Runnable {
+
+    /** Patterns allowed to wait behind the one playing. */
+    public static final int MAX_PENDING = 4;
+    private static final int FLASH = 0;
+    private static final int ON = 1;
+    private static final int OFF = 2;
+    private final StatusLeds leds;
+    private final Vector queue = new Vector();
+    private volatile boolean running;
+    private Thread thread;
+    private int posted;
+    private int dropped;
+
+    /**
+     * @param leds LEDs the patterns are played on.
+     */
+    public LedService(StatusLeds leds) {
+        this.leds = leds;
+    }
+
+    /**
+     * Starts the LED thread.
+     * @return The thread
+     */
+    public synchronized Thread start() {
+        if (thread == null) {
+            running = true;
+            thread = new Thread(this, "leds");
+            thread.start();
+        }
+        return thread;
+    }
+
+    /**
+     * Stops the LED thread after the pattern playing. Waiting patterns are
+     * dropped.
+     */
+    public void stop() {
+        synchronized (queue) {
+            running = false;
+            queue.removeAllElements();
+            queue.notifyAll();
+        }
+        synchronized (this) {
+            thread = null;
+        }
+    }
+
+    public void flash(int[] rgb, int duration) {
+        post(new Pattern(FLASH, rgb, duration));
+    }
+
+    public void setOn(int[] rgb) {
+        post(new Pattern(ON, rgb, 0));
+    }
+
+    public void setOff() {
+        post(new Pattern(OFF, null, 0));
+    }
+
+    private void post(Pattern pattern) {
+        synchronized (queue) {
+            if (running) {
+                if (queue.size() >= MAX_PENDING) {
+                    queue.removeElementAt(0);
+                    dropped++;
+                }
+                queue.addElement(pattern);
+                posted++;
+                queue.notifyAll();
+                return;
+            }
+        }
+        play(pattern);
+    }
+
+    public void run() {
+        while (running) {
+            Pattern pattern;
+            synchronized (queue) {
+                while (running && queue.size() == 0) {
+                    try {
+                        queue.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                pattern = (Pattern) queue.elementAt(0);
+                queue.removeElementAt(0);
+            }
+            play(pattern);
+        }
+    }
+
+    private void play(Pattern pattern) {
+        switch (pattern.kind) {
+            case FLASH:
+                leds.flash(pattern.rgb, pattern.duration);
+                break;
+            case ON:
+                leds.setOn(pattern.rgb);
+                break;
+            default:
+                leds.setOff();
+        }
+    }
+
+    /**
+     * @return Patterns queued so far
+     */
+    public int getPosted() {
+        synchronized (queue) {
+            return posted;
+        }
+    }
+
+    /**
+     * @return Patterns dropped because the queue was full
+     */
+    public int getDropped() {
+        synchronized (queue) {
+            return dropped;
+        }
+    }
+
+    /**
+     * @return true if no pattern is waiting
+     */
+    public boolean isDrained() {
+        synchronized (queue) {
+            return queue.size() == 0;
+        }
+    }
+
+    private static class Pattern {
+
+        final int kind;
+        final int[] rgb;
+        final int duration;
+
+        Pattern(int kind, int[] rgb, int duration) {
+            this.kind = kind;
+            this.rgb = rgb;
+            this.duration = duration;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package org.cmu;
+
+import java.io.IOException;
+import java.util.Vector;
+import org.cmu.control.MoveResult;
+import org.cmu.hal.Clock;
+import org.cmu.hal.StatusLeds;
+import org.cmu.log.Log;
+import org.cmu.telemetry.Telemetry;
+
+/**
+ * Point to Location Framework (PTLoc) -- moves the Mount to targets handed
+ * over by the radio receiver, on its own thread, so the receiver never waits
+ * for a move. By default only the newest target of each Pointer is kept: a
+ * new one replaces any still waiting from the same Pointer, and a move in
+ * progress gives way at its next control tick only to its own Pointer.
+ * Targets of different Pointers wait in arrival order, so a Pointer that
+ * streams cannot starve the others. Records the time from decoding a
+ * reading to the first servo command, and the queueing and settling stages
+ * of the Mount's {@link org.cmu.telemetry.Telemetry}. A move that fails,
+ * with a sensor error or a runtime exception, is logged and counted and the
+ * executor carries on with the next target.
+ */
+public class MotionExecutor implements Runnable {
+
+    private static final int PREEMPTING = Log.define("new target, preempting current move");
+    private static final int LATENCY = Log.define("receive-to-actuation: {0} ms, done after {1} ms");
+    private static final int MOVE_FAILED = Log.define("move failed, {0} so far");
+    private final MountController controller;
+    private final StatusLeds leds;
+    private final Clock clock;
+    private final boolean latestWins;
+    private final Vector queue = new Vector();
+    private volatile boolean running;
+    private Thread thread;
+    private boolean busy;
+    private Target current;
+    private int submitted;
+    private int coalesced;
+    private int preempted;
+    private int timed;
+    private int failed;
+    private long latencySum;
+    private long lastLatency = -1;
+    private long maxLatency;
+
+    /**
+     * @param controller Mount the targets are applied to.
+     * @param leds Status LEDs, on while targets are pending.
+     * @param clock Time source for latency.
+     * @param latestWins false to run every target in arrival order
+     */
+    public MotionExecutor(MountController controller, StatusLeds leds, Clock clock,
+            boolean latestWins) {
+        this.controller = controller;
+        this.leds = leds;
+        this.clock = clock;
+        this.latestWins = latestWins;
+    }
+
+    /**
+     * Starts the executor thread.
+     * @return The thread
+     */
+    public synchronized Thread start() {
+        if (thread == null) {
+            running = true;
+            thread = new Thread(this, "motion");
+            thread.start();
+        }
+        return thread;
+    }
+
+    /**
+     * Stops the executor after the current move. Pending targets are
+     * dropped.
+     */
+    public void stop() {
+        synchronized (queue) {
+            running = false;
+            queue.removeAllElements();
+            queue.notifyAll();
+        }
+        synchronized (this) {
+            thread = null;
+        }
+    }
+
+    /**
+     * Queues a target. Never blocks.
+     * @param target New goal
+     */
+    public void submit(Target target) {
+        synchronized (queue) {
+            int i = latestWins ? pending(target.getSource()) : -1;
+            if (i >= 0) {
+                coalesced++;
+                queue.setElementAt(target, i);
+            } else {
+                queue.addElement(target);
+            }
+            submitted++;
+            queue.notifyAll();
+        }
+        if (latestWins && controller.isMoving()) {
+            Log.info(PREEMPTING);
+        }
+        leds.setOn(MountController.GREEN);
+    }
+
+    /**
+     * @return true if a target is waiting
+     */
+    public boolean hasPending() {
+        synchronized (queue) {
+            return queue.size() > 0;
+        }
+    }
+
+    /**
+     * @return true if no target is waiting or being moved to
+     */
+    public boolean isIdle() {
+        synchronized (queue) {
+            return queue.size() == 0 && !busy;
+        }
+    }
+
+    /**
+     * @return true if a waiting target should cut the current move short
+     */
+    public boolean isSuperseded() {
+        if (!latestWins) {
+            return false;
+        }
+        synchronized (queue) {
+            return current != null && pending(current.getSource()) >= 0;
+        }
+    }
+
+    /**
+     * @return Index of the waiting target from source, -1 if none
+     */
+    private int pending(long source) {
+        for (int i = 0; i < queue.size(); i++) {
+            if (((Target) queue.elementAt(i)).getSource() == source) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public void run() {
+        while (running) {
+            Target target = take();
+            if (target == null) {
+                break;
+            }
+            Telemetry telemetry = controller.getTelemetry();
+            telemetry.record(Telemetry.QUEUE, clock.currentTimeMillis() - target.getReceivedAt());
+            try {
+                controller.moveTo(target);
+                MoveResult move = controller.getLastMove();
+                if (move == null || !move.isPreempted()) {
+                    telemetry.record(Telemetry.MOUNT,
+                            clock.currentTimeMillis() - target.getReceivedAt());
+                }
+                record(target);
+            } catch (IOException e) {
+                failed(e);
+            } catch (RuntimeException e) {
+                // a servo or controller bug must not leave targets queued forever
+                failed(e);
+            } finally {
+                synchronized (queue) {
+                    busy = false;
+                    current = null;
+                }
+            }
+            if (!hasPending()) {
+                leds.setOff();
+            }
+        }
+    }
+
+    private Target take() {
+        synchronized (queue) {
+            while (running && queue.size() == 0) {
+                try {
+                    queue.wait();
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+            if (!running) {
+                return null;
+            }
+            Target target = (Target) queue.elementAt(0);
+            queue.removeElementAt(0);
+            busy = true;
+            current = target;
+            return target;
+        }
+    }
+
+    private void failed(Exception e) {
+        int n;
+        synchronized (this) {
+            n = ++failed;
+        }
+        e.printStackTrace();
+        Log.warn(MOVE_FAILED, n);
+    }
+
+    private void record(Target target) {
+        if (controller.getLastMove() != null && controller.getLastMove().isPreempted()) {
+            synchronized (this) {
+                preempted++;
+            }
+        }
+        long actuatedAt = controller.getLastActuatedAt();
+        if (actuatedAt == 0) {
+            return; // already on target, or preempted before moving
+        }
+        long latency = actuatedAt - target.getReceivedAt();
+        PointerState pointer = controller.getPointers().find(target.getSource());
+        if (pointer != null) {
+            pointer.moved(latency);
+        }
+        synchronized (this) {
+            timed++;
+            latencySum += latency;
+            lastLatency = latency;
+            maxLatency = Math.max(maxLatency, latency);
+        }
+        if (Log.INFO_ON) {
+            Log.info(LATENCY, latency, clock.currentTimeMillis() - target.getReceivedAt());
+        }
+    }
+
+    /**
+     * @return Targets queued so far
+     */
+    public int getSubmitted() {
+        synchronized (queue) {
+            return submitted;
+        }
+    }
+
+    /**
+     * @return Targets dropped because a newer one from the same Pointer
+     *      arrived before they started
+     */
+    public int getCoalesced() {
+        synchronized (queue) {
+            return coalesced;
+        }
+    }
+
+    /**
+     * @return Moves cut short by a newer target from the same Pointer
+     */
+    public synchronized int getPreempted() {
+        return preempted;
+    }
+
+    /**
+     * @return Receive-to-actuation of the last move in ms, -1 if none
+     */
+    public synchronized long getLastLatency() {
+        return lastLatency;
+    }
+
+    /**
+     * @return Mean receive-to-actuation in ms, -1 if no moves timed
+     */
+    public synchronized long getMeanLatency() {
+        return timed == 0 ? -1 : latencySum / timed;
+    }
+
+    /**
+     * @return Worst receive-to-actuation in ms
+     */
+    public synchronized long getMaxLatency() {
+        return maxLatency;
+    }
+
+    /**
+     * @return Moves ended by an exception
+     */
+    public synchronized int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return Moves included in the latency figures
+     */
+    public synchronized int getTimedMoves() {
+        return timed;
+    }
+}
@@ -0,0 +1,1409 @@
+package org.cmu;
+
+import java.io.IOException;
+import org.cmu.control.AxisController;
+import org.cmu.control.AxisLoop;
+import org.cmu.control.CoordinatedMove;
+import org.cmu.control.FixedPidController;
+import org.cmu.control.MotionProfile;
+import org.cmu.control.MoveResult;
+import org.cmu.control.PidController;
+import org.cmu.control.ProfiledServo;
+import org.cmu.control.ServoMap;
+import org.cmu.control.TimedServo;
+import org.cmu.hal.Accelerometer;
+import org.cmu.hal.Clock;
+import org.cmu.hal.Compass;
+import org.cmu.hal.PacketLink;
+import org.cmu.hal.ServoOutput;
+import org.cmu.hal.StatusLeds;
+import org.cmu.log.Log;
+import org.cmu.math.Fixed;
+import org.cmu.math.FixedGeometry;
+import org.cmu.math.Geometry;
+import org.cmu.net.Frame;
+import org.cmu.net.FrameDecoder;
+import org.cmu.sensor.CompassDeviation;
+import org.cmu.sensor.CompassSampler;
+import org.cmu.sensor.HeadingEstimator;
+import org.cmu.sensor.SequentialEstimator;
+import org.cmu.telemetry.Telemetry;
+
+/**
+ * Point to Location Framework (PTLoc) -- Mount logic. Talks to the hardware
+ * only through the org.cmu.hal interfaces so it runs unchanged on the SunSPOT
+ * and in the desktop simulator.
+ */
+public class MountController {
+
+    public static final int[] LIGHT_BLUE = new int[]{100, 100, 100};
+    public static final int[] GREEN = new int[]{0, 128, 0};
+    public static final int[] RED = new int[]{255, 0, 0}; // error color
+    public static final int NUM_AVG_READINGS = 5;
+    public static final boolean USE_COMPASS = true;
+    /**
+     * Solve and run the feedback laws in Q16.16 fixed point, see
+     * {@link Fixed}. A compile-time constant, so javac drops the other path.
+     */
+    public static final boolean FIXED_POINT = false;
+    public static final double TILT_TOLERANCE = 0.01; // unit?
+    public static final double ANGLE_TOLERANCE = 1; // i.e. +/- 5 degrees
+    public static final int MAX_NUM_ITERATIONS = 15;
+    public static final float START_POSITION = .5f;
+    /** Servo position units per degree of pan, HS-81MG over setBounds(0, 2600). */
+    public static final double PAN_GAIN = 1 / 180.0;
+    /** Servo position units per radian of tilt, HS-311; up is negative tilt. */
+    public static final double TILT_GAIN = -1 / Math.PI;
+    /** HS-81MG travel time for the full position range, 0.09 s / 60 degrees. */
+    public static final double PAN_MS_PER_UNIT = 270;
+    /** HS-311 travel time for the full position range, 0.19 s / 60 degrees. */
+    public static final double TILT_MS_PER_UNIT = 570;
+    /** Readings taken after the request that a sampled heading must average. */
+    public static final int FRESH_SAMPLES = 3;
+    /**
+     * 95% confidence half-width, in degrees, at which a blocking heading
+     * read stops taking readings, see {@link SequentialEstimator}.
+     */
+    public static final double HEADING_PRECISION = 0.5;
+    /** Longest a blocking heading read keeps reading towards HEADING_PRECISION. */
+    public static final long HEADING_BUDGET_MS = 250;
+    /** Below this a pan measurement is taken again before it is acted on. */
+    public static final double MIN_HEADING_CONFIDENCE = 0.6;
+    /** Shared deadline for both axes of a coordinated move. */
+    public static final long MOVE_TIMEOUT_MS = 5000;
+    /** Pan profile velocity limit, position units per second (HS-81MG tops out at 3.7). */
+    public static final double PAN_MAX_VELOCITY = 2;
+    /** Pan profile acceleration limit, position units per second squared. */
+    public static final double PAN_MAX_ACCELERATION = 10;
+    /** Tilt profile velocity limit, position units per second (HS-311 tops out at 1.75). */
+    public static final double TILT_MAX_VELOCITY = 1;
+    /** Tilt profile acceleration limit, position units per second squared. */
+    public static final double TILT_MAX_ACCELERATION = 5;
+    /** Servo positions visited by calibrateServoMaps, 0.1 apart. */
+    public static final int CALIBRATION_POINTS = 11;
+    /** Completed moves between saves of the online-corrected maps. */
+    public static final int SAVE_MAPS_EVERY = 10;
+    /** Source of readings handed over directly rather than by radio. */
+    public static final long LOCAL_SOURCE = 0;
+    /** How long a Mount in a fleet takes a type 1 reading after arming. */
+    public static final long REGISTRATION_WINDOW_MS = 15000;
+    private static final int DROPPED = Log.define("too many pointers, dropping packet from {0:x}");
+    private static final int RECEIVED = Log.define("from {0:x}: type {1}");
+    private static final int NOT_REGISTERING = Log.define("not registering, type 1 from {0:x} ignored");
+    private static final int UNKNOWN_TYPE = Log.define("from {0:x}: disregarding type {1}");
+    private static final int FRAME_ERRORS = Log.define("frames {0}, crc errors {1}, lost {2}");
+    private static final int REFUSED = Log.define("too many pointers, reference from {0:x} ignored");
+    private static final int REFERENCE = Log.define("reference from {0:x}");
+    private static final int REFERENCE_VALUES = Log.define("d1 {0}, angle1 {1}, tilt1 {2}");
+    private static final int ARMED = Log.define("registration armed");
+    private static final int NO_REFERENCE = Log.define("no type 1 reading from {0:x} yet");
+    private static final int UNSOLVED_REFERENCE = Log.define("unsolvable: a1 {0}, d1 {1}, t1 {2}");
+    private static final int UNSOLVED_READING = Log.define("unsolvable: a2 {0}, d2 {1}, t2 {2}");
+    private static final int OUT_OF_RANGE = Log.define("target out of range: angle {0}, tilt {1}");
+    private static final int SOLVING_REFERENCE = Log.define("solving: a1 {0}, d1 {1}, t1 {2}");
+    private static final int SOLVING_READING = Log.define("solving: a2 {0}, d2 {1}, t2 {2}");
+    private static final int SOLVED = Log.define("new mount angle {0}, tilt {1}");
+    private static final int PAN_UNSETTLED = Log.define("angle movement unsuccessful after {0} iterations");
+    private static final int PAN_MISSED = Log.define("current angle {0}, goal {1}");
+    private static final int PAN_RANGE = Log.define("angle out of pan range: {0}");
+    private static final int PAN_STEP = Log.define("current angle {0}, diff {1}, pServo1 {2}");
+    private static final int PAN_LIMIT = Log.define("pServo1 value magnitude too high in angle set: {0}");
+    private static final int PAN_DONE = Log.define("done w/ angle: diff {0}, pServo1 {1}, iterations {2}");
+    private static final int PAN_STEPPED_DONE = Log.define("done w/ angle: current angle {0}, diff {1}, pServo1 {2}");
+    private static final int TILT_UNSETTLED = Log.define("tilt movement unsuccessful after {0} iterations");
+    private static final int TILT_MISSED = Log.define("current tilt {0}, goal {1}");
+    private static final int TILT_RANGE = Log.define("tilt out of range: {0}");
+    private static final int TILT_STEP = Log.define("current tilt {0}, diff {1}, pServo2 {2}");
+    private static final int TILT_LIMIT = Log.define("pServo2 value magnitude too high in tilt set: {0}");
+    private static final int TILT_DONE = Log.define("done w/ tilt: diff {0}, pServo2 {1}, iterations {2}");
+    private static final int TILT_STEPPED_DONE = Log.define("done w/ tilt: current tilt {0}, diff {1}, pServo2 {2}");
+    private static final int AXIS_TIME = Log.define("axis moved for {0} ms");
+    private static final int LOCATION_RANGE = Log.define("location out of range: angle {0}, tilt {1}");
+    private static final int LOCATION_DONE = Log.define("done w/ location after {0} ms: pan status {1}, tilt status {2}");
+    private static final int RESET = Log.define("resetting servo positions");
+    private static final int NO_REPLY = Log.define("telemetry reply to {0:x} failed");
+    private static final int RESTORED = Log.define("restored: maps {0}, references {1}, pose {2}");
+    private static final int CALIBRATION = Log.define("calibration {0}: angle {1}, tilt {2}");
+    private static final int DEVIATION = Log.define("compass deviation: B {0}, C {1}, D {2}");
+    private static final int DEVIATION_FIT = Log.define("compass deviation: E {0}, residual {1}, span {2}");
+    private final Compass compass;
+    private final Accelerometer acc;
+    private final TimedServo servo1;
+    private final TimedServo servo2;
+    private final ProfiledServo panDrive;
+    private final ProfiledServo tiltDrive;
+    private final StatusLeds leds;
+    private final Clock clock;
+    private float starting_servo_position = START_POSITION;
+    private volatile float pServo1 = START_POSITION;
+    private volatile float pServo2 = START_POSITION;
+    private double panGoal;
+    private double tiltGoal;
+    private final AxisLoop panLoop;
+    private final AxisLoop tiltLoop;
+    private final CoordinatedMove coordinatedMove;
+    private boolean coordinated = true;
+    private MoveResult lastMove;
+    private CompassSampler sampler;
+    private final HeadingEstimator headingEstimator = new HeadingEstimator();
+    private final CompassDeviation deviation = new CompassDeviation();
+    private final SequentialEstimator headingSequence = new SequentialEstimator(true,
+            HEADING_PRECISION, SequentialEstimator.MIN_SAMPLES, HeadingEstimator.MAX_SAMPLES);
+    private long headingBudgetMs = HEADING_BUDGET_MS;
+    private boolean circularHeading = true;
+    private final ServoMap panMap = new ServoMap(CALIBRATION_POINTS, true);
+    private final ServoMap tiltMap = new ServoMap(CALIBRATION_POINTS, false);
+    private boolean useServoMaps = true;
+    private MountMemory memory;
+    private int lastIterations;
+    private int lastStatus;
+    private final PointerTable pointers = new PointerTable(PointerTable.DEFAULT_CAPACITY);
+    private volatile boolean fleet;
+    private long registrationUntil;
+    private volatile boolean moving = false;
+    private volatile boolean running = false;
+    private volatile long actuatedAt;
+    private volatile MotionExecutor executor;
+    private volatile int completedMoves = 0;
+    private volatile int preemptedMoves = 0;
+    private boolean latestTargetWins = true;
+    private final Telemetry telemetry = new Telemetry();
+
+    /**
+     * @param compass Pan feedback. Ignored unless USE_COMPASS.
+     * @param acc Tilt feedback.
+     * @param servo1 Pan servo.
+     * @param servo2 Tilt servo.
+     * @param leds Status LEDs.
+     * @param clock Time source for all waits.
+     */
+    public MountController(Compass compass, final Accelerometer acc,
+            ServoOutput servo1, ServoOutput servo2, StatusLeds leds, Clock clock) {
+        this.compass = compass;
+        this.acc = acc;
+        this.panDrive = new ProfiledServo(servo1, clock,
+                new MotionProfile(PAN_MAX_VELOCITY, PAN_MAX_ACCELERATION));
+        this.tiltDrive = new ProfiledServo(servo2, clock,
+                new MotionProfile(TILT_MAX_VELOCITY, TILT_MAX_ACCELERATION));
+        this.servo1 = new TimedServo(panDrive, clock);
+        this.servo2 = new TimedServo(tiltDrive, clock);
+        this.leds = leds;
+        this.clock = clock;
+        this.panLoop = new AxisLoop(this.servo1, defaultPanController(), clock,
+                ANGLE_TOLERANCE, PAN_MS_PER_UNIT, MAX_NUM_ITERATIONS) {
+
+            protected double measureError() throws IOException {
+                panDrive.awaitArrival(SETTLE_MS);
+                double angle = getAvgAngle();
+                if (circularHeading && getHeadingConfidence() < MIN_HEADING_CONFIDENCE) {
+                    angle = getAvgAngle();
+                }
+                return Geometry.angleDiff(panGoal, angle);
+            }
+
+            protected boolean isPreempted() {
+                return isSuperseded();
+            }
+        };
+        this.tiltLoop = new AxisLoop(this.servo2, defaultTiltController(), clock,
+                TILT_TOLERANCE, TILT_MS_PER_UNIT, MAX_NUM_ITERATIONS) {
+
+            protected double measureError() throws IOException {
+                tiltDrive.awaitArrival(SETTLE_MS);
+                return tiltGoal - acc.getTiltY();
+            }
+
+            protected boolean isPreempted() {
+                return isSuperseded();
+            }
+        };
+        this.coordinatedMove = new CoordinatedMove(panLoop, tiltLoop, clock);
+    }
+
+    /**
+     * @return PID tuned against the simulated HS-81MG
+     */
+    public static AxisController defaultPanController() {
+        if (FIXED_POINT) {
+            return FixedPidController.pid(0.8 * PAN_GAIN, 0.2 * PAN_GAIN, 0.01 * PAN_GAIN,
+                    20, 0.5);
+        }
+        return PidController.pid(0.8 * PAN_GAIN, 0.2 * PAN_GAIN, 0.01 * PAN_GAIN,
+                20, 0.5);
+    }
+
+    /**
+     * @return PID tuned against the simulated HS-311
+     */
+    public static AxisController defaultTiltController() {
+        if (FIXED_POINT) {
+            return FixedPidController.pid(0.8 * TILT_GAIN, 0.2 * TILT_GAIN,
+                    0.005 * TILT_GAIN, 0.2, 0.5);
+        }
+        return PidController.pid(0.8 * TILT_GAIN, 0.2 * TILT_GAIN, 0.005 * TILT_GAIN,
+                0.2, 0.5);
+    }
+
+    /**
+     * Replaces the feedback laws used by gotoAngle and gotoTilt.
+     * @param pan Pan controller, null for the fixed-step loop
+     * @param tilt Tilt controller, null for the fixed-step loop
+     */
+    public void setControllers(AxisController pan, AxisController tilt) {
+        panLoop.setController(pan);
+        tiltLoop.setController(tilt);
+    }
+
+    /**
+     * Chooses whether servo commands follow a {@link MotionProfile} from a
+     * timer thread or jump straight to the new position. Off by default.
+     * @param profiled true to start the profile threads, false to stop them
+     */
+    public void setProfiledMotion(boolean profiled) {
+        if (profiled) {
+            panDrive.start();
+            tiltDrive.start();
+        } else {
+            panDrive.stop();
+            tiltDrive.stop();
+        }
+    }
+
+    /**
+     * @return Pan servo profile, to tune its limits
+     */
+    public MotionProfile getPanProfile() {
+        return panDrive.getProfile();
+    }
+
+    /**
+     * @return Tilt servo profile, to tune its limits
+     */
+    public MotionProfile getTiltProfile() {
+        return tiltDrive.getProfile();
+    }
+
+    /**
+     * Chooses whether gotoLocation drives pan and tilt at the same time.
+     * Only applies when both axes have a controller.
+     * @param coordinated false to run gotoAngle and then gotoTilt
+     */
+    public void setCoordinated(boolean coordinated) {
+        this.coordinated = coordinated;
+    }
+
+    /**
+     * @return Per-axis timing of the last gotoLocation, null if it used the
+     *      fixed-step loops
+     */
+    public MoveResult getLastMove() {
+        return lastMove;
+    }
+
+    /**
+     * @return Per-stage latency, from the Pointer's marks and the Mount's
+     *      own timing
+     */
+    public Telemetry getTelemetry() {
+        return telemetry;
+    }
+
+    /**
+     * @return Corrections made by the last gotoAngle or gotoTilt
+     */
+    public int getLastIterations() {
+        return lastIterations;
+    }
+
+    /**
+     * Moves compass reads onto a background thread. From then on getAvgAngle
+     * waits for readings taken after the call, at least FRESH_SAMPLES,
+     * instead of doing its own bus round-trips. The I2C bus must already be open.
+     */
+    public void startCompassSampler() {
+        if (sampler == null) {
+            sampler = new CompassSampler(compass, clock);
+            sampler.start();
+        }
+    }
+
+    /**
+     * Stops the background compass thread, if any.
+     */
+    public void stopCompassSampler() {
+        if (sampler != null) {
+            sampler.stop();
+            sampler = null;
+        }
+    }
+
+    /**
+     * Chooses how blocking compass reads are combined.
+     * @param circular false for the original average that drops the lowest
+     *      reading and breaks down around north
+     */
+    public void setCircularHeading(boolean circular) {
+        this.circularHeading = circular;
+    }
+
+    /**
+     * Chooses how many readings a blocking getAvgAngle averages.
+     * @param precision 95% confidence half-width in degrees to read until;
+     *      0 for always NUM_AVG_READINGS
+     * @param budgetMs Longest to keep reading towards the precision
+     */
+    public void setHeadingPrecision(double precision, long budgetMs) {
+        synchronized (headingEstimator) {
+            if (precision > 0) {
+                headingSequence.configure(precision, SequentialEstimator.MIN_SAMPLES,
+                        HeadingEstimator.MAX_SAMPLES);
+            } else {
+                headingSequence.configure(0, NUM_AVG_READINGS, NUM_AVG_READINGS);
+            }
+            headingBudgetMs = budgetMs;
+        }
+    }
+
+    /**
+     * @return 95% confidence half-width of the last getAvgAngle in degrees,
+     *      before deviation correction; not kept by the drop-lowest average
+     */
+    public double getHeadingPrecision() {
+        synchronized (headingEstimator) {
+            return headingEstimator.getPrecision();
+        }
+    }
+
+    /**
+     * @return Confidence of the last getAvgAngle, [0 1]
+     */
+    public double getHeadingConfidence() {
+        synchronized (headingEstimator) {
+            return headingEstimator.getConfidence();
+        }
+    }
+
+    /**
+     * Receives Pointer frames until {@link #stop()} is called or the link is
+     * closed. Blocks in receive(), keeps type 1 readings as the sending
+     * Pointer's reference and hands the target of each type 2 reading to a
+     * {@link MotionExecutor} so a move never delays the next receive. Any
+     * number of Pointers may send; each gets an entry in a
+     * {@link PointerTable}. A type 4 reading prints the {@link Telemetry}
+     * and sends it back to the Pointer.
+     * @param link Radio link to the Pointer.
+     * @throws IOException if radio failure.
+     */
+    public void serve(PacketLink link) throws IOException {
+        MotionExecutor motion = new MotionExecutor(this, leds, clock, latestTargetWins);
+        byte[] packet = new byte[Math.max(link.getMaxPacketSize(), Frame.MAX_SIZE)];
+        Reading[] readings = new Reading[Frame.MAX_READINGS];
+        byte[] summary = new byte[Telemetry.SIZE];
+        synchronized (this) {
+            executor = motion;
+            running = true;
+        }
+        motion.start();
+        try {
+            while (running) {
+                int length = link.receive(packet);
+                if (length < 0) {
+                    break;
+                }
+                long receivedAt = clock.currentTimeMillis();
+                PointerState pointer = pointers.get(link.getSource(), receivedAt);
+                if (pointer == null) {
+                    Log.warn(DROPPED, link.getSource());
+                    continue;
+                }
+                FrameDecoder decoder = pointer.getDecoder();
+                decoder.feed(packet, 0, length);
+                int count;
+                while ((count = decoder.next(readings, receivedAt)) >= 0) {
+                    telemetry.record(Telemetry.RECEIVE, clock.currentTimeMillis() - receivedAt);
+                    recordMarks(decoder);
+                    for (int i = 0; i < count; i++) {
+                        Reading r = readings[i];
+                        if (Log.DEBUG_ON) {
+                            Log.debug(RECEIVED, pointer.getAddress(), r.getType());
+                        }
+                        // 1 = mount
+                        // 2 = dest
+                        if (r.getType() == 1) {
+                            if (takeRegistration()) {
+                                setReference(pointer.getAddress(), r.getDistance(),
+                                        r.getAngle(), r.getTilt());
+                            } else {
+                                Log.info(NOT_REGISTERING, pointer.getAddress());
+                            }
+                        } else if (r.getType() == 2 || r.getType() == 3) {
+                            // 3 = dest, streamed while the Pointer's switch is held
+                            Target target = toTarget(pointer.getAddress(), r.getDistance(),
+                                    r.getAngle(), r.getTilt(), r.getReceivedAt(),
+                                    r.getType() == 3);
+                            if (target != null) {
+                                motion.submit(target);
+                            }
+                        } else if (r.getType() == Telemetry.QUERY) {
+                            telemetry.report(System.out);
+                            try {
+                                link.send(summary, 0, telemetry.encode(summary));
+                            } catch (IOException e) {
+                                Log.warn(NO_REPLY, pointer.getAddress());
+                            }
+                        } else {
+                            Log.warn(UNKNOWN_TYPE, pointer.getAddress(), r.getType());
+                        }
+                    }
+                }
+                if (Log.DEBUG_ON && decoder.getCrcErrors() + decoder.getLost() > 0) {
+                    Log.debug(FRAME_ERRORS, decoder.getFrames(), decoder.getCrcErrors(),
+                            decoder.getLost());
+                }
+            }
+        } finally {
+            motion.stop();
+        }
+    }
+
+    private void recordMarks(FrameDecoder decoder) {
+        int measure = decoder.getMark(Frame.MARK_MEASURE);
+        int feedback = decoder.getMark(Frame.MARK_FEEDBACK);
+        int radio = decoder.getMark(Frame.MARK_RADIO);
+        if (measure != Frame.MARK_NONE) {
+            telemetry.record(Telemetry.MEASURE, measure);
+        }
+        if (feedback != Frame.MARK_NONE) {
+            telemetry.record(Telemetry.FEEDBACK, feedback);
+        }
+        if (radio != Frame.MARK_NONE) {
+            telemetry.record(Telemetry.RADIO, radio);
+        }
+    }
+
+    /**
+     * Stops {@link #serve(PacketLink)} once its current receive returns;
+     * close the link to unblock it.
+     */
+    public void stop() {
+        running = false;
+        MotionExecutor motion;
+        synchronized (this) {
+            motion = executor;
+        }
+        if (motion != null) {
+            motion.stop();
+        }
+    }
+
+    /**
+     * @return Executor of the running serve loop, null before serve
+     */
+    public MotionExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Chooses how serve() queues targets. Takes effect at the next serve.
+     * @param latestWins true to keep only the newest target and cut the
+     *      current move short for it, false to run every target in order
+     */
+    public void setLatestTargetWins(boolean latestWins) {
+        this.latestTargetWins = latestWins;
+    }
+
+    private boolean isSuperseded() {
+        MotionExecutor motion = executor;
+        return motion != null && motion.isSuperseded();
+    }
+
+    /**
+     * Handles one reading sent by the Pointer, moving on the caller's thread.
+     * @param type 1 sets the Mount's distance, 2 sets the destination, 3 sets
+     *      the destination while tracking.
+     * @param d Distance
+     * @param angle Compass angle
+     * @param tilt Tilt
+     * @return false if the reading was rejected
+     * @throws IOException if compass failure
+     */
+    public boolean onReading(int type, double d, double angle, double tilt) throws IOException {
+        if (type == 1) {
+            setReference(d, angle, tilt);
+            return true;
+        }
+        Target target = toTarget(d, angle, tilt, clock.currentTimeMillis(), type == 3);
+        if (target == null) {
+            return false;
+        }
+        moveTo(target);
+        return true;
+    }
+
+    /**
+     * Stores a type 1 reading handed over directly.
+     * @param d Distance
+     * @param angle Compass angle
+     * @param tilt Tilt
+     */
+    public void setReference(double d, double angle, double tilt) {
+        setReference(LOCAL_SOURCE, d, angle, tilt);
+    }
+
+    /**
+     * Stores a type 1 reading: the Pointer aimed at the Mount.
+     * @param source Radio address of the Pointer
+     * @param d Distance
+     * @param angle Compass angle
+     * @param tilt Tilt
+     */
+    public void setReference(long source, double d, double angle, double tilt) {
+        PointerState pointer = pointers.get(source, clock.currentTimeMillis());
+        if (pointer == null) {
+            Log.warn(REFUSED, source);
+            leds.flash(RED, 1000);
+            return;
+        }
+        pointer.setReference(d, angle, tilt);
+        if (Log.INFO_ON) {
+            Log.info(REFERENCE, source);
+            Log.info(REFERENCE_VALUES, d, angle, tilt);
+        }
+        if (memory != null) {
+            try {
+                memory.saveReferences(pointers);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Puts the Mount in a fleet steered by one broadcasting Pointer. Every
+     * Mount hears every reading, so a type 1 reading is only taken after
+     * {@link #armRegistration()}; type 2 and 3 readings are solved against
+     * each Mount's own reference, and the whole fleet re-aims at once.
+     * @param fleet true to take type 1 readings only when armed
+     */
+    public void setFleet(boolean fleet) {
+        this.fleet = fleet;
+    }
+
+    /**
+     * Takes the next type 1 reading received within
+     * {@link #REGISTRATION_WINDOW_MS} as this Mount's position relative to
+     * the Pointer.
+     */
+    public synchronized void armRegistration() {
+        registrationUntil = clock.currentTimeMillis() + REGISTRATION_WINDOW_MS;
+        leds.setOn(LIGHT_BLUE);
+        Log.info(ARMED);
+    }
+
+    /**
+     * @return true while armed for a type 1 reading
+     */
+    public synchronized boolean isRegistering() {
+        return clock.currentTimeMillis() < registrationUntil;
+    }
+
+    /**
+     * @return true if a type 1 reading should be taken now; disarms
+     */
+    private synchronized boolean takeRegistration() {
+        if (!fleet) {
+            return true;
+        }
+        if (!isRegistering()) {
+            return false;
+        }
+        registrationUntil = 0;
+        leds.setOff();
+        return true;
+    }
+
+    /**
+     * @return The Pointers heard from
+     */
+    public PointerTable getPointers() {
+        return pointers;
+    }
+
+    /**
+     * Works out where to point for a type 2 or 3 reading handed over
+     * directly.
+     * @param d Distance
+     * @param angle Compass angle
+     * @param tilt Tilt
+     * @param receivedAt Clock time the reading was decoded
+     * @param tracking true for a type 3 reading
+     * @return Goal, null if there is no type 1 reading or the geometry fails
+     */
+    public Target toTarget(double d, double angle, double tilt, long receivedAt,
+            boolean tracking) {
+        return toTarget(LOCAL_SOURCE, d, angle, tilt, receivedAt, tracking);
+    }
+
+    /**
+     * Works out where to point for a type 2 or 3 reading against the type 1
+     * reading of the same Pointer. The type 1 reading is kept, so a Pointer
+     * that has not moved can send several.
+     * @param source Radio address of the Pointer
+     * @param d Distance
+     * @param angle Compass angle
+     * @param tilt Tilt
+     * @param receivedAt Clock time the reading was decoded
+     * @param tracking true for a type 3 reading
+     * @return Goal, null if there is no type 1 reading or the geometry fails
+     */
+    public Target toTarget(long source, double d, double angle, double tilt, long receivedAt,
+            boolean tracking) {
+        PointerState pointer = pointers.find(source);
+        if (pointer == null || !pointer.hasReference()) {
+            Log.warn(NO_REFERENCE, source);
+            leds.flash(RED, 1000);
+            return null;
+        }
+        double receivedD1;
+        double receivedAngle1;
+        double receivedTilt1;
+        synchronized (pointer) {
+            receivedD1 = pointer.getDistance();
+            receivedAngle1 = pointer.getAngle();
+            receivedTilt1 = pointer.getTilt();
+        }
+        double receivedD2 = d;
+        double receivedAngle2 = angle;
+        double receivedTilt2 = tilt;
+
+        long solving = clock.currentTimeMillis();
+        double newAngle = calcAngle3(receivedD1, receivedD2, receivedAngle1, receivedAngle2);
+        double newTilt = calcTilt3(receivedD1, receivedD2, receivedTilt1, receivedTilt2);
+        telemetry.record(Telemetry.SOLVE, clock.currentTimeMillis() - solving);
+        if (Double.isNaN(newAngle) || Double.isNaN(newTilt)) {
+            Log.warn(UNSOLVED_REFERENCE, receivedAngle1, receivedD1, receivedTilt1);
+            Log.warn(UNSOLVED_READING, receivedAngle2, receivedD2, receivedTilt2);
+            return null;
+        }
+        if (newAngle < 0 || newAngle > 360 || Math.abs(newTilt) > 1) {
+            // would throw in gotoLocation and end the motion thread
+            Log.warn(OUT_OF_RANGE, newAngle, newTilt);
+            return null;
+        }
+        if (tracking) {
+            return new Target(newAngle, newTilt, receivedAt, true, source);
+        }
+
+        if (Log.DEBUG_ON) {
+            Log.debug(SOLVING_REFERENCE, receivedAngle1, receivedD1, receivedTilt1);
+            Log.debug(SOLVING_READING, receivedAngle2, receivedD2, receivedTilt2);
+        }
+        if (Log.INFO_ON) {
+            Log.info(SOLVED, newAngle, newTilt);
+        }
+        return new Target(newAngle, newTilt, receivedAt, false, source);
+    }
+
+    /**
+     * Moves to a target, timing the first servo command.
+     * @param target Goal
+     * @throws IOException if compass failure
+     */
+    public void moveTo(Target target) throws IOException {
+        moving = true;
+        actuatedAt = 0;
+        servo1.arm();
+        servo2.arm();
+        try {
+            gotoLocation(target.getTilt(), target.getAngle(), target.isTracking());
+        } finally {
+            actuatedAt = earliest(servo1.getFirstCommandAt(), servo2.getFirstCommandAt());
+            moving = false;
+        }
+        if (!isSuperseded()) {
+            remember();
+        }
+    }
+
+    /**
+     * Saves the servo positions, and every SAVE_MAPS_EVERY moves the maps,
+     * if there is somewhere to keep them.
+     */
+    private void remember() {
+        if (memory == null) {
+            return;
+        }
+        savePose();
+        try {
+            if (completedMoves % SAVE_MAPS_EVERY == 0 && panMap.isCalibrated()) {
+                memory.saveMaps(panMap, tiltMap);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Saves the servo positions, if there is somewhere to keep them.
+     */
+    private void savePose() {
+        if (memory == null) {
+            return;
+        }
+        try {
+            memory.savePose(pServo1, pServo2);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gives the Mount somewhere to keep its maps, reference readings,
+     * pose and waypoints across restarts.
+     * @param memory Persistent store, null for none
+     */
+    public void setMemory(MountMemory memory) {
+        this.memory = memory;
+    }
+
+    /**
+     * Reloads what the last run saved: the servo maps, each Pointer's
+     * reference reading, and the servo positions, which the servos are
+     * moved back to.
+     * @return true if the servo maps were restored, so calibration can be
+     *      skipped
+     * @throws IOException if the store cannot be read
+     */
+    public boolean restore() throws IOException {
+        if (memory == null) {
+            return false;
+        }
+        boolean maps = memory.loadMaps(panMap, tiltMap);
+        double[] c = memory.loadDeviation();
+        if (c != null) {
+            synchronized (deviation) {
+                deviation.setCoefficients(c);
+            }
+        }
+        int references = memory.loadReferences(pointers, clock.currentTimeMillis());
+        double[] pose = memory.loadPose();
+        if (pose != null) {
+            jumpTo((float) pose[0], (float) pose[1]);
+        }
+        if (Log.INFO_ON) {
+            Log.info(RESTORED, maps ? 1 : 0, references, pose != null ? 1 : 0);
+        }
+        return maps;
+    }
+
+    /**
+     * Stores where the Mount points now under a name.
+     * @param name Waypoint name, at most MountMemory.MAX_NAME characters
+     * @throws IOException if compass error or the store cannot be written
+     */
+    public void saveWaypoint(String name) throws IOException {
+        if (memory == null) {
+            throw new IOException("No memory to save waypoints in");
+        }
+        double angle = USE_COMPASS ? getAvgAngle() : 0;
+        memory.saveWaypoint(name, pServo1, pServo2, angle, acc.getTiltY());
+    }
+
+    /**
+     * Points the Mount at a saved waypoint: jumps straight to the saved
+     * servo positions, with no Pointer reading and no geometry, then lets
+     * feedback trim to the saved heading and tilt.
+     * @param name Waypoint name
+     * @return false if there is no such waypoint
+     * @throws IOException if compass error or the store cannot be read
+     */
+    public boolean recallWaypoint(String name) throws IOException {
+        double[] wp = memory == null ? null : memory.loadWaypoint(name);
+        if (wp == null) {
+            return false;
+        }
+        moving = true;
+        try {
+            jumpTo((float) wp[0], (float) wp[1]);
+            gotoLocation(wp[3], wp[2]);
+        } finally {
+            moving = false;
+        }
+        remember();
+        return true;
+    }
+
+    private static long earliest(long a, long b) {
+        if (a == 0 || b == 0) {
+            return Math.max(a, b);
+        }
+        return Math.min(a, b);
+    }
+
+    /**
+     * @return Clock time of the first servo command made for the last
+     *      target, 0 if it moved neither servo
+     */
+    public long getLastActuatedAt() {
+        return actuatedAt;
+    }
+
+    /**
+     * @return true while a target is being acted on
+     */
+    public boolean isMoving() {
+        return moving;
+    }
+
+    /**
+     * @return Number of times gotoLocation has returned without giving way
+     *      to a newer target
+     */
+    public int getCompletedMoves() {
+        return completedMoves;
+    }
+
+    /**
+     * @return Number of moves cut short by a newer target
+     */
+    public int getPreemptedMoves() {
+        return preemptedMoves;
+    }
+
+    /**
+     * Manually moves both servos, clamped to [0 1]. The new positions are
+     * where the next move starts from and are saved as the pose.
+     * @param delta Position change
+     */
+    public void jog(float delta) {
+        float tolerance = 5e-4f;
+        if (delta > 0) {
+            starting_servo_position = starting_servo_position + delta + tolerance <= 1.0f ? starting_servo_position + delta : 1;
+        } else {
+            starting_servo_position = starting_servo_position + delta - tolerance >= 0f ? starting_servo_position + delta : 0;
+        }
+        pServo1 = starting_servo_position;
+        pServo2 = starting_servo_position;
+        servo1.setPosition(pServo1);
+        servo2.setPosition(pServo2);
+        savePose();
+    }
+
+    /**
+     * Returns the average angle, see {@link HeadingEstimator}, with the
+     * compass deviation removed once calibrateServoMaps has fitted it.
+     * Reads, or with the sampler waits for fresh readings, until the mean
+     * is within the heading precision, see
+     * {@link #setHeadingPrecision(double, long)}.
+     * @return Angle
+     * @throws IOException 
+     */
+    public double getAvgAngle() throws IOException {
+        double angle = getRawAngle();
+        synchronized (deviation) {
+            return deviation.correct(angle);
+        }
+    }
+
+    /**
+     * @return Average angle as the compass reads it
+     * @throws IOException
+     */
+    private double getRawAngle() throws IOException {
+        synchronized (headingEstimator) {
+            CompassSampler s = sampler;
+            if (s != null) {
+                return s.awaitHeading(FRESH_SAMPLES, headingEstimator, headingSequence,
+                        headingBudgetMs);
+            }
+            for (int i = 0; i < 2; i++) {
+                compass.getAngle();
+            }
+            if (!circularHeading) {
+                return getAvgAngleDropMin();
+            }
+            headingEstimator.reset();
+            headingSequence.reset();
+            long start = clock.currentTimeMillis();
+            do {
+                double angle = compass.getAngle();
+                headingEstimator.add(angle);
+                headingSequence.add(angle);
+            } while (!headingSequence.isDone()
+                    && clock.currentTimeMillis() - start < headingBudgetMs);
+            return headingEstimator.estimate();
+        }
+    }
+
+    /**
+     * Original averaging: drops the lowest of NUM_AVG_READINGS readings and
+     * averages the rest, which fails when they straddle north.
+     * @return Angle
+     * @throws IOException
+     */
+    private double getAvgAngleDropMin() throws IOException {
+        double sum = 0;
+        double min = Double.MAX_VALUE;
+        for (int i = 0; i < NUM_AVG_READINGS; i++) {
+            double angle = compass.getAngle();
+            sum += angle;
+            min = Math.min(min, angle);
+        }
+        sum -= min;
+        return sum / (NUM_AVG_READINGS - 1);
+    }
+    /**
+     * Calculate theta3, unknown of side-angle-side triangle using law of
+     * cosines and law of sines.
+     * @param d1 Distance1
+     * @param d2 Distance2
+     * @param a1 Angle1
+     * @param a2 Angle2
+     * @return Calculated angle3
+     * @see Geometry#angle3(double, double, double, double)
+     * @see FixedGeometry#angle3(int, int, int, int)
+     */
+    public double calcAngle3(double d1, double d2, double a1, double a2) {
+        if (FIXED_POINT) {
+            return Fixed.toDouble(FixedGeometry.angle3(whole(d1), whole(d2),
+                    Fixed.fromDouble(a1), Fixed.fromDouble(a2)));
+        }
+        return Geometry.angle3(d1, d2, a1, a2);
+    }
+
+    /**
+     * Calculate theta3, unknown of side-angle-side triangle using law of
+     * cosines and law of sines.
+     * @param d1 Distance1
+     * @param d2 Distance2
+     * @param a1 Angle1
+     * @param a2 Angle2
+     * @return Calculated tilt3
+     * @see Geometry#tilt3(double, double, double, double)
+     * @see FixedGeometry#tilt3(int, int, int, int)
+     */
+    public double calcTilt3(double d1, double d2, double a1, double a2) {
+        if (FIXED_POINT) {
+            return Fixed.toDouble(FixedGeometry.tilt3(whole(d1), whole(d2),
+                    Fixed.fromDouble(a1), Fixed.fromDouble(a2)));
+        }
+        return Geometry.tilt3(d1, d2, a1, a2);
+    }
+
+    /**
+     * @param d Distance, echo microseconds
+     * @return d rounded for FixedGeometry, which needs only the ratio
+     */
+    private static int whole(double d) {
+        return (int) Math.floor(d + 0.5);
+    }
+
+    /**
+     * Move the Mount to new angle
+     * @param goal_angle New angle
+     * @throws IOException if compass error
+     */
+    public void gotoAngle(double goal_angle) throws IOException {
+        if (goal_angle < 0 || goal_angle > 360)
+            throw new Error("Bad angle: " + goal_angle);
+        if (panLoop.getController() == null) {
+            gotoAngleStepped(goal_angle);
+            return;
+        }
+
+        panGoal = goal_angle;
+        preposition(true, false);
+        int status = panLoop.run(pServo1);
+        lastStatus = status;
+        pServo1 = panLoop.getPosition();
+        lastIterations = panLoop.getIterations();
+        if (status == AxisLoop.SETTLED) {
+            panMap.update(pServo1, panGoal - panLoop.getError());
+        }
+        if (status == AxisLoop.MAX_ITERATIONS) {
+            Log.warn(PAN_UNSETTLED, MAX_NUM_ITERATIONS);
+        } else if (status == AxisLoop.OUT_OF_RANGE) {
+            Log.warn(PAN_RANGE, goal_angle);
+            resetServos();
+        }
+        if (Log.INFO_ON) {
+            Log.info(PAN_DONE, panLoop.getError(), pServo1, lastIterations);
+        }
+        if (Log.DEBUG_ON) {
+            Log.debug(AXIS_TIME, panLoop.getElapsed());
+        }
+    }
+
+    /**
+     * Moves the Mount to a new angle in fixed steps of 1/4 of the error,
+     * sleeping 250ms between steps. Sets lastStatus as the pan loop would.
+     * @param goal_angle New angle
+     * @throws IOException if compass error
+     */
+    private void gotoAngleStepped(double goal_angle) throws IOException {
+        int iterations = 0;
+        lastStatus = AxisLoop.SETTLED;
+        double currentAngle = getAvgAngle();
+        double angle_diff = Geometry.angleDiff(goal_angle, currentAngle);
+        while (Math.abs(angle_diff) > ANGLE_TOLERANCE) {
+            if (isSuperseded()) {
+                lastStatus = AxisLoop.PREEMPTED;
+                break;
+            }
+            if (Log.DEBUG_ON) {
+                Log.debug(PAN_STEP, currentAngle, angle_diff, pServo1);
+            }
+            if (iterations++ > MAX_NUM_ITERATIONS) {
+                Log.warn(PAN_UNSETTLED, MAX_NUM_ITERATIONS);
+                Log.warn(PAN_MISSED, currentAngle, goal_angle);
+                lastStatus = AxisLoop.MAX_ITERATIONS;
+                break;
+            }
+            currentAngle = getAvgAngle();
+            angle_diff = Geometry.angleDiff(goal_angle, currentAngle);
+            pServo1 += angle_diff % 180 / (360.0 * 2);
+            servo1.setPosition(pServo1);
+
+            if (Math.abs(pServo1) >= 1) {
+                Log.warn(PAN_LIMIT, pServo1);
+                resetServos();
+                lastStatus = AxisLoop.OUT_OF_RANGE;
+                break;
+            }
+
+            clock.sleep(250);
+        }
+        lastIterations = iterations;
+        if (Log.INFO_ON) {
+            Log.info(PAN_STEPPED_DONE, currentAngle, angle_diff, pServo1);
+        }
+    }
+
+    /**
+     * Move the mount to tilt
+     * @param goal_tilt New tilt
+     * @throws IOException
+     */
+    public void gotoTilt(double goal_tilt) throws IOException {
+        // increasing servo2 -> increasing tilt
+        // using an upward tilt to mean:
+        if (Math.abs(goal_tilt) > 1) {
+            throw new Error("Bad tilt: " + goal_tilt);
+        }
+        if (tiltLoop.getController() == null) {
+            gotoTiltStepped(goal_tilt);
+            return;
+        }
+
+        tiltGoal = goal_tilt;
+        preposition(false, true);
+        int status = tiltLoop.run(pServo2);
+        lastStatus = status;
+        pServo2 = tiltLoop.getPosition();
+        lastIterations = tiltLoop.getIterations();
+        if (status == AxisLoop.SETTLED) {
+            tiltMap.update(pServo2, tiltGoal - tiltLoop.getError());
+        }
+        if (status == AxisLoop.MAX_ITERATIONS) {
+            Log.warn(TILT_UNSETTLED, MAX_NUM_ITERATIONS);
+        } else if (status == AxisLoop.OUT_OF_RANGE) {
+            Log.warn(TILT_RANGE, goal_tilt);
+            resetServos();
+        }
+        if (Log.INFO_ON) {
+            Log.info(TILT_DONE, tiltLoop.getError(), pServo2, lastIterations);
+        }
+        if (Log.DEBUG_ON) {
+            Log.debug(AXIS_TIME, tiltLoop.getElapsed());
+        }
+    }
+
+    /**
+     * Moves the mount to a new tilt in fixed steps of 1/5 of the error,
+     * sleeping 200ms between steps. Sets lastStatus as the tilt loop would.
+     * @param goal_tilt New tilt
+     * @throws IOException
+     */
+    private void gotoTiltStepped(double goal_tilt) throws IOException {
+        int iterations = 0;
+        lastStatus = AxisLoop.SETTLED;
+        double currentTilt = acc.getTiltY();
+        double tilt_diff = goal_tilt - currentTilt;
+        while (Math.abs(tilt_diff) > TILT_TOLERANCE) {
+            if (isSuperseded()) {
+                lastStatus = AxisLoop.PREEMPTED;
+                break;
+            }
+            if (Log.DEBUG_ON) {
+                Log.debug(TILT_STEP, currentTilt, tilt_diff, pServo2);
+            }
+            if (iterations++ > MAX_NUM_ITERATIONS) {
+                Log.warn(TILT_UNSETTLED, MAX_NUM_ITERATIONS);
+                Log.warn(TILT_MISSED, currentTilt, goal_tilt);
+                lastStatus = AxisLoop.MAX_ITERATIONS;
+                break;
+            }
+            currentTilt = acc.getTiltY();
+            tilt_diff = goal_tilt - currentTilt;
+            pServo2 -= tilt_diff / 5.0;
+            servo2.setPosition(pServo2);
+
+            if (Math.abs(pServo2) >= 1) {
+                Log.warn(TILT_LIMIT, pServo2);
+                resetServos();
+                lastStatus = AxisLoop.OUT_OF_RANGE;
+                break;
+            }
+
+            clock.sleep(200);
+        }
+        lastIterations = iterations;
+        if (Log.INFO_ON) {
+            Log.info(TILT_STEPPED_DONE, currentTilt, tilt_diff, pServo2);
+        }
+    }
+
+    /**
+     * Directs the mount to a desire tilt and angle.
+     * @param goal_tilt New tilt
+     * @param goal_angle New angle
+     * @throws IOException if communication failure between 
+     *      either compass or distance meter
+     */
+    public void gotoLocation(double goal_tilt, double goal_angle) throws IOException {
+        gotoLocation(goal_tilt, goal_angle, false);
+    }
+
+    /**
+     * Directs the mount to a desire tilt and angle.
+     * @param goal_tilt New tilt
+     * @param goal_angle New angle
+     * @param warm true if the goal moved on from the last one: the
+     *      controllers keep their state and start from the current servo
+     *      positions
+     * @throws IOException if communication failure between 
+     *      either compass or distance meter
+     */
+    public void gotoLocation(double goal_tilt, double goal_angle, boolean warm) throws IOException {
+        if (coordinated && USE_COMPASS && panLoop.getController() != null
+                && tiltLoop.getController() != null) {
+            gotoLocationCoordinated(goal_tilt, goal_angle, warm);
+            if (!lastMove.isPreempted()) {
+                telemetry.record(Telemetry.PAN, lastMove.getElapsed(MoveResult.PAN));
+                telemetry.record(Telemetry.TILT, lastMove.getElapsed(MoveResult.TILT));
+            }
+            countMove();
+            return;
+        }
+        MoveResult move = new MoveResult(clock.currentTimeMillis());
+        if (USE_COMPASS) {
+            long start = clock.currentTimeMillis();
+            gotoAngle(goal_angle);
+            move.record(MoveResult.PAN, panLoop, lastStatus);
+            if (!move.isPreempted()) {
+                telemetry.record(Telemetry.PAN, clock.currentTimeMillis() - start);
+            }
+        }
+        if (!move.isPreempted()) {
+            long start = clock.currentTimeMillis();
+            gotoTilt(goal_tilt);
+            move.record(MoveResult.TILT, tiltLoop, lastStatus);
+            if (!move.isPreempted()) {
+                telemetry.record(Telemetry.TILT, clock.currentTimeMillis() - start);
+            }
+        }
+        move.finish(clock.currentTimeMillis(), move.bothSettled());
+        lastMove = panLoop.getController() != null && tiltLoop.getController() != null
+                ? move : null;
+        countMove();
+    }
+
+    private void countMove() {
+        if (lastMove != null && lastMove.isPreempted()) {
+            preemptedMoves++;
+        } else {
+            completedMoves++;
+        }
+    }
+
+    /**
+     * Moves pan and tilt at the same time, see {@link CoordinatedMove}.
+     * @param goal_tilt New tilt
+     * @param goal_angle New angle
+     * @param warm true to keep the controllers' state
+     * @throws IOException if compass error
+     */
+    private void gotoLocationCoordinated(double goal_tilt, double goal_angle, boolean warm)
+            throws IOException {
+        if (goal_angle < 0 || goal_angle > 360)
+            throw new Error("Bad angle: " + goal_angle);
+        if (Math.abs(goal_tilt) > 1) {
+            throw new Error("Bad tilt: " + goal_tilt);
+        }
+
+        panGoal = goal_angle;
+        tiltGoal = goal_tilt;
+        preposition(true, true);
+        lastMove = coordinatedMove.run(pServo1, pServo2, MOVE_TIMEOUT_MS, warm);
+        pServo1 = panLoop.getPosition();
+        pServo2 = tiltLoop.getPosition();
+        if (lastMove.getStatus(MoveResult.PAN) == AxisLoop.SETTLED) {
+            panMap.update(pServo1, panGoal - panLoop.getError());
+        }
+        if (lastMove.getStatus(MoveResult.TILT) == AxisLoop.SETTLED) {
+            tiltMap.update(pServo2, tiltGoal - tiltLoop.getError());
+        }
+        if (lastMove.isOutOfRange(MoveResult.PAN) || lastMove.isOutOfRange(MoveResult.TILT)) {
+            Log.warn(LOCATION_RANGE, goal_angle, goal_tilt);
+            resetServos();
+        }
+        if (Log.INFO_ON) {
+            Log.info(LOCATION_DONE, lastMove.getTotal(), lastMove.getStatus(MoveResult.PAN),
+                    lastMove.getStatus(MoveResult.TILT));
+        }
+    }
+
+    /**
+     * Sweeps both servos across their travel in CALIBRATION_POINTS steps,
+     * recording the heading and tilt at each, and builds the maps moves use
+     * to jump close to their goal. The pan servo turning the compass by a
+     * known amount per step also serves as the reference for fitting the
+     * compass deviation, see {@link CompassDeviation}. Leaves the servos at
+     * START_POSITION.
+     * @throws IOException if compass error
+     */
+    public void calibrateServoMaps() throws IOException {
+        double[] raw = new double[CALIBRATION_POINTS];
+        for (int i = 0; i < CALIBRATION_POINTS; i++) {
+            jumpTo(panMap.position(i), tiltMap.position(i));
+            if (USE_COMPASS) {
+                raw[i] = getRawAngle();
+            }
+            tiltMap.set(i, acc.getTiltY());
+            if (Log.INFO_ON) {
+                Log.info(CALIBRATION, panMap.position(i), raw[i], tiltMap.get(i));
+            }
+        }
+        jumpTo(START_POSITION, START_POSITION);
+        if (USE_COMPASS) {
+            fitDeviation(raw);
+            synchronized (deviation) {
+                for (int i = 0; i < CALIBRATION_POINTS; i++) {
+                    panMap.set(i, deviation.correct(raw[i]));
+                }
+            }
+        }
+        if (memory != null) {
+            memory.saveMaps(panMap, tiltMap);
+        }
+    }
+
+    /**
+     * Fits the compass deviation to a sweep: the servo turned the compass
+     * 1 / PAN_GAIN degrees per unit, measured from the heading read at the
+     * middle of the sweep.
+     * @param raw Uncorrected headings at each map position
+     * @throws IOException if the fit cannot be saved
+     */
+    private void fitDeviation(double[] raw) throws IOException {
+        double centre = raw[CALIBRATION_POINTS / 2];
+        double[] c;
+        synchronized (deviation) {
+            deviation.reset();
+            for (int i = 0; i < CALIBRATION_POINTS; i++) {
+                double turned = (panMap.position(i) - panMap.position(CALIBRATION_POINTS / 2))
+                        / PAN_GAIN;
+                deviation.add(centre + turned, raw[i]);
+            }
+            if (!deviation.fit()) {
+                return;
+            }
+            c = deviation.getCoefficients();
+            if (Log.INFO_ON) {
+                Log.info(DEVIATION, c[1], c[2], c[3]);
+                Log.info(DEVIATION_FIT, c[4], deviation.getResidual(),
+                        deviation.getCoverage().getSpan());
+            }
+        }
+        if (memory != null) {
+            memory.saveDeviation(c);
+        }
+    }
+
+    /**
+     * @return Compass deviation removed from every heading
+     */
+    public CompassDeviation getDeviation() {
+        return deviation;
+    }
+
+    /**
+     * @param use false to always start a move from the current position,
+     *      letting feedback do all of it
+     */
+    public void setUseServoMaps(boolean use) {
+        this.useServoMaps = use;
+    }
+
+    public ServoMap getPanMap() {
+        return panMap;
+    }
+
+    public ServoMap getTiltMap() {
+        return tiltMap;
+    }
+
+    /**
+     * Jumps the servos to the positions the maps predict for panGoal and
+     * tiltGoal and waits for them to get there.
+     * @param pan true to move the pan servo
+     * @param tilt true to move the tilt servo
+     */
+    private void preposition(boolean pan, boolean tilt) {
+        if (!useServoMaps) {
+            return;
+        }
+        float p1 = pan && panMap.isCalibrated() ? panMap.invert(panGoal, pServo1) : -1;
+        float p2 = tilt && tiltMap.isCalibrated() ? tiltMap.invert(tiltGoal, pServo2) : -1;
+        jumpTo(p1 < 0 ? pServo1 : p1, p2 < 0 ? pServo2 : p2);
+    }
+
+    /**
+     * Commands both servos and waits until both have arrived: for the
+     * travel time of a servo that jumps, until the profile has ended for
+     * one that is profiled.
+     * @param p1 Pan servo position
+     * @param p2 Tilt servo position
+     */
+    private void jumpTo(float p1, float p2) {
+        long travel = (long) Math.max(
+                panDrive.isRunning() ? 0 : Math.abs(p1 - pServo1) * PAN_MS_PER_UNIT,
+                tiltDrive.isRunning() ? 0 : Math.abs(p2 - pServo2) * TILT_MS_PER_UNIT);
+        if (p1 != pServo1) {
+            pServo1 = p1;
+            servo1.setPosition(pServo1);
+        }
+        if (p2 != pServo2) {
+            pServo2 = p2;
+            servo2.setPosition(pServo2);
+        }
+        if (travel > 0) {
+            clock.sleep(AxisLoop.SETTLE_MS + travel);
+        }
+        panDrive.awaitArrival(AxisLoop.SETTLE_MS);
+        tiltDrive.awaitArrival(AxisLoop.SETTLE_MS);
+    }
+
+    /**
+     * Reset servos to default position
+     */
+    public void resetServos() {
+        Log.info(RESET);
+        leds.flash(RED, 750);
+        pServo1 = START_POSITION;
+        pServo2 = START_POSITION;
+        starting_servo_position = START_POSITION;
+        servo1.setPosition(pServo1);
+        servo2.setPosition(pServo2);
+    }
+}
@@ -0,0 +1,254 @@
+package org.cmu;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import org.cmu.control.ServoMap;
+import org.cmu.hal.Storage;
+import org.cmu.sensor.CompassDeviation;
+
+/**
+ * Point to Location Framework (PTLoc) -- what the Mount keeps across
+ * restarts: the servo maps, each Pointer's reference reading, the compass
+ * deviation, the last servo positions and named waypoints. Records are a
+ * version byte followed by big-endian fields; a record of another version
+ * or cut short reads as missing.
+ */
+public class MountMemory {
+
+    public static final int VERSION = 1;
+    public static final String MAPS = "maps";
+    public static final String REFERENCES = "references";
+    public static final String DEVIATION = "deviation";
+    public static final String POSE = "pose";
+    public static final String WAYPOINT = "wp.";
+    /** Longest waypoint name, keeping record names within the RMS limit. */
+    public static final int MAX_NAME = 16;
+    private final Storage storage;
+
+    /**
+     * @param storage Where the records are kept.
+     */
+    public MountMemory(Storage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * @param pan Pan map
+     * @param tilt Tilt map
+     * @throws IOException if the store cannot be written
+     */
+    public void saveMaps(ServoMap pan, ServoMap tilt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = begin(bytes);
+        out.writeByte(pan.size());
+        for (int i = 0; i < pan.size(); i++) {
+            out.writeFloat((float) pan.get(i));
+            out.writeFloat((float) tilt.get(i));
+        }
+        storage.write(MAPS, bytes.toByteArray());
+    }
+
+    /**
+     * @param pan Pan map to fill
+     * @param tilt Tilt map to fill
+     * @return false if no maps of this size were saved
+     * @throws IOException if the store cannot be read
+     */
+    public boolean loadMaps(ServoMap pan, ServoMap tilt) throws IOException {
+        DataInputStream in = open(MAPS);
+        try {
+            if (in == null || in.readUnsignedByte() != pan.size()) {
+                return false;
+            }
+            for (int i = 0; i < pan.size(); i++) {
+                pan.set(i, in.readFloat());
+                tilt.set(i, in.readFloat());
+            }
+            return true;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Saves the reference reading of every Pointer that has one, as a
+     * single record.
+     * @param pointers The Mount's Pointers
+     * @throws IOException if the store cannot be written
+     */
+    public void saveReferences(PointerTable pointers) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = begin(bytes);
+        synchronized (pointers) {
+            int count = 0;
+            for (int i = 0; i < pointers.size(); i++) {
+                if (pointers.entry(i).hasReference()) {
+                    count++;
+                }
+            }
+            out.writeByte(count);
+            for (int i = 0; i < pointers.size(); i++) {
+                PointerState p = pointers.entry(i);
+                synchronized (p) {
+                    if (p.hasReference()) {
+                        out.writeLong(p.getAddress());
+                        out.writeDouble(p.getDistance());
+                        out.writeDouble(p.getAngle());
+                        out.writeDouble(p.getTilt());
+                    }
+                }
+            }
+        }
+        storage.write(REFERENCES, bytes.toByteArray());
+    }
+
+    /**
+     * @param pointers Table to add the saved Pointers to
+     * @param now Clock time to mark them as heard from
+     * @return Reference readings restored
+     * @throws IOException if the store cannot be read
+     */
+    public int loadReferences(PointerTable pointers, long now) throws IOException {
+        DataInputStream in = open(REFERENCES);
+        if (in == null) {
+            return 0;
+        }
+        int restored = 0;
+        try {
+            int count = in.readUnsignedByte();
+            for (int i = 0; i < count; i++) {
+                long address = in.readLong();
+                double d = in.readDouble();
+                double angle = in.readDouble();
+                double tilt = in.readDouble();
+                PointerState p = pointers.get(address, now);
+                if (p != null) {
+                    p.setReference(d, angle, tilt);
+                    restored++;
+                }
+            }
+        } catch (EOFException e) {
+            // keep the whole entries read so far
+        }
+        return restored;
+    }
+
+    /**
+     * @param c Compass deviation coefficients, see CompassDeviation
+     * @throws IOException if the store cannot be written
+     */
+    public void saveDeviation(double[] c) throws IOException {
+        storage.write(DEVIATION, doubles(c));
+    }
+
+    /**
+     * @return Compass deviation coefficients, null if never fitted
+     * @throws IOException if the store cannot be read
+     */
+    public double[] loadDeviation() throws IOException {
+        return doubles(DEVIATION, CompassDeviation.TERMS);
+    }
+
+    /**
+     * @param pan Pan servo position
+     * @param tilt Tilt servo position
+     * @throws IOException if the store cannot be written
+     */
+    public void savePose(float pan, float tilt) throws IOException {
+        storage.write(POSE, doubles(new double[]{pan, tilt}));
+    }
+
+    /**
+     * @return {pan, tilt} servo positions last saved, null if none
+     * @throws IOException if the store cannot be read
+     */
+    public double[] loadPose() throws IOException {
+        return doubles(POSE, 2);
+    }
+
+    /**
+     * @param name Waypoint name, at most MAX_NAME characters
+     * @param pan Pan servo position
+     * @param tilt Tilt servo position
+     * @param angle Heading measured there
+     * @param tiltY Tilt measured there
+     * @throws IOException if the store cannot be written
+     */
+    public void saveWaypoint(String name, float pan, float tilt, double angle, double tiltY)
+            throws IOException {
+        storage.write(waypoint(name), doubles(new double[]{pan, tilt, angle, tiltY}));
+    }
+
+    /**
+     * @param name Waypoint name
+     * @return {pan, tilt, heading, tiltY}, null if there is no such waypoint
+     * @throws IOException if the store cannot be read
+     */
+    public double[] loadWaypoint(String name) throws IOException {
+        return doubles(waypoint(name), 4);
+    }
+
+    /**
+     * @param name Waypoint name
+     * @throws IOException if the store cannot be written
+     */
+    public void deleteWaypoint(String name) throws IOException {
+        storage.delete(waypoint(name));
+    }
+
+    private static String waypoint(String name) {
+        if (name.length() == 0 || name.length() > MAX_NAME) {
+            throw new IllegalArgumentException("Bad waypoint name: " + name);
+        }
+        return WAYPOINT + name;
+    }
+
+    private static DataOutputStream begin(ByteArrayOutputStream bytes) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        return out;
+    }
+
+    private static byte[] doubles(double[] values) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = begin(bytes);
+        for (int i = 0; i < values.length; i++) {
+            out.writeDouble(values[i]);
+        }
+        return bytes.toByteArray();
+    }
+
+    private double[] doubles(String name, int count) throws IOException {
+        DataInputStream in = open(name);
+        if (in == null) {
+            return null;
+        }
+        double[] values = new double[count];
+        try {
+            for (int i = 0; i < count; i++) {
+                values[i] = in.readDouble();
+            }
+        } catch (EOFException e) {
+            return null;
+        }
+        return values;
+    }
+
+    /**
+     * @return The record past its version byte, null if missing or of
+     *      another version
+     */
+    private DataInputStream open(String name) throws IOException {
+        byte[] data = storage.read(name);
+        if (data == null || data.length == 0 || data[0] != VERSION) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        in.readByte();
+        return in;
+    }
+}
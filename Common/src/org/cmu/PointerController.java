@@ -0,0 +1,530 @@
+package org.cmu;
+
+import java.io.IOException;
+import org.cmu.hal.Accelerometer;
+import org.cmu.hal.CalibratingCompass;
+import org.cmu.hal.Clock;
+import org.cmu.hal.Compass;
+import org.cmu.hal.PacketLink;
+import org.cmu.hal.RangeFinder;
+import org.cmu.hal.StatusLeds;
+import org.cmu.log.Log;
+import org.cmu.net.Frame;
+import org.cmu.net.FrameEncoder;
+import org.cmu.sensor.CompassSampler;
+import org.cmu.sensor.HeadingCoverage;
+import org.cmu.sensor.HeadingEstimator;
+import org.cmu.sensor.RangeReader;
+import org.cmu.sensor.SequentialEstimator;
+import org.cmu.telemetry.Telemetry;
+
+/**
+ * Point to Location Framework (PTLoc) -- Pointer logic. Talks to the hardware
+ * only through the org.cmu.hal interfaces so it runs unchanged on the SunSPOT
+ * and in the desktop simulator.
+ */
+public class PointerController {
+
+    public static final int[] LIGHT_BLUE = new int[]{100, 100, 100};
+    public static final int[] GREEN = new int[]{0, 128, 0};
+    public static final int[] GOLD = new int[]{255, 215, 0};
+    public static final int[] RED = new int[]{255, 0, 0}; // error color
+    public static final int NUM_AVG_READINGS = 5;
+    /**
+     * 95% confidence half-width, in degrees, at which a blocking heading
+     * read stops taking readings, see {@link SequentialEstimator}.
+     */
+    public static final double HEADING_PRECISION = 0.5;
+    /** Longest a blocking heading read keeps reading towards HEADING_PRECISION. */
+    public static final long HEADING_BUDGET_MS = 250;
+    /** 95% confidence half-width of a distance, echo microseconds (1 inch). */
+    public static final double DISTANCE_PRECISION = 148;
+    /** Echoes a distance may average when they are noisy. */
+    public static final int MAX_DISTANCE_SAMPLES = 16;
+    /** Time allowed for the averaged distance of one reading. */
+    public static final long DISTANCE_BUDGET_MS = 300;
+    /** Missed echoes tolerated per distance before giving up. */
+    public static final int MAX_MISSED_ECHOES = 5;
+    /** Time between tracking readings, 10 Hz. */
+    public static final long DEFAULT_TRACK_PERIOD_MS = 100;
+    /** Full turns the Pointer must make during calibration. */
+    public static final int CALIBRATION_TURNS = 2;
+    public static final long CALIBRATION_SAMPLE_MS = 50;
+    private static final int SENDING = Log.define("switch {0} pressed, heading confidence {1}");
+    private static final int SENDING_VALUES = Log.define("sending: d {0}, angle {1}, tilt {2}");
+    private static final int SENT = Log.define("sending successful");
+    private static final int CALIBRATING = Log.define("calibrating: {0}%");
+    private final Compass compass;
+    private final RangeFinder rangeFinder;
+    private final RangeReader rangeReader;
+    private final Accelerometer acc;
+    private final StatusLeds leds;
+    private final Clock clock;
+    private final PacketLink link;
+    private final FrameEncoder encoder = new FrameEncoder();
+    private final byte[] frame = new byte[Frame.MAX_SIZE];
+    private final int[] marks = new int[Frame.MARKS];
+    private int lastSendMs = -1;
+    private volatile long trackPeriod = DEFAULT_TRACK_PERIOD_MS;
+    private volatile Thread trackThread;
+    private volatile int trackedReadings;
+    private int lastEcho;
+    private boolean parallel = true;
+    private CompassSampler sampler;
+    private final HeadingEstimator headingEstimator = new HeadingEstimator();
+    private final SequentialEstimator headingSequence = new SequentialEstimator(true,
+            HEADING_PRECISION, SequentialEstimator.MIN_SAMPLES, HeadingEstimator.MAX_SAMPLES);
+    private final SequentialEstimator distanceSequence = new SequentialEstimator(false,
+            DISTANCE_PRECISION, SequentialEstimator.MIN_SAMPLES, MAX_DISTANCE_SAMPLES);
+
+    /**
+     * @param compass Heading sensor.
+     * @param rangeFinder Distance sensor.
+     * @param acc Tilt sensor.
+     * @param leds Status LEDs.
+     * @param clock Time source for all waits.
+     * @param link Radio link to the Mount.
+     */
+    public PointerController(Compass compass, RangeFinder rangeFinder,
+            Accelerometer acc, StatusLeds leds, Clock clock, PacketLink link) {
+        this.compass = compass;
+        this.rangeFinder = rangeFinder;
+        this.rangeReader = new RangeReader(rangeFinder, clock, MAX_MISSED_ECHOES,
+                DISTANCE_BUDGET_MS);
+        this.acc = acc;
+        this.leds = leds;
+        this.clock = clock;
+        this.link = link;
+    }
+
+    /**
+     * Moves compass reads onto a background thread so a switch press reads
+     * the already-filtered heading. The I2C bus must already be open.
+     */
+    public void startCompassSampler() {
+        if (sampler == null) {
+            sampler = new CompassSampler(compass, clock);
+            sampler.start();
+        }
+    }
+
+    /**
+     * Stops the background compass thread, if any.
+     */
+    public void stopCompassSampler() {
+        if (sampler != null) {
+            sampler.stop();
+            sampler = null;
+        }
+    }
+
+    /**
+     * Runs the compass module's own calibration while the Pointer is turned
+     * by hand, ending it once every heading sector has been seen and the
+     * Pointer has made CALIBRATION_TURNS full turns, rather than after a
+     * fixed time. Progress is printed every 10%. The compass sampler must
+     * not be running.
+     * @param timeoutMs Longest the calibration may take
+     * @return Progress made, 1 if calibration completed
+     * @throws IOException if the compass cannot calibrate or fails
+     */
+    public double calibrateCompass(long timeoutMs) throws IOException {
+        if (!(compass instanceof CalibratingCompass)) {
+            throw new IOException("Compass cannot calibrate");
+        }
+        CalibratingCompass cal = (CalibratingCompass) compass;
+        HeadingCoverage coverage = new HeadingCoverage();
+        long deadline = clock.currentTimeMillis() + timeoutMs;
+        int reported = 0;
+        double progress = 0;
+        cal.startCalibration();
+        leds.setOn(GOLD);
+        try {
+            while (progress < 1 && clock.currentTimeMillis() < deadline) {
+                coverage.add(compass.getAngle());
+                progress = Math.min(coverage.getCoverage(),
+                        Math.abs(coverage.getTurned()) / (360.0 * CALIBRATION_TURNS));
+                if ((int) (progress * 10) > reported) {
+                    reported = (int) (progress * 10);
+                    if (Log.INFO_ON) {
+                        Log.info(CALIBRATING, reported * 10);
+                    }
+                }
+                clock.sleep(CALIBRATION_SAMPLE_MS);
+            }
+        } finally {
+            cal.endCalibration();
+            leds.setOff();
+        }
+        leds.flash(progress < 1 ? RED : GREEN, 500);
+        return progress;
+    }
+
+    /**
+     * Measures distance, angle and tilt and sends them to the Mount.
+     * @param type 1 == set mount distance, 2 == set destination distance
+     * @throws IOException if sensor or radio failure.
+     */
+    public void measureAndSend(int type) throws IOException {
+        long pressed = clock.currentTimeMillis();
+        Reading reading = measure(type);
+        send(reading, pressed, clock.currentTimeMillis());
+    }
+
+    /**
+     * Sends a reading taken earlier, with the LED feedback of
+     * {@link #measureAndSend(int)}, so a caller can measure first and decide
+     * afterwards whether to send.
+     * @param reading Reading from {@link #measure(int)}
+     * @param pressed Clock time of the button press
+     * @param measured Clock time the measurement ended
+     * @throws IOException if radio failure.
+     */
+    public void send(Reading reading, long pressed, long measured) throws IOException {
+        int type = reading.getType();
+        long feedback = clock.currentTimeMillis();
+        leds.flash(type == 1 ? LIGHT_BLUE : GOLD, 250);
+        long flashed = clock.currentTimeMillis();
+        if (Log.INFO_ON) {
+            Log.info(SENDING, type, getHeadingConfidence());
+            Log.info(SENDING_VALUES, reading.getDistance(), reading.getAngle(), reading.getTilt());
+        }
+        send(new Reading[]{reading}, 1, (int) (measured - pressed), (int) (flashed - feedback));
+        leds.flash(GREEN, 250);
+        if (Log.DEBUG_ON) {
+            Log.debug(SENT);
+        }
+    }
+
+    /**
+     * Measures distance, angle and tilt. The distance is ranged on its own
+     * thread while the compass and accelerometer are read, so a reading
+     * takes as long as the slower of the two.
+     * @param type Reading type
+     * @return The reading
+     * @throws IOException if no echo within DISTANCE_BUDGET_MS, or compass
+     *      failure.
+     */
+    public Reading measure(int type) throws IOException {
+        if (!parallel) {
+            double dist = getAvgDist();
+            double angle = getAvgAngle();
+            return new Reading(type, dist, angle, acc.getTiltY(), clock.currentTimeMillis());
+        }
+        final double[] dist = new double[1];
+        final IOException[] failure = new IOException[1];
+        Thread ranging = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    dist[0] = getAvgDist();
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            }
+        }, "range");
+        ranging.start();
+        double angle;
+        double tilt;
+        try {
+            angle = getAvgAngle();
+            tilt = acc.getTiltY();
+        } finally {
+            join(ranging);
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return new Reading(type, dist[0], angle, tilt, clock.currentTimeMillis());
+    }
+
+    private static void join(Thread t) {
+        while (t.isAlive()) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                // keep waiting, ranging is bounded by DISTANCE_BUDGET_MS
+            }
+        }
+    }
+
+    /**
+     * Chooses whether measure() ranges and reads the compass at once.
+     * @param parallel false to read one sensor after the other
+     */
+    public void setParallelAcquisition(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Sends readings to the Mount, Frame.MAX_READINGS to a packet.
+     * @param readings Readings to send
+     * @param count Number of readings
+     * @throws IOException if radio failure.
+     */
+    public void send(Reading[] readings, int count) throws IOException {
+        send(readings, count, -1, -1);
+    }
+
+    /**
+     * Sends readings with the time spent measuring them and showing the
+     * LEDs, which go in the first frame. Every frame also carries how long
+     * the radio took to send the one before it.
+     */
+    private void send(Reading[] readings, int count, int measureMs, int feedbackMs)
+            throws IOException {
+        synchronized (frame) {
+            marks[Frame.MARK_MEASURE] = measureMs;
+            marks[Frame.MARK_FEEDBACK] = feedbackMs;
+            for (int i = 0; i < count; i += Frame.MAX_READINGS) {
+                marks[Frame.MARK_RADIO] = lastSendMs;
+                int length = encoder.encode(readings, i,
+                        Math.min(Frame.MAX_READINGS, count - i), frame, marks);
+                long start = clock.currentTimeMillis();
+                link.send(frame, 0, length);
+                lastSendMs = (int) (clock.currentTimeMillis() - start);
+                marks[Frame.MARK_MEASURE] = -1;
+                marks[Frame.MARK_FEEDBACK] = -1;
+            }
+        }
+    }
+
+    /**
+     * Asks the Mount for its latency summary and waits for the reply. The
+     * link must not be receiving on another thread, and must be able to
+     * receive at all: a broadcast link fails here rather than wait forever.
+     * @param reply Buffer of at least the link's getMaxPacketSize() bytes
+     * @return Per stage {count, p50, p95, max} in ms, see
+     *      {@link Telemetry#decode(byte[], int)}; null if the link closed
+     * @throws IOException if radio failure, or the link cannot receive.
+     */
+    public int[][] queryTelemetry(byte[] reply) throws IOException {
+        send(new Reading[]{new Reading(Telemetry.QUERY, 0, 0, 0, clock.currentTimeMillis())}, 1);
+        while (true) {
+            int length = link.receive(reply);
+            if (length < 0) {
+                return null;
+            }
+            int[][] summary = Telemetry.decode(reply, length);
+            if (summary != null) {
+                return summary;
+            }
+        }
+    }
+
+    /**
+     * Sets how often readings are sent while tracking.
+     * @param periodMs Time between readings
+     */
+    public void setTrackPeriod(long periodMs) {
+        this.trackPeriod = periodMs;
+    }
+
+    /**
+     * Starts streaming type 3 readings to the Mount, one per track period,
+     * until {@link #stopTracking()}. Each reading is a single distance echo,
+     * the sampler's current heading and the tilt, without LED flashes.
+     * @return The tracking thread
+     */
+    public synchronized Thread startTracking() {
+        if (trackThread == null) {
+            trackThread = new Thread(new Runnable() {
+
+                public void run() {
+                    track();
+                }
+            }, "track");
+            trackThread.start();
+        }
+        return trackThread;
+    }
+
+    /**
+     * Stops the tracking stream after the reading being sent.
+     */
+    public synchronized void stopTracking() {
+        trackThread = null;
+    }
+
+    /**
+     * @return Readings sent while tracking
+     */
+    public int getTrackedReadings() {
+        return trackedReadings;
+    }
+
+    private void track() {
+        Thread me = Thread.currentThread();
+        Reading[] reading = new Reading[]{new Reading(3, 0, 0, 0, 0)};
+        long next = clock.currentTimeMillis();
+        leds.setOn(GOLD);
+        try {
+            // a restart within one period leaves this thread asleep while a
+            // new one runs; it must not carry on alongside it
+            while (trackThread == me) {
+                int echo = rangeFinder.getEchoTime();
+                if (echo == 0) {
+                    echo = lastEcho; // missed, keep the last distance
+                }
+                lastEcho = echo;
+                double angle = getCurrentAngle();
+                double tilt = acc.getTiltY();
+                if (echo > 0) {
+                    reading[0].set(3, echo, angle, tilt, clock.currentTimeMillis());
+                    send(reading, 1);
+                    trackedReadings++;
+                }
+                next += trackPeriod;
+                long wait = next - clock.currentTimeMillis();
+                if (wait > 0) {
+                    clock.sleep(wait);
+                } else {
+                    next = clock.currentTimeMillis(); // fell behind, don't burst
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            leds.flash(RED, 1000);
+        } finally {
+            synchronized (this) {
+                if (trackThread == me) {
+                    trackThread = null; // failed, let startTracking run again
+                }
+                if (trackThread == null) {
+                    leds.setOff(); // not a newer thread's LED
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The sampler's filtered heading, or one compass read without it
+     * @throws IOException if compass communication failure.
+     */
+    private double getCurrentAngle() throws IOException {
+        CompassSampler s = sampler;
+        if (s == null || s.getCount() == 0) {
+            return compass.getAngle();
+        }
+        synchronized (headingEstimator) {
+            return s.getHeading(headingEstimator);
+        }
+    }
+
+    /**
+     * Gets distance, retrying missed echoes within DISTANCE_BUDGET_MS.
+     * @return Distance. Divide by 148 to get inches. RangeReader.ERROR if
+     *      no echo came back.
+     */
+    public int getDistance() {
+        return rangeReader.read();
+    }
+
+    /**
+     * Gets the average compass angle, see {@link HeadingEstimator}, of as
+     * many readings as the heading precision needs, see
+     * {@link #setPrecision(double, double)}: sampled ones taken after the
+     * call with the sampler running, otherwise fresh reads. Older samples
+     * may predate the press and show where the Pointer was aimed before.
+     * @return Average compass angle.
+     * @throws IOException if compass communication failure.
+     */
+    public double getAvgAngle() throws IOException {
+        synchronized (headingEstimator) {
+            CompassSampler s = sampler;
+            if (s != null) {
+                return s.awaitHeading(SequentialEstimator.MIN_SAMPLES, headingEstimator,
+                        headingSequence, HEADING_BUDGET_MS);
+            }
+            for (int i = 0; i < 2; i++) {
+                compass.getAngle();
+            }
+            headingEstimator.reset();
+            headingSequence.reset();
+            long start = clock.currentTimeMillis();
+            do {
+                double angle = compass.getAngle();
+                headingEstimator.add(angle);
+                headingSequence.add(angle);
+            } while (!headingSequence.isDone()
+                    && clock.currentTimeMillis() - start < HEADING_BUDGET_MS);
+            return headingEstimator.estimate();
+        }
+    }
+
+    /**
+     * @return Confidence of the last getAvgAngle, [0 1]
+     */
+    public double getHeadingConfidence() {
+        synchronized (headingEstimator) {
+            return headingEstimator.getConfidence();
+        }
+    }
+
+    /**
+     * @return 95% confidence half-width of the last getAvgAngle in degrees
+     */
+    public double getHeadingPrecision() {
+        synchronized (headingEstimator) {
+            return headingEstimator.getPrecision();
+        }
+    }
+
+    /**
+     * Chooses how many readings getAvgAngle and getAvgDist average.
+     * Distances stop at DISTANCE_BUDGET_MS, headings at HEADING_BUDGET_MS.
+     * @param heading 95% confidence half-width in degrees to read until;
+     *      0 for always NUM_AVG_READINGS
+     * @param distance 95% confidence half-width in echo microseconds to
+     *      read until; 0 for always NUM_AVG_READINGS
+     */
+    public void setPrecision(double heading, double distance) {
+        synchronized (headingEstimator) {
+            if (heading > 0) {
+                headingSequence.configure(heading, SequentialEstimator.MIN_SAMPLES,
+                        HeadingEstimator.MAX_SAMPLES);
+            } else {
+                headingSequence.configure(0, NUM_AVG_READINGS, NUM_AVG_READINGS);
+            }
+        }
+        synchronized (rangeReader) {
+            if (distance > 0) {
+                distanceSequence.configure(distance, SequentialEstimator.MIN_SAMPLES,
+                        MAX_DISTANCE_SAMPLES);
+            } else {
+                distanceSequence.configure(0, NUM_AVG_READINGS, NUM_AVG_READINGS);
+            }
+        }
+    }
+
+    /**
+     * Gets the average distance of as many echoes as the distance precision
+     * needs and DISTANCE_BUDGET_MS allows.
+     * @return Average distance
+     * @throws IOException If no echo came back.
+     */
+    public double getAvgDist() throws IOException {
+        double dist = rangeReader.readAverage(distanceSequence);
+        if (dist == RangeReader.ERROR) {
+            throw new IOException("No echo within " + DISTANCE_BUDGET_MS + "ms");
+        }
+        return dist;
+    }
+
+    /**
+     * @return 95% confidence half-width of the last getAvgDist in echo
+     *      microseconds, infinite if it averaged fewer than two echoes
+     */
+    public double getDistancePrecision() {
+        synchronized (rangeReader) {
+            return distanceSequence.getHalfWidth();
+        }
+    }
+
+    /**
+     * @return Distance calls that found no echo
+     */
+    public int getRangeFailures() {
+        return rangeReader.getFailures();
+    }
+}
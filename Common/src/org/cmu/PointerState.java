@@ -0,0 +1,127 @@
+package org.cmu;
+
+import org.cmu.net.FrameDecoder;
+
+/**
+ * Point to Location Framework (PTLoc) -- what the Mount keeps about one
+ * Pointer: a frame decoder of its own, so its sequence numbers are checked
+ * apart from other Pointers', and its type 1 reference reading.
+ */
+public class PointerState {
+
+    private final long address;
+    private final FrameDecoder decoder = new FrameDecoder();
+    private boolean hasReference;
+    private double distance;
+    private double angle;
+    private double tilt;
+    private long lastSeen;
+    private int packets;
+    private int moves;
+    private long latencySum;
+    private long maxLatency;
+
+    /**
+     * @param address Radio address of the Pointer
+     */
+    public PointerState(long address) {
+        this.address = address;
+    }
+
+    public long getAddress() {
+        return address;
+    }
+
+    /**
+     * @return Decoder for this Pointer's packets
+     */
+    public FrameDecoder getDecoder() {
+        return decoder;
+    }
+
+    /**
+     * Stores a type 1 reading: the Pointer aimed at the Mount.
+     * @param d Distance
+     * @param angle Compass angle
+     * @param tilt Tilt
+     */
+    public synchronized void setReference(double d, double angle, double tilt) {
+        this.distance = d;
+        this.angle = angle;
+        this.tilt = tilt;
+        hasReference = true;
+    }
+
+    /**
+     * @return true once a type 1 reading was stored
+     */
+    public synchronized boolean hasReference() {
+        return hasReference;
+    }
+
+    public synchronized double getDistance() {
+        return distance;
+    }
+
+    public synchronized double getAngle() {
+        return angle;
+    }
+
+    public synchronized double getTilt() {
+        return tilt;
+    }
+
+    /**
+     * @param now Clock time a packet arrived from this Pointer
+     */
+    synchronized void seen(long now) {
+        lastSeen = now;
+        packets++;
+    }
+
+    /**
+     * @return Clock time of this Pointer's last packet
+     */
+    public synchronized long getLastSeen() {
+        return lastSeen;
+    }
+
+    /**
+     * @return Packets received from this Pointer
+     */
+    public synchronized int getPackets() {
+        return packets;
+    }
+
+    /**
+     * @param latency Receive-to-actuation of a move to one of this Pointer's
+     *      targets, ms
+     */
+    synchronized void moved(long latency) {
+        moves++;
+        latencySum += latency;
+        maxLatency = Math.max(maxLatency, latency);
+    }
+
+    /**
+     * @return Moves made for this Pointer
+     */
+    public synchronized int getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return Mean receive-to-actuation of this Pointer's moves in ms, -1 if
+     *      none
+     */
+    public synchronized long getMeanLatency() {
+        return moves == 0 ? -1 : latencySum / moves;
+    }
+
+    /**
+     * @return Worst receive-to-actuation of this Pointer's moves in ms
+     */
+    public synchronized long getMaxLatency() {
+        return maxLatency;
+    }
+}
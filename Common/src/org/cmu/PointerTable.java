@@ -0,0 +1,116 @@
+package org.cmu;
+
+import org.cmu.log.Log;
+
+/**
+ * Point to Location Framework (PTLoc) -- the Pointers a Mount has heard
+ * from, at most a fixed number. A packet from a new Pointer when the table
+ * is full evicts the one heard from least recently, along with its
+ * reference reading, but only if that one has been silent for a while;
+ * otherwise the newcomer is refused, so Pointers in use keep working under
+ * overload instead of evicting each other in turn.
+ */
+public class PointerTable {
+
+    public static final int DEFAULT_CAPACITY = 8;
+    /** Silence after which a Pointer may be evicted for a new one. */
+    public static final long DEFAULT_IDLE_MS = 60000;
+    private static final int EVICTING = Log.define("evicting pointer {0:x}");
+    private final PointerState[] entries;
+    private final long idleMs;
+    private int size;
+    private int evictions;
+    private int refused;
+
+    /**
+     * @param capacity Most Pointers kept at once
+     */
+    public PointerTable(int capacity) {
+        this(capacity, DEFAULT_IDLE_MS);
+    }
+
+    /**
+     * @param capacity Most Pointers kept at once
+     * @param idleMs Silence after which a Pointer may be evicted
+     */
+    public PointerTable(int capacity, long idleMs) {
+        this.entries = new PointerState[capacity];
+        this.idleMs = idleMs;
+    }
+
+    /**
+     * Finds a Pointer, adding it if new, and marks it as just heard from.
+     * @param address Radio address of the Pointer
+     * @param now Clock time of the packet
+     * @return The Pointer's state, null if the table is full of Pointers
+     *      heard from recently
+     */
+    public synchronized PointerState get(long address, long now) {
+        PointerState p = find(address);
+        if (p == null) {
+            int slot = size;
+            if (size == entries.length) {
+                slot = 0;
+                for (int i = 1; i < size; i++) {
+                    if (entries[i].getLastSeen() < entries[slot].getLastSeen()) {
+                        slot = i;
+                    }
+                }
+                if (now - entries[slot].getLastSeen() < idleMs) {
+                    refused++;
+                    return null;
+                }
+                Log.info(EVICTING, entries[slot].getAddress());
+                evictions++;
+            } else {
+                size++;
+            }
+            p = new PointerState(address);
+            entries[slot] = p;
+        }
+        p.seen(now);
+        return p;
+    }
+
+    /**
+     * @param address Radio address of the Pointer
+     * @return The Pointer's state, null if not in the table
+     */
+    public synchronized PointerState find(long address) {
+        for (int i = 0; i < size; i++) {
+            if (entries[i].getAddress() == address) {
+                return entries[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param i Entry, 0 to size() - 1
+     * @return The entry
+     */
+    public synchronized PointerState entry(int i) {
+        return entries[i];
+    }
+
+    /**
+     * @return Pointers in the table
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return Pointers dropped to make room
+     */
+    public synchronized int getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return Packets dropped because the table was full
+     */
+    public synchronized int getRefused() {
+        return refused;
+    }
+}
@@ -0,0 +1,64 @@
+package org.cmu;
+
+/**
+ * Point to Location Framework (PTLoc) -- one measurement sent by the Pointer,
+ * stamped with the Mount's clock when it was decoded. Decoders and the
+ * tracking loop overwrite one Reading per slot with set() rather than
+ * allocating one per message, so a Reading is only valid until the next
+ * frame is decoded into it.
+ */
+public class Reading {
+
+    private int type;
+    private double d;
+    private double angle;
+    private double tilt;
+    private long receivedAt;
+
+    /**
+     * @param type 1 == mount distance, 2 == destination distance
+     * @param d Distance
+     * @param angle Compass angle
+     * @param tilt Tilt
+     * @param receivedAt Mount clock time the reading was decoded
+     */
+    public Reading(int type, double d, double angle, double tilt, long receivedAt) {
+        set(type, d, angle, tilt, receivedAt);
+    }
+
+    /**
+     * Overwrites every field.
+     * @param type 1 == mount distance, 2 == destination distance
+     * @param d Distance
+     * @param angle Compass angle
+     * @param tilt Tilt
+     * @param receivedAt Mount clock time the reading was decoded
+     */
+    public void set(int type, double d, double angle, double tilt, long receivedAt) {
+        this.type = type;
+        this.d = d;
+        this.angle = angle;
+        this.tilt = tilt;
+        this.receivedAt = receivedAt;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public double getDistance() {
+        return d;
+    }
+
+    public double getAngle() {
+        return angle;
+    }
+
+    public double getTilt() {
+        return tilt;
+    }
+
+    public long getReceivedAt() {
+        return receivedAt;
+    }
+}
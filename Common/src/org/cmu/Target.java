@@ -0,0 +1,69 @@
+package org.cmu;
+
+/**
+ * Point to Location Framework (PTLoc) -- pan and tilt goal worked out from a
+ * type 2 reading, stamped with the time the reading was decoded and the
+ * Pointer it came from.
+ */
+public class Target {
+
+    private final double angle;
+    private final double tilt;
+    private final long receivedAt;
+    private final boolean tracking;
+    private final long source;
+
+    /**
+     * @param angle Goal compass angle
+     * @param tilt Goal tilt
+     * @param receivedAt Mount clock time the reading was decoded
+     */
+    public Target(double angle, double tilt, long receivedAt) {
+        this(angle, tilt, receivedAt, false);
+    }
+
+    /**
+     * @param angle Goal compass angle
+     * @param tilt Goal tilt
+     * @param receivedAt Mount clock time the reading was decoded
+     * @param tracking true if part of a stream from a held switch
+     */
+    public Target(double angle, double tilt, long receivedAt, boolean tracking) {
+        this(angle, tilt, receivedAt, tracking, 0);
+    }
+
+    /**
+     * @param angle Goal compass angle
+     * @param tilt Goal tilt
+     * @param receivedAt Mount clock time the reading was decoded
+     * @param tracking true if part of a stream from a held switch
+     * @param source Radio address of the Pointer
+     */
+    public Target(double angle, double tilt, long receivedAt, boolean tracking, long source) {
+        this.angle = angle;
+        this.tilt = tilt;
+        this.receivedAt = receivedAt;
+        this.tracking = tracking;
+        this.source = source;
+    }
+
+    public double getAngle() {
+        return angle;
+    }
+
+    public double getTilt() {
+        return tilt;
+    }
+
+    public long getReceivedAt() {
+        return receivedAt;
+    }
+
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    public long getSource() {
+        return source;
+    }
+}
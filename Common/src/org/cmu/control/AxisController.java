@@ -0,0 +1,21 @@
+package org.cmu.control;
+
+/**
+ * PTLoc -- feedback law for one servo axis. The output is a correction to
+ * the servo command, applied once per control period.
+ */
+public interface AxisController {
+
+    /**
+     * Clears all state before a new move.
+     */
+    void reset();
+
+    /**
+     * Computes the next correction.
+     * @param error Goal minus measurement, in sensor units
+     * @param dt Seconds since the previous update, 0 on the first one
+     * @return Servo position change
+     */
+    double update(double error, double dt);
+}
@@ -0,0 +1,185 @@
+package org.cmu.control;
+
+import java.io.IOException;
+import org.cmu.hal.Clock;
+import org.cmu.hal.ServoOutput;
+
+/**
+ * PTLoc -- closed loop around one servo. Each iteration measures the error,
+ * applies the controller's correction and then waits only as long as the
+ * servo needs to reach the new command, so the next measurement is the
+ * first fresh one instead of one taken after a fixed sleep.
+ */
+public abstract class AxisLoop {
+
+    public static final int SETTLED = 0;
+    public static final int MAX_ITERATIONS = 1;
+    public static final int OUT_OF_RANGE = 2;
+    public static final int TIMEOUT = 3;
+    public static final int PREEMPTED = 4;
+    /** One servo PWM frame. */
+    public static final long SETTLE_MS = 20;
+    private final ServoOutput servo;
+    private final Clock clock;
+    private final double tolerance;
+    private final double msPerUnit;
+    private final int maxIterations;
+    private AxisController controller;
+    private float position;
+    private int iterations;
+    private long elapsed;
+    private long finishedAt;
+    private double error;
+
+    /**
+     * @param servo Servo driven by this loop.
+     * @param controller Feedback law.
+     * @param clock Time source for all waits.
+     * @param tolerance Largest error that counts as settled
+     * @param msPerUnit Servo travel time for a full 0 to 1 move
+     * @param maxIterations Corrections allowed per move
+     */
+    public AxisLoop(ServoOutput servo, AxisController controller, Clock clock,
+            double tolerance, double msPerUnit, int maxIterations) {
+        this.servo = servo;
+        this.controller = controller;
+        this.clock = clock;
+        this.tolerance = tolerance;
+        this.msPerUnit = msPerUnit;
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * Measures how far the axis is from its goal.
+     * @return Goal minus measurement, shortest way round
+     * @throws IOException if sensor failure
+     */
+    protected abstract double measureError() throws IOException;
+
+    /**
+     * Checked before every correction after the first, so a stream of goals
+     * still moves the servo; once true the run stops where it is.
+     * @return true if a newer goal is waiting
+     */
+    protected boolean isPreempted() {
+        return false;
+    }
+
+    /**
+     * Drives the servo until the error is within tolerance.
+     * @param start Current servo command
+     * @return SETTLED, MAX_ITERATIONS or OUT_OF_RANGE
+     * @throws IOException if sensor failure
+     */
+    public int run(float start) throws IOException {
+        return run(start, Long.MAX_VALUE);
+    }
+
+    /**
+     * Drives the servo until the error is within tolerance or the deadline
+     * passes.
+     * @param start Current servo command
+     * @param deadline Clock time after which no more corrections are made
+     * @return SETTLED, MAX_ITERATIONS, OUT_OF_RANGE, TIMEOUT or PREEMPTED
+     * @throws IOException if sensor failure
+     */
+    public int run(float start, long deadline) throws IOException {
+        return run(start, deadline, false);
+    }
+
+    /**
+     * Drives the servo until the error is within tolerance or the deadline
+     * passes.
+     * @param start Current servo command
+     * @param deadline Clock time after which no more corrections are made
+     * @param warm true to keep the controller's state from the last run,
+     *      for a goal that moved on from the previous one
+     * @return SETTLED, MAX_ITERATIONS, OUT_OF_RANGE, TIMEOUT or PREEMPTED
+     * @throws IOException if sensor failure
+     */
+    public int run(float start, long deadline, boolean warm) throws IOException {
+        long begin = clock.currentTimeMillis();
+        long last = begin;
+        int status = SETTLED;
+        position = start;
+        iterations = 0;
+        if (!warm) {
+            controller.reset();
+        }
+        error = measureError();
+        while (Math.abs(error) > tolerance) {
+            if (iterations >= maxIterations) {
+                status = MAX_ITERATIONS;
+                break;
+            }
+            long now = clock.currentTimeMillis();
+            if (now >= deadline) {
+                status = TIMEOUT;
+                break;
+            }
+            if (iterations > 0 && isPreempted()) {
+                status = PREEMPTED;
+                break;
+            }
+            iterations++;
+            double step = controller.update(error, iterations == 1 ? 0 : (now - last) / 1000.0);
+            last = now;
+            float next = (float) (position + step);
+            if (next < 0 || next > 1) {
+                // goal is outside the servo's travel
+                status = OUT_OF_RANGE;
+                break;
+            }
+            position = next;
+            servo.setPosition(position);
+            clock.sleep(SETTLE_MS + (long) (Math.abs(step) * msPerUnit));
+            error = measureError();
+        }
+        finishedAt = clock.currentTimeMillis();
+        elapsed = finishedAt - begin;
+        return status;
+    }
+
+    public void setController(AxisController controller) {
+        this.controller = controller;
+    }
+
+    public AxisController getController() {
+        return controller;
+    }
+
+    /**
+     * @return Servo command at the end of the last run
+     */
+    public float getPosition() {
+        return position;
+    }
+
+    /**
+     * @return Corrections applied in the last run
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return Duration of the last run in milliseconds
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return Clock time at which the last run returned
+     */
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * @return Error measured at the end of the last run
+     */
+    public double getError() {
+        return error;
+    }
+}
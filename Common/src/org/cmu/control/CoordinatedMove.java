@@ -0,0 +1,115 @@
+package org.cmu.control;
+
+import java.io.IOException;
+import org.cmu.hal.Clock;
+
+/**
+ * PTLoc -- drives pan and tilt at the same time. Tilt runs on its own thread
+ * (accelerometer feedback) while pan runs on the caller's (compass over I2C);
+ * both share one deadline. The move only counts as settled once both axes
+ * are within tolerance together: the axis that finished first measured while
+ * the other was still moving, so it is checked again, with its controller
+ * state kept.
+ */
+public class CoordinatedMove {
+
+    /** Re-checks of the first axis to finish before giving up. */
+    public static final int MAX_ROUNDS = 3;
+    private final AxisLoop pan;
+    private final AxisLoop tilt;
+    private final Clock clock;
+
+    public CoordinatedMove(AxisLoop pan, AxisLoop tilt, Clock clock) {
+        this.pan = pan;
+        this.tilt = tilt;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs both axis loops from their current goals.
+     * @param panStart Current pan servo command
+     * @param tiltStart Current tilt servo command
+     * @param timeoutMs Time allowed for the whole move
+     * @return Outcome and per-axis timing
+     * @throws IOException if sensor failure on either axis
+     */
+    public MoveResult run(float panStart, float tiltStart, long timeoutMs) throws IOException {
+        return run(panStart, tiltStart, timeoutMs, false);
+    }
+
+    /**
+     * Runs both axis loops from their current goals.
+     * @param panStart Current pan servo command
+     * @param tiltStart Current tilt servo command
+     * @param timeoutMs Time allowed for the whole move
+     * @param warm true to keep both controllers' state from the last move
+     * @return Outcome and per-axis timing
+     * @throws IOException if sensor failure on either axis
+     * @throws RuntimeException if either axis loop threw one; the tilt
+     *      thread's is passed on here once the thread has ended
+     */
+    public MoveResult run(float panStart, final float tiltStart, long timeoutMs,
+            final boolean warm) throws IOException {
+        long begin = clock.currentTimeMillis();
+        final long deadline = begin + timeoutMs;
+        final MoveResult result = new MoveResult(begin);
+        final Throwable[] failure = new Throwable[1];
+
+        Thread tiltThread = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    result.record(MoveResult.TILT, tilt, tilt.run(tiltStart, deadline, warm));
+                } catch (Throwable e) {
+                    // a tilt status left at SETTLED would pass for success
+                    failure[0] = e;
+                }
+            }
+        });
+        tiltThread.start();
+        try {
+            result.record(MoveResult.PAN, pan, pan.run(panStart, deadline, warm));
+        } finally {
+            join(tiltThread);
+        }
+        if (failure[0] != null) {
+            rethrow(failure[0]);
+        }
+
+        boolean settled = false;
+        for (int round = 0; round < MAX_ROUNDS && result.bothSettled(); round++) {
+            boolean panFirst = pan.getFinishedAt() <= tilt.getFinishedAt();
+            AxisLoop early = panFirst ? pan : tilt;
+            // warm: the axis only corrects if it drifted, and then resumes
+            // its integral instead of taking a cold controller's kick
+            result.record(panFirst ? MoveResult.PAN : MoveResult.TILT, early,
+                    early.run(early.getPosition(), deadline, true));
+            if (early.getIterations() == 0) {
+                settled = result.bothSettled();
+                break;
+            }
+        }
+        result.finish(clock.currentTimeMillis(), settled);
+        return result;
+    }
+
+    private static void rethrow(Throwable t) throws IOException {
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        throw (Error) t;
+    }
+
+    private static void join(Thread t) {
+        while (t.isAlive()) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                // keep waiting, the thread is bounded by the deadline
+            }
+        }
+    }
+}
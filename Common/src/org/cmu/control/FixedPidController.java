@@ -0,0 +1,99 @@
+package org.cmu.control;
+
+import org.cmu.math.Fixed;
+
+/**
+ * PTLoc -- {@link PidController} in fixed point. Error, integral and
+ * output are Q16.16, see {@link Fixed}; the gains are Q8.24 because the pan
+ * gains are a few thousandths and Q16.16 would round them by up to 20%.
+ * Only the update's arguments and result are converted from and to double.
+ */
+public class FixedPidController implements AxisController {
+
+    /** Fraction bits of a gain. */
+    public static final int GAIN_BITS = 24;
+    private final int kp;
+    private final int ki;
+    private final int kd;
+    private final int integralLimit;
+    private final int outputLimit;
+    private int integral;
+    private int lastError;
+    private boolean first = true;
+
+    /**
+     * @param kp Proportional gain, position units per sensor unit
+     * @param ki Integral gain, per second
+     * @param kd Derivative gain, seconds
+     * @param integralLimit Largest magnitude of the integrated error
+     * @param outputLimit Largest correction per update, 0 for none
+     */
+    public FixedPidController(double kp, double ki, double kd,
+            double integralLimit, double outputLimit) {
+        this.kp = gain(kp);
+        this.ki = gain(ki);
+        this.kd = gain(kd);
+        this.integralLimit = Fixed.fromDouble(integralLimit);
+        this.outputLimit = Fixed.fromDouble(outputLimit);
+    }
+
+    /**
+     * @param kp Proportional gain
+     * @param ki Integral gain
+     * @param kd Derivative gain
+     * @param integralLimit Largest magnitude of the integrated error
+     * @param outputLimit Largest correction per update, 0 for none
+     * @return PID controller
+     */
+    public static FixedPidController pid(double kp, double ki, double kd,
+            double integralLimit, double outputLimit) {
+        return new FixedPidController(kp, ki, kd, integralLimit, outputLimit);
+    }
+
+    public void reset() {
+        integral = 0;
+        lastError = 0;
+        first = true;
+    }
+
+    public double update(double error, double dt) {
+        return Fixed.toDouble(update(Fixed.fromDouble(error), Fixed.fromDouble(dt)));
+    }
+
+    /**
+     * Computes the next correction, all in Q16.16.
+     * @param error Goal minus measurement, in sensor units
+     * @param dt Seconds since the previous update, 0 on the first one
+     * @return Servo position change, Fixed.NaN if either argument is
+     */
+    public int update(int error, int dt) {
+        if (error == Fixed.NaN || dt == Fixed.NaN) {
+            return Fixed.NaN;
+        }
+        // long, as a large step over a short dt overflows Q16.16
+        long derivative = 0;
+        if (!first && dt > 0) {
+            derivative = ((long) (error - lastError) << Fixed.BITS) / dt;
+        }
+        first = false;
+        lastError = error;
+
+        int candidate = integral + Fixed.mul(error, dt);
+        if (candidate > integralLimit) {
+            candidate = integralLimit;
+        } else if (candidate < -integralLimit) {
+            candidate = -integralLimit;
+        }
+        long out = ((long) kp * error + (long) ki * candidate + kd * derivative) >> GAIN_BITS;
+        if (outputLimit > 0 && Math.abs(out) > outputLimit) {
+            // saturated, leave the integral where it was
+            return out > 0 ? outputLimit : -outputLimit;
+        }
+        integral = candidate;
+        return (int) out;
+    }
+
+    private static int gain(double k) {
+        return (int) Math.floor(k * (1 << GAIN_BITS) + 0.5);
+    }
+}
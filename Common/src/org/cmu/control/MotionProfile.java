@@ -0,0 +1,134 @@
+package org.cmu.control;
+
+/**
+ * PTLoc -- trapezoidal motion profile computed one step at a time. The
+ * command accelerates towards its target at the acceleration limit, cruises
+ * at the velocity limit and starts braking once its stopping distance
+ * reaches the distance left, so it comes to rest on the target instead of
+ * jumping there. The target may change at any step, mid-move included: the
+ * command keeps its velocity and brakes or turns round within the limits.
+ * <p>
+ * Not thread-safe; {@link ProfiledServo} serialises access.
+ */
+public class MotionProfile {
+
+    private double maxVelocity;
+    private double maxAcceleration;
+    private double position;
+    private double velocity;
+    private double target;
+
+    /**
+     * @param maxVelocity Velocity limit, position units per second
+     * @param maxAcceleration Acceleration limit, position units per second
+     *      squared
+     */
+    public MotionProfile(double maxVelocity, double maxAcceleration) {
+        setLimits(maxVelocity, maxAcceleration);
+    }
+
+    /**
+     * @param maxVelocity Velocity limit, position units per second
+     * @param maxAcceleration Acceleration limit, position units per second
+     *      squared
+     */
+    public void setLimits(double maxVelocity, double maxAcceleration) {
+        if (maxVelocity <= 0 || maxAcceleration <= 0) {
+            throw new IllegalArgumentException("Bad limits: " + maxVelocity + ", "
+                    + maxAcceleration);
+        }
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+    }
+
+    /**
+     * Puts the command at rest at a position.
+     * @param position Position
+     */
+    public void reset(double position) {
+        this.position = position;
+        this.target = position;
+        this.velocity = 0;
+    }
+
+    /**
+     * @param target Position to come to rest at
+     */
+    public void setTarget(double target) {
+        this.target = target;
+    }
+
+    /**
+     * Advances the command.
+     * @param dt Seconds since the last step
+     * @return Command position after the step
+     */
+    public double step(double dt) {
+        if (dt <= 0 || isDone()) {
+            return position;
+        }
+        double error = target - position;
+        double dv = maxAcceleration * dt;
+        // fastest speed that can still stop on the target, and no faster
+        // than reaches it in this step
+        double limit = Math.min(maxVelocity,
+                Math.min(Math.sqrt(2 * maxAcceleration * Math.abs(error)), Math.abs(error) / dt));
+        double wanted = error > 0 ? limit : -limit;
+        if (wanted > velocity + dv) {
+            velocity += dv;
+        } else if (wanted < velocity - dv) {
+            velocity -= dv;
+        } else {
+            velocity = wanted;
+        }
+        position += velocity * dt;
+        if (Math.abs(target - position) < 1e-6 && Math.abs(velocity) <= dv) {
+            position = target;
+            velocity = 0;
+        }
+        return position;
+    }
+
+    /**
+     * @return true when at rest on the target
+     */
+    public boolean isDone() {
+        return position == target && velocity == 0;
+    }
+
+    /**
+     * @return Command position
+     */
+    public double getPosition() {
+        return position;
+    }
+
+    /**
+     * @return Command velocity, position units per second
+     */
+    public double getVelocity() {
+        return velocity;
+    }
+
+    /**
+     * @return Target position
+     */
+    public double getTarget() {
+        return target;
+    }
+
+    /**
+     * Time a move of a given length takes from rest to rest.
+     * @param distance Move length, position units
+     * @return Duration in ms
+     */
+    public double duration(double distance) {
+        distance = Math.abs(distance);
+        double ramp = maxVelocity * maxVelocity / maxAcceleration;
+        if (distance < ramp) {
+            // triangular, never reaches the velocity limit
+            return 2000 * Math.sqrt(distance / maxAcceleration);
+        }
+        return 1000 * (maxVelocity / maxAcceleration + distance / maxVelocity);
+    }
+}
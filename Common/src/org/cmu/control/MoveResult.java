@@ -0,0 +1,111 @@
+package org.cmu.control;
+
+/**
+ * PTLoc -- outcome and per-axis timing of one two-axis move.
+ */
+public class MoveResult {
+
+    public static final int PAN = 0;
+    public static final int TILT = 1;
+    private final int[] status = new int[]{AxisLoop.SETTLED, AxisLoop.SETTLED};
+    private final int[] iterations = new int[2];
+    private final long[] elapsed = new long[2];
+    private final long begin;
+    private long total;
+    private boolean settled;
+
+    /**
+     * @param begin Clock time at which the move started
+     */
+    public MoveResult(long begin) {
+        this.begin = begin;
+    }
+
+    /**
+     * Adds one run of an axis loop to the move.
+     * @param axis PAN or TILT
+     * @param loop Loop that just returned
+     * @param runStatus Its return value
+     */
+    public void record(int axis, AxisLoop loop, int runStatus) {
+        status[axis] = runStatus;
+        iterations[axis] += loop.getIterations();
+        elapsed[axis] = loop.getFinishedAt() - begin;
+    }
+
+    /**
+     * Closes the move.
+     * @param end Clock time at which the move finished
+     * @param jointlySettled true if both axes were within tolerance together
+     */
+    public void finish(long end, boolean jointlySettled) {
+        total = end - begin;
+        settled = jointlySettled;
+    }
+
+    /**
+     * @return true if both axes ended SETTLED
+     */
+    public boolean bothSettled() {
+        return status[PAN] == AxisLoop.SETTLED && status[TILT] == AxisLoop.SETTLED;
+    }
+
+    /**
+     * @param axis PAN or TILT
+     * @return true if the axis ran out of servo travel
+     */
+    public boolean isOutOfRange(int axis) {
+        return status[axis] == AxisLoop.OUT_OF_RANGE;
+    }
+
+    /**
+     * @return true if either axis gave way to a newer goal
+     */
+    public boolean isPreempted() {
+        return status[PAN] == AxisLoop.PREEMPTED || status[TILT] == AxisLoop.PREEMPTED;
+    }
+
+    /**
+     * @return true if both axes were within tolerance at the same time
+     */
+    public boolean isSettled() {
+        return settled;
+    }
+
+    /**
+     * @param axis PAN or TILT
+     * @return Last status of the axis loop
+     */
+    public int getStatus(int axis) {
+        return status[axis];
+    }
+
+    /**
+     * @param axis PAN or TILT
+     * @return Corrections made on the axis over the whole move
+     */
+    public int getIterations(int axis) {
+        return iterations[axis];
+    }
+
+    /**
+     * @param axis PAN or TILT
+     * @return Milliseconds from the start of the move until the axis last stopped
+     */
+    public long getElapsed(int axis) {
+        return elapsed[axis];
+    }
+
+    /**
+     * @return Milliseconds from the start of the move until both axes stopped
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public String toString() {
+        return "pan: " + elapsed[PAN] + "ms/" + iterations[PAN] + " it (" + status[PAN]
+                + ")\ttilt: " + elapsed[TILT] + "ms/" + iterations[TILT] + " it ("
+                + status[TILT] + ")\ttotal: " + total + "ms" + (settled ? "" : " NOT SETTLED");
+    }
+}
@@ -0,0 +1,93 @@
+package org.cmu.control;
+
+/**
+ * PTLoc -- P, PI or PID controller. The integral is clamped and frozen
+ * while the output is limited so it cannot wind up during long moves.
+ */
+public class PidController implements AxisController {
+
+    private final double kp;
+    private final double ki;
+    private final double kd;
+    private final double integralLimit;
+    private final double outputLimit;
+    private double integral;
+    private double lastError;
+    private boolean first = true;
+
+    /**
+     * @param kp Proportional gain, position units per sensor unit
+     * @param ki Integral gain, per second
+     * @param kd Derivative gain, seconds
+     * @param integralLimit Largest magnitude of the integrated error
+     * @param outputLimit Largest correction per update, 0 for none
+     */
+    public PidController(double kp, double ki, double kd,
+            double integralLimit, double outputLimit) {
+        this.kp = kp;
+        this.ki = ki;
+        this.kd = kd;
+        this.integralLimit = integralLimit;
+        this.outputLimit = outputLimit;
+    }
+
+    /**
+     * @param kp Proportional gain
+     * @return P controller
+     */
+    public static PidController p(double kp) {
+        return new PidController(kp, 0, 0, 0, 0);
+    }
+
+    /**
+     * @param kp Proportional gain
+     * @param ki Integral gain
+     * @param integralLimit Largest magnitude of the integrated error
+     * @return PI controller
+     */
+    public static PidController pi(double kp, double ki, double integralLimit) {
+        return new PidController(kp, ki, 0, integralLimit, 0);
+    }
+
+    /**
+     * @param kp Proportional gain
+     * @param ki Integral gain
+     * @param kd Derivative gain
+     * @param integralLimit Largest magnitude of the integrated error
+     * @param outputLimit Largest correction per update, 0 for none
+     * @return PID controller
+     */
+    public static PidController pid(double kp, double ki, double kd,
+            double integralLimit, double outputLimit) {
+        return new PidController(kp, ki, kd, integralLimit, outputLimit);
+    }
+
+    public void reset() {
+        integral = 0;
+        lastError = 0;
+        first = true;
+    }
+
+    public double update(double error, double dt) {
+        double derivative = 0;
+        if (!first && dt > 0) {
+            derivative = (error - lastError) / dt;
+        }
+        first = false;
+        lastError = error;
+
+        double candidate = integral + error * dt;
+        if (candidate > integralLimit) {
+            candidate = integralLimit;
+        } else if (candidate < -integralLimit) {
+            candidate = -integralLimit;
+        }
+        double out = kp * error + ki * candidate + kd * derivative;
+        if (outputLimit > 0 && Math.abs(out) > outputLimit) {
+            // saturated, leave the integral where it was
+            return out > 0 ? outputLimit : -outputLimit;
+        }
+        integral = candidate;
+        return out;
+    }
+}
@@ -0,0 +1,146 @@
+package org.cmu.control;
+
+import org.cmu.hal.Clock;
+import org.cmu.hal.ServoOutput;
+
+/**
+ * PTLoc -- servo wrapper that moves to each command along a
+ * {@link MotionProfile}. A timer thread steps the profile every UPDATE_MS
+ * and sends the interpolated position to the servo, so the servo never sees
+ * a large jump and the mount does not overshoot and shake the compass. The
+ * thread waits while the command is at rest. Until start() is called, and
+ * after stop(), commands go straight to the servo as before.
+ */
+public class ProfiledServo implements ServoOutput, Runnable {
+
+    /** Interpolation period, twice per servo PWM frame. */
+    public static final long UPDATE_MS = 10;
+    private final ServoOutput servo;
+    private final Clock clock;
+    private final MotionProfile profile;
+    private volatile boolean running;
+    private Thread thread;
+    private float commanded;
+
+    /**
+     * @param servo Servo being driven.
+     * @param clock Time source for the timer.
+     * @param profile Limits the moves follow.
+     */
+    public ProfiledServo(ServoOutput servo, Clock clock, MotionProfile profile) {
+        this.servo = servo;
+        this.clock = clock;
+        this.profile = profile;
+        this.commanded = servo.getPosition();
+    }
+
+    /**
+     * Starts the timer thread.
+     * @return The thread
+     */
+    public synchronized Thread start() {
+        if (thread == null) {
+            profile.reset(servo.getPosition());
+            running = true;
+            thread = new Thread(this, "profile");
+            thread.start();
+        }
+        return thread;
+    }
+
+    /**
+     * Stops the timer thread. A move in progress jumps to its target.
+     */
+    public synchronized void stop() {
+        running = false;
+        thread = null;
+        if (!profile.isDone()) {
+            servo.setPosition(commanded);
+            profile.reset(commanded);
+        }
+        notifyAll();
+    }
+
+    /**
+     * @return true while the timer thread runs
+     */
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    public synchronized void setPosition(float position) {
+        commanded = position;
+        if (!running) {
+            servo.setPosition(position);
+            return;
+        }
+        profile.setTarget(position);
+        notifyAll();
+    }
+
+    /**
+     * @return Last command, which the servo reaches when the profile ends
+     */
+    public synchronized float getPosition() {
+        return commanded;
+    }
+
+    /**
+     * @return Position sent to the servo last
+     */
+    public synchronized double getProfilePosition() {
+        return running ? profile.getPosition() : commanded;
+    }
+
+    /**
+     * @return Profile the moves follow, to tune its limits
+     */
+    public MotionProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Waits until the profile has reached the last command, then a while
+     * longer for the servo to settle.
+     * @param settleMs Wait after the profile ends
+     */
+    public void awaitArrival(long settleMs) {
+        boolean moved = false;
+        while (true) {
+            synchronized (this) {
+                if (!running || profile.isDone()) {
+                    break;
+                }
+            }
+            moved = true;
+            clock.sleep(UPDATE_MS);
+        }
+        if (moved) {
+            clock.sleep(settleMs);
+        }
+    }
+
+    public void run() {
+        Thread me = Thread.currentThread();
+        long last = clock.currentTimeMillis();
+        while (true) {
+            synchronized (this) {
+                while (thread == me && profile.isDone()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    last = clock.currentTimeMillis() - UPDATE_MS;
+                }
+                if (thread != me) {
+                    return; // stopped, perhaps restarted on a new thread
+                }
+                long now = clock.currentTimeMillis();
+                servo.setPosition((float) profile.step((now - last) / 1000.0));
+                last = now;
+            }
+            clock.sleep(UPDATE_MS);
+        }
+    }
+}
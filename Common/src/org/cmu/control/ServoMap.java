@@ -0,0 +1,147 @@
+package org.cmu.control;
+
+/**
+ * PTLoc -- what one axis reads at each servo command, as a table of
+ * evenly spaced servo positions from 0 to 1 with linear interpolation in
+ * between. Filled by a calibration sweep and corrected after every move, so
+ * a move can jump straight to the predicted command and leave the feedback
+ * loop only the last fraction of a degree. Circular maps hold compass
+ * headings, stored unwrapped so a sweep across north stays continuous.
+ */
+public class ServoMap {
+
+    /** Share of a move's error folded back into the table. */
+    public static final double LEARNING_RATE = 0.5;
+    private final double[] values;
+    private final boolean circular;
+    private int updates;
+    private boolean calibrated;
+
+    /**
+     * @param points Table entries, at least 2
+     * @param circular true for headings in degrees
+     */
+    public ServoMap(int points, boolean circular) {
+        this.values = new double[points];
+        this.circular = circular;
+    }
+
+    /**
+     * @return Table entries
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * @param i Table entry
+     * @return Servo command of entry i
+     */
+    public float position(int i) {
+        return i / (float) (values.length - 1);
+    }
+
+    /**
+     * Stores a calibration reading. Entries must be set in order from 0.
+     * @param i Table entry
+     * @param value Reading at position(i)
+     */
+    public synchronized void set(int i, double value) {
+        if (circular && i > 0) {
+            value = values[i - 1] + diff(value, values[i - 1]);
+        }
+        values[i] = value;
+        calibrated = i == values.length - 1;
+    }
+
+    /**
+     * @return true once every entry has been set
+     */
+    public synchronized boolean isCalibrated() {
+        return calibrated;
+    }
+
+    /**
+     * @param position Servo command
+     * @return Expected reading there
+     */
+    public synchronized double predict(double position) {
+        double x = Math.max(0, Math.min(1, position)) * (values.length - 1);
+        int i = Math.min((int) x, values.length - 2);
+        double v = values[i] + (x - i) * (values[i + 1] - values[i]);
+        return circular ? wrap(v) : v;
+    }
+
+    /**
+     * Finds the servo command expected to read a goal.
+     * @param goal Wanted reading
+     * @param near Preferred command if the goal can be reached more than once
+     * @return Servo command in [0 1], or -1 if the goal is outside the table
+     */
+    public synchronized float invert(double goal, float near) {
+        float best = -1;
+        for (int i = 0; i < values.length - 1; i++) {
+            double v0 = values[i];
+            double v1 = values[i + 1];
+            double g = circular ? v0 + diff(goal, v0) : goal;
+            if (v0 == v1 || (g - v0) * (g - v1) > 0) {
+                continue;
+            }
+            float p = (float) ((i + (g - v0) / (v1 - v0)) / (values.length - 1));
+            if (best < 0 || Math.abs(p - near) < Math.abs(best - near)) {
+                best = p;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Moves the two entries around a position towards a reading taken
+     * there.
+     * @param position Servo command
+     * @param measured Reading at that command
+     */
+    public synchronized void update(double position, double measured) {
+        if (!calibrated) {
+            return;
+        }
+        double x = Math.max(0, Math.min(1, position)) * (values.length - 1);
+        int i = Math.min((int) x, values.length - 2);
+        double w = x - i;
+        double v = values[i] + w * (values[i + 1] - values[i]);
+        double error = circular ? diff(measured, wrap(v)) : measured - v;
+        values[i] += LEARNING_RATE * (1 - w) * error;
+        values[i + 1] += LEARNING_RATE * w * error;
+        updates++;
+    }
+
+    /**
+     * @return Moves folded into the table since calibration
+     */
+    public synchronized int getUpdates() {
+        return updates;
+    }
+
+    /**
+     * @param i Table entry
+     * @return Stored reading of entry i, unwrapped if circular
+     */
+    public synchronized double get(int i) {
+        return values[i];
+    }
+
+    private static double diff(double a, double b) {
+        double d = (a - b) % 360;
+        if (d > 180) {
+            d -= 360;
+        } else if (d < -180) {
+            d += 360;
+        }
+        return d;
+    }
+
+    private static double wrap(double x) {
+        x %= 360;
+        return x < 0 ? x + 360 : x;
+    }
+}
@@ -0,0 +1,52 @@
+package org.cmu.control;
+
+import org.cmu.hal.Clock;
+import org.cmu.hal.ServoOutput;
+
+/**
+ * PTLoc -- servo wrapper that remembers when it was first commanded after
+ * {@link #arm()}, so the Mount can time a reading from radio to actuation.
+ */
+public class TimedServo implements ServoOutput {
+
+    private final ServoOutput servo;
+    private final Clock clock;
+    private volatile boolean armed;
+    private volatile long firstCommandAt;
+
+    /**
+     * @param servo Servo being driven.
+     * @param clock Time source for the timestamp.
+     */
+    public TimedServo(ServoOutput servo, Clock clock) {
+        this.servo = servo;
+        this.clock = clock;
+    }
+
+    /**
+     * Forgets the last timestamp and records the next command.
+     */
+    public void arm() {
+        firstCommandAt = 0;
+        armed = true;
+    }
+
+    public void setPosition(float position) {
+        if (armed) {
+            armed = false;
+            firstCommandAt = clock.currentTimeMillis();
+        }
+        servo.setPosition(position);
+    }
+
+    public float getPosition() {
+        return servo.getPosition();
+    }
+
+    /**
+     * @return Clock time of the first command since arm(), 0 if none yet
+     */
+    public long getFirstCommandAt() {
+        return firstCommandAt;
+    }
+}
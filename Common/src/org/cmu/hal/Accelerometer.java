@@ -0,0 +1,16 @@
+package org.cmu.hal;
+
+import java.io.IOException;
+
+/**
+ * PTLoc -- tilt sensor (the SunSPOT's onboard accelerometer).
+ */
+public interface Accelerometer {
+
+    /**
+     * Gets the tilt along the y-axis.
+     * @return Tilt in radians. Negative means pointing upwards.
+     * @throws IOException if accelerometer failure.
+     */
+    double getTiltY() throws IOException;
+}
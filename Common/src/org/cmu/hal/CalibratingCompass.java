@@ -0,0 +1,22 @@
+package org.cmu.hal;
+
+import java.io.IOException;
+
+/**
+ * PTLoc -- compass with an on-module calibration mode (the GY-26), during
+ * which it has to be turned through every heading.
+ */
+public interface CalibratingCompass extends Compass {
+
+    /**
+     * Puts the module in calibration mode.
+     * @throws IOException when compass not plugged in.
+     */
+    void startCalibration() throws IOException;
+
+    /**
+     * Ends calibration mode and stores the calibration on the module.
+     * @throws IOException when compass not plugged in.
+     */
+    void endCalibration() throws IOException;
+}
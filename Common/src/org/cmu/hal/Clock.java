@@ -0,0 +1,20 @@
+package org.cmu.hal;
+
+/**
+ * PTLoc -- time source. All waits go through the clock so the simulator can
+ * run the device logic faster than real time.
+ */
+public interface Clock {
+
+    /**
+     * Gets the current time.
+     * @return Time in milliseconds
+     */
+    long currentTimeMillis();
+
+    /**
+     * Blocks the calling thread.
+     * @param millis Duration in milliseconds
+     */
+    void sleep(long millis);
+}
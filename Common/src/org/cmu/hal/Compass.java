@@ -0,0 +1,16 @@
+package org.cmu.hal;
+
+import java.io.IOException;
+
+/**
+ * PTLoc -- heading sensor (GY-26 on the devices, simulated on the desktop).
+ */
+public interface Compass {
+
+    /**
+     * Takes a single heading measurement.
+     * @return Heading in degrees, [0 360)
+     * @throws IOException if compass communication failure.
+     */
+    double getAngle() throws IOException;
+}
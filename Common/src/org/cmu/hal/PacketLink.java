@@ -0,0 +1,44 @@
+package org.cmu.hal;
+
+import java.io.IOException;
+
+/**
+ * PTLoc -- unreliable datagram link between the Pointer and the Mount. A
+ * packet is delivered whole or not at all, in any order. A Mount's link
+ * may receive from several Pointers.
+ */
+public interface PacketLink {
+
+    /**
+     * Sends one packet.
+     * @param data Buffer holding the packet
+     * @param offset Start of the packet in data
+     * @param length Packet length, at most getMaxPacketSize()
+     * @throws IOException if the radio fails.
+     */
+    void send(byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * Blocks until a packet arrives.
+     * @param data Buffer of at least getMaxPacketSize() bytes
+     * @return Packet length, -1 once the link is closed
+     * @throws IOException if the radio fails.
+     */
+    int receive(byte[] data) throws IOException;
+
+    /**
+     * @return Address of the sender of the packet last returned by receive()
+     */
+    long getSource();
+
+    /**
+     * @return Largest payload a packet can carry
+     */
+    int getMaxPacketSize();
+
+    /**
+     * Closes the link, waking any blocked receive.
+     * @throws IOException if the link cannot be closed.
+     */
+    void close() throws IOException;
+}
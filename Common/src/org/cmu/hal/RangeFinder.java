@@ -0,0 +1,14 @@
+package org.cmu.hal;
+
+/**
+ * PTLoc -- ultrasonic distance sensor (HC-SR04 on the Pointer).
+ */
+public interface RangeFinder {
+
+    /**
+     * Triggers a single ping and waits for its echo.
+     * @return Echo time in microseconds (divide by 148 to get inches),
+     *      or 0 if no echo was received.
+     */
+    int getEchoTime();
+}
@@ -0,0 +1,19 @@
+package org.cmu.hal;
+
+/**
+ * PTLoc -- position-controlled servo.
+ */
+public interface ServoOutput {
+
+    /**
+     * Commands the servo to a new position.
+     * @param position Position within the servo's bounds, [0 1]
+     */
+    void setPosition(float position);
+
+    /**
+     * Gets the last commanded position.
+     * @return Position, [0 1]
+     */
+    float getPosition();
+}
@@ -0,0 +1,25 @@
+package org.cmu.hal;
+
+/**
+ * PTLoc -- the tri-color LED bar used for operator feedback.
+ */
+public interface StatusLeds {
+
+    /**
+     * Flashes all the LEDs.
+     * @param rgb Color to display
+     * @param duration Duration to display color
+     */
+    void flash(int[] rgb, int duration);
+
+    /**
+     * Turns the first LED on.
+     * @param rgb Color to display
+     */
+    void setOn(int[] rgb);
+
+    /**
+     * Turns the first LED off.
+     */
+    void setOff();
+}
@@ -0,0 +1,32 @@
+package org.cmu.hal;
+
+import java.io.IOException;
+
+/**
+ * PTLoc -- small named records that survive a restart (RMS record stores on
+ * the devices, files in the simulator).
+ */
+public interface Storage {
+
+    /**
+     * @param name Record name, at most 24 characters
+     * @return The record, null if it was never written
+     * @throws IOException if the store cannot be read
+     */
+    byte[] read(String name) throws IOException;
+
+    /**
+     * Replaces a record.
+     * @param name Record name, at most 24 characters
+     * @param data New contents
+     * @throws IOException if the store cannot be written
+     */
+    void write(String name, byte[] data) throws IOException;
+
+    /**
+     * Removes a record, if present.
+     * @param name Record name
+     * @throws IOException if the store cannot be written
+     */
+    void delete(String name) throws IOException;
+}
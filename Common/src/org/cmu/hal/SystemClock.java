@@ -0,0 +1,21 @@
+package org.cmu.hal;
+
+/**
+ * PTLoc -- wall clock used on the devices.
+ */
+public class SystemClock implements Clock {
+
+    public static final SystemClock INSTANCE = new SystemClock();
+
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    public void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // return early, same as Utils.sleep
+        }
+    }
+}
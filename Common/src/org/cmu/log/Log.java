@@ -0,0 +1,255 @@
+package org.cmu.log;
+
+import java.io.PrintStream;
+import org.cmu.hal.Clock;
+import org.cmu.hal.SystemClock;
+
+/**
+ * PTLoc -- leveled event log in a preallocated ring buffer. A record is a
+ * time, a level, an event and up to three numbers, so logging builds no
+ * strings and allocates nothing; the event's format is only filled in when
+ * {@link #drain(PrintStream)} prints the records, normally from a
+ * {@link LogDrain} thread writing to the USB console. When the ring is full
+ * the oldest record is overwritten and counted as lost.
+ * <p>
+ * LEVEL is a compile-time constant. Guard a call below WARN with the flag of
+ * its level, as in {@code if (Log.DEBUG_ON) Log.debug(...)}, and javac
+ * leaves the call and its arguments out of the class file.
+ */
+public final class Log {
+
+    public static final int DEBUG = 0;
+    public static final int INFO = 1;
+    public static final int WARN = 2;
+    public static final int ERROR = 3;
+    /** Lowest level recorded. */
+    public static final int LEVEL = INFO;
+    public static final boolean DEBUG_ON = LEVEL <= DEBUG;
+    public static final boolean INFO_ON = LEVEL <= INFO;
+    /** Records held before the oldest is overwritten. */
+    public static final int CAPACITY = 256;
+    private static final int MASK = CAPACITY - 1;
+    /** Events that can be defined. */
+    public static final int MAX_EVENTS = 128;
+    private static final String[] LEVELS = new String[]{"DEBUG", "INFO", "WARN", "ERROR"};
+    private static final String[] formats = new String[MAX_EVENTS];
+    private static final boolean[] hex = new boolean[MAX_EVENTS];
+    private static int events;
+    private static final long[] times = new long[CAPACITY];
+    private static final byte[] levels = new byte[CAPACITY];
+    private static final byte[] codes = new byte[CAPACITY];
+    private static final double[] args = new double[CAPACITY * 3];
+    private static int written;
+    private static int read;
+    private static int lost;
+    private static Clock clock = SystemClock.INSTANCE;
+    private static final Object lock = new Object();
+
+    private Log() {
+    }
+
+    /**
+     * Defines an event. Called once per event, from a static initializer.
+     * @param format Text with {0}, {1} and {2} where the numbers go; a
+     *      whole number prints without a fraction, and {0:x} prints the
+     *      first as hexadecimal, as for a radio address, which fits a
+     *      double exactly
+     * @return Event to log
+     */
+    public static int define(String format) {
+        synchronized (lock) {
+            if (events == MAX_EVENTS) {
+                throw new IllegalStateException("too many log events");
+            }
+            formats[events] = format;
+            hex[events] = format.indexOf("{0:x}") >= 0;
+            return events++;
+        }
+    }
+
+    /**
+     * Sets the time source for new records.
+     * @param c Clock, SystemClock.INSTANCE by default
+     */
+    public static void setClock(Clock c) {
+        clock = c;
+    }
+
+    public static void debug(int event) {
+        record(DEBUG, event, 0, 0, 0);
+    }
+
+    public static void debug(int event, double a) {
+        record(DEBUG, event, a, 0, 0);
+    }
+
+    public static void debug(int event, double a, double b) {
+        record(DEBUG, event, a, b, 0);
+    }
+
+    public static void debug(int event, double a, double b, double c) {
+        record(DEBUG, event, a, b, c);
+    }
+
+    public static void info(int event) {
+        record(INFO, event, 0, 0, 0);
+    }
+
+    public static void info(int event, double a) {
+        record(INFO, event, a, 0, 0);
+    }
+
+    public static void info(int event, double a, double b) {
+        record(INFO, event, a, b, 0);
+    }
+
+    public static void info(int event, double a, double b, double c) {
+        record(INFO, event, a, b, c);
+    }
+
+    public static void warn(int event) {
+        record(WARN, event, 0, 0, 0);
+    }
+
+    public static void warn(int event, double a) {
+        record(WARN, event, a, 0, 0);
+    }
+
+    public static void warn(int event, double a, double b) {
+        record(WARN, event, a, b, 0);
+    }
+
+    public static void warn(int event, double a, double b, double c) {
+        record(WARN, event, a, b, c);
+    }
+
+    public static void error(int event) {
+        record(ERROR, event, 0, 0, 0);
+    }
+
+    public static void error(int event, double a) {
+        record(ERROR, event, a, 0, 0);
+    }
+
+    public static void error(int event, double a, double b) {
+        record(ERROR, event, a, b, 0);
+    }
+
+    public static void error(int event, double a, double b, double c) {
+        record(ERROR, event, a, b, c);
+    }
+
+    private static void record(int level, int event, double a, double b, double c) {
+        if (level < LEVEL) {
+            return;
+        }
+        long now = clock.currentTimeMillis();
+        synchronized (lock) {
+            if (written - read == CAPACITY) {
+                read++;
+                lost++;
+            }
+            int slot = written & MASK;
+            times[slot] = now;
+            levels[slot] = (byte) level;
+            codes[slot] = (byte) event;
+            args[3 * slot] = a;
+            args[3 * slot + 1] = b;
+            args[3 * slot + 2] = c;
+            written++;
+        }
+    }
+
+    /**
+     * @return Records waiting to be drained
+     */
+    public static int pending() {
+        synchronized (lock) {
+            return written - read;
+        }
+    }
+
+    /**
+     * @return Records overwritten since the last drain
+     */
+    public static int getLost() {
+        synchronized (lock) {
+            return lost;
+        }
+    }
+
+    /**
+     * Formats and prints the waiting records, oldest first. Only this
+     * allocates, and the lock is held just long enough to copy each record.
+     * @param out Where to print, System.out for the USB console
+     * @return Records printed
+     */
+    public static int drain(PrintStream out) {
+        int printed = 0;
+        int missed;
+        long time;
+        int level;
+        int event;
+        double a;
+        double b;
+        double c;
+        StringBuffer line = new StringBuffer(80);
+        while (true) {
+            synchronized (lock) {
+                if (read == written) {
+                    break;
+                }
+                int slot = read & MASK;
+                time = times[slot];
+                level = levels[slot];
+                event = codes[slot];
+                a = args[3 * slot];
+                b = args[3 * slot + 1];
+                c = args[3 * slot + 2];
+                read++;
+                missed = lost;
+                lost = 0;
+            }
+            if (missed > 0) {
+                out.println("(" + missed + " log records lost)");
+            }
+            line.setLength(0);
+            line.append(time).append(' ').append(LEVELS[level]).append(' ');
+            format(line, event, a, b, c);
+            out.println(line.toString());
+            printed++;
+        }
+        return printed;
+    }
+
+    private static void format(StringBuffer line, int event, double a, double b, double c) {
+        String f = formats[event];
+        int i = 0;
+        while (i < f.length()) {
+            char ch = f.charAt(i);
+            int end = ch == '{' ? f.indexOf('}', i) : -1;
+            if (end > i + 1) {
+                int n = f.charAt(i + 1) - '0';
+                double v = n == 0 ? a : n == 1 ? b : c;
+                if (n == 0 && hex[event]) {
+                    line.append(Long.toString((long) v, 16));
+                } else {
+                    number(line, v);
+                }
+                i = end + 1;
+            } else {
+                line.append(ch);
+                i++;
+            }
+        }
+    }
+
+    private static void number(StringBuffer line, double v) {
+        long whole = (long) v;
+        if (whole == v && Math.abs(v) < 1e15) {
+            line.append(whole);
+        } else {
+            line.append(v);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.cmu.log;
+
+import java.io.PrintStream;
+import org.cmu.hal.Clock;
+
+/**
+ * PTLoc -- prints the {@link Log} on a low-priority thread, so formatting
+ * and the USB console only take time the device logic leaves over.
+ */
+public class LogDrain implements Runnable {
+
+    /** Time between drains. */
+    public static final long PERIOD_MS = 200;
+    private final PrintStream out;
+    private final Clock clock;
+    private volatile boolean running = false;
+
+    /**
+     * @param out Where to print, System.out for the USB console
+     * @param clock Time source for the waits
+     */
+    public LogDrain(PrintStream out, Clock clock) {
+        this.out = out;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts draining on a new thread.
+     * @return The draining thread
+     */
+    public Thread start() {
+        running = true;
+        Thread t = new Thread(this, "log");
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Stops the draining thread after a last drain.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    public void run() {
+        // start() sets the flag, so a stop() before this thread runs holds
+        while (running) {
+            Log.drain(out);
+            clock.sleep(PERIOD_MS);
+        }
+        Log.drain(out);
+    }
+}
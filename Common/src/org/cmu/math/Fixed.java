@@ -0,0 +1,224 @@
+package org.cmu.math;
+
+/**
+ * PTLoc -- Q16.16 fixed-point arithmetic for VMs where double is slow. A
+ * value is an int holding x * 65536, so the range is about +/- 32767 with a
+ * resolution of 1.5e-5. Angles are in degrees, which keeps the trig free of
+ * conversions: sine comes from a quarter-wave table and arcsine from the
+ * same half-angle scheme as {@link InverseTrig}, both interpolated. Tables
+ * are filled once from Math.sin at class load.
+ */
+public final class Fixed {
+
+    public static final int BITS = 16;
+    public static final int ONE = 1 << BITS;
+    public static final int HALF = ONE >> 1;
+    /** Marks a result that could not be computed, like Double.NaN. */
+    public static final int NaN = Integer.MIN_VALUE;
+    public static final int PI = 205887;
+    public static final int DEG_90 = 90 << BITS;
+    public static final int DEG_180 = 180 << BITS;
+    public static final int DEG_360 = 360 << BITS;
+    /** Intervals per table. */
+    public static final int SIZE = 256;
+    private static final int[] SIN = new int[SIZE + 1];
+    private static final int[] ASIN = new int[SIZE + 1];
+    /** Square root of the top of each 2^54 wide bucket in [2^60 2^62). */
+    private static final long[] ROOT = new long[192];
+
+    static {
+        for (int i = 0; i <= SIZE; i++) {
+            SIN[i] = fromDouble(Math.sin(Math.toRadians(90.0 * i / SIZE)));
+            ASIN[i] = fromDouble(Math.toDegrees(InverseTrig.asin(0.5 * i / SIZE)));
+        }
+        for (int i = 0; i < ROOT.length; i++) {
+            ROOT[i] = (long) Math.ceil(Math.sqrt(i + 65.0) * (1L << 27));
+        }
+    }
+
+    private Fixed() {
+    }
+
+    /**
+     * @param x Value, rounded half away from 0 to the nearest step
+     * @return Q16.16, NaN if x is NaN or out of range
+     */
+    public static int fromDouble(double x) {
+        if (!(x > -32768 && x < 32767)) {
+            return NaN;
+        }
+        return (int) (x >= 0 ? x * ONE + 0.5 : x * ONE - 0.5);
+    }
+
+    /**
+     * @param x Q16.16
+     * @return x as a double, Double.NaN for NaN
+     */
+    public static double toDouble(int x) {
+        return x == NaN ? Double.NaN : x / (double) ONE;
+    }
+
+    /**
+     * @param n Whole number, +/- 32767
+     * @return Q16.16
+     */
+    public static int fromInt(int n) {
+        return n << BITS;
+    }
+
+    /**
+     * @param x Q16.16
+     * @return x rounded to the nearest whole number
+     */
+    public static int toInt(int x) {
+        return (x + HALF) >> BITS;
+    }
+
+    /**
+     * @return a * b, Q16.16
+     */
+    public static int mul(int a, int b) {
+        return (int) (((long) a * b + HALF) >> BITS);
+    }
+
+    /**
+     * @return a / b, Q16.16; b must not be 0
+     */
+    public static int div(int a, int b) {
+        return (int) (((long) a << BITS) / b);
+    }
+
+    /**
+     * @param x Q16.16, at least 0
+     * @return Square root, Q16.16, NaN if x is negative
+     */
+    public static int sqrt(int x) {
+        return sqrtQ32((long) x << BITS);
+    }
+
+    /**
+     * Square root of a Q32.32 value, such as the product of two Q16.16
+     * values before rounding, for sums of squares that would lose their
+     * low bits in Q16.16.
+     * @param x Q32.32, at least 0
+     * @return Square root, Q16.16, NaN if x is negative
+     */
+    public static int sqrtQ32(long x) {
+        if (x < 0) {
+            return NaN;
+        }
+        if (x == 0) {
+            return 0;
+        }
+        // scale by 4^k into [2^60 2^62), where the top 8 bits pick a seed
+        // within 1% above the root, then Newton's method from above
+        int k = 0;
+        long n = x;
+        while (n < 1L << 44) {
+            n <<= 16;
+            k += 8;
+        }
+        while (n < 1L << 60) {
+            n <<= 2;
+            k++;
+        }
+        long root = (ROOT[(int) (n >>> 54) - 64] >> k) + 1;
+        while (true) {
+            long next = (root + x / root) >> 1;
+            if (next >= root) {
+                return (int) root;
+            }
+            root = next;
+        }
+    }
+
+    /**
+     * @param deg Angle, degrees, Q16.16
+     * @return Sine, Q16.16
+     */
+    public static int sin(int deg) {
+        deg %= DEG_360;
+        if (deg < 0) {
+            deg += DEG_360;
+        }
+        if (deg >= DEG_180) {
+            return -quarterSin(deg - DEG_180);
+        }
+        return quarterSin(deg);
+    }
+
+    /**
+     * @param deg Angle, degrees, Q16.16
+     * @return Cosine, Q16.16
+     */
+    public static int cos(int deg) {
+        return sin(DEG_90 - (deg % DEG_360));
+    }
+
+    /**
+     * @param deg Angle in [0 180], degrees, Q16.16
+     * @return Sine from the quarter-wave table
+     */
+    private static int quarterSin(int deg) {
+        if (deg > DEG_90) {
+            deg = DEG_180 - deg;
+        }
+        return lookup(SIN, (int) (((long) deg * SIZE) / 90));
+    }
+
+    /**
+     * @param x Sine, [-1 1], Q16.16; a value just outside from rounding is
+     *      clamped
+     * @return Angle, degrees, [-90 90], Q16.16, NaN if x is NaN
+     */
+    public static int asin(int x) {
+        if (x == NaN) {
+            return NaN;
+        }
+        if (x < 0) {
+            return -asin(-x);
+        }
+        if (x <= HALF) {
+            return lookup(ASIN, x * (2 * SIZE));
+        }
+        if (x >= ONE) {
+            return DEG_90;
+        }
+        // sqrt((1 - x) / 2), halved in Q32.32 so the last bit is kept
+        return DEG_90 - 2 * lookup(ASIN, sqrtQ32((long) (ONE - x) << (BITS - 1)) * (2 * SIZE));
+    }
+
+    /**
+     * @param deg Angle, degrees, Q16.16
+     * @return Angle, radians, Q16.16
+     */
+    public static int toRadians(int deg) {
+        return (int) (((long) deg * PI) / DEG_180);
+    }
+
+    /**
+     * Returns a valid angle in [0 360], as Geometry.wrap does.
+     * @param deg Angle, degrees, Q16.16
+     * @return Valid angle
+     */
+    public static int wrap(int deg) {
+        if (deg > DEG_360) {
+            return deg % DEG_360;
+        }
+        return deg >= 0 ? deg : deg + DEG_360;
+    }
+
+    /**
+     * @param table Function at SIZE + 1 even steps
+     * @param p Position in steps, Q16.16, [0 SIZE]
+     * @return Table interpolated at p
+     */
+    private static int lookup(int[] table, int p) {
+        int i = p >> BITS;
+        if (i >= SIZE) {
+            return table[SIZE];
+        }
+        int f = p & (ONE - 1);
+        return table[i] + (int) (((long) (table[i + 1] - table[i]) * f) >> BITS);
+    }
+}
@@ -0,0 +1,152 @@
+package org.cmu.math;
+
+/**
+ * PTLoc -- {@link Geometry} in Q16.16 fixed point, see {@link Fixed}. Same
+ * formulas, but the law of cosines works on the ratio of the two distances,
+ * so echo times of any size never overflow and only whole ones are needed.
+ */
+public final class FixedGeometry {
+
+    /** Largest ratio of the two distances the solver accepts. */
+    public static final int MAX_RATIO = 100;
+
+    private FixedGeometry() {
+    }
+
+    /**
+     * Calculate theta3, unknown of side-angle-side triangle using law of
+     * cosines and law of sines.
+     * @param d1 Distance to the Mount, any unit, above 0
+     * @param d2 Distance to the target, same unit, above 0
+     * @param a1 Pointer heading to the Mount, degrees, Q16.16
+     * @param a2 Pointer heading to the target, degrees, Q16.16
+     * @return Mount heading to the target, [0 360], Q16.16, Fixed.NaN if a
+     *      reading is NaN or the distances are out of proportion
+     */
+    public static int angle3(int d1, int d2, int a1, int a2) {
+        int r = ratio(d1, d2);
+        if (r == Fixed.NaN || a1 == Fixed.NaN || a2 == Fixed.NaN) {
+            return Fixed.NaN;
+        }
+        int diff = Math.abs(a1 - a2);
+        if (diff > Fixed.DEG_180) {
+            diff = Fixed.DEG_360 - diff;
+        }
+
+        // d3 / d1
+        int d3 = side(r, diff);
+        if (d3 <= 0) {
+            return Fixed.NaN;
+        }
+        int a3;
+        if (r < d3) {
+            a3 = Fixed.asin(Fixed.div(Fixed.mul(Fixed.sin(diff), r), d3));
+        } else {
+            int temp = Fixed.asin(Fixed.div(Fixed.sin(diff), d3));
+            // as Geometry.angle3, which adds diff in radians here
+            a3 = Fixed.DEG_180 - (temp + Fixed.toRadians(diff));
+        }
+        return Fixed.wrap(Fixed.DEG_180 - (Fixed.DEG_360 - a1 + a3));
+    }
+
+    /**
+     * Calculate the Mount's tilt to the target, as angle3 does for heading.
+     * @param d1 Distance to the Mount, any unit, above 0
+     * @param d2 Distance to the target, same unit, above 0
+     * @param a1 Pointer tilt to the Mount, Q16.16
+     * @param a2 Pointer tilt to the target, Q16.16
+     * @return Mount tilt, Q16.16, Fixed.NaN if a reading is NaN or the
+     *      distances are out of proportion
+     */
+    public static int tilt3(int d1, int d2, int a1, int a2) {
+        int r = ratio(d1, d2);
+        if (r == Fixed.NaN || a1 == Fixed.NaN || a2 == Fixed.NaN) {
+            return Fixed.NaN;
+        }
+        a1 *= 180;
+        a2 *= 180;
+        int diff = Math.abs(a1 - a2);
+
+        int d3 = side(r, diff);
+        if (d3 <= 0) {
+            return Fixed.NaN;
+        }
+        int a4;
+        if (r < d3) {
+            a4 = Fixed.asin(Fixed.div(Fixed.mul(Fixed.sin(diff), r), d3));
+        } else {
+            int temp = Fixed.asin(Fixed.div(Fixed.sin(diff), d3));
+            a4 = Fixed.DEG_180 - Math.abs(temp + diff);
+        }
+        return (a4 - a1) / 180;
+    }
+
+    /**
+     * angle3 over arrays of readings.
+     * @param d1 Distances to the Mount
+     * @param d2 Distances to the targets
+     * @param a1 Headings to the Mount
+     * @param a2 Headings to the targets
+     * @param out Mount headings, Fixed.NaN where unsolved
+     * @param count Readings to solve
+     * @return Readings solved
+     */
+    public static int angle3(int[] d1, int[] d2, int[] a1, int[] a2, int[] out, int count) {
+        int solved = 0;
+        for (int i = 0; i < count; i++) {
+            out[i] = angle3(d1[i], d2[i], a1[i], a2[i]);
+            if (out[i] != Fixed.NaN) {
+                solved++;
+            }
+        }
+        return solved;
+    }
+
+    /**
+     * tilt3 over arrays of readings.
+     * @param d1 Distances to the Mount
+     * @param d2 Distances to the targets
+     * @param a1 Tilts to the Mount
+     * @param a2 Tilts to the targets
+     * @param out Mount tilts, Fixed.NaN where unsolved
+     * @param count Readings to solve
+     * @return Readings solved
+     */
+    public static int tilt3(int[] d1, int[] d2, int[] a1, int[] a2, int[] out, int count) {
+        int solved = 0;
+        for (int i = 0; i < count; i++) {
+            out[i] = tilt3(d1[i], d2[i], a1[i], a2[i]);
+            if (out[i] != Fixed.NaN) {
+                solved++;
+            }
+        }
+        return solved;
+    }
+
+    /**
+     * @return d2 / d1, Q16.16, Fixed.NaN if either is not above 0 or the
+     *      ratio is above MAX_RATIO
+     */
+    private static int ratio(int d1, int d2) {
+        if (d1 <= 0 || d2 <= 0 || d2 / MAX_RATIO >= d1) {
+            return Fixed.NaN;
+        }
+        return (int) (((long) d2 << Fixed.BITS) / d1);
+    }
+
+    /**
+     * Law of cosines with the first side 1, written as (1 - r)^2 +
+     * 4 r sin^2(diff / 2) and summed in Q32.32: the usual form subtracts
+     * nearly equal terms when the sides are alike and the angle is small,
+     * which leaves too few bits in Q16.16.
+     * @param r Second side, Q16.16
+     * @param diff Angle between them, degrees, Q16.16
+     * @return Third side, Q16.16
+     */
+    private static int side(int r, int diff) {
+        long near = (long) (Fixed.ONE - r) * (Fixed.ONE - r);
+        int s = Fixed.sin(diff >> 1);
+        long apart = (((long) r * s >> Fixed.BITS) * s) << 2;
+        return Fixed.sqrtQ32(near + apart);
+    }
+}
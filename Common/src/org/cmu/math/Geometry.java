@@ -0,0 +1,162 @@
+package org.cmu.math;
+
+/**
+ * PTLoc -- where the Mount has to point, from two Pointer readings. The
+ * Pointer, the Mount and the target form a triangle whose sides from the
+ * Pointer and the angle between them are known; the laws of cosines and
+ * sines give the angle at the Mount. No state and no output, so the Mount
+ * and a host-side planner can share it; the batch forms work through
+ * arrays of readings without allocating.
+ */
+public final class Geometry {
+
+    private Geometry() {
+    }
+
+    /**
+     * Calculate theta3, unknown of side-angle-side triangle using law of
+     * cosines and law of sines.
+     * @param d1 Distance to the Mount
+     * @param d2 Distance to the target
+     * @param a1 Pointer heading to the Mount, degrees
+     * @param a2 Pointer heading to the target, degrees
+     * @return Mount heading to the target, [0 360], NaN if a reading is
+     *      NaN
+     */
+    public static double angle3(double d1, double d2, double a1, double a2) {
+        double diff = Math.abs(a1 - a2);
+        if (diff > 180) {
+            diff = 360 - diff;
+        }
+        diff = Math.toRadians(diff);
+
+        double d3 = Math.sqrt(d1 * d1 + d2 * d2 - (2 * d1 * d2 * Math.cos(diff)));
+        // diff -> d3
+        // a3 -> d2
+        double a3;
+        if (d2 < d3) {
+            a3 = Math.toDegrees(asin(Math.sin(diff) * d2 / d3));
+        } else {
+            double temp = Math.toDegrees(asin(Math.sin(diff) * d1 / d3));
+            a3 = 180 - (temp + diff);
+        }
+        return wrap(180 - (360 - a1 + a3));
+    }
+
+    /**
+     * Calculate the Mount's tilt to the target, as angle3 does for heading.
+     * @param d1 Distance to the Mount
+     * @param d2 Distance to the target
+     * @param a1 Pointer tilt to the Mount, radians
+     * @param a2 Pointer tilt to the target, radians
+     * @return Mount tilt, radians, NaN if a reading is NaN
+     */
+    public static double tilt3(double d1, double d2, double a1, double a2) {
+        a1 *= 180;
+        a2 *= 180;
+        double diff = Math.toRadians(Math.abs(a1 - a2));
+
+        double d3 = Math.sqrt(d1 * d1 + d2 * d2 - (2 * d1 * d2 * Math.cos(diff)));
+        double a4;
+        if (d2 < d3) {
+            a4 = Math.toDegrees(asin(Math.sin(diff) * d2 / d3));
+        } else {
+            double temp = Math.toDegrees(asin(Math.sin(diff) * d1 / d3));
+            a4 = 180 - Math.abs(temp + Math.toDegrees(diff));
+        }
+        return (a4 - a1) / 180;
+    }
+
+    /**
+     * angle3 over arrays of readings.
+     * @param d1 Distances to the Mount
+     * @param d2 Distances to the targets
+     * @param a1 Headings to the Mount
+     * @param a2 Headings to the targets
+     * @param out Mount headings, NaN where a reading is NaN
+     * @param count Readings to solve
+     * @return Readings solved
+     */
+    public static int angle3(double[] d1, double[] d2, double[] a1, double[] a2,
+            double[] out, int count) {
+        int solved = 0;
+        for (int i = 0; i < count; i++) {
+            out[i] = angle3(d1[i], d2[i], a1[i], a2[i]);
+            if (!Double.isNaN(out[i])) {
+                solved++;
+            }
+        }
+        return solved;
+    }
+
+    /**
+     * tilt3 over arrays of readings.
+     * @param d1 Distances to the Mount
+     * @param d2 Distances to the targets
+     * @param a1 Tilts to the Mount
+     * @param a2 Tilts to the targets
+     * @param out Mount tilts, NaN where a reading is NaN
+     * @param count Readings to solve
+     * @return Readings solved
+     */
+    public static int tilt3(double[] d1, double[] d2, double[] a1, double[] a2,
+            double[] out, int count) {
+        int solved = 0;
+        for (int i = 0; i < count; i++) {
+            out[i] = tilt3(d1[i], d2[i], a1[i], a2[i]);
+            if (!Double.isNaN(out[i])) {
+                solved++;
+            }
+        }
+        return solved;
+    }
+
+    /**
+     * Uses {@link InverseTrig} for asin due to Java ME limitations
+     * @param x Sine, [-1 1]
+     * @return asin(x), NaN if x is NaN
+     */
+    public static double asin(double x) {
+        return InverseTrig.asin(x);
+    }
+
+    /**
+     * Calculate optimal way to turn to new angle -- shortest distance
+     * @param a2 Goal angle
+     * @param a1 Current angle
+     * @return Optimal angle difference, [-180 180]
+     */
+    public static double angleDiff(double a2, double a1) {
+        double d1 = 360 - a2 + a1;
+        double d2 = a2 - a1;
+        double d3 = a1 - a2;
+        double d4 = 360 - a1 + a2;
+
+        double min1;
+        if (Math.abs(d1) < Math.abs(d2)) {
+            min1 = -d1;
+        } else {
+            min1 = d2;
+        }
+
+        double min2;
+        if (Math.abs(d3) < Math.abs(d4)) {
+            min2 = -d3;
+        } else {
+            min2 = d4;
+        }
+        return Math.abs(min1) < Math.abs(min2) ? min1 : min2;
+    }
+
+    /**
+     * Returns a valid angle in [0 360]
+     * @param x Angle, degrees
+     * @return Valid angle
+     */
+    public static double wrap(double x) {
+        if (x > 360) {
+            return x % 360;
+        }
+        return x >= 0 ? x : x + 360;
+    }
+}
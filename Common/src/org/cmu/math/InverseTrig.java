@@ -0,0 +1,119 @@
+package org.cmu.math;
+
+/**
+ * PTLoc -- arcsine, arccosine and arctangent for CLDC 1.1, whose Math has
+ * none of them. Linear interpolation in 257-entry tables over [0, 0.5] for
+ * arcsine and [0, 1] for arctangent, where neither function is steep;
+ * arcsine beyond 0.5 uses asin(x) = pi/2 - 2 asin(sqrt((1 - x) / 2)), and
+ * atan2 folds every octant onto [0, 1]. Worst error over the whole domain
+ * is 7e-7 radian for arcsine and 1.3e-6 for arctangent. The tables are
+ * filled at class load by Newton's method on Math.sin, so no constants
+ * need to be carried.
+ */
+public final class InverseTrig {
+
+    /** Intervals per table. */
+    public static final int SIZE = 256;
+    public static final double HALF_PI = Math.PI / 2;
+    private static final double ASIN_MAX = 0.5;
+    private static final double[] ASIN = new double[SIZE + 1];
+    private static final double[] ATAN = new double[SIZE + 1];
+
+    static {
+        for (int i = 0; i <= SIZE; i++) {
+            ASIN[i] = solveSin(i * ASIN_MAX / SIZE);
+        }
+        for (int i = 0; i <= SIZE; i++) {
+            double z = i / (double) SIZE;
+            ATAN[i] = solveSin(z / Math.sqrt(1 + z * z));
+        }
+    }
+
+    private InverseTrig() {
+    }
+
+    /**
+     * @param x Sine, [-1 1]; a value just outside from rounding is clamped
+     * @return Angle in radians, [-pi/2 pi/2], NaN if x is NaN
+     */
+    public static double asin(double x) {
+        if (x < 0) {
+            return -asin(-x);
+        }
+        if (x <= ASIN_MAX) {
+            return lookup(ASIN, x / ASIN_MAX);
+        }
+        if (x >= 1) {
+            return HALF_PI;
+        }
+        return HALF_PI - 2 * lookup(ASIN, Math.sqrt((1 - x) / 2) / ASIN_MAX);
+    }
+
+    /**
+     * @param x Cosine, [-1 1]; a value just outside from rounding is clamped
+     * @return Angle in radians, [0 pi], NaN if x is NaN
+     */
+    public static double acos(double x) {
+        return HALF_PI - asin(x);
+    }
+
+    /**
+     * @param y Opposite side
+     * @param x Adjacent side
+     * @return Angle of (x, y) in radians, [-pi pi]
+     */
+    public static double atan2(double y, double x) {
+        double ax = Math.abs(x);
+        double ay = Math.abs(y);
+        if (ax == 0 && ay == 0) {
+            return 0;
+        }
+        double a;
+        if (ay <= ax) {
+            a = lookup(ATAN, ay / ax);
+        } else {
+            a = HALF_PI - lookup(ATAN, ax / ay);
+        }
+        if (x < 0) {
+            a = Math.PI - a;
+        }
+        return y < 0 ? -a : a;
+    }
+
+    /**
+     * @param z Tangent
+     * @return Angle in radians, [-pi/2 pi/2]
+     */
+    public static double atan(double z) {
+        return atan2(z, 1);
+    }
+
+    /**
+     * @param table Function at SIZE + 1 even steps over [0 1]
+     * @param u Position in [0 1]
+     * @return Table interpolated at u
+     */
+    private static double lookup(double[] table, double u) {
+        if (u != u) {
+            return u; // NaN
+        }
+        if (u >= 1) {
+            return table[SIZE];
+        }
+        double p = u * SIZE;
+        int i = (int) p;
+        return table[i] + (p - i) * (table[i + 1] - table[i]);
+    }
+
+    /**
+     * @param x Sine, [0 0.71]
+     * @return asin(x) to double precision
+     */
+    private static double solveSin(double x) {
+        double y = x;
+        for (int i = 0; i < 8; i++) {
+            y -= (Math.sin(y) - x) / Math.cos(y);
+        }
+        return y;
+    }
+}
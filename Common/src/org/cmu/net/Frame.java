@@ -0,0 +1,87 @@
+package org.cmu.net;
+
+/**
+ * PTLoc -- on-air format of Pointer readings, version 2. Big-endian:
+ * <pre>
+ * 0xA5 0x5A            sync
+ * version              1 byte
+ * sequence             1 byte, +1 per frame, wraps
+ * count                1 byte, readings in the frame, 1 - MAX_READINGS
+ * MARKS x mark         u16 each, ms spent by the Pointer in a stage,
+ *                      MARK_NONE if not timed; absent in version 1
+ * count x reading      READING_SIZE bytes each:
+ *     type             1 byte
+ *     distance         u16, echo microseconds
+ *     angle            u16, 0.01 degree, 0 - 35999
+ *     tilt             s16, 0.0001 radian
+ * crc                  u16, CRC-16/CCITT over version .. last reading
+ * </pre>
+ * One reading takes 20 bytes against 25 for the old type byte and three
+ * doubles. Version 1 frames, without marks, are still decoded.
+ */
+public final class Frame {
+
+    public static final int SYNC0 = 0xA5;
+    public static final int SYNC1 = 0x5A;
+    public static final int VERSION = 2;
+    public static final int VERSION_1 = 1;
+    public static final int HEADER_SIZE = 5;
+    /** Marks: measuring, LED feedback, then the previous frame's send. */
+    public static final int MARK_MEASURE = 0;
+    public static final int MARK_FEEDBACK = 1;
+    public static final int MARK_RADIO = 2;
+    public static final int MARKS = 3;
+    public static final int MARK_NONE = 0xFFFF;
+    public static final int READING_SIZE = 7;
+    public static final int CRC_SIZE = 2;
+    public static final int MAX_READINGS = 8;
+    public static final int MAX_SIZE = size(MAX_READINGS);
+    public static final double ANGLE_SCALE = 100;
+    public static final double TILT_SCALE = 10000;
+
+    private Frame() {
+    }
+
+    /**
+     * @param count Readings in the frame
+     * @return Frame length in bytes
+     */
+    public static int size(int count) {
+        return size(VERSION, count);
+    }
+
+    /**
+     * @param version Frame version, 1 or 2
+     * @param count Readings in the frame
+     * @return Frame length in bytes
+     */
+    public static int size(int version, int count) {
+        return HEADER_SIZE + marksSize(version) + count * READING_SIZE + CRC_SIZE;
+    }
+
+    /**
+     * @param version Frame version, 1 or 2
+     * @return Bytes of marks after the header
+     */
+    public static int marksSize(int version) {
+        return version == VERSION_1 ? 0 : 2 * MARKS;
+    }
+
+    /**
+     * CRC-16/CCITT-FALSE, polynomial 0x1021, initial value 0xFFFF.
+     * @param data Buffer
+     * @param offset First byte
+     * @param length Bytes to check
+     * @return CRC, 0 - 0xFFFF
+     */
+    public static int crc16(byte[] data, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset; i < offset + length; i++) {
+            crc ^= (data[i] & 0xFF) << 8;
+            for (int b = 0; b < 8; b++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+        }
+        return crc & 0xFFFF;
+    }
+}
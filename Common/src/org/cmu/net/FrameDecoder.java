@@ -0,0 +1,181 @@
+package org.cmu.net;
+
+import org.cmu.Reading;
+
+/**
+ * PTLoc -- finds {@link Frame}s in received bytes. Bytes are appended with
+ * feed() and frames taken with next(). A frame with a bad version, count or
+ * CRC costs only its first sync byte: the search resumes at the next byte,
+ * so a good frame behind a corrupt one is still found. Sequence numbers are
+ * used to drop repeated frames and count lost ones. The marks of the last
+ * frame decoded are kept for getMark().
+ */
+public class FrameDecoder {
+
+    private final byte[] buf = new byte[4 * Frame.MAX_SIZE];
+    private int head;
+    private int tail;
+    private int lastSequence = -1;
+    private int frames;
+    private int crcErrors;
+    private int skipped;
+    private int lost;
+    private int duplicates;
+    private final int[] marks = new int[Frame.MARKS];
+
+    /**
+     * Appends received bytes. If the buffer is full the oldest bytes are
+     * dropped.
+     * @param data Buffer
+     * @param offset First byte
+     * @param length Bytes to append
+     */
+    public void feed(byte[] data, int offset, int length) {
+        if (tail + length > buf.length) {
+            compact();
+        }
+        if (tail + length > buf.length) {
+            int drop = Math.min(tail, tail + length - buf.length);
+            skipped += drop;
+            head = drop;
+            compact();
+        }
+        int n = Math.min(length, buf.length - tail);
+        System.arraycopy(data, offset + length - n, buf, tail, n);
+        tail += n;
+    }
+
+    /**
+     * Decodes the next good frame.
+     * @param out Receives up to Frame.MAX_READINGS readings. Readings
+     *      already in it are overwritten, empty slots get new ones, so a
+     *      caller that keeps out decodes without allocating.
+     * @param receivedAt Timestamp given to the readings
+     * @return Readings decoded, -1 if no complete frame is buffered
+     */
+    public int next(Reading[] out, long receivedAt) {
+        while (true) {
+            while (tail - head >= 2 && ((buf[head] & 0xFF) != Frame.SYNC0
+                    || (buf[head + 1] & 0xFF) != Frame.SYNC1)) {
+                head++;
+                skipped++;
+            }
+            if (tail - head < Frame.HEADER_SIZE) {
+                return -1;
+            }
+            int version = buf[head + 2];
+            int count = buf[head + 4] & 0xFF;
+            if ((version != Frame.VERSION && version != Frame.VERSION_1)
+                    || count < 1 || count > Frame.MAX_READINGS) {
+                head++;
+                skipped++;
+                continue;
+            }
+            int size = Frame.size(version, count);
+            if (tail - head < size) {
+                return -1;
+            }
+            int crcAt = head + size - Frame.CRC_SIZE;
+            if (Frame.crc16(buf, head + 2, size - 2 - Frame.CRC_SIZE) != getShort(crcAt)) {
+                crcErrors++;
+                head++;
+                skipped++;
+                continue;
+            }
+            int sequence = buf[head + 3] & 0xFF;
+            int p = head + Frame.HEADER_SIZE;
+            head += size;
+            if (!accept(sequence)) {
+                continue;
+            }
+            for (int i = 0; i < Frame.MARKS; i++) {
+                marks[i] = version == Frame.VERSION_1 ? Frame.MARK_NONE : getShort(p + 2 * i);
+            }
+            p += Frame.marksSize(version);
+            for (int i = 0; i < count; i++) {
+                int type = buf[p] & 0xFF;
+                double d = getShort(p + 1);
+                double angle = getShort(p + 3) / Frame.ANGLE_SCALE;
+                double tilt = (short) getShort(p + 5) / Frame.TILT_SCALE;
+                if (out[i] == null) {
+                    out[i] = new Reading(type, d, angle, tilt, receivedAt);
+                } else {
+                    out[i].set(type, d, angle, tilt, receivedAt);
+                }
+                p += Frame.READING_SIZE;
+            }
+            frames++;
+            return count;
+        }
+    }
+
+    private boolean accept(int sequence) {
+        if (lastSequence >= 0) {
+            int step = (sequence - lastSequence) & 0xFF;
+            if (step == 0) {
+                duplicates++;
+                return false;
+            }
+            if (step < 128) {
+                lost += step - 1;
+            }
+            // a big step back is taken as the Pointer restarting
+        }
+        lastSequence = sequence;
+        return true;
+    }
+
+    /**
+     * @param mark Mark, e.g. Frame.MARK_MEASURE
+     * @return Its value in the last frame decoded, Frame.MARK_NONE if not
+     *      timed
+     */
+    public int getMark(int mark) {
+        return marks[mark];
+    }
+
+    private int getShort(int p) {
+        return ((buf[p] & 0xFF) << 8) | (buf[p + 1] & 0xFF);
+    }
+
+    private void compact() {
+        System.arraycopy(buf, head, buf, 0, tail - head);
+        tail -= head;
+        head = 0;
+    }
+
+    /**
+     * @return Good frames decoded
+     */
+    public int getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return Frames rejected by their CRC
+     */
+    public int getCrcErrors() {
+        return crcErrors;
+    }
+
+    /**
+     * @return Bytes discarded while searching for a frame
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return Frames missing from the sequence
+     */
+    public int getLost() {
+        return lost;
+    }
+
+    /**
+     * @return Repeated frames dropped
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+}
@@ -0,0 +1,99 @@
+package org.cmu.net;
+
+import org.cmu.Reading;
+
+/**
+ * PTLoc -- writes readings as {@link Frame}s, numbering them in sequence.
+ */
+public class FrameEncoder {
+
+    private int sequence;
+    private final Reading[] single = new Reading[1];
+
+    /**
+     * Encodes one frame.
+     * @param readings Readings to send
+     * @param offset First reading
+     * @param count Readings in the frame, 1 - Frame.MAX_READINGS
+     * @param out Buffer of at least Frame.size(count) bytes
+     * @return Frame length
+     */
+    public int encode(Reading[] readings, int offset, int count, byte[] out) {
+        return encode(readings, offset, count, out, null);
+    }
+
+    /**
+     * Encodes one frame with the Pointer's stage timings.
+     * @param readings Readings to send
+     * @param offset First reading
+     * @param count Readings in the frame, 1 - Frame.MAX_READINGS
+     * @param out Buffer of at least Frame.size(count) bytes
+     * @param marks Frame.MARKS durations in ms, negative if not timed; null
+     *      if none were
+     * @return Frame length
+     */
+    public synchronized int encode(Reading[] readings, int offset, int count, byte[] out,
+            int[] marks) {
+        if (count < 1 || count > Frame.MAX_READINGS) {
+            throw new IllegalArgumentException("Bad reading count: " + count);
+        }
+        out[0] = (byte) Frame.SYNC0;
+        out[1] = (byte) Frame.SYNC1;
+        out[2] = (byte) Frame.VERSION;
+        out[3] = (byte) sequence;
+        out[4] = (byte) count;
+        sequence = (sequence + 1) & 0xFF;
+        int p = Frame.HEADER_SIZE;
+        for (int i = 0; i < Frame.MARKS; i++) {
+            int mark = marks == null || marks[i] < 0 ? Frame.MARK_NONE
+                    : Math.min(marks[i], Frame.MARK_NONE - 1);
+            putShort(out, p, mark);
+            p += 2;
+        }
+        for (int i = offset; i < offset + count; i++) {
+            Reading r = readings[i];
+            out[p] = (byte) r.getType();
+            putShort(out, p + 1, clamp(round(r.getDistance()), 0, 0xFFFF));
+            putShort(out, p + 3, round(wrap(r.getAngle()) * Frame.ANGLE_SCALE) % 36000);
+            putShort(out, p + 5, clamp(round(r.getTilt() * Frame.TILT_SCALE),
+                    Short.MIN_VALUE, Short.MAX_VALUE));
+            p += Frame.READING_SIZE;
+        }
+        int crc = Frame.crc16(out, 2, p - 2);
+        putShort(out, p, crc);
+        return p + Frame.CRC_SIZE;
+    }
+
+    /**
+     * Encodes a single reading.
+     * @param reading Reading to send
+     * @param out Buffer of at least Frame.size(1) bytes
+     * @return Frame length
+     */
+    public synchronized int encode(Reading reading, byte[] out) {
+        single[0] = reading;
+        try {
+            return encode(single, 0, 1, out);
+        } finally {
+            single[0] = null;
+        }
+    }
+
+    private static void putShort(byte[] out, int p, int v) {
+        out[p] = (byte) (v >> 8);
+        out[p + 1] = (byte) v;
+    }
+
+    private static int round(double x) {
+        return (int) Math.floor(x + 0.5);
+    }
+
+    private static int clamp(int x, int min, int max) {
+        return x < min ? min : (x > max ? max : x);
+    }
+
+    private static double wrap(double angle) {
+        angle %= 360;
+        return angle < 0 ? angle + 360 : angle;
+    }
+}
@@ -0,0 +1,225 @@
+package org.cmu.sensor;
+
+/**
+ * PTLoc -- software correction of the compass's hard- and soft-iron
+ * deviation. The GY-26 only reports a heading, not the raw field, so
+ * instead of fitting an ellipse to magnetometer samples this fits the
+ * classic deviation curve
+ * <pre>
+ *   measured - reference = A + B sin h + C cos h + D sin 2h + E cos 2h
+ * </pre>
+ * to (reference, measured) heading pairs, h being the measured heading.
+ * B and C are the hard-iron terms, D and E soft-iron. The fit is a running
+ * least-squares sum, so pairs can be streamed in and fit() called whenever
+ * coverage allows. A is the constant offset between the two headings; when
+ * the reference is only relative (the Mount's own servo sweep) it holds the
+ * unknown mounting heading, so correct() removes B to E only.
+ * <p>
+ * Not thread-safe; each caller keeps its own instance.
+ */
+public class CompassDeviation {
+
+    public static final int TERMS = 5;
+    /** Pull of the harmonic terms towards 0, per pair, for partial sweeps. */
+    public static final double DAMPING = 1e-3;
+    private final double[][] normal = new double[TERMS][TERMS];
+    private final double[] rhs = new double[TERMS];
+    private final double[] basis = new double[TERMS];
+    private final double[] coefficients = new double[TERMS];
+    private final HeadingCoverage coverage = new HeadingCoverage();
+    private double sumSquares;
+    private int pairs;
+    private double residual;
+    private boolean fitted;
+
+    /**
+     * Drops the collected pairs. The current fit stays in use.
+     */
+    public void reset() {
+        for (int i = 0; i < TERMS; i++) {
+            for (int j = 0; j < TERMS; j++) {
+                normal[i][j] = 0;
+            }
+            rhs[i] = 0;
+        }
+        coverage.reset();
+        sumSquares = 0;
+        pairs = 0;
+    }
+
+    /**
+     * Adds one pair.
+     * @param reference Heading the compass should have read, in degrees
+     * @param measured Heading it read, uncorrected
+     */
+    public void add(double reference, double measured) {
+        double error = diff(measured, reference);
+        basis(measured);
+        for (int i = 0; i < TERMS; i++) {
+            for (int j = 0; j < TERMS; j++) {
+                normal[i][j] += basis[i] * basis[j];
+            }
+            rhs[i] += basis[i] * error;
+        }
+        sumSquares += error * error;
+        coverage.add(measured);
+        pairs++;
+    }
+
+    /**
+     * Solves for the coefficients from the pairs added since the last
+     * reset.
+     * @return false if there are too few pairs
+     */
+    public boolean fit() {
+        if (pairs < TERMS) {
+            return false;
+        }
+        double[][] a = new double[TERMS][TERMS + 1];
+        for (int i = 0; i < TERMS; i++) {
+            for (int j = 0; j < TERMS; j++) {
+                a[i][j] = normal[i][j];
+            }
+            if (i > 0) {
+                a[i][i] += DAMPING * pairs;
+            }
+            a[i][TERMS] = rhs[i];
+        }
+        double[] c = solve(a);
+        if (c == null) {
+            return false;
+        }
+        // residual from the sums: e'e - 2c'A'e + c'A'Ac
+        double sse = sumSquares;
+        for (int i = 0; i < TERMS; i++) {
+            sse -= 2 * c[i] * rhs[i];
+            for (int j = 0; j < TERMS; j++) {
+                sse += c[i] * normal[i][j] * c[j];
+            }
+        }
+        residual = Math.sqrt(Math.max(0, sse) / pairs);
+        System.arraycopy(c, 0, coefficients, 0, TERMS);
+        fitted = true;
+        return true;
+    }
+
+    /**
+     * @param measured Heading read by the compass
+     * @return Heading with the hard- and soft-iron deviation removed,
+     *      [0 360); unchanged before the first fit
+     */
+    public double correct(double measured) {
+        if (!fitted) {
+            return measured;
+        }
+        basis(measured);
+        double deviation = 0;
+        for (int i = 1; i < TERMS; i++) {
+            deviation += coefficients[i] * basis[i];
+        }
+        double h = (measured - deviation) % 360;
+        return h < 0 ? h + 360 : h;
+    }
+
+    /**
+     * @return {A, B, C, D, E} of the last fit
+     */
+    public double[] getCoefficients() {
+        double[] c = new double[TERMS];
+        System.arraycopy(coefficients, 0, c, 0, TERMS);
+        return c;
+    }
+
+    /**
+     * Uses coefficients from an earlier fit.
+     * @param c {A, B, C, D, E}
+     */
+    public void setCoefficients(double[] c) {
+        System.arraycopy(c, 0, coefficients, 0, TERMS);
+        fitted = true;
+    }
+
+    /**
+     * @return true once coefficients are in use
+     */
+    public boolean isFitted() {
+        return fitted;
+    }
+
+    /**
+     * @return RMS of what the last fit left unexplained, in degrees
+     */
+    public double getResidual() {
+        return residual;
+    }
+
+    /**
+     * @return Pairs added since the last reset
+     */
+    public int getPairs() {
+        return pairs;
+    }
+
+    /**
+     * @return Headings the pairs have covered
+     */
+    public HeadingCoverage getCoverage() {
+        return coverage;
+    }
+
+    private void basis(double heading) {
+        double r = Math.toRadians(heading);
+        basis[0] = 1;
+        basis[1] = Math.sin(r);
+        basis[2] = Math.cos(r);
+        basis[3] = Math.sin(2 * r);
+        basis[4] = Math.cos(2 * r);
+    }
+
+    /**
+     * Gaussian elimination with partial pivoting on an augmented matrix.
+     * @return Solution, null if singular
+     */
+    private static double[] solve(double[][] a) {
+        int n = a.length;
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(a[pivot][col]) < 1e-12) {
+                return null;
+            }
+            double[] t = a[col];
+            a[col] = a[pivot];
+            a[pivot] = t;
+            for (int row = col + 1; row < n; row++) {
+                double f = a[row][col] / a[col][col];
+                for (int k = col; k <= n; k++) {
+                    a[row][k] -= f * a[col][k];
+                }
+            }
+        }
+        double[] x = new double[n];
+        for (int row = n - 1; row >= 0; row--) {
+            double s = a[row][n];
+            for (int k = row + 1; k < n; k++) {
+                s -= a[row][k] * x[k];
+            }
+            x[row] = s / a[row][row];
+        }
+        return x;
+    }
+
+    private static double diff(double a, double b) {
+        double d = (a - b) % 360;
+        if (d > 180) {
+            d -= 360;
+        } else if (d < -180) {
+            d += 360;
+        }
+        return d;
+    }
+}
@@ -0,0 +1,220 @@
+package org.cmu.sensor;
+
+import java.io.IOException;
+import org.cmu.hal.Clock;
+import org.cmu.hal.Compass;
+
+/**
+ * PTLoc -- polls the compass as fast as the bus allows on its own thread and
+ * keeps the newest readings in a fixed-size ring buffer. There is a single
+ * writer, so readers never lock: they read the published sample count,
+ * walk back through the slots and retry if the writer lapped them meanwhile.
+ */
+public class CompassSampler implements Runnable {
+
+    /** Ring size, a power of two. */
+    public static final int SIZE = 32;
+    /** Readings filtered by {@link #getHeading(HeadingEstimator)}. */
+    public static final int FILTER_SIZE = 4;
+    /** Back-off after a failed bus transaction. */
+    public static final long ERROR_BACKOFF_MS = 50;
+    /** How long {@link #awaitHeading(long, int, HeadingEstimator)} waits before giving up. */
+    public static final long STALL_TIMEOUT_MS = 1000;
+    private static final int MASK = SIZE - 1;
+    private final Compass compass;
+    private final Clock clock;
+    private final double[] headings = new double[SIZE];
+    private final long[] times = new long[SIZE];
+    private volatile int written = 0;
+    private volatile boolean running = false;
+    private volatile IOException lastError;
+
+    public CompassSampler(Compass compass, Clock clock) {
+        this.compass = compass;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts sampling on a new thread.
+     * @return The sampling thread
+     */
+    public Thread start() {
+        running = true;
+        Thread t = new Thread(this, "compass");
+        t.start();
+        return t;
+    }
+
+    /**
+     * Stops the sampling thread after its current read.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    public void run() {
+        // start() sets the flag, so a stop() before this thread runs holds
+        while (running) {
+            try {
+                double angle = compass.getAngle();
+                int w = written;
+                headings[w & MASK] = angle;
+                times[w & MASK] = clock.currentTimeMillis();
+                written = w + 1; // publishes the slot
+                lastError = null;
+                Thread.yield();
+            } catch (IOException e) {
+                lastError = e;
+                clock.sleep(ERROR_BACKOFF_MS);
+            }
+        }
+    }
+
+    /**
+     * @return Number of readings taken so far
+     */
+    public int getCount() {
+        return written;
+    }
+
+    /**
+     * @return Time the newest reading was taken, 0 if none yet
+     */
+    public long getTimestamp() {
+        int w = written;
+        return w == 0 ? 0 : times[(w - 1) & MASK];
+    }
+
+    /**
+     * Filtered heading from the newest readings, without touching the bus.
+     * @param estimator Caller's estimator, holds the confidence afterwards
+     * @return Estimate from the newest FILTER_SIZE readings, NaN if none yet
+     */
+    public double getHeading(HeadingEstimator estimator) {
+        collect(0, FILTER_SIZE, estimator);
+        return estimator.estimate();
+    }
+
+    /**
+     * Copies the newest readings taken at or after a given time into an
+     * estimator.
+     * @param since Oldest acceptable reading time
+     * @param count Most readings to copy
+     * @param estimator Reset and filled with the readings
+     * @return Readings copied
+     */
+    public int collect(long since, int count, HeadingEstimator estimator) {
+        return collect(since, count, estimator, null);
+    }
+
+    /**
+     * @param sequence Null, or reset and fed the same readings, newest
+     *      first; copying stops once it is done
+     */
+    private int collect(long since, int count, HeadingEstimator estimator,
+            SequentialEstimator sequence) {
+        if (count > SIZE / 2) {
+            count = SIZE / 2;
+        }
+        while (true) {
+            int w = written;
+            estimator.reset();
+            if (sequence != null) {
+                sequence.reset();
+            }
+            int n = 0;
+            while (n < count && n < w) {
+                int slot = (w - 1 - n) & MASK;
+                if (times[slot] < since) {
+                    break;
+                }
+                estimator.add(headings[slot]);
+                n++;
+                if (sequence != null) {
+                    sequence.add(headings[slot]);
+                    if (sequence.isDone()) {
+                        break;
+                    }
+                }
+            }
+            // the oldest slot read, w - n, is next written once written
+            // reaches w - n + SIZE - 1; at that count the writer may already
+            // be filling it
+            if (written - w < SIZE - n) {
+                // nothing we read was overwritten
+                return n;
+            }
+        }
+    }
+
+    /**
+     * Number of readings taken at or after a given time.
+     * @param since Oldest acceptable reading time
+     * @return Reading count, at most SIZE / 2
+     */
+    public int countSince(long since) {
+        int w = written;
+        int n = 0;
+        while (n < SIZE / 2 && n < w && times[(w - 1 - n) & MASK] >= since) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Waits until enough readings newer than a given time exist and
+     * estimates the heading from them.
+     * @param since Oldest acceptable reading time
+     * @param count Readings required
+     * @param estimator Caller's estimator, holds the confidence afterwards
+     * @return Heading in degrees
+     * @throws IOException if the compass keeps failing or the sampler stalls
+     */
+    public double awaitHeading(long since, int count, HeadingEstimator estimator) throws IOException {
+        await(since, count);
+        collect(since, count, estimator);
+        return estimator.estimate();
+    }
+
+    /**
+     * Waits for readings taken after the call until a sequential stopping
+     * rule is done with them. Older readings are never used: ones that
+     * agree with each other would pass the rule at once even when they
+     * show where the compass pointed before the request. The estimate uses
+     * the newest readings up to the first point where the rule is done, or
+     * all SIZE / 2 of them, or those in when the budget runs out.
+     * @param count Readings required whatever the rule says
+     * @param estimator Caller's estimator, holds the confidence afterwards
+     * @param sequence Caller's stopping rule, reset and fed the readings
+     * @param budgetMs Longest to wait from the call for readings beyond count
+     * @return Heading in degrees
+     * @throws IOException if the compass keeps failing or the sampler stalls
+     *      before count readings
+     */
+    public double awaitHeading(int count, HeadingEstimator estimator,
+            SequentialEstimator sequence, long budgetMs) throws IOException {
+        long since = clock.currentTimeMillis();
+        long deadline = since + budgetMs;
+        await(since, count);
+        while (true) {
+            int n = collect(since, SIZE / 2, estimator, sequence);
+            if (sequence.isDone() || n == SIZE / 2 || clock.currentTimeMillis() >= deadline) {
+                return estimator.estimate();
+            }
+            while (countSince(since) <= n && clock.currentTimeMillis() < deadline) {
+                clock.sleep(1);
+            }
+        }
+    }
+
+    private void await(long since, int count) throws IOException {
+        long deadline = clock.currentTimeMillis() + STALL_TIMEOUT_MS;
+        while (countSince(since) < count) {
+            if (clock.currentTimeMillis() > deadline) {
+                IOException e = lastError;
+                throw e != null ? e : new IOException("compass sampler stalled");
+            }
+            clock.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.cmu.sensor;
+
+/**
+ * PTLoc -- which parts of the compass rose a calibration has seen, in BINS
+ * sectors of 360 / BINS degrees, and how far the sensor has turned in all.
+ * Tells a calibration when the sensor has been turned far enough, instead
+ * of waiting a fixed time.
+ * <p>
+ * Not thread-safe; each caller keeps its own instance.
+ */
+public class HeadingCoverage {
+
+    public static final int BINS = 36;
+    private final int[] visits = new int[BINS];
+    private int samples;
+    private double last = Double.NaN;
+    private double turned;
+
+    /**
+     * Forgets all headings seen.
+     */
+    public void reset() {
+        for (int i = 0; i < BINS; i++) {
+            visits[i] = 0;
+        }
+        samples = 0;
+        last = Double.NaN;
+        turned = 0;
+    }
+
+    /**
+     * @param heading Heading in degrees
+     */
+    public void add(double heading) {
+        double h = heading % 360;
+        if (h < 0) {
+            h += 360;
+        }
+        visits[Math.min(BINS - 1, (int) (h * BINS / 360))]++;
+        if (samples > 0) {
+            double d = (h - last) % 360;
+            turned += d > 180 ? d - 360 : (d < -180 ? d + 360 : d);
+        }
+        last = h;
+        samples++;
+    }
+
+    /**
+     * @return Share of sectors visited, [0 1]
+     */
+    public double getCoverage() {
+        int covered = 0;
+        for (int i = 0; i < BINS; i++) {
+            if (visits[i] > 0) {
+                covered++;
+            }
+        }
+        return covered / (double) BINS;
+    }
+
+    /**
+     * @return Net rotation in degrees since the last reset, positive
+     *      clockwise; jitter cancels out
+     */
+    public double getTurned() {
+        return turned;
+    }
+
+    /**
+     * @return Widest run of consecutive visited sectors in degrees, 360 if
+     *      the whole rose was seen
+     */
+    public double getSpan() {
+        int best = 0;
+        int run = 0;
+        for (int i = 0; i < 2 * BINS; i++) {
+            if (visits[i % BINS] > 0) {
+                run++;
+                best = Math.max(best, Math.min(run, BINS));
+            } else {
+                run = 0;
+            }
+        }
+        return best * 360.0 / BINS;
+    }
+
+    /**
+     * @return Headings added since the last reset
+     */
+    public int getSamples() {
+        return samples;
+    }
+}
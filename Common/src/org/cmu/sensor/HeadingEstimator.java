@@ -0,0 +1,176 @@
+package org.cmu.sensor;
+
+import org.cmu.math.InverseTrig;
+
+/**
+ * PTLoc -- combines compass readings into one heading without breaking at
+ * north. Readings are unwrapped around their circular mean, the direction of
+ * their summed unit vectors (359 and 1 become -1 and 1 in whatever order
+ * they arrive), the median picks the centre, readings more than OUTLIER_DEG
+ * from it are dropped and the rest are averaged. The confidence is the mean
+ * resultant length of the kept readings scaled by the fraction kept: 1 for
+ * identical readings, towards 0 for scattered ones or many outliers. The
+ * precision is the 95% confidence half-width of the kept readings' mean.
+ * <p>
+ * Not thread-safe; each caller keeps its own instance.
+ */
+public class HeadingEstimator {
+
+    public static final int MAX_SAMPLES = 16;
+    public static final double OUTLIER_DEG = 10;
+    private final double[] samples = new double[MAX_SAMPLES];
+    private final double[] sorted = new double[MAX_SAMPLES];
+    private int count;
+    private double heading = Double.NaN;
+    private double confidence;
+    private double spread;
+    private double precision;
+    private int used;
+
+    /**
+     * Clears the collected readings.
+     */
+    public void reset() {
+        count = 0;
+    }
+
+    /**
+     * Collects one reading. Readings beyond MAX_SAMPLES are ignored.
+     * @param angle Heading in degrees, [0 360)
+     */
+    public void add(double angle) {
+        if (count < MAX_SAMPLES) {
+            samples[count++] = angle;
+        }
+    }
+
+    /**
+     * @return Readings collected since the last reset
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Estimates the heading from the collected readings.
+     * @return Heading in degrees, [0 360), NaN if no readings
+     */
+    public double estimate() {
+        if (count == 0) {
+            heading = Double.NaN;
+            confidence = 0;
+            spread = 0;
+            precision = Double.POSITIVE_INFINITY;
+            used = 0;
+            return heading;
+        }
+        double c = 0;
+        double s = 0;
+        for (int i = 0; i < count; i++) {
+            double r = Math.toRadians(samples[i]);
+            c += Math.cos(r);
+            s += Math.sin(r);
+        }
+        // any reference works for one cluster; the circular mean keeps a
+        // stray reading from splitting it, wherever the stray comes
+        double ref = Math.toDegrees(InverseTrig.atan2(s, c));
+        for (int i = 0; i < count; i++) {
+            double x = ref + diff(samples[i], ref);
+            // insertion sort, count is tiny
+            int j = i - 1;
+            while (j >= 0 && sorted[j] > x) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = x;
+        }
+        double median = (count & 1) == 1 ? sorted[count / 2]
+                : (sorted[count / 2 - 1] + sorted[count / 2]) / 2;
+
+        double sum = 0;
+        double sumSq = 0;
+        c = 0;
+        s = 0;
+        used = 0;
+        for (int i = 0; i < count; i++) {
+            double x = sorted[i];
+            if (Math.abs(x - median) > OUTLIER_DEG) {
+                continue;
+            }
+            sum += x;
+            sumSq += (x - median) * (x - median);
+            double r = Math.toRadians(x);
+            c += Math.cos(r);
+            s += Math.sin(r);
+            used++;
+        }
+        double mean = sum / used;
+        spread = Math.sqrt(sumSq / used);
+        precision = used < 2 ? Double.POSITIVE_INFINITY
+                : SequentialEstimator.halfWidth(Math.sqrt(sumSq / (used - 1)), used);
+        confidence = Math.sqrt(c * c + s * s) / count;
+        heading = wrap(mean);
+        return heading;
+    }
+
+    /**
+     * @return Last estimate
+     */
+    public double getHeading() {
+        return heading;
+    }
+
+    /**
+     * @return Confidence of the last estimate, [0 1]
+     */
+    public double getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * @return RMS distance of the kept readings from the median, degrees
+     */
+    public double getSpread() {
+        return spread;
+    }
+
+    /**
+     * @return Half-width of the 95% confidence interval of the last
+     *      estimate, degrees; infinite if fewer than two readings were kept
+     */
+    public double getPrecision() {
+        return precision;
+    }
+
+    /**
+     * @return Readings kept by the last estimate
+     */
+    public int getUsed() {
+        return used;
+    }
+
+    /**
+     * Shortest signed difference between two headings.
+     * @param a Heading in degrees
+     * @param b Heading in degrees
+     * @return a - b in (-180 180]
+     */
+    public static double diff(double a, double b) {
+        double d = (a - b) % 360;
+        if (d > 180) {
+            d -= 360;
+        } else if (d <= -180) {
+            d += 360;
+        }
+        return d;
+    }
+
+    /**
+     * @param x Heading in degrees
+     * @return Heading in [0 360)
+     */
+    public static double wrap(double x) {
+        x %= 360;
+        return x < 0 ? x + 360 : x;
+    }
+}
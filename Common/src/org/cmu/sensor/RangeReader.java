@@ -0,0 +1,114 @@
+package org.cmu.sensor;
+
+import org.cmu.hal.Clock;
+import org.cmu.hal.RangeFinder;
+
+/**
+ * PTLoc -- rangefinder reads with a time budget. A missed echo is retried
+ * after RETRY_DELAY_MS, but only a bounded number of times and never past
+ * the budget, so an out-of-range or unplugged sensor returns ERROR instead
+ * of blocking its caller forever. An average can also stop as soon as a
+ * {@link SequentialEstimator} is satisfied.
+ */
+public class RangeReader {
+
+    /** Returned when no echo arrived within the budget. */
+    public static final int ERROR = -1;
+    public static final long RETRY_DELAY_MS = 10;
+    private final RangeFinder finder;
+    private final Clock clock;
+    private final int maxMisses;
+    private final long budgetMs;
+    private int misses;
+    private int failures;
+
+    /**
+     * @param finder Sensor to read.
+     * @param clock Time source for the budget.
+     * @param maxMisses Missed echoes tolerated per call
+     * @param budgetMs Time allowed per call
+     */
+    public RangeReader(RangeFinder finder, Clock clock, int maxMisses, long budgetMs) {
+        this.finder = finder;
+        this.clock = clock;
+        this.maxMisses = maxMisses;
+        this.budgetMs = budgetMs;
+    }
+
+    /**
+     * Pings until one echo comes back.
+     * @return Echo time in microseconds, or ERROR
+     */
+    public int read() {
+        double d = readAverage(1);
+        return d == ERROR ? ERROR : (int) d;
+    }
+
+    /**
+     * Averages several echoes.
+     * @param count Echoes wanted
+     * @return Mean echo time in microseconds over the echoes received, or
+     *      ERROR if none came back within the budget
+     */
+    public synchronized double readAverage(int count) {
+        return read(count, null);
+    }
+
+    /**
+     * Averages echoes until the estimator is done, the budget runs out or
+     * too many echoes are missed.
+     * @param estimator Reset and fed every echo; holds the precision
+     *      afterwards
+     * @return Mean echo time in microseconds over the echoes received, or
+     *      ERROR if none came back within the budget
+     */
+    public synchronized double readAverage(SequentialEstimator estimator) {
+        estimator.reset();
+        return read(Integer.MAX_VALUE, estimator);
+    }
+
+    private double read(int count, SequentialEstimator estimator) {
+        long deadline = clock.currentTimeMillis() + budgetMs;
+        int got = 0;
+        int missed = 0;
+        long sum = 0;
+        while (got < count && (estimator == null || !estimator.isDone())) {
+            if (got > 0 && clock.currentTimeMillis() >= deadline) {
+                break;
+            }
+            int echo = finder.getEchoTime();
+            if (echo > 0) {
+                sum += echo;
+                got++;
+                if (estimator != null) {
+                    estimator.add(echo);
+                }
+                continue;
+            }
+            misses++;
+            if (++missed > maxMisses || clock.currentTimeMillis() + RETRY_DELAY_MS >= deadline) {
+                break;
+            }
+            clock.sleep(RETRY_DELAY_MS);
+        }
+        if (got == 0) {
+            failures++;
+            return ERROR;
+        }
+        return sum / (double) got;
+    }
+
+    /**
+     * @return Missed echoes so far
+     */
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Calls that returned ERROR so far
+     */
+    public synchronized int getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,157 @@
+package org.cmu.sensor;
+
+import org.cmu.math.InverseTrig;
+
+/**
+ * PTLoc -- decides when enough readings of a steady quantity have been
+ * averaged. Keeps a running mean and variance (Welford's method) and the
+ * half-width of the 95% confidence interval of the mean, using Student's t
+ * while there are few readings; a caller reads until isDone(), so steady
+ * readings stop at MIN_SAMPLES and noisy ones carry on towards the limit.
+ * Headings are summed as unit vectors instead: the mean is their direction
+ * and the variance the mean squared distance from it, 1 - R^2 for mean
+ * resultant length R, which is the variance in radians squared for small
+ * spreads. Readings either side of north have a small spread whichever
+ * comes first.
+ * <p>
+ * Not thread-safe; each caller keeps its own instance.
+ */
+public class SequentialEstimator {
+
+    /** Fewest readings a variance is trusted from. */
+    public static final int MIN_SAMPLES = 3;
+    /** t for a two-sided 95% interval, by degrees of freedom 1 - 15. */
+    private static final double[] T95 = new double[]{12.706, 4.303, 3.182, 2.776,
+        2.571, 2.447, 2.365, 2.306, 2.262, 2.228, 2.201, 2.179, 2.160, 2.145, 2.131};
+    /** Normal quantile, used past the table. */
+    private static final double Z95 = 1.960;
+    private final boolean circular;
+    private double target;
+    private int minSamples;
+    private int maxSamples;
+    private int count;
+    private double mean;
+    private double m2;
+    private double sumCos;
+    private double sumSin;
+
+    /**
+     * @param circular true for headings in degrees
+     * @param target Half-width at which to stop, in reading units
+     * @param minSamples Readings taken whatever the spread, at least 2
+     * @param maxSamples Readings after which to stop anyway
+     */
+    public SequentialEstimator(boolean circular, double target, int minSamples,
+            int maxSamples) {
+        this.circular = circular;
+        configure(target, minSamples, maxSamples);
+    }
+
+    /**
+     * Changes the stopping rule. With minSamples == maxSamples exactly that
+     * many readings are taken, as a fixed average would.
+     * @param target Half-width at which to stop, in reading units
+     * @param minSamples Readings taken whatever the spread, at least 2
+     * @param maxSamples Readings after which to stop anyway
+     */
+    public void configure(double target, int minSamples, int maxSamples) {
+        if (minSamples < 2 || maxSamples < minSamples) {
+            throw new IllegalArgumentException("Bad sample range: " + minSamples
+                    + " - " + maxSamples);
+        }
+        this.target = target;
+        this.minSamples = minSamples;
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * Clears the readings.
+     */
+    public void reset() {
+        count = 0;
+        mean = 0;
+        m2 = 0;
+        sumCos = 0;
+        sumSin = 0;
+    }
+
+    /**
+     * @param x Reading
+     */
+    public void add(double x) {
+        count++;
+        if (circular) {
+            double r = Math.toRadians(x);
+            sumCos += Math.cos(r);
+            sumSin += Math.sin(r);
+            return;
+        }
+        double delta = x - mean;
+        mean += delta / count;
+        m2 += delta * (x - mean);
+    }
+
+    /**
+     * @return true once the half-width is below the target after at least
+     *      minSamples readings, or maxSamples were taken
+     */
+    public boolean isDone() {
+        return count >= maxSamples || (count >= minSamples && getHalfWidth() <= target);
+    }
+
+    /**
+     * @return Readings since the last reset
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return Mean of the readings, a heading in [0 360) if circular; NaN
+     *      if none
+     */
+    public double getMean() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (circular) {
+            return HeadingEstimator.wrap(Math.toDegrees(InverseTrig.atan2(sumSin, sumCos)));
+        }
+        return mean;
+    }
+
+    /**
+     * @return Sample standard deviation, 0 with fewer than two readings
+     */
+    public double getStdDev() {
+        if (count < 2) {
+            return 0;
+        }
+        if (circular) {
+            double r2 = (sumCos * sumCos + sumSin * sumSin) / ((double) count * count);
+            return Math.toDegrees(Math.sqrt(Math.max(0, 1 - r2) * count / (count - 1)));
+        }
+        return Math.sqrt(m2 / (count - 1));
+    }
+
+    /**
+     * @return Half-width of the 95% confidence interval of the mean,
+     *      infinite with fewer than two readings
+     */
+    public double getHalfWidth() {
+        if (count < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return halfWidth(getStdDev(), count);
+    }
+
+    /**
+     * @param stdDev Sample standard deviation
+     * @param n Readings, at least 2
+     * @return Half-width of the 95% confidence interval of their mean
+     */
+    public static double halfWidth(double stdDev, int n) {
+        double t = n - 1 <= T95.length ? T95[n - 2] : Z95;
+        return t * stdDev / Math.sqrt(n);
+    }
+}
@@ -0,0 +1,29 @@
+package org.cmu.spot;
+
+import com.sun.spot.resources.transducers.IIOPin;
+import com.sun.spot.sensorboard.EDemoBoard;
+import org.cmu.hal.RangeFinder;
+
+/**
+ * PTLoc -- HC-SR04 ultrasonic module wired to the eDemoBoard, trigger on D1
+ * and echo on D0.
+ */
+public class DemoBoardRangeFinder implements RangeFinder {
+
+    public static final int DISTANCE_TRIGGER_TIMEOUT = 1; //1us
+    public static final int DISTANCE_ECHO_TIMEOUT = 50; //50us
+    private final EDemoBoard board;
+    private final IIOPin trigger;
+    private final IIOPin echo;
+
+    public DemoBoardRangeFinder(EDemoBoard board) {
+        this.board = board;
+        this.trigger = board.getIOPins()[EDemoBoard.D1];
+        this.echo = board.getIOPins()[EDemoBoard.D0];
+    }
+
+    public int getEchoTime() {
+        board.startPulse(trigger, true, DISTANCE_TRIGGER_TIMEOUT);
+        return board.getPulse(echo, true, DISTANCE_ECHO_TIMEOUT);
+    }
+}
@@ -0,0 +1,81 @@
+package org.cmu.spot;
+
+import com.sun.spot.peripheral.II2C;
+import java.io.IOException;
+import org.cmu.hal.CalibratingCompass;
+
+/**
+ * PTLoc -- GY-26 digital compass module on the eDemoBoard I2C bus.
+ */
+public class GY26Compass implements CalibratingCompass {
+
+    public static final byte[] CMD_MEASURE = new byte[]{0x00, 0x31};
+    public static final byte[] CMD_CAL_START = new byte[]{0x00, (byte) 0xC0};
+    public static final byte[] CMD_CAL_END = new byte[]{0x00, (byte) 0xC1};
+    public static final int I2C_ADDRESS = 0xE0;
+    private final II2C i2c;
+    private final double offset;
+    /** Read buffer, kept so a read allocates nothing. */
+    private final byte[] data = new byte[8];
+
+    /**
+     * @param i2c Opened I2C bus.
+     * @param offset Degrees added to every reading (mounting offset).
+     */
+    public GY26Compass(II2C i2c, double offset) {
+        this.i2c = i2c;
+        this.offset = offset;
+    }
+
+    /**
+     * Retrieves compass angle.
+     * @return Compass angle.
+     * @throws IOException if compass communication failure.
+     */
+    public double getAngle() throws IOException {
+        // byte layout --
+        //        0x0D
+        //        0x0A
+        //        0x30~0x33
+        //        0x30~0x39
+        //        0x30~0x39
+        //        0x2E
+        //        0x30~0x39
+        //        0x00~0xFF
+        int upperAngle;
+        int lowerAngle;
+        synchronized (data) {
+            i2c.write(I2C_ADDRESS, CMD_MEASURE, 0, 2);
+            i2c.read(I2C_ADDRESS, data, 0, 8);
+            upperAngle = 0xFF & data[1];
+            lowerAngle = 0xFF & data[2];
+        }
+        double angle = (upperAngle << 8) + lowerAngle;
+        // bytes 3-4 hold the declination angle, unused
+        angle /= 10.0;
+        angle += offset;
+        if (angle < 0) {
+            angle += 360;
+        } else if (angle >= 360) {
+            angle -= 360;
+        }
+        return angle;
+    }
+
+    /**
+     * Puts the module in calibration mode. The module must be rotated
+     * slowly until {@link #endCalibration()} is called.
+     * @throws IOException when compass not plugged in.
+     */
+    public void startCalibration() throws IOException {
+        i2c.write(I2C_ADDRESS, CMD_CAL_START, 0, 2);
+    }
+
+    /**
+     * Ends calibration mode and stores the calibration on the module.
+     * @throws IOException when compass not plugged in.
+     */
+    public void endCalibration() throws IOException {
+        i2c.write(I2C_ADDRESS, CMD_CAL_END, 0, 2);
+    }
+}
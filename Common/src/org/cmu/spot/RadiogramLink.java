@@ -0,0 +1,110 @@
+package org.cmu.spot;
+
+import com.sun.spot.io.j2me.radiogram.Radiogram;
+import com.sun.spot.io.j2me.radiogram.RadiogramConnection;
+import java.io.IOException;
+import javax.microedition.io.Connector;
+import org.cmu.hal.PacketLink;
+
+/**
+ * PTLoc -- radiogram connection to the other device. Unlike radiostream
+ * there is no per-packet acknowledgement or stream buffering; framing and
+ * loss detection are left to {@link org.cmu.net.FrameDecoder}. A server
+ * link sends its replies to the device it last received from; a broadcast
+ * link only sends.
+ */
+public class RadiogramLink implements PacketLink {
+
+    private final RadiogramConnection conn;
+    private final Radiogram tx;
+    private final Radiogram rx;
+    private final int maxLength;
+    private final boolean server;
+    private final boolean broadcast;
+    /** IEEE address last received from, 0 before the first packet. */
+    private volatile long source;
+
+    /**
+     * Opens the connection.
+     * @param address IEEE address and port of the peer, e.g.
+     *      "0014.4F01.0000.33A5:100"
+     * @throws IOException if the connection cannot be opened.
+     */
+    public RadiogramLink(String address) throws IOException {
+        this((RadiogramConnection) Connector.open("radiogram://" + address), false, false);
+    }
+
+    private RadiogramLink(RadiogramConnection conn, boolean server, boolean broadcast)
+            throws IOException {
+        this.conn = conn;
+        this.server = server;
+        this.broadcast = broadcast;
+        maxLength = conn.getMaximumLength();
+        tx = (Radiogram) conn.newDatagram(maxLength);
+        rx = (Radiogram) conn.newDatagram(maxLength);
+    }
+
+    /**
+     * Opens a server connection that receives from any device.
+     * @param port Radiogram port, e.g. 100
+     * @return The link
+     * @throws IOException if the connection cannot be opened.
+     */
+    public static RadiogramLink listen(int port) throws IOException {
+        return new RadiogramLink((RadiogramConnection) Connector.open("radiogram://:" + port),
+                true, false);
+    }
+
+    /**
+     * Opens a broadcast connection: every device listening on the port
+     * receives each packet, unacknowledged. Nothing can be received on it.
+     * @param port Radiogram port, e.g. 100
+     * @return The link
+     * @throws IOException if the connection cannot be opened.
+     */
+    public static RadiogramLink broadcast(int port) throws IOException {
+        return new RadiogramLink((RadiogramConnection) Connector.open("radiogram://broadcast:"
+                + port), false, true);
+    }
+
+    public void send(byte[] data, int offset, int length) throws IOException {
+        synchronized (tx) {
+            tx.reset();
+            if (server) {
+                long to = source;
+                if (to == 0) {
+                    throw new IOException("No device to reply to");
+                }
+                tx.setAddressAsLong(to);
+            }
+            tx.write(data, offset, length);
+            conn.send(tx);
+        }
+    }
+
+    public int receive(byte[] data) throws IOException {
+        if (broadcast) {
+            throw new IOException("Broadcast link cannot receive");
+        }
+        synchronized (rx) {
+            rx.reset();
+            conn.receive(rx);
+            int length = rx.getLength();
+            rx.readFully(data, 0, length);
+            source = rx.getAddressAsLong();
+            return length;
+        }
+    }
+
+    public long getSource() {
+        return source;
+    }
+
+    public int getMaxPacketSize() {
+        return maxLength;
+    }
+
+    public void close() throws IOException {
+        conn.close();
+    }
+}
@@ -0,0 +1,66 @@
+package org.cmu.spot;
+
+import java.io.IOException;
+import javax.microedition.rms.RecordStore;
+import javax.microedition.rms.RecordStoreException;
+import javax.microedition.rms.RecordStoreNotFoundException;
+import org.cmu.hal.Storage;
+
+/**
+ * PTLoc -- records kept in the SunSPOT's flash, one RMS record store per
+ * name holding a single record.
+ */
+public class RmsStorage implements Storage {
+
+    public static final String PREFIX = "ptloc.";
+
+    public synchronized byte[] read(String name) throws IOException {
+        RecordStore store = null;
+        try {
+            store = RecordStore.openRecordStore(PREFIX + name, false);
+            return store.getNumRecords() == 0 ? null : store.getRecord(1);
+        } catch (RecordStoreNotFoundException e) {
+            return null;
+        } catch (RecordStoreException e) {
+            throw new IOException("Cannot read " + name + ": " + e);
+        } finally {
+            close(store);
+        }
+    }
+
+    public synchronized void write(String name, byte[] data) throws IOException {
+        RecordStore store = null;
+        try {
+            store = RecordStore.openRecordStore(PREFIX + name, true);
+            if (store.getNumRecords() == 0) {
+                store.addRecord(data, 0, data.length);
+            } else {
+                store.setRecord(1, data, 0, data.length);
+            }
+        } catch (RecordStoreException e) {
+            throw new IOException("Cannot write " + name + ": " + e);
+        } finally {
+            close(store);
+        }
+    }
+
+    public synchronized void delete(String name) throws IOException {
+        try {
+            RecordStore.deleteRecordStore(PREFIX + name);
+        } catch (RecordStoreNotFoundException e) {
+            // nothing to delete
+        } catch (RecordStoreException e) {
+            throw new IOException("Cannot delete " + name + ": " + e);
+        }
+    }
+
+    private static void close(RecordStore store) {
+        if (store != null) {
+            try {
+                store.closeRecordStore();
+            } catch (RecordStoreException e) {
+                // already closed
+            }
+        }
+    }
+}
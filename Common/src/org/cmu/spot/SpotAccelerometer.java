@@ -0,0 +1,21 @@
+package org.cmu.spot;
+
+import com.sun.spot.resources.transducers.IAccelerometer3D;
+import java.io.IOException;
+import org.cmu.hal.Accelerometer;
+
+/**
+ * PTLoc -- SunSPOT onboard accelerometer.
+ */
+public class SpotAccelerometer implements Accelerometer {
+
+    private final IAccelerometer3D acc;
+
+    public SpotAccelerometer(IAccelerometer3D acc) {
+        this.acc = acc;
+    }
+
+    public double getTiltY() throws IOException {
+        return acc.getTiltY();
+    }
+}
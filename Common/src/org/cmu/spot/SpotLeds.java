@@ -0,0 +1,39 @@
+package org.cmu.spot;
+
+import com.sun.spot.resources.transducers.ITriColorLED;
+import com.sun.spot.resources.transducers.ITriColorLEDArray;
+import com.sun.spot.util.Utils;
+import org.cmu.hal.StatusLeds;
+
+/**
+ * PTLoc -- the SunSPOT's tri-color LED array.
+ */
+public class SpotLeds implements StatusLeds {
+
+    private final ITriColorLEDArray leds;
+
+    public SpotLeds(ITriColorLEDArray leds) {
+        this.leds = leds;
+    }
+
+    public void flash(int[] rgb, int duration) {
+        for (int i = 0; i < leds.size(); i++) {
+            leds.getLED(i).setRGB(rgb[0], rgb[1], rgb[2]);
+            leds.getLED(i).setOn();
+        }
+        Utils.sleep(duration);
+        for (int i = 0; i < leds.size(); i++) {
+            leds.getLED(i).setOff();
+        }
+    }
+
+    public void setOn(int[] rgb) {
+        ITriColorLED led = leds.getLED(0);
+        led.setRGB(rgb[0], rgb[1], rgb[2]);
+        led.setOn();
+    }
+
+    public void setOff() {
+        leds.getLED(0).setOff();
+    }
+}
@@ -0,0 +1,31 @@
+package org.cmu.spot;
+
+import com.sun.spot.sensorboard.peripheral.Servo;
+import org.cmu.hal.ServoOutput;
+
+/**
+ * PTLoc -- servo driven from one of the eDemoBoard's high current pins.
+ */
+public class SpotServo implements ServoOutput {
+
+    private final Servo servo;
+    private float position;
+
+    /**
+     * @param servo Servo with its bounds already set.
+     * @param position Initial position.
+     */
+    public SpotServo(Servo servo, float position) {
+        this.servo = servo;
+        setPosition(position);
+    }
+
+    public void setPosition(float position) {
+        this.position = position;
+        servo.setPosition(position);
+    }
+
+    public float getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,108 @@
+package org.cmu.telemetry;
+
+/**
+ * PTLoc -- counts of durations in fixed buckets, for percentiles without
+ * keeping samples. Below 16 ms every millisecond has its own bucket; above,
+ * each power of two is split in eight, so a percentile is read to within
+ * 12.5%. Durations beyond MAX_MS share the last bucket; the exact maximum
+ * is kept apart.
+ */
+public class Histogram {
+
+    /** Longest duration given its own bucket. */
+    public static final int MAX_MS = 65535;
+    private static final int LINEAR = 16;
+    private static final int SUB_BITS = 3;
+    private static final int BUCKETS = LINEAR + (16 - 4) * (1 << SUB_BITS);
+    private final int[] counts = new int[BUCKETS];
+    private int count;
+    private long max;
+
+    /**
+     * @param ms Duration, negative taken as 0
+     */
+    public synchronized void record(long ms) {
+        if (ms < 0) {
+            ms = 0;
+        }
+        counts[bucket(ms)]++;
+        count++;
+        if (ms > max) {
+            max = ms;
+        }
+    }
+
+    /**
+     * @return Durations recorded
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @return Longest duration recorded, ms
+     */
+    public synchronized long getMax() {
+        return max;
+    }
+
+    /**
+     * @param p Percentile, 0 - 100
+     * @return Upper edge of the bucket holding the percentile, at most the
+     *      maximum; 0 if nothing was recorded
+     */
+    public synchronized long percentile(int p) {
+        if (count == 0) {
+            return 0;
+        }
+        // rank of the sample at p, counted from 1
+        int rank = Math.max(1, (int) (((long) count * p + 99) / 100));
+        int seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts[b];
+            if (seen >= rank) {
+                return Math.min(upper(b), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Forgets everything recorded.
+     */
+    public synchronized void reset() {
+        for (int b = 0; b < BUCKETS; b++) {
+            counts[b] = 0;
+        }
+        count = 0;
+        max = 0;
+    }
+
+    private static int bucket(long ms) {
+        if (ms < LINEAR) {
+            return (int) ms;
+        }
+        if (ms > MAX_MS) {
+            return BUCKETS - 1;
+        }
+        int v = (int) ms;
+        int exp = 4;
+        while (v >> (exp + 1) != 0) {
+            exp++;
+        }
+        int sub = (v >> (exp - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return LINEAR + ((exp - 4) << SUB_BITS) + sub;
+    }
+
+    /**
+     * @return Largest duration that falls in bucket b
+     */
+    private static long upper(int b) {
+        if (b < LINEAR) {
+            return b;
+        }
+        int exp = 4 + ((b - LINEAR) >> SUB_BITS);
+        int sub = (b - LINEAR) & ((1 << SUB_BITS) - 1);
+        return ((long) ((1 << SUB_BITS) + sub + 1) << (exp - SUB_BITS)) - 1;
+    }
+}
@@ -0,0 +1,143 @@
+package org.cmu.telemetry;
+
+import java.io.PrintStream;
+
+/**
+ * PTLoc -- where the time goes between a Pointer press and the Mount
+ * settling, as one {@link Histogram} per stage. The Pointer's stages come
+ * from the marks it sends in each {@link org.cmu.net.Frame}; the clocks are
+ * not synchronised, so every stage is a duration on one device. The Mount
+ * prints a summary over USB and sends it back over the radio when asked by
+ * a type 4 reading.
+ */
+public class Telemetry {
+
+    /** Pointer: press until the reading is averaged. */
+    public static final int MEASURE = 0;
+    /** Pointer: LED flash before sending. */
+    public static final int FEEDBACK = 1;
+    /** Pointer: radio send, reported with the following frame. */
+    public static final int RADIO = 2;
+    /** Mount: packet received until its readings are decoded. */
+    public static final int RECEIVE = 3;
+    /** Mount: calcAngle3 and calcTilt3. */
+    public static final int SOLVE = 4;
+    /** Mount: decoded until the motion thread starts the move. */
+    public static final int QUEUE = 5;
+    /** Mount: gotoAngle, or the pan axis of a coordinated move. */
+    public static final int PAN = 6;
+    /** Mount: gotoTilt, or the tilt axis of a coordinated move. */
+    public static final int TILT = 7;
+    /** Mount: decoded until settled. */
+    public static final int MOUNT = 8;
+    public static final int STAGES = 9;
+    public static final String[] NAMES = new String[]{"measure", "feedback", "radio",
+        "receive", "solve", "queue", "pan", "tilt", "mount"};
+    /** Reading type that asks the Mount for its telemetry. */
+    public static final int QUERY = 4;
+    /** First byte of an encoded summary; no Frame starts with it. */
+    public static final int MAGIC = 0x54;
+    public static final int VERSION = 1;
+    /** Encoded summary length. */
+    public static final int SIZE = 3 + STAGES * 8;
+    /** Prefix of each line printed by report(). */
+    public static final String PREFIX = "telemetry";
+    private final Histogram[] stages = new Histogram[STAGES];
+
+    public Telemetry() {
+        for (int i = 0; i < STAGES; i++) {
+            stages[i] = new Histogram();
+        }
+    }
+
+    /**
+     * @param stage Stage, e.g. SOLVE
+     * @param ms Duration
+     */
+    public void record(int stage, long ms) {
+        stages[stage].record(ms);
+    }
+
+    /**
+     * @param stage Stage
+     * @return Its histogram
+     */
+    public Histogram get(int stage) {
+        return stages[stage];
+    }
+
+    /**
+     * Forgets everything recorded.
+     */
+    public void reset() {
+        for (int i = 0; i < STAGES; i++) {
+            stages[i].reset();
+        }
+    }
+
+    /**
+     * Prints one line per stage: prefix, name, count, p50, p95 and max in
+     * ms, separated by spaces.
+     * @param out Where to print, System.out for the USB console
+     */
+    public void report(PrintStream out) {
+        for (int i = 0; i < STAGES; i++) {
+            Histogram h = stages[i];
+            out.println(PREFIX + " " + NAMES[i] + " " + h.getCount() + " "
+                    + h.percentile(50) + " " + h.percentile(95) + " " + h.getMax());
+        }
+    }
+
+    /**
+     * Writes the summary for the radio: MAGIC, VERSION, STAGES, then per
+     * stage count, p50, p95 and max as u16, saturating.
+     * @param out Buffer of at least SIZE bytes
+     * @return Bytes written
+     */
+    public int encode(byte[] out) {
+        out[0] = (byte) MAGIC;
+        out[1] = (byte) VERSION;
+        out[2] = (byte) STAGES;
+        int p = 3;
+        for (int i = 0; i < STAGES; i++) {
+            Histogram h = stages[i];
+            p = putShort(out, p, h.getCount());
+            p = putShort(out, p, h.percentile(50));
+            p = putShort(out, p, h.percentile(95));
+            p = putShort(out, p, h.getMax());
+        }
+        return p;
+    }
+
+    /**
+     * Reads a summary written by encode().
+     * @param data Buffer
+     * @param length Bytes received
+     * @return Per stage {count, p50, p95, max}, null if not a summary
+     */
+    public static int[][] decode(byte[] data, int length) {
+        if (length < 3 || (data[0] & 0xFF) != MAGIC || data[1] != VERSION) {
+            return null;
+        }
+        int n = data[2] & 0xFF;
+        if (length < 3 + n * 8) {
+            return null;
+        }
+        int[][] summary = new int[n][4];
+        int p = 3;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < 4; j++) {
+                summary[i][j] = ((data[p] & 0xFF) << 8) | (data[p + 1] & 0xFF);
+                p += 2;
+            }
+        }
+        return summary;
+    }
+
+    private static int putShort(byte[] out, int p, long v) {
+        int u = (int) Math.min(v, 0xFFFF);
+        out[p] = (byte) (u >> 8);
+        out[p + 1] = (byte) u;
+        return p + 2;
+    }
+}
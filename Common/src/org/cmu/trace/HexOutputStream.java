@@ -0,0 +1,51 @@
+package org.cmu.trace;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * PTLoc -- carries a binary stream over the USB console, which only takes
+ * text: bytes are printed as lines of PREFIX and up to LINE_BYTES hex
+ * pairs, mixed with whatever else is printed. The host's TraceTool turns
+ * the lines of a saved console log back into the bytes.
+ */
+public class HexOutputStream extends OutputStream {
+
+    public static final String PREFIX = "trace ";
+    public static final int LINE_BYTES = 32;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private final PrintStream out;
+    private final char[] line = new char[PREFIX.length() + 2 * LINE_BYTES];
+    private int length;
+
+    /**
+     * @param out Console, System.out on the SunSPOT
+     */
+    public HexOutputStream(PrintStream out) {
+        this.out = out;
+        PREFIX.getChars(0, PREFIX.length(), line, 0);
+        length = PREFIX.length();
+    }
+
+    public synchronized void write(int b) {
+        line[length++] = HEX[(b >> 4) & 0xF];
+        line[length++] = HEX[b & 0xF];
+        if (length == line.length) {
+            flush();
+        }
+    }
+
+    /**
+     * Prints the bytes written since the last line, if any.
+     */
+    public synchronized void flush() {
+        if (length > PREFIX.length()) {
+            out.println(new String(line, 0, length));
+            length = PREFIX.length();
+        }
+    }
+
+    public void close() {
+        flush();
+    }
+}
@@ -0,0 +1,90 @@
+package org.cmu.trace;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * PTLoc -- binary trace of what a device read from its sensors and radio,
+ * for replaying the same input through changed logic. Big-endian:
+ * <pre>
+ * 'P' 'T' 'L' 'T'      magic
+ * version              1 byte
+ * records, each:
+ *     kind             1 byte, COMPASS, TILT, ECHO or PACKET
+ *     delta            varint, ms since the previous record
+ *     COMPASS, TILT    float, degrees or radians
+ *     ECHO             varint, echo microseconds, 0 for a miss
+ *     PACKET           varint length, the bytes, then the source as s64
+ * </pre>
+ * A varint holds 7 bits per byte, low bits first, the top bit set on all
+ * but the last byte. A compass or tilt sample takes 6 bytes.
+ */
+public final class Trace {
+
+    public static final int MAGIC = 0x50544C54;
+    public static final int VERSION = 1;
+    public static final int COMPASS = 0;
+    public static final int TILT = 1;
+    public static final int ECHO = 2;
+    public static final int PACKET = 3;
+    public static final int KINDS = 4;
+    public static final String[] NAMES = new String[]{"compass", "tilt", "echo", "packet"};
+
+    private Trace() {
+    }
+
+    /**
+     * @param out Stream
+     * @param v Value, at least 0
+     * @return Bytes written
+     * @throws IOException if the stream fails
+     */
+    public static int writeVarint(DataOutputStream out, long v) throws IOException {
+        int n = 1;
+        while (v >= 0x80) {
+            out.writeByte((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+            n++;
+        }
+        out.writeByte((int) v);
+        return n;
+    }
+
+    /**
+     * @param in Stream
+     * @return Value
+     * @throws IOException if the stream fails or ends within the value
+     */
+    public static long readVarint(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if (b < 0x80) {
+                return v;
+            }
+        }
+        throw new IOException("Bad varint");
+    }
+
+    /**
+     * Reads and checks the header.
+     * @param in Stream at the start of a trace
+     * @throws IOException if it is not a trace this version reads
+     */
+    public static void readHeader(DataInputStream in) throws IOException {
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a trace");
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unknown trace version: " + version);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Not a trace");
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package org.cmu.trace;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Vector;
+import org.cmu.hal.Accelerometer;
+import org.cmu.hal.Clock;
+import org.cmu.hal.Compass;
+import org.cmu.hal.PacketLink;
+import org.cmu.hal.RangeFinder;
+
+/**
+ * PTLoc -- replay backend: sensors and a radio that return the values of a
+ * {@link Trace}, so the same Mount or Pointer logic sees the same input
+ * every run. Each kind is played in recorded order, whatever the order the
+ * logic asks for them in, so a replay does not depend on thread timing.
+ * The trace is read as it is consumed, never whole; records read ahead for
+ * another kind wait, at most MAX_PENDING per kind.
+ * <p>
+ * At recorded speed a value is not returned before its time in the trace,
+ * measured from the first value played. Otherwise values come as fast as
+ * the logic asks. Once a sensor's records run out it repeats its last
+ * value and the link goes quiet: receive blocks until close().
+ */
+public class TracePlayer {
+
+    /** Records of one kind held while another kind is searched for. */
+    public static final int MAX_PENDING = 4096;
+    private final DataInputStream in;
+    private final Clock clock;
+    private final boolean realTime;
+    private final Vector[] pending = new Vector[Trace.KINDS];
+    private final int[] played = new int[Trace.KINDS];
+    private final int[] underruns = new int[Trace.KINDS];
+    private final long[] times = new long[Trace.KINDS];
+    private long time;
+    private boolean started;
+    private long startedAt;
+    private boolean ended;
+    private boolean closed;
+    private int dropped;
+    private int sent;
+
+    /**
+     * Reads the trace header.
+     * @param in Trace
+     * @param clock Time source for waits at recorded speed
+     * @param realTime true to play at recorded speed, false as fast as
+     *      possible
+     * @throws IOException if in is not a trace
+     */
+    public TracePlayer(InputStream in, Clock clock, boolean realTime) throws IOException {
+        this.in = new DataInputStream(in);
+        this.clock = clock;
+        this.realTime = realTime;
+        for (int k = 0; k < Trace.KINDS; k++) {
+            pending[k] = new Vector();
+        }
+        Trace.readHeader(this.in);
+    }
+
+    /**
+     * @return Compass returning the traced headings
+     */
+    public Compass compass() {
+        return new Compass() {
+
+            private double last;
+
+            public double getAngle() throws IOException {
+                Record r = next(Trace.COMPASS);
+                if (r != null) {
+                    last = r.value;
+                }
+                return last;
+            }
+        };
+    }
+
+    /**
+     * @return Accelerometer returning the traced tilts
+     */
+    public Accelerometer accelerometer() {
+        return new Accelerometer() {
+
+            private double last;
+
+            public double getTiltY() throws IOException {
+                Record r = next(Trace.TILT);
+                if (r != null) {
+                    last = r.value;
+                }
+                return last;
+            }
+        };
+    }
+
+    /**
+     * @return Rangefinder returning the traced echo times
+     */
+    public RangeFinder rangeFinder() {
+        return new RangeFinder() {
+
+            private int last;
+
+            public int getEchoTime() {
+                try {
+                    Record r = next(Trace.ECHO);
+                    if (r != null) {
+                        last = r.echo;
+                    }
+                } catch (IOException e) {
+                    // a damaged trace ends like a short one
+                }
+                return last;
+            }
+        };
+    }
+
+    /**
+     * @param maxPacketSize Size reported by getMaxPacketSize()
+     * @return Link receiving the traced packets; packets sent on it are
+     *      counted and dropped
+     */
+    public PacketLink link(final int maxPacketSize) {
+        return new PacketLink() {
+
+            private long source;
+
+            public void send(byte[] data, int offset, int length) {
+                synchronized (TracePlayer.this) {
+                    sent++;
+                }
+            }
+
+            public int receive(byte[] data) throws IOException {
+                Record r = next(Trace.PACKET);
+                if (r == null) {
+                    awaitClose();
+                    return -1;
+                }
+                source = r.source;
+                System.arraycopy(r.data, 0, data, 0, r.data.length);
+                return r.data.length;
+            }
+
+            public long getSource() {
+                return source;
+            }
+
+            public int getMaxPacketSize() {
+                return maxPacketSize;
+            }
+
+            public void close() {
+                TracePlayer.this.close();
+            }
+        };
+    }
+
+    private synchronized void awaitClose() throws IOException {
+        while (!closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                throw new IOException("interrupted");
+            }
+        }
+    }
+
+    /**
+     * Takes the next record of a kind, waiting for its time at recorded
+     * speed.
+     * @return The record, null once there are no more or after close()
+     */
+    private Record next(int kind) throws IOException {
+        Record r;
+        long wait = 0;
+        synchronized (this) {
+            r = take(kind);
+            if (r == null) {
+                underruns[kind]++;
+                return null;
+            }
+            played[kind]++;
+            times[kind] = r.at;
+            long now = clock.currentTimeMillis();
+            if (!started) {
+                started = true;
+                startedAt = now - r.at;
+            }
+            if (realTime) {
+                wait = startedAt + r.at - now;
+            }
+        }
+        if (wait > 0) {
+            clock.sleep(wait);
+        }
+        return r;
+    }
+
+    private Record take(int kind) throws IOException {
+        Vector queue = pending[kind];
+        while (queue.size() == 0) {
+            if (closed || ended) {
+                return null;
+            }
+            Record r = read();
+            if (r == null) {
+                ended = true;
+                return null;
+            }
+            if (r.kind == kind) {
+                return r;
+            }
+            Vector other = pending[r.kind];
+            if (other.size() >= MAX_PENDING) {
+                other.removeElementAt(0);
+                dropped++;
+            }
+            other.addElement(r);
+        }
+        Record r = (Record) queue.elementAt(0);
+        queue.removeElementAt(0);
+        return r;
+    }
+
+    /**
+     * @return The next record in the trace, null at its end
+     */
+    private Record read() throws IOException {
+        int kind;
+        try {
+            kind = in.readUnsignedByte();
+        } catch (EOFException e) {
+            return null;
+        }
+        try {
+            if (kind >= Trace.KINDS) {
+                throw new IOException("Bad trace record kind: " + kind);
+            }
+            Record r = new Record(kind);
+            time += Trace.readVarint(in);
+            r.at = time;
+            if (kind == Trace.COMPASS || kind == Trace.TILT) {
+                r.value = in.readFloat();
+            } else if (kind == Trace.ECHO) {
+                r.echo = (int) Trace.readVarint(in);
+            } else {
+                int length = (int) Trace.readVarint(in);
+                r.data = new byte[length];
+                in.readFully(r.data);
+                r.source = in.readLong();
+            }
+            return r;
+        } catch (EOFException e) {
+            return null; // cut short, e.g. the device was reset while recording
+        }
+    }
+
+    /**
+     * @param kind Trace.COMPASS, TILT, ECHO or PACKET
+     * @return Records of the kind returned
+     */
+    public synchronized int getPlayed(int kind) {
+        return played[kind];
+    }
+
+    /**
+     * @param kind Trace.COMPASS, TILT, ECHO or PACKET
+     * @return Reads made after the kind's records ran out
+     */
+    public synchronized int getUnderruns(int kind) {
+        return underruns[kind];
+    }
+
+    /**
+     * @return Packets sent on the link, and dropped
+     */
+    public synchronized int getSent() {
+        return sent;
+    }
+
+    /**
+     * @return Records discarded because more than MAX_PENDING of their
+     *      kind were waiting
+     */
+    public synchronized int getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @param kind Trace.COMPASS, TILT, ECHO or PACKET
+     * @return Trace time of the kind's last record returned, ms from the
+     *      start of recording
+     */
+    public synchronized long getTime(int kind) {
+        return times[kind];
+    }
+
+    /**
+     * Ends the replay: sensors repeat their last values and receive
+     * returns -1.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+        try {
+            in.close();
+        } catch (IOException e) {
+            // already unreadable
+        }
+    }
+
+    private static class Record {
+        final int kind;
+        long at;
+        double value;
+        int echo;
+        byte[] data;
+        long source;
+
+        Record(int kind) {
+            this.kind = kind;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package org.cmu.trace;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.cmu.hal.Accelerometer;
+import org.cmu.hal.CalibratingCompass;
+import org.cmu.hal.Clock;
+import org.cmu.hal.Compass;
+import org.cmu.hal.PacketLink;
+import org.cmu.hal.RangeFinder;
+
+/**
+ * PTLoc -- capture mode: wraps a device's sensors and radio so every value
+ * they return is also written to a {@link Trace}. The device works the same
+ * with or without it; if the trace cannot be written, recording stops and
+ * getFailure() says why.
+ */
+public class TraceRecorder {
+
+    private final DataOutputStream out;
+    private final Clock clock;
+    private long last;
+    private int records;
+    private IOException failure;
+
+    /**
+     * Writes the trace header.
+     * @param out Where the trace goes
+     * @param clock Time source for the record timestamps
+     * @throws IOException if the header cannot be written
+     */
+    public TraceRecorder(OutputStream out, Clock clock) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.clock = clock;
+        this.out.writeInt(Trace.MAGIC);
+        this.out.writeByte(Trace.VERSION);
+        last = clock.currentTimeMillis();
+    }
+
+    /**
+     * @param compass Compass to record
+     * @return Compass that records each heading it returns; a
+     *      CalibratingCompass if the given one is
+     */
+    public Compass compass(Compass compass) {
+        if (compass instanceof CalibratingCompass) {
+            return new RecordedCalibratingCompass((CalibratingCompass) compass);
+        }
+        return new RecordedCompass(compass);
+    }
+
+    /**
+     * @param rangeFinder Rangefinder to record
+     * @return Rangefinder that records each echo time it returns
+     */
+    public RangeFinder rangeFinder(final RangeFinder rangeFinder) {
+        return new RangeFinder() {
+
+            public int getEchoTime() {
+                int echo = rangeFinder.getEchoTime();
+                synchronized (TraceRecorder.this) {
+                    try {
+                        if (begin(Trace.ECHO)) {
+                            Trace.writeVarint(out, Math.max(echo, 0));
+                        }
+                    } catch (IOException e) {
+                        fail(e);
+                    }
+                }
+                return echo;
+            }
+        };
+    }
+
+    /**
+     * @param acc Accelerometer to record
+     * @return Accelerometer that records each tilt it returns
+     */
+    public Accelerometer accelerometer(final Accelerometer acc) {
+        return new Accelerometer() {
+
+            public double getTiltY() throws IOException {
+                double tilt = acc.getTiltY();
+                writeFloat(Trace.TILT, tilt);
+                return tilt;
+            }
+        };
+    }
+
+    /**
+     * @param link Link to record
+     * @return Link that records each packet it receives; sending is passed
+     *      through unrecorded
+     */
+    public PacketLink link(final PacketLink link) {
+        return new PacketLink() {
+
+            public void send(byte[] data, int offset, int length) throws IOException {
+                link.send(data, offset, length);
+            }
+
+            public int receive(byte[] data) throws IOException {
+                int length = link.receive(data);
+                if (length >= 0) {
+                    synchronized (TraceRecorder.this) {
+                        try {
+                            if (begin(Trace.PACKET)) {
+                                Trace.writeVarint(out, length);
+                                out.write(data, 0, length);
+                                out.writeLong(link.getSource());
+                            }
+                        } catch (IOException e) {
+                            fail(e);
+                        }
+                    }
+                }
+                return length;
+            }
+
+            public long getSource() {
+                return link.getSource();
+            }
+
+            public int getMaxPacketSize() {
+                return link.getMaxPacketSize();
+            }
+
+            public void close() throws IOException {
+                link.close();
+            }
+        };
+    }
+
+    private synchronized void writeFloat(int kind, double value) {
+        try {
+            if (begin(kind)) {
+                out.writeFloat((float) value);
+            }
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Writes a record's kind and time.
+     * @return false once recording has stopped
+     */
+    private boolean begin(int kind) throws IOException {
+        if (failure != null) {
+            return false;
+        }
+        long now = clock.currentTimeMillis();
+        out.writeByte(kind);
+        Trace.writeVarint(out, Math.max(now - last, 0));
+        last = Math.max(now, last);
+        records++;
+        return true;
+    }
+
+    private void fail(IOException e) {
+        failure = e;
+    }
+
+    /**
+     * @return Records written
+     */
+    public synchronized int getRecords() {
+        return records;
+    }
+
+    /**
+     * @return Bytes written, header included
+     */
+    public synchronized int getBytes() {
+        return out.size();
+    }
+
+    /**
+     * @return Why recording stopped, null while it runs
+     */
+    public synchronized IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Pushes buffered records to the stream.
+     */
+    public synchronized void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Stops recording and closes the stream.
+     */
+    public synchronized void close() {
+        flush();
+        if (failure == null) {
+            failure = new IOException("Trace closed");
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            // nothing more to record
+        }
+    }
+
+    private class RecordedCompass implements Compass {
+
+        private final Compass compass;
+
+        RecordedCompass(Compass compass) {
+            this.compass = compass;
+        }
+
+        public double getAngle() throws IOException {
+            double angle = compass.getAngle();
+            writeFloat(Trace.COMPASS, angle);
+            return angle;
+        }
+    }
+
+    private class RecordedCalibratingCompass extends RecordedCompass implements CalibratingCompass {
+
+        private final CalibratingCompass compass;
+
+        RecordedCalibratingCompass(CalibratingCompass compass) {
+            super(compass);
+            this.compass = compass;
+        }
+
+        public void startCalibration() throws IOException {
+            compass.startCalibration();
+        }
+
+        public void endCalibration() throws IOException {
+            compass.endCalibration();
+        }
+    }
+}
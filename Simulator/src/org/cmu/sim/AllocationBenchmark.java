@@ -0,0 +1,202 @@
+package org.cmu.sim;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import org.cmu.MountController;
+import org.cmu.Reading;
+import org.cmu.control.AxisController;
+import org.cmu.control.FixedPidController;
+import org.cmu.control.PidController;
+import org.cmu.log.Log;
+import org.cmu.net.Frame;
+import org.cmu.net.FrameDecoder;
+import org.cmu.net.FrameEncoder;
+import org.cmu.sensor.HeadingEstimator;
+import org.cmu.telemetry.Histogram;
+
+/**
+ * PTLoc simulator -- bytes allocated per control tick and per message on
+ * the paths the SPOT runs for every move. Squawk collects on allocation,
+ * so anything allocated here ends up as a pause in the servo loop. Taken
+ * from the JVM's per-thread allocation counter as in
+ * {@link GeometryBenchmark}; exits with status 1 if any row allocates.
+ * Squawk does no escape analysis, so run with it off or the JIT may hide
+ * a short-lived buffer. Run interpreted, too: a deoptimisation midway
+ * resolves classes again, allocating on this thread where Squawk would not.
+ * <p>
+ * Run with {@code ant alloc}, which uses the interpreter only.
+ */
+public class AllocationBenchmark {
+
+    public static final int MOVES_PER_ROUND = 2;
+    private static int failed;
+
+    interface Tick {
+        /** @return Control ticks run */
+        int run() throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        PrintStream ps = System.out;
+        ControllerBenchmark.quiet();
+        List<String> jvmArgs = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        String mode = "interpreted";
+        if (!jvmArgs.contains("-Xint")) {
+            mode = jvmArgs.contains("-XX:-DoEscapeAnalysis") ? "escape analysis off"
+                    : "escape analysis on (pass -Xint to match Squawk)";
+        }
+        ps.println("PTLoc allocation, " + GeometryBenchmark.ROUNDS + " rounds after "
+                + GeometryBenchmark.WARMUP_ROUNDS + " warm-up, " + mode);
+        ps.println("op\t\t\tns/call p50\tns/call min\tbytes/call");
+
+        final int calls = GeometryBenchmark.CALLS_PER_ROUND;
+        final FrameEncoder encoder = new FrameEncoder();
+        final FrameDecoder decoder = new FrameDecoder();
+        final byte[] frame = new byte[Frame.MAX_SIZE];
+        final Reading reading = new Reading(2, 15000, 123.4, 0.05, 0);
+        final Reading[] got = new Reading[Frame.MAX_READINGS];
+        check(ps, "frame encode", new GeometryBenchmark.Op() {
+
+            public int run() {
+                for (int c = 0; c < calls; c++) {
+                    GeometryBenchmark.sink = encoder.encode(reading, frame);
+                }
+                return calls;
+            }
+        });
+        check(ps, "frame decode", new GeometryBenchmark.Op() {
+
+            public int run() {
+                int length = encoder.encode(reading, frame);
+                for (int c = 0; c < calls; c++) {
+                    frame[3] = (byte) c; // a new sequence number, or it is dropped
+                    frame[length - 2] = 0;
+                    frame[length - 1] = 0;
+                    int crc = Frame.crc16(frame, 2, length - 2 - Frame.CRC_SIZE);
+                    frame[length - 2] = (byte) (crc >> 8);
+                    frame[length - 1] = (byte) crc;
+                    decoder.feed(frame, 0, length);
+                    GeometryBenchmark.sink = decoder.next(got, c);
+                }
+                return calls;
+            }
+        });
+
+        final HeadingEstimator estimator = new HeadingEstimator();
+        check(ps, "HeadingEstimator", new GeometryBenchmark.Op() {
+
+            public int run() {
+                for (int c = 0; c < calls / 10; c++) {
+                    estimator.reset();
+                    for (int i = 0; i < MountController.NUM_AVG_READINGS; i++) {
+                        estimator.add(358 + i + (c & 3));
+                    }
+                    GeometryBenchmark.sink = estimator.estimate();
+                }
+                return calls / 10;
+            }
+        });
+        controller(ps, "PidController", PidController.pid(0.8, 0.2, 0.01, 20, 0.5));
+        controller(ps, "FixedPidController", FixedPidController.pid(0.8, 0.2, 0.01, 20, 0.5));
+        final int event = Log.define("allocation {0} {1}");
+        check(ps, "Log.warn", new GeometryBenchmark.Op() {
+
+            public int run() {
+                for (int c = 0; c < calls; c++) {
+                    Log.warn(event, c, 0.5);
+                }
+                return calls;
+            }
+        });
+        final Histogram histogram = new Histogram();
+        check(ps, "Histogram.record", new GeometryBenchmark.Op() {
+
+            public int run() {
+                for (int c = 0; c < calls; c++) {
+                    histogram.record(c & 4095);
+                }
+                return calls;
+            }
+        });
+
+        SimRig rig = new SimRig(SimClock.fromProperties(), 1, 180);
+        final MountController mount = rig.mountController;
+        check(ps, "pan tick", moves(new Tick() {
+
+            public int run() throws IOException {
+                int ticks = 0;
+                for (int m = 0; m < MOVES_PER_ROUND; m++) {
+                    mount.gotoAngle(m % 2 == 0 ? 150 : 210);
+                    ticks += mount.getLastIterations() + 1;
+                }
+                return ticks;
+            }
+        }));
+        check(ps, "tilt tick", moves(new Tick() {
+
+            public int run() throws IOException {
+                int ticks = 0;
+                for (int m = 0; m < MOVES_PER_ROUND; m++) {
+                    mount.gotoTilt(m % 2 == 0 ? 0.1 : -0.1);
+                    ticks += mount.getLastIterations() + 1;
+                }
+                return ticks;
+            }
+        }));
+        mount.startCompassSampler();
+        check(ps, "pan tick, sampled", moves(new Tick() {
+
+            public int run() throws IOException {
+                int ticks = 0;
+                for (int m = 0; m < MOVES_PER_ROUND; m++) {
+                    mount.gotoAngle(m % 2 == 0 ? 150 : 210);
+                    ticks += mount.getLastIterations() + 1;
+                }
+                return ticks;
+            }
+        }));
+        mount.stopCompassSampler();
+
+        ps.println();
+        if (failed > 0) {
+            ps.println("FAIL: " + failed + " rows allocate");
+            System.exit(1);
+        }
+        ps.println("OK: no row allocates");
+    }
+
+    private static void controller(PrintStream ps, String name, final AxisController pid) {
+        final int calls = GeometryBenchmark.CALLS_PER_ROUND;
+        check(ps, name, new GeometryBenchmark.Op() {
+
+            public int run() {
+                pid.reset();
+                for (int c = 0; c < calls; c++) {
+                    GeometryBenchmark.sink = pid.update((c & 63) - 32, 0.02);
+                }
+                return calls;
+            }
+        });
+    }
+
+    private static GeometryBenchmark.Op moves(final Tick tick) {
+        return new GeometryBenchmark.Op() {
+
+            public int run() {
+                try {
+                    return tick.run();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    private static void check(PrintStream ps, String name, GeometryBenchmark.Op op) {
+        if (GeometryBenchmark.report(ps, name, op) > 0) {
+            failed++;
+        }
+    }
+}
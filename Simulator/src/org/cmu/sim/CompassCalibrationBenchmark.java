@@ -0,0 +1,107 @@
+package org.cmu.sim;
+
+import java.io.PrintStream;
+import java.util.Random;
+import org.cmu.PointerController;
+
+/**
+ * PTLoc simulator -- compass calibration. On the Pointer, how long the
+ * module's calibration runs when it ends on heading coverage, for a hand
+ * turning it at several speeds, against the fixed two minutes. On the
+ * Mount, the true pointing error of gotoAngle with a compass carrying
+ * hard- and soft-iron deviation, before and after the servo sweep fits it.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.CompassCalibrationBenchmark run}.
+ */
+public class CompassCalibrationBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue();
+    public static final long FIXED_CALIBRATION_MS = 120000;
+    public static final double[] TURN_DEG_PER_S = new double[]{20, 30, 45};
+    /** b sin h + c cos h + d sin 2h + e cos 2h, degrees. */
+    public static final double[] DEVIATION = new double[]{6, -4, 3, 2};
+    public static final double BASE_HEADING = 200;
+    public static final double PAN_SPAN = 70;
+    public static final int MOVES = 8;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        out.println("PTLoc compass calibration, " + TRIALS + " trials per case, simulated ms");
+        out.println("Pointer turned at\tmean\tp50\tp95\tmax\tcompleted");
+        for (int r = 0; r < TURN_DEG_PER_S.length; r++) {
+            Stats time = new Stats();
+            int completed = 0;
+            for (int i = 0; i < TRIALS; i++) {
+                if (pointer(TURN_DEG_PER_S[r], 10 * r + i, time)) {
+                    completed++;
+                }
+            }
+            out.println((int) TURN_DEG_PER_S[r] + " deg/s\t\t" + time.summary() + "\t" + completed
+                    + "/" + TRIALS);
+        }
+        out.println("fixed sleep\t\t" + FIXED_CALIBRATION_MS);
+
+        out.println();
+        out.println("Mount\t\terr mean(deg)\tp95\tmax\tsweep ms");
+        for (int mode = 0; mode < 2; mode++) {
+            Stats err = new Stats();
+            Stats sweep = new Stats();
+            for (int i = 0; i < TRIALS; i++) {
+                mount(mode == 1, i, err, sweep);
+            }
+            out.println((mode == 1 ? "fitted\t" : "uncorrected") + "\t" + Stats.fmt(err.mean())
+                    + "\t\t" + Stats.fmt(err.percentile(95)) + "\t" + Stats.fmt(err.max())
+                    + "\t" + (mode == 1 ? Stats.fmt(sweep.mean()) : "-"));
+        }
+    }
+
+    static boolean pointer(final double degPerS, long seed, Stats time) throws Exception {
+        final SimClock clock = SimClock.fromProperties();
+        Random random = new Random(seed);
+        final SimPointer pointer = new SimPointer();
+        final double startHeading = 360 * random.nextDouble();
+        pointer.aim(startHeading, 0, 100);
+        PointerController controller = new PointerController(
+                new SimCompass(pointer, clock, random),
+                new SimRangeFinder(pointer, clock, random),
+                new SimAccelerometer(pointer, clock, random),
+                new SimLeds(clock), clock, SimPacketLink.pair(clock)[0]);
+        final long begin = clock.currentTimeMillis();
+        final boolean[] done = new boolean[1];
+        Thread hand = new Thread(new Runnable() {
+
+            public void run() {
+                while (!done[0]) {
+                    double t = (clock.currentTimeMillis() - begin) / 1000.0;
+                    pointer.aim(SimMount.wrap(startHeading + degPerS * t), 0, 100);
+                    clock.sleepMillis(5);
+                }
+            }
+        });
+        hand.start();
+        double coverage = controller.calibrateCompass(FIXED_CALIBRATION_MS);
+        time.add(clock.currentTimeMillis() - begin);
+        done[0] = true;
+        hand.join();
+        return coverage >= 1;
+    }
+
+    static void mount(boolean fitted, long seed, Stats err, Stats sweep) throws Exception {
+        SimRig rig = new SimRig(SimClock.fromProperties(), seed, BASE_HEADING);
+        rig.mountCompass.setDeviation(DEVIATION[0], DEVIATION[1], DEVIATION[2], DEVIATION[3]);
+        rig.mountController.startCompassSampler();
+        if (fitted) {
+            double start = rig.clock.nowMillis();
+            rig.mountController.calibrateServoMaps();
+            sweep.add(rig.clock.nowMillis() - start);
+        }
+        Random goals = new Random(500 + seed);
+        for (int m = 0; m < MOVES; m++) {
+            double goal = SimMount.wrap(BASE_HEADING + (2 * goals.nextDouble() - 1) * PAN_SPAN);
+            rig.mountController.gotoAngle(goal);
+            err.add(Math.abs(PressToSettleBenchmark.headingError(goal, rig.mount.getHeading())));
+        }
+        rig.mountController.stopCompassSampler();
+    }
+}
@@ -0,0 +1,62 @@
+package org.cmu.sim;
+
+import java.io.PrintStream;
+
+/**
+ * PTLoc simulator -- blocking compass averaging versus the background
+ * sampler: pan settle time on the Mount and heading latency on the Pointer.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.CompassSamplerBenchmark run}.
+ */
+public class CompassSamplerBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue();
+    public static final double[] PAN_MOVES = new double[]{5, 15, 30, 60};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        out.println("PTLoc compass sampler benchmark, " + TRIALS + " trials per case, simulated ms");
+        out.println("case\t\tmode\t\tmean\tp50\tp95\tmax\titerations");
+        for (int m = 0; m < PAN_MOVES.length; m++) {
+            for (int mode = 0; mode < 2; mode++) {
+                Stats time = new Stats();
+                Stats iterations = new Stats();
+                for (int i = 0; i < TRIALS; i++) {
+                    SimRig rig = new SimRig(SimClock.fromProperties(), 100 * m + i, 180);
+                    if (mode == 1) {
+                        rig.mountController.startCompassSampler();
+                    }
+                    double start = rig.clock.nowMillis();
+                    rig.mountController.gotoAngle(180 + PAN_MOVES[m]);
+                    time.add(rig.clock.nowMillis() - start);
+                    iterations.add(rig.mountController.getLastIterations());
+                    rig.mountController.stopCompassSampler();
+                }
+                out.println("gotoAngle " + PAN_MOVES[m] + "\t" + mode(mode) + "\t"
+                        + time.summary() + "\t" + Stats.fmt(iterations.mean()));
+            }
+        }
+        for (int mode = 0; mode < 2; mode++) {
+            Stats time = new Stats();
+            SimRig rig = new SimRig(SimClock.fromProperties(), 7, 180);
+            rig.pointer.aim(90, 0, 100);
+            if (mode == 1) {
+                rig.pointerController.startCompassSampler();
+                rig.clock.sleep(200);
+            }
+            for (int i = 0; i < TRIALS * 4; i++) {
+                double start = rig.clock.nowMillis();
+                rig.pointerController.getAvgAngle();
+                time.add(rig.clock.nowMillis() - start);
+                rig.clock.sleep(100);
+            }
+            rig.pointerController.stopCompassSampler();
+            out.println("Pointer heading\t" + mode(mode) + "\t" + time.summary());
+        }
+    }
+
+    static String mode(int mode) {
+        return mode == 1 ? "sampler " : "blocking";
+    }
+}
@@ -0,0 +1,139 @@
+package org.cmu.sim;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import org.cmu.MountController;
+import org.cmu.control.AxisController;
+import org.cmu.control.PidController;
+
+/**
+ * PTLoc simulator -- compares the fixed-step gotoAngle/gotoTilt loops with
+ * P, PI and PID controllers, and PID in fixed point: settle time,
+ * overshoot and iterations.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.ControllerBenchmark run}.
+ */
+public class ControllerBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue();
+    public static final double[] PAN_MOVES = new double[]{5, 15, 30, 60, 80};
+    public static final double[] TILT_MOVES = new double[]{0.05, 0.15, 0.3, 0.6};
+    public static final String[] NAMES = new String[]{"stepped", "P", "PI", "PID", "PID Q16"};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        quiet();
+        out.println("PTLoc controller benchmark, " + TRIALS + " trials per case");
+        out.println("axis\tmove\tloop\tsettle(ms)\tovershoot\titerations\terror");
+        for (int m = 0; m < PAN_MOVES.length; m++) {
+            for (int c = 0; c < NAMES.length; c++) {
+                Result r = new Result();
+                for (int i = 0; i < TRIALS; i++) {
+                    run(true, PAN_MOVES[m], c, 100 * m + i, r);
+                }
+                out.println("pan\t" + PAN_MOVES[m] + "\t" + NAMES[c] + "\t" + r);
+            }
+        }
+        for (int m = 0; m < TILT_MOVES.length; m++) {
+            for (int c = 0; c < NAMES.length; c++) {
+                Result r = new Result();
+                for (int i = 0; i < TRIALS; i++) {
+                    run(false, TILT_MOVES[m], c, 100 * m + i, r);
+                }
+                out.println("tilt\t" + TILT_MOVES[m] + "\t" + NAMES[c] + "\t" + r);
+            }
+        }
+    }
+
+    static void quiet() {
+        PrintStream quiet = new PrintStream(new OutputStream() {
+
+            public void write(int b) {
+            }
+        });
+        System.setOut(quiet);
+        System.setErr(quiet);
+    }
+
+    /**
+     * @param kind Index into NAMES
+     * @param pan true for the pan axis
+     * @return Controller, null for the fixed-step loop
+     */
+    static AxisController controller(int kind, boolean pan) {
+        double gain = pan ? MountController.PAN_GAIN : MountController.TILT_GAIN;
+        switch (kind) {
+            case 1:
+                return PidController.p(0.8 * gain);
+            case 2:
+                return PidController.pi(0.8 * gain, 0.2 * gain, pan ? 20 : 0.2);
+            case 3:
+                return pan ? MountController.defaultPanController()
+                        : MountController.defaultTiltController();
+            case 4:
+                return FixedPointBenchmark.pid(true, pan);
+            default:
+                return null;
+        }
+    }
+
+    static void run(boolean pan, double move, int kind, long seed, Result result) throws Exception {
+        final SimRig rig = new SimRig(SimClock.fromProperties(), seed, 180);
+        rig.mountController.setControllers(controller(kind, true), controller(kind, false));
+        final double goal = pan ? 180 + move : move;
+        final boolean panAxis = pan;
+        final double[] worst = new double[1];
+        final boolean[] done = new boolean[1];
+        // samples the true pose to catch overshoot between measurements
+        Thread monitor = new Thread(new Runnable() {
+
+            public void run() {
+                while (!done[0]) {
+                    double past = panAxis
+                            ? -PressToSettleBenchmark.headingError(goal, rig.mount.getHeading())
+                            : rig.mount.getTiltY() - goal;
+                    worst[0] = Math.max(worst[0], past);
+                    rig.clock.sleepMillis(2);
+                }
+            }
+        });
+        monitor.start();
+        double start = rig.clock.nowMillis();
+        if (pan) {
+            rig.mountController.gotoAngle(goal);
+        } else {
+            rig.mountController.gotoTilt(goal);
+        }
+        double elapsed = rig.clock.nowMillis() - start;
+        done[0] = true;
+        monitor.join();
+        double error = pan
+                ? Math.abs(PressToSettleBenchmark.headingError(goal, rig.mount.getHeading()))
+                : Math.abs(goal - rig.mount.getTiltY());
+        result.add(elapsed, worst[0], rig.mountController.getLastIterations(), error);
+    }
+
+    static class Result {
+
+        final Stats settle = new Stats();
+        final Stats overshoot = new Stats();
+        final Stats iterations = new Stats();
+        final Stats error = new Stats();
+
+        void add(double ms, double over, int iter, double err) {
+            settle.add(ms);
+            overshoot.add(over);
+            iterations.add(iter);
+            error.add(err);
+        }
+
+        public String toString() {
+            return Stats.fmt(settle.mean()) + "\t\t" + fmt3(overshoot.mean()) + "\t\t"
+                    + Stats.fmt(iterations.mean()) + "\t\t" + fmt3(error.mean());
+        }
+
+        static String fmt3(double x) {
+            return Double.toString(Math.round(x * 1000) / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.cmu.sim;
+
+import java.io.PrintStream;
+import org.cmu.control.MoveResult;
+
+/**
+ * PTLoc simulator -- gotoLocation with the axes one after the other versus
+ * both at once: total time, per-axis time and how often the move ends with
+ * both axes within tolerance together.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.CoordinatedMoveBenchmark run}.
+ */
+public class CoordinatedMoveBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue();
+    /** Pan move in degrees, tilt goal in radians. */
+    public static final double[][] MOVES = new double[][]{
+        {5, 0.05}, {15, 0.15}, {30, 0.3}, {60, 0.6}, {-40, -0.4}};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        out.println("PTLoc coordinated move benchmark, " + TRIALS + " trials per case, simulated ms");
+        out.println("pan\ttilt\tmode\t\ttotal\tpan\ttilt\tsettled");
+        for (int m = 0; m < MOVES.length; m++) {
+            for (int mode = 0; mode < 2; mode++) {
+                Stats total = new Stats();
+                Stats pan = new Stats();
+                Stats tilt = new Stats();
+                int settled = 0;
+                for (int i = 0; i < TRIALS; i++) {
+                    SimRig rig = new SimRig(SimClock.fromProperties(), 100 * m + i, 180);
+                    rig.mountController.setCoordinated(mode == 1);
+                    rig.mountController.gotoLocation(MOVES[m][1], 180 + MOVES[m][0]);
+                    MoveResult r = rig.mountController.getLastMove();
+                    total.add(r.getTotal());
+                    pan.add(r.getElapsed(MoveResult.PAN));
+                    tilt.add(r.getElapsed(MoveResult.TILT));
+                    if (r.isSettled()) {
+                        settled++;
+                    }
+                }
+                out.println(MOVES[m][0] + "\t" + MOVES[m][1] + "\t"
+                        + (mode == 1 ? "coordinated" : "sequential") + "\t"
+                        + Stats.fmt(total.mean()) + "\t" + Stats.fmt(pan.mean()) + "\t"
+                        + Stats.fmt(tilt.mean()) + "\t" + settled + "/" + TRIALS);
+            }
+        }
+    }
+}
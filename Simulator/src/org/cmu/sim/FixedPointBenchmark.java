@@ -0,0 +1,214 @@
+package org.cmu.sim;
+
+import java.io.PrintStream;
+import java.util.Random;
+import org.cmu.MountController;
+import org.cmu.control.AxisController;
+import org.cmu.control.FixedPidController;
+import org.cmu.control.PidController;
+import org.cmu.math.Fixed;
+import org.cmu.math.FixedGeometry;
+import org.cmu.math.Geometry;
+
+/**
+ * PTLoc simulator -- compute cost of a command on the double path against
+ * the Q16.16 path MountController.FIXED_POINT selects. A command is what
+ * the Mount works out for one type 2 reading: heading and tilt from the
+ * solver, then UPDATES feedback updates per axis. Also reports how far the
+ * fixed-point results are from the double ones. Run it a second time with
+ * {@code -Djvm.args=-Xint} for an interpreter-only VM, closer to Squawk.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.FixedPointBenchmark run}.
+ */
+public class FixedPointBenchmark {
+
+    public static final int READINGS = 1024;
+    /** Feedback updates per axis and command, about a settled PID move. */
+    public static final int UPDATES = 8;
+    private static final int[] d1 = new int[READINGS];
+    private static final int[] d2 = new int[READINGS];
+    private static final double[] a1 = new double[READINGS];
+    private static final double[] a2 = new double[READINGS];
+    private static final double[] t1 = new double[READINGS];
+    private static final double[] t2 = new double[READINGS];
+    private static final int[] fa1 = new int[READINGS];
+    private static final int[] fa2 = new int[READINGS];
+    private static final int[] ft1 = new int[READINGS];
+    private static final int[] ft2 = new int[READINGS];
+    private static final double[] errors = new double[READINGS];
+    private static final int[] fixedErrors = new int[READINGS];
+
+    public static void main(String[] args) {
+        PrintStream ps = System.out;
+        Random random = new Random(1);
+        for (int i = 0; i < READINGS; i++) {
+            d1[i] = (int) ((100 + 40 * random.nextDouble()) * 148);
+            d2[i] = (int) ((100 + 40 * random.nextDouble()) * 148);
+            a1[i] = 30 + 20 * random.nextDouble();
+            a2[i] = 105 + 75 * random.nextDouble();
+            t1[i] = 0.1 * random.nextDouble() - 0.05;
+            t2[i] = 0.1 * random.nextDouble() - 0.05;
+            fa1[i] = Fixed.fromDouble(a1[i]);
+            fa2[i] = Fixed.fromDouble(a2[i]);
+            ft1[i] = Fixed.fromDouble(t1[i]);
+            ft2[i] = Fixed.fromDouble(t2[i]);
+            errors[i] = 60 * random.nextDouble() - 30;
+            fixedErrors[i] = Fixed.fromDouble(errors[i]);
+        }
+        final AxisController pan = pid(false, true);
+        final AxisController tilt = pid(false, false);
+        final AxisController fixedPan = pid(true, true);
+        final AxisController fixedTilt = pid(true, false);
+        final FixedPidController q16 = (FixedPidController) pid(true, true);
+        final int calls = GeometryBenchmark.CALLS_PER_ROUND / 10;
+
+        ps.println("PTLoc fixed point on " + System.getProperty("java.vm.name") + " ("
+                + System.getProperty("java.vm.info") + ")");
+        ps.println("op\t\t\tns/call p50\tns/call min\tbytes/call");
+        GeometryBenchmark.report(ps, "solve double", new GeometryBenchmark.Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < calls; c++) {
+                    int i = c & (READINGS - 1);
+                    s += Geometry.angle3(d1[i], d2[i], a1[i], a2[i])
+                            + Geometry.tilt3(d1[i], d2[i], t1[i], t2[i]);
+                }
+                GeometryBenchmark.sink = s;
+                return calls;
+            }
+        });
+        GeometryBenchmark.report(ps, "solve Q16.16", new GeometryBenchmark.Op() {
+
+            public int run() {
+                int s = 0;
+                for (int c = 0; c < calls; c++) {
+                    int i = c & (READINGS - 1);
+                    s += FixedGeometry.angle3(d1[i], d2[i], fa1[i], fa2[i])
+                            + FixedGeometry.tilt3(d1[i], d2[i], ft1[i], ft2[i]);
+                }
+                GeometryBenchmark.sink = s;
+                return calls;
+            }
+        });
+        GeometryBenchmark.report(ps, "PID double", new GeometryBenchmark.Op() {
+
+            public int run() {
+                double s = 0;
+                pan.reset();
+                for (int c = 0; c < calls; c++) {
+                    s += pan.update(errors[c & (READINGS - 1)], 0.1);
+                }
+                GeometryBenchmark.sink = s;
+                return calls;
+            }
+        });
+        GeometryBenchmark.report(ps, "PID Q16.16", new GeometryBenchmark.Op() {
+
+            public int run() {
+                int s = 0;
+                int dt = Fixed.fromDouble(0.1);
+                q16.reset();
+                for (int c = 0; c < calls; c++) {
+                    s += q16.update(fixedErrors[c & (READINGS - 1)], dt);
+                }
+                GeometryBenchmark.sink = s;
+                return calls;
+            }
+        });
+        GeometryBenchmark.report(ps, "command double", new GeometryBenchmark.Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < calls; c++) {
+                    int i = c & (READINGS - 1);
+                    s += Geometry.angle3(d1[i], d2[i], a1[i], a2[i])
+                            + Geometry.tilt3(d1[i], d2[i], t1[i], t2[i]);
+                    s += settle(pan, tilt, i);
+                }
+                GeometryBenchmark.sink = s;
+                return calls;
+            }
+        });
+        GeometryBenchmark.report(ps, "command Q16.16", new GeometryBenchmark.Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < calls; c++) {
+                    int i = c & (READINGS - 1);
+                    // as MountController.calcAngle3 and calcTilt3 with FIXED_POINT
+                    s += Fixed.toDouble(FixedGeometry.angle3(d1[i], d2[i],
+                            Fixed.fromDouble(a1[i]), Fixed.fromDouble(a2[i])))
+                            + Fixed.toDouble(FixedGeometry.tilt3(d1[i], d2[i],
+                            Fixed.fromDouble(t1[i]), Fixed.fromDouble(t2[i])));
+                    s += settle(fixedPan, fixedTilt, i);
+                }
+                GeometryBenchmark.sink = s;
+                return calls;
+            }
+        });
+
+        ps.println();
+        ps.println("Q16.16 against double\tmean\t\tmax\t\tunsolved");
+        Stats angle = new Stats();
+        Stats tiltError = new Stats();
+        int angleFailed = 0;
+        int tiltFailed = 0;
+        for (int i = 0; i < READINGS; i++) {
+            int a = FixedGeometry.angle3(d1[i], d2[i], fa1[i], fa2[i]);
+            if (a == Fixed.NaN) {
+                angleFailed++;
+            } else {
+                angle.add(Math.abs(PressToSettleBenchmark.headingError(
+                        Geometry.angle3(d1[i], d2[i], a1[i], a2[i]), Fixed.toDouble(a))));
+            }
+            int t = FixedGeometry.tilt3(d1[i], d2[i], ft1[i], ft2[i]);
+            if (t == Fixed.NaN) {
+                tiltFailed++;
+            } else {
+                tiltError.add(Math.abs(Geometry.tilt3(d1[i], d2[i], t1[i], t2[i])
+                        - Fixed.toDouble(t)));
+            }
+        }
+        Stats output = new Stats();
+        pan.reset();
+        fixedPan.reset();
+        for (int i = 0; i < READINGS; i++) {
+            output.add(Math.abs(pan.update(errors[i], 0.1) - fixedPan.update(errors[i], 0.1)));
+        }
+        ps.println("angle3 (deg)\t\t" + Stats.sci(angle.mean()) + "\t" + Stats.sci(angle.max())
+                + "\t" + angleFailed);
+        ps.println("tilt3\t\t\t" + Stats.sci(tiltError.mean()) + "\t" + Stats.sci(tiltError.max())
+                + "\t" + tiltFailed);
+        ps.println("pan PID output\t\t" + Stats.sci(output.mean()) + "\t" + Stats.sci(output.max()));
+    }
+
+    /**
+     * @param fixed true for FixedPidController
+     * @param pan true for the pan gains
+     * @return MountController's default controller on either path
+     */
+    static AxisController pid(boolean fixed, boolean pan) {
+        double gain = pan ? MountController.PAN_GAIN : MountController.TILT_GAIN;
+        double kd = pan ? 0.01 : 0.005;
+        double limit = pan ? 20 : 0.2;
+        return fixed
+                ? (AxisController) FixedPidController.pid(0.8 * gain, 0.2 * gain, kd * gain, limit, 0.5)
+                : PidController.pid(0.8 * gain, 0.2 * gain, kd * gain, limit, 0.5);
+    }
+
+    /**
+     * Runs both controllers through a move that halves its error each update.
+     */
+    private static double settle(AxisController pan, AxisController tilt, int i) {
+        pan.reset();
+        tilt.reset();
+        double s = 0;
+        double e = errors[i];
+        for (int u = 0; u < UPDATES; u++) {
+            s += pan.update(e, u == 0 ? 0 : 0.1) + tilt.update(e / 180, u == 0 ? 0 : 0.1);
+            e /= 2;
+        }
+        return s;
+    }
+}
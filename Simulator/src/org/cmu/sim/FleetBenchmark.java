@@ -0,0 +1,207 @@
+package org.cmu.sim;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Random;
+import org.cmu.LedService;
+import org.cmu.MountController;
+import org.cmu.PointerController;
+import org.cmu.hal.PacketLink;
+import org.cmu.math.Geometry;
+
+/**
+ * PTLoc simulator -- one Pointer steering a fleet of Mounts. Each Mount
+ * stands at its own distance and heading from the Pointer and registers
+ * with its own type 1 reading. The Pointer then aims at a series of targets
+ * and every Mount re-aims at each one, either from a single broadcast
+ * reading or, as before, from one press per Mount over point-to-point
+ * links. Reports the time from the press until the last Mount has settled.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.FleetBenchmark run}.
+ */
+public class FleetBenchmark {
+
+    public static final int[] MOUNTS = new int[]{1, 2, 4, 8, 16};
+    public static final long TIMEOUT_MS = 30000;
+    /** Pause between registering one Mount and arming the next. */
+    public static final long REGISTER_GAP_MS = 500;
+    public static final double TILT = 0.05;
+    public static final double TARGET_DISTANCE = 110;
+    public static final double[] TARGETS = new double[]{120, 150, 135, 165, 110, 140};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        out.println("PTLoc fleet re-aim, " + TARGETS.length + " targets per case, simulated ms");
+        out.println("mounts\tlinks\t\tpresses\tmean\tp50\tp95\tmax\terror(deg)");
+        for (int c = 0; c < MOUNTS.length; c++) {
+            run(out, MOUNTS[c], false, c);
+            run(out, MOUNTS[c], true, c);
+        }
+    }
+
+    /**
+     * @return Heading from the Pointer to Mount k of n
+     */
+    static double mountHeading(int k, int n) {
+        return n == 1 ? 40 : 30 + 20.0 * k / (n - 1);
+    }
+
+    /**
+     * @return Distance from the Pointer to Mount k of n, inches
+     */
+    static double mountDistance(int k, int n) {
+        return n == 1 ? 120 : 110 + 20.0 * ((k * 7) % n) / (n - 1);
+    }
+
+    private static void run(PrintStream out, int n, boolean broadcast, long seed)
+            throws Exception {
+        SimClock clock = SimClock.fromProperties();
+        Random random = new Random(seed);
+        SimPointer pointer = new SimPointer();
+        PacketLink[] pointerLinks;
+        PacketLink[] mountLinks = new PacketLink[n];
+        if (broadcast) {
+            SimPacketLink[] ends = SimPacketLink.broadcast(clock, n);
+            pointerLinks = new PacketLink[]{ends[0]};
+            System.arraycopy(ends, 1, mountLinks, 0, n);
+        } else {
+            pointerLinks = new PacketLink[n];
+            for (int k = 0; k < n; k++) {
+                SimPacketLink[] pair = SimPacketLink.pair(clock);
+                pointerLinks[k] = pair[0];
+                mountLinks[k] = pair[1];
+            }
+        }
+        // one controller per link: the broadcasting Pointer, or one press per Mount
+        PointerController[] pointers = new PointerController[pointerLinks.length];
+        LedService[] pointerLeds = new LedService[pointerLinks.length];
+        for (int i = 0; i < pointers.length; i++) {
+            pointerLeds[i] = new LedService(new SimLeds(clock));
+            pointers[i] = new PointerController(new SimCompass(pointer, clock, random),
+                    new SimRangeFinder(pointer, clock, random),
+                    new SimAccelerometer(pointer, clock, random),
+                    pointerLeds[i], clock, pointerLinks[i]);
+            pointerLeds[i].start();
+            pointers[i].startCompassSampler();
+        }
+        Node[] mounts = new Node[n];
+        for (int k = 0; k < n; k++) {
+            double goal = Geometry.angle3(mountDistance(k, n) * 148, TARGET_DISTANCE * 148,
+                    mountHeading(k, n), TARGETS[0]);
+            mounts[k] = new Node(clock, random, SimMount.wrap(goal - 20), mountLinks[k]);
+            mounts[k].controller.setFleet(broadcast);
+            mounts[k].start();
+        }
+
+        // registration: aim at each Mount in turn
+        for (int k = 0; k < n; k++) {
+            if (broadcast) {
+                mounts[k].controller.armRegistration();
+            }
+            pointer.aim(mountHeading(k, n), TILT, mountDistance(k, n));
+            pointers[broadcast ? 0 : k].measureAndSend(1);
+            // let every Mount drain the packet before the next one is armed
+            clock.sleep(REGISTER_GAP_MS);
+        }
+
+        Stats settle = new Stats();
+        Stats error = new Stats();
+        int presses = 0;
+        for (int t = 0; t < TARGETS.length; t++) {
+            int[] before = new int[n];
+            for (int k = 0; k < n; k++) {
+                before[k] = mounts[k].controller.getCompletedMoves();
+            }
+            pointer.aim(TARGETS[t], TILT, TARGET_DISTANCE);
+            double start = clock.nowMillis();
+            for (int i = 0; i < pointers.length; i++) {
+                pointers[i].measureAndSend(2);
+                presses++;
+            }
+            boolean settled = true;
+            for (int k = 0; k < n && settled; k++) {
+                settled = mounts[k].awaitMove(before[k], start + TIMEOUT_MS);
+            }
+            if (!settled) {
+                continue;
+            }
+            settle.add(clock.nowMillis() - start);
+            for (int k = 0; k < n; k++) {
+                double goal = Geometry.angle3(mountDistance(k, n) * 148,
+                        TARGET_DISTANCE * 148, mountHeading(k, n), TARGETS[t]);
+                error.add(Math.abs(PressToSettleBenchmark.headingError(goal,
+                        mounts[k].mount.getHeading())));
+            }
+        }
+        out.println(n + "\t" + (broadcast ? "broadcast" : "unicast  ") + "\t"
+                + Stats.fmt(presses / (double) TARGETS.length) + "\t" + settle.summary()
+                + "\t" + Stats.fmt(error.mean()));
+
+        for (int k = 0; k < n; k++) {
+            mounts[k].stop();
+        }
+        for (int i = 0; i < pointers.length; i++) {
+            pointers[i].stopCompassSampler();
+            pointerLeds[i].stop();
+        }
+    }
+
+    /**
+     * One Mount of the fleet, serving its own end of the radio.
+     */
+    static class Node {
+
+        final SimClock clock;
+        final SimMount mount;
+        final LedService leds;
+        final MountController controller;
+        final PacketLink link;
+        private Thread thread;
+
+        Node(SimClock clock, Random random, double baseHeading, PacketLink link) {
+            this.clock = clock;
+            this.mount = new SimMount(clock, baseHeading);
+            this.leds = new LedService(new SimLeds(clock));
+            this.controller = new MountController(new SimCompass(mount, clock, random),
+                    new SimAccelerometer(mount, clock, random),
+                    mount.getPanServo(), mount.getTiltServo(), leds, clock);
+            this.link = link;
+        }
+
+        void start() {
+            leds.start();
+            controller.startCompassSampler();
+            thread = new Thread(new Runnable() {
+
+                public void run() {
+                    try {
+                        controller.serve(link);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }, "mount");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        boolean awaitMove(int completed, double deadline) {
+            while (controller.getCompletedMoves() == completed) {
+                if (clock.nowMillis() > deadline) {
+                    return false;
+                }
+                clock.sleepMillis(1);
+            }
+            return true;
+        }
+
+        void stop() throws InterruptedException, IOException {
+            controller.stopCompassSampler();
+            controller.stop();
+            link.close();
+            thread.join();
+            leds.stop();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.cmu.sim;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Random;
+import org.cmu.Reading;
+import org.cmu.net.Frame;
+import org.cmu.net.FrameDecoder;
+import org.cmu.net.FrameEncoder;
+
+/**
+ * PTLoc simulator -- bytes on air, fixed-point error and behaviour under bit
+ * errors for the framed protocol against the original type byte and three
+ * doubles on a radiostream.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.FrameProtocolBenchmark run}.
+ */
+public class FrameProtocolBenchmark {
+
+    public static final int LEGACY_SIZE = 1 + 3 * 8;
+    public static final int MESSAGES = 20000;
+    /** Messages that reach the receive buffer together. */
+    public static final int BURST = 4;
+    public static final double[] BIT_ERROR_RATES = new double[]{0, 1e-4, 1e-3, 5e-3};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        out.println("PTLoc frame protocol");
+        out.println();
+        out.println("format\t\treadings/packet\tbytes/reading\tairtime/reading(ms)");
+        out.println("type+3 doubles\t1\t\t" + LEGACY_SIZE + "\t\t" + airtime(LEGACY_SIZE, 1));
+        int[] batches = new int[]{1, 4, Frame.MAX_READINGS};
+        for (int i = 0; i < batches.length; i++) {
+            int n = batches[i];
+            out.println("frame v" + Frame.VERSION + "\t\t" + n + "\t\t"
+                    + Stats.fmt(Frame.size(n) / (double) n) + "\t\t" + airtime(Frame.size(n), n));
+        }
+
+        out.println();
+        double[] err = quantisation(new Random(1));
+        out.println("fixed-point max error: distance " + err[0] + " us, angle " + err[1]
+                + " deg, tilt " + err[2] + " rad");
+
+        out.println();
+        out.println("bit error rate\tformat\t\tdelivered\twrong\tlost");
+        for (int b = 0; b < BIT_ERROR_RATES.length; b++) {
+            int[] legacy = legacy(new Random(b), BIT_ERROR_RATES[b]);
+            int[] framed = framed(new Random(b), BIT_ERROR_RATES[b]);
+            out.println(BIT_ERROR_RATES[b] + "\t\ttype+3 doubles\t" + row(legacy));
+            out.println(BIT_ERROR_RATES[b] + "\t\tframe v" + Frame.VERSION + "\t\t" + row(framed));
+        }
+    }
+
+    private static String airtime(int bytes, int readings) {
+        return Stats.fmt((SimPacketLink.PACKET_LATENCY_MS
+                + (bytes + SimPacketLink.HEADER_BYTES) * SimPacketLink.MS_PER_BYTE) / readings);
+    }
+
+    private static String row(int[] r) {
+        return pct(r[0]) + "\t\t" + pct(r[1]) + "\t" + pct(MESSAGES - r[0] - r[1]);
+    }
+
+    private static String pct(int n) {
+        return Stats.fmt(100.0 * n / MESSAGES) + "%";
+    }
+
+    private static Reading random(Random random, int type) {
+        return new Reading(type, random.nextInt(38000), random.nextDouble() * 360,
+                (random.nextDouble() - 0.5) * Math.PI, 0);
+    }
+
+    private static double[] quantisation(Random random) {
+        FrameEncoder encoder = new FrameEncoder();
+        FrameDecoder decoder = new FrameDecoder();
+        byte[] frame = new byte[Frame.MAX_SIZE];
+        Reading[] got = new Reading[Frame.MAX_READINGS];
+        double[] err = new double[3];
+        for (int i = 0; i < MESSAGES; i++) {
+            Reading sent = random(random, 1);
+            decoder.feed(frame, 0, encoder.encode(sent, frame));
+            decoder.next(got, 0);
+            err[0] = Math.max(err[0], Math.abs(sent.getDistance() - got[0].getDistance()));
+            err[1] = Math.max(err[1], Math.abs(PressToSettleBenchmark.headingError(
+                    sent.getAngle(), got[0].getAngle())));
+            err[2] = Math.max(err[2], Math.abs(sent.getTilt() - got[0].getTilt()));
+        }
+        return err;
+    }
+
+    private static void flip(Random random, byte[] data, int length, double rate) {
+        for (int i = 0; i < length * 8; i++) {
+            if (random.nextDouble() < rate) {
+                data[i / 8] ^= 1 << (i % 8);
+            }
+        }
+    }
+
+    private static boolean same(Reading a, Reading b) {
+        return a.getType() == b.getType()
+                && Math.abs(a.getDistance() - b.getDistance()) <= 0.5
+                && Math.abs(PressToSettleBenchmark.headingError(a.getAngle(), b.getAngle())) <= 0.005
+                && Math.abs(a.getTilt() - b.getTilt()) <= 0.00005;
+    }
+
+    /**
+     * Original Mount loop: read a type byte and three doubles, drain the
+     * buffer after an unknown type.
+     * @return {correct readings, wrong readings accepted}
+     */
+    static int[] legacy(Random random, double bitErrorRate) throws IOException {
+        int delivered = 0;
+        int wrong = 0;
+        for (int m = 0; m < MESSAGES; m += BURST) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            Reading[] sent = new Reading[BURST];
+            for (int i = 0; i < BURST; i++) {
+                sent[i] = random(random, 1 + random.nextInt(2));
+                out.write(sent[i].getType());
+                out.writeDouble(sent[i].getDistance());
+                out.writeDouble(sent[i].getAngle());
+                out.writeDouble(sent[i].getTilt());
+            }
+            byte[] data = bytes.toByteArray();
+            flip(random, data, data.length, bitErrorRate);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            int i = 0;
+            while (in.available() >= LEGACY_SIZE) {
+                int type = in.read();
+                if (type != 1 && type != 2) {
+                    break; // the rest of the buffer is drained
+                }
+                Reading r = new Reading(type, in.readDouble(), in.readDouble(), in.readDouble(), 0);
+                if (same(r, sent[i++])) {
+                    delivered++;
+                } else {
+                    wrong++;
+                }
+            }
+        }
+        return new int[]{delivered, wrong};
+    }
+
+    /**
+     * Framed protocol, one frame per reading, BURST frames per feed. A frame
+     * held back by a corrupt length is decoded with the next burst, so
+     * readings are checked against the last two bursts.
+     * @return {correct readings, wrong readings accepted}
+     */
+    static int[] framed(Random random, double bitErrorRate) {
+        FrameEncoder encoder = new FrameEncoder();
+        FrameDecoder decoder = new FrameDecoder();
+        byte[] packet = new byte[BURST * Frame.size(1)];
+        Reading[] got = new Reading[Frame.MAX_READINGS];
+        Reading[] sent = new Reading[2 * BURST];
+        int delivered = 0;
+        int wrong = 0;
+        for (int m = 0; m < MESSAGES; m += BURST) {
+            int length = 0;
+            byte[] frame = new byte[Frame.size(1)];
+            System.arraycopy(sent, BURST, sent, 0, BURST);
+            for (int i = BURST; i < 2 * BURST; i++) {
+                sent[i] = random(random, 1 + random.nextInt(2));
+                int n = encoder.encode(sent[i], frame);
+                System.arraycopy(frame, 0, packet, length, n);
+                length += n;
+            }
+            flip(random, packet, length, bitErrorRate);
+            decoder.feed(packet, 0, length);
+            while (decoder.next(got, 0) >= 0) {
+                boolean match = false;
+                for (int i = 0; i < sent.length && !match; i++) {
+                    match = sent[i] != null && same(got[0], sent[i]);
+                }
+                if (match) {
+                    delivered++;
+                } else {
+                    wrong++;
+                }
+            }
+        }
+        return new int[]{delivered, wrong};
+    }
+}
@@ -0,0 +1,269 @@
+package org.cmu.sim;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import org.cmu.math.Geometry;
+
+/**
+ * PTLoc simulator -- cost and accuracy of the Mount's geometry. Times
+ * {@link Geometry} per call and per batch, with allocation per call taken
+ * from the JVM's per-thread allocation counter, and compares the results
+ * with the same formulas using {@code java.lang.Math}. The row with logging
+ * repeats the string building the solver used to do on every call.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.GeometryBenchmark run}.
+ */
+public class GeometryBenchmark {
+
+    public static final int READINGS = 1024;
+    public static final int WARMUP_ROUNDS = Integer.getInteger("bench.warmup", 20).intValue();
+    public static final int ROUNDS = Integer.getInteger("bench.rounds", 30).intValue();
+    public static final int CALLS_PER_ROUND = 200000;
+    static volatile double sink;
+    private static final PrintStream DISCARD = new PrintStream(new OutputStream() {
+
+        public void write(int b) {
+        }
+    });
+    private static final double[] d1 = new double[READINGS];
+    private static final double[] d2 = new double[READINGS];
+    private static final double[] a1 = new double[READINGS];
+    private static final double[] a2 = new double[READINGS];
+    private static final double[] t1 = new double[READINGS];
+    private static final double[] t2 = new double[READINGS];
+    private static final double[] x = new double[READINGS];
+    private static final double[] out = new double[READINGS];
+
+    interface Op {
+        /** @return Calls made */
+        int run();
+    }
+
+    public static void main(String[] args) {
+        PrintStream ps = System.out;
+        Random random = new Random(1);
+        for (int i = 0; i < READINGS; i++) {
+            d1[i] = (100 + 40 * random.nextDouble()) * 148;
+            d2[i] = (100 + 40 * random.nextDouble()) * 148;
+            a1[i] = 30 + 20 * random.nextDouble();
+            a2[i] = 105 + 75 * random.nextDouble();
+            t1[i] = 0.1 * random.nextDouble() - 0.05;
+            t2[i] = 0.1 * random.nextDouble() - 0.05;
+            x[i] = 1.7 * random.nextDouble() - 0.85;
+        }
+        ps.println("PTLoc geometry, " + ROUNDS + " rounds after " + WARMUP_ROUNDS + " warm-up");
+        ps.println("op\t\t\tns/call p50\tns/call min\tbytes/call");
+        report(ps, "angle3", new Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < CALLS_PER_ROUND; c++) {
+                    int i = c & (READINGS - 1);
+                    s += angle3(i);
+                }
+                sink = s;
+                return CALLS_PER_ROUND;
+            }
+        });
+        report(ps, "angle3 + logging", new Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < CALLS_PER_ROUND / 10; c++) {
+                    int i = c & (READINGS - 1);
+                    double r = angle3(i);
+                    DISCARD.println("a3: " + r);
+                    DISCARD.println("before checkangle: " + r);
+                    s += r;
+                }
+                sink = s;
+                return CALLS_PER_ROUND / 10;
+            }
+        });
+        report(ps, "angle3 batch", new Op() {
+
+            public int run() {
+                int calls = 0;
+                while (calls < CALLS_PER_ROUND) {
+                    Geometry.angle3(d1, d2, a1, a2, out, READINGS);
+                    calls += READINGS;
+                }
+                sink = out[0];
+                return calls;
+            }
+        });
+        report(ps, "tilt3", new Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < CALLS_PER_ROUND; c++) {
+                    int i = c & (READINGS - 1);
+                    s += Geometry.tilt3(d1[i], d2[i], t1[i], t2[i]);
+                }
+                sink = s;
+                return CALLS_PER_ROUND;
+            }
+        });
+        report(ps, "tilt3 batch", new Op() {
+
+            public int run() {
+                int calls = 0;
+                while (calls < CALLS_PER_ROUND) {
+                    Geometry.tilt3(d1, d2, t1, t2, out, READINGS);
+                    calls += READINGS;
+                }
+                sink = out[0];
+                return calls;
+            }
+        });
+        report(ps, "asin", new Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < CALLS_PER_ROUND; c++) {
+                    s += Geometry.asin(x[c & (READINGS - 1)]);
+                }
+                sink = s;
+                return CALLS_PER_ROUND;
+            }
+        });
+        report(ps, "Math.asin", new Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < CALLS_PER_ROUND; c++) {
+                    s += Math.asin(x[c & (READINGS - 1)]);
+                }
+                sink = s;
+                return CALLS_PER_ROUND;
+            }
+        });
+        report(ps, "angleDiff", new Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < CALLS_PER_ROUND; c++) {
+                    int i = c & (READINGS - 1);
+                    s += Geometry.angleDiff(a2[i], a1[i] * 7);
+                }
+                sink = s;
+                return CALLS_PER_ROUND;
+            }
+        });
+
+        ps.println();
+        ps.println("accuracy against java.lang.Math\tmean\t\tmax\t\tunsolved");
+        accuracy(ps);
+    }
+
+    private static double angle3(int i) {
+        return Geometry.angle3(d1[i], d2[i], a1[i], a2[i]);
+    }
+
+    /**
+     * Prints one row of timings and allocation.
+     * @return Bytes allocated per call
+     */
+    static double report(PrintStream ps, String name, Op op) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            op.run();
+        }
+        Stats ns = new Stats();
+        long bytes = 0;
+        long calls = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            long allocated = threads.getThreadAllocatedBytes(id);
+            long start = System.nanoTime();
+            int n = op.run();
+            long elapsed = System.nanoTime() - start;
+            bytes += threads.getThreadAllocatedBytes(id) - allocated;
+            calls += n;
+            ns.add(elapsed / (double) n);
+        }
+        ps.println(pad(name) + "\t" + Stats.fmt(ns.percentile(50)) + "\t\t"
+                + Stats.fmt(ns.percentile(0)) + "\t\t" + Stats.fmt(bytes / (double) calls));
+        return bytes / (double) calls;
+    }
+
+    private static void accuracy(PrintStream ps) {
+        Stats angle = new Stats();
+        Stats tilt = new Stats();
+        Stats asin = new Stats();
+        Stats diff = new Stats();
+        int angleFailed = 0;
+        int tiltFailed = 0;
+        for (int i = 0; i < READINGS; i++) {
+            double a = Geometry.angle3(d1[i], d2[i], a1[i], a2[i]);
+            if (Double.isNaN(a)) {
+                angleFailed++;
+            } else {
+                angle.add(Math.abs(PressToSettleBenchmark.headingError(
+                        referenceAngle3(d1[i], d2[i], a1[i], a2[i]), a)));
+            }
+            double t = Geometry.tilt3(d1[i], d2[i], t1[i], t2[i]);
+            if (Double.isNaN(t)) {
+                tiltFailed++;
+            } else {
+                tilt.add(Math.abs(referenceTilt3(d1[i], d2[i], t1[i], t2[i]) - t));
+            }
+            asin.add(Math.abs(Math.asin(x[i]) - Geometry.asin(x[i])));
+            double goal = 360 * (x[i] + 1);
+            double b = a1[i] * 7;
+            double want = ((goal - b) % 360 + 540) % 360 - 180;
+            diff.add(Math.abs(Math.abs(want) - Math.abs(Geometry.angleDiff(goal, b))));
+        }
+        ps.println("angle3 (deg)\t\t\t" + Stats.sci(angle.mean()) + "\t" + Stats.sci(angle.max())
+                + "\t" + angleFailed);
+        ps.println("tilt3 (rad)\t\t\t" + Stats.sci(tilt.mean()) + "\t" + Stats.sci(tilt.max())
+                + "\t" + tiltFailed);
+        ps.println("asin (rad)\t\t\t" + Stats.sci(asin.mean()) + "\t" + Stats.sci(asin.max()));
+        ps.println("angleDiff (deg)\t\t\t" + Stats.sci(diff.mean()) + "\t" + Stats.sci(diff.max()));
+    }
+
+    /**
+     * Geometry.angle3 with java.lang.Math.asin.
+     */
+    static double referenceAngle3(double d1, double d2, double a1, double a2) {
+        double diff = Math.abs(a1 - a2);
+        if (diff > 180) {
+            diff = 360 - diff;
+        }
+        diff = Math.toRadians(diff);
+        double d3 = Math.sqrt(d1 * d1 + d2 * d2 - (2 * d1 * d2 * Math.cos(diff)));
+        double a3;
+        if (d2 < d3) {
+            a3 = Math.toDegrees(Math.asin(Math.sin(diff) * d2 / d3));
+        } else {
+            double temp = Math.toDegrees(Math.asin(Math.sin(diff) * d1 / d3));
+            a3 = 180 - (temp + diff);
+        }
+        return Geometry.wrap(180 - (360 - a1 + a3));
+    }
+
+    /**
+     * Geometry.tilt3 with java.lang.Math.asin.
+     */
+    static double referenceTilt3(double d1, double d2, double a1, double a2) {
+        a1 *= 180;
+        a2 *= 180;
+        double diff = Math.toRadians(Math.abs(a1 - a2));
+        double d3 = Math.sqrt(d1 * d1 + d2 * d2 - (2 * d1 * d2 * Math.cos(diff)));
+        double a4;
+        if (d2 < d3) {
+            a4 = Math.toDegrees(Math.asin(Math.sin(diff) * d2 / d3));
+        } else {
+            double temp = Math.toDegrees(Math.asin(Math.sin(diff) * d1 / d3));
+            a4 = 180 - Math.abs(temp + Math.toDegrees(diff));
+        }
+        return (a4 - a1) / 180;
+    }
+
+    static String pad(String s) {
+        return s.length() < 16 ? s + "\t" : s;
+    }
+}
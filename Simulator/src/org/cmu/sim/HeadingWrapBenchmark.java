@@ -0,0 +1,71 @@
+package org.cmu.sim;
+
+import java.io.PrintStream;
+import org.cmu.MountController;
+
+/**
+ * PTLoc simulator -- pan moves next to north, where compass readings wrap
+ * from 359.9 to 0. Compares the original drop-the-minimum average with the
+ * circular HeadingEstimator, blocking and sampled.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.HeadingWrapBenchmark run}.
+ */
+public class HeadingWrapBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue();
+    /** Goals around a Mount whose centred heading is 0. */
+    public static final double[] GOALS = new double[]{350, 357, 0.5, 3, 10, 30};
+    public static final String[] NAMES = new String[]{"drop-min", "circular", "circular+sampler"};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        out.println("PTLoc heading wraparound benchmark, " + TRIALS + " trials per case");
+        out.println("goal\taveraging\t\tsettle(ms)\titerations\terror\tfailed");
+        for (int g = 0; g < GOALS.length; g++) {
+            for (int m = 0; m < NAMES.length; m++) {
+                Stats settle = new Stats();
+                Stats iterations = new Stats();
+                Stats error = new Stats();
+                int failed = 0;
+                for (int i = 0; i < TRIALS; i++) {
+                    double[] r = run(GOALS[g], m, 100 * g + i);
+                    settle.add(r[0]);
+                    iterations.add(r[1]);
+                    error.add(r[2]);
+                    if (r[2] > 2 * MountController.ANGLE_TOLERANCE) {
+                        failed++;
+                    }
+                }
+                out.println(GOALS[g] + "\t" + pad(NAMES[m]) + "\t" + Stats.fmt(settle.mean())
+                        + "\t\t" + Stats.fmt(iterations.mean()) + "\t\t"
+                        + Stats.fmt(error.mean()) + "\t" + failed + "/" + TRIALS);
+            }
+        }
+    }
+
+    /**
+     * @param goal Pan goal, degrees
+     * @param mode Index into NAMES
+     * @param seed Noise seed
+     * @return settle ms, iterations, final heading error
+     */
+    static double[] run(double goal, int mode, long seed) throws Exception {
+        SimRig rig = new SimRig(SimClock.fromProperties(), seed, 0);
+        MountController mc = rig.mountController;
+        mc.setCircularHeading(mode != 0);
+        if (mode == 2) {
+            mc.startCompassSampler();
+        }
+        double start = rig.clock.nowMillis();
+        mc.gotoAngle(goal);
+        double elapsed = rig.clock.nowMillis() - start;
+        mc.stopCompassSampler();
+        double err = Math.abs(PressToSettleBenchmark.headingError(goal, rig.mount.getHeading()));
+        return new double[]{elapsed, mc.getLastIterations(), err};
+    }
+
+    private static String pad(String s) {
+        return s.length() < 16 ? s + "\t" : s;
+    }
+}
@@ -0,0 +1,152 @@
+package org.cmu.sim;
+
+import java.io.PrintStream;
+import java.util.Random;
+import org.cmu.math.InverseTrig;
+
+/**
+ * PTLoc simulator -- error against cost of the arcsine the solver uses.
+ * Compares the original 1-degree-bucket table with {@link InverseTrig} and
+ * java.lang.Math over the whole of [-1 1], and times each. Run it a second
+ * time with {@code -Djvm.args=-Xint} for an interpreter-only VM, which is
+ * closer to the SunSPOT's Squawk than a JIT.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.InverseTrigBenchmark run}.
+ */
+public class InverseTrigBenchmark {
+
+    public static final int READINGS = 1024;
+    public static final int ERROR_POINTS = 200001;
+    private static final double[] x = new double[READINGS];
+    private static final double[] y = new double[READINGS];
+
+    // the Mount's original table: degrees -60 to 60, +/- .03 radian accuracy
+    private static final double[] LEGACY = new double[]{
+        0, 0.017454178737585, 0.034913677698806, 0.052383831720078, 0.069870004975064,
+        0.087377605924218, 0.104912102606151, 0.122479038392806, 0.140084048337536,
+        0.157732876254456, 0.175431392679044, 0.193185613874249, 0.211001722063741,
+        0.228886087094804, 0.246845289758441, 0.264886147024236, 0.283015739483281,
+        0.301241441335296, 0.319570953307260, 0.338012338952325, 0.356574064851671,
+        0.375265045331157, 0.394094692412728, 0.413072971852013, 0.432210466274373,
+        0.451518446619238, 0.471008953346718, 0.490694889163938, 0.510590125408132,
+        0.530709624701538, 0.551069583099446, 0.571687595727842, 0.592582850906022,
+        0.613776359048718, 0.635291224347811, 0.657152969496191, 0.679389926750951,
+        0.702033712752794, 0.725119810184966, 0.748688287260934, 0.772784697234405,
+        0.797461216279661, 0.822778101828869, 0.848805589081666, 0.875626398156128,
+        0.903339110766513, 0.932062815889531, 0.961943660626584, 0.993164357510233,
+        1.025958462218693, 1.060632718251592, 1.097603850460327, 1.137463179066911,
+        1.181100087687805, 1.229967073304535, 1.286756209178897, 1.357717087474778,
+        1.469142265488490, 1.570796326794897, 1.570796326794897, 1.570796326794897};
+
+    public static void main(String[] args) {
+        PrintStream ps = System.out;
+        Random random = new Random(1);
+        for (int i = 0; i < READINGS; i++) {
+            x[i] = 2 * random.nextDouble() - 1;
+            y[i] = 2 * random.nextDouble() - 1;
+        }
+        ps.println("PTLoc inverse trig on " + System.getProperty("java.vm.name") + " ("
+                + System.getProperty("java.vm.info") + ")");
+        ps.println("op\t\t\tns/call p50\tns/call min\tbytes/call");
+        GeometryBenchmark.report(ps, "legacy asin", new GeometryBenchmark.Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < GeometryBenchmark.CALLS_PER_ROUND; c++) {
+                    s += legacyAsin(x[c & (READINGS - 1)]);
+                }
+                GeometryBenchmark.sink = s;
+                return GeometryBenchmark.CALLS_PER_ROUND;
+            }
+        });
+        GeometryBenchmark.report(ps, "InverseTrig.asin", new GeometryBenchmark.Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < GeometryBenchmark.CALLS_PER_ROUND; c++) {
+                    s += InverseTrig.asin(x[c & (READINGS - 1)]);
+                }
+                GeometryBenchmark.sink = s;
+                return GeometryBenchmark.CALLS_PER_ROUND;
+            }
+        });
+        GeometryBenchmark.report(ps, "Math.asin", new GeometryBenchmark.Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < GeometryBenchmark.CALLS_PER_ROUND; c++) {
+                    s += Math.asin(x[c & (READINGS - 1)]);
+                }
+                GeometryBenchmark.sink = s;
+                return GeometryBenchmark.CALLS_PER_ROUND;
+            }
+        });
+        GeometryBenchmark.report(ps, "InverseTrig.acos", new GeometryBenchmark.Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < GeometryBenchmark.CALLS_PER_ROUND; c++) {
+                    s += InverseTrig.acos(x[c & (READINGS - 1)]);
+                }
+                GeometryBenchmark.sink = s;
+                return GeometryBenchmark.CALLS_PER_ROUND;
+            }
+        });
+        GeometryBenchmark.report(ps, "InverseTrig.atan2", new GeometryBenchmark.Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < GeometryBenchmark.CALLS_PER_ROUND; c++) {
+                    int i = c & (READINGS - 1);
+                    s += InverseTrig.atan2(y[i], x[i]);
+                }
+                GeometryBenchmark.sink = s;
+                return GeometryBenchmark.CALLS_PER_ROUND;
+            }
+        });
+        GeometryBenchmark.report(ps, "Math.atan2", new GeometryBenchmark.Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < GeometryBenchmark.CALLS_PER_ROUND; c++) {
+                    int i = c & (READINGS - 1);
+                    s += Math.atan2(y[i], x[i]);
+                }
+                GeometryBenchmark.sink = s;
+                return GeometryBenchmark.CALLS_PER_ROUND;
+            }
+        });
+
+        ps.println();
+        ps.println("error against java.lang.Math (rad)\tmean\t\tmax");
+        Stats legacy = new Stats();
+        Stats asin = new Stats();
+        Stats acos = new Stats();
+        Stats atan2 = new Stats();
+        for (int i = 0; i < ERROR_POINTS; i++) {
+            double v = -1 + 2.0 * i / (ERROR_POINTS - 1);
+            legacy.add(Math.abs(legacyAsin(v) - Math.asin(v)));
+            asin.add(Math.abs(InverseTrig.asin(v) - Math.asin(v)));
+            acos.add(Math.abs(InverseTrig.acos(v) - Math.acos(v)));
+            double angle = Math.PI * v;
+            double cx = Math.cos(angle);
+            double sy = Math.sin(angle);
+            atan2.add(Math.abs(InverseTrig.atan2(sy, cx) - Math.atan2(sy, cx)));
+        }
+        ps.println("legacy asin\t\t\t\t" + Stats.sci(legacy.mean()) + "\t" + Stats.sci(legacy.max()));
+        ps.println("InverseTrig.asin\t\t\t" + Stats.sci(asin.mean()) + "\t" + Stats.sci(asin.max()));
+        ps.println("InverseTrig.acos\t\t\t" + Stats.sci(acos.mean()) + "\t" + Stats.sci(acos.max()));
+        ps.println("InverseTrig.atan2\t\t\t" + Stats.sci(atan2.mean()) + "\t" + Stats.sci(atan2.max()));
+    }
+
+    /**
+     * The Mount's original arcsine.
+     */
+    static double legacyAsin(double x) {
+        int n = (int) Math.floor(Math.toDegrees(x));
+        if (n > 60 || n < -60) {
+            throw new IllegalArgumentException("n not in interval [-60, 60]: " + n);
+        }
+        return n >= 0 ? LEGACY[n] : -LEGACY[-n];
+    }
+}
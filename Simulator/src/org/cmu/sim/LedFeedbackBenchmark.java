@@ -0,0 +1,74 @@
+package org.cmu.sim;
+
+import java.io.PrintStream;
+import org.cmu.math.Geometry;
+
+/**
+ * PTLoc simulator -- LED flashes played on the caller's thread versus
+ * queued to the LED service: how long a switch 2 press keeps the Pointer's
+ * switch handler busy, press to settled on the Mount, and how long a
+ * rejected reading stalls the Mount's receive thread.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.LedFeedbackBenchmark run}.
+ */
+public class LedFeedbackBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue();
+    public static final long TIMEOUT_MS = 30000;
+    public static final double MOUNT_HEADING = 40;
+    public static final double MOUNT_DISTANCE = 120;
+    public static final double TARGET_DISTANCE = 110;
+    public static final double TILT = 0.05;
+    public static final double[] TARGETS = new double[]{110, 130, 150, 170};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        out.println("PTLoc LED feedback, " + TRIALS + " trials per target, simulated ms");
+        out.println("case\t\tleds\t\tmean\tp50\tp95\tmax");
+        for (int queued = 0; queued < 2; queued++) {
+            Stats press = new Stats();
+            Stats settle = new Stats();
+            Stats stall = new Stats();
+            for (int t = 0; t < TARGETS.length; t++) {
+                for (int i = 0; i < TRIALS; i++) {
+                    run(TARGETS[t], queued == 1, 100 * t + i, press, settle, stall);
+                }
+            }
+            String mode = queued == 1 ? "queued  " : "blocking";
+            out.println("press handler\t" + mode + "\t" + press.summary());
+            out.println("press-to-settle\t" + mode + "\t" + settle.summary());
+            out.println("receive stall\t" + mode + "\t" + stall.summary());
+        }
+    }
+
+    static void run(double target, boolean queued, long seed, Stats press, Stats settle,
+            Stats stall) throws Exception {
+        double goal = Geometry.angle3(MOUNT_DISTANCE * 148, TARGET_DISTANCE * 148,
+                MOUNT_HEADING, target);
+        SimRig rig = new SimRig(SimClock.fromProperties(), seed, SimMount.wrap(goal - 20));
+        rig.start();
+        if (!queued) {
+            // patterns play on the caller's thread once the service is stopped
+            rig.mountLeds.stop();
+            rig.pointerLeds.stop();
+        }
+        // a type 2 reading with no type 1 before it is rejected with a flash
+        double start = rig.clock.nowMillis();
+        rig.mountController.toTarget(TARGET_DISTANCE * 148, target, TILT,
+                rig.clock.currentTimeMillis(), false);
+        stall.add(rig.clock.nowMillis() - start);
+
+        rig.pointer.aim(MOUNT_HEADING, TILT, MOUNT_DISTANCE);
+        rig.pointerController.measureAndSend(1);
+        rig.pointer.aim(target, TILT, TARGET_DISTANCE);
+        int before = rig.mountController.getCompletedMoves();
+        start = rig.clock.nowMillis();
+        rig.pointerController.measureAndSend(2);
+        press.add(rig.clock.nowMillis() - start);
+        if (rig.awaitMove(before, TIMEOUT_MS)) {
+            settle.add(rig.clock.nowMillis() - start);
+        }
+        rig.stop();
+    }
+}
@@ -0,0 +1,100 @@
+package org.cmu.sim;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import org.cmu.log.Log;
+
+/**
+ * PTLoc simulator -- cost of logging a solved target on the Mount's
+ * receive path: the println lines toTarget used to print, against one
+ * {@link Log} record and against a debug call that Log.LEVEL strips.
+ * Draining is timed per record, as that is where formatting now happens.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.LogBenchmark run}.
+ */
+public class LogBenchmark {
+
+    public static final int READINGS = 1024;
+    private static final int SOLVED = Log.define("new mount angle {0}, tilt {1}");
+    private static final int SOLVING = Log.define("solving: a2 {0}, d2 {1}, t2 {2}");
+    private static final PrintStream DISCARD = new PrintStream(new OutputStream() {
+
+        public void write(int b) {
+        }
+    });
+    private static final double[] angle = new double[READINGS];
+    private static final double[] tilt = new double[READINGS];
+
+    public static void main(String[] args) {
+        PrintStream ps = System.out;
+        java.util.Random random = new java.util.Random(1);
+        for (int i = 0; i < READINGS; i++) {
+            angle[i] = 360 * random.nextDouble();
+            tilt[i] = 0.2 * random.nextDouble() - 0.1;
+        }
+        final int calls = GeometryBenchmark.CALLS_PER_ROUND / 10;
+        ps.println("PTLoc logging, LEVEL " + Log.LEVEL + ", ring of " + Log.CAPACITY);
+        ps.println("op\t\t\tns/call p50\tns/call min\tbytes/call");
+        GeometryBenchmark.report(ps, "println lines", new GeometryBenchmark.Op() {
+
+            public int run() {
+                for (int c = 0; c < calls; c++) {
+                    int i = c & (READINGS - 1);
+                    DISCARD.println("Calculating angle and tilt using values:");
+                    DISCARD.println("a2: " + angle[i]);
+                    DISCARD.println("t2: " + tilt[i]);
+                    DISCARD.println("new mount angle: " + angle[i]);
+                    DISCARD.println("new mount tilt: " + tilt[i]);
+                }
+                return calls;
+            }
+        });
+        GeometryBenchmark.report(ps, "Log.info", new GeometryBenchmark.Op() {
+
+            public int run() {
+                for (int c = 0; c < calls; c++) {
+                    int i = c & (READINGS - 1);
+                    if (Log.INFO_ON) {
+                        Log.info(SOLVED, angle[i], tilt[i]);
+                    }
+                }
+                return calls;
+            }
+        });
+        GeometryBenchmark.report(ps, "Log.debug", new GeometryBenchmark.Op() {
+
+            public int run() {
+                double s = 0;
+                for (int c = 0; c < calls; c++) {
+                    int i = c & (READINGS - 1);
+                    if (Log.DEBUG_ON) {
+                        Log.debug(SOLVING, angle[i], 0, tilt[i]);
+                    }
+                    s += angle[i];
+                }
+                GeometryBenchmark.sink = s;
+                return calls;
+            }
+        });
+        GeometryBenchmark.report(ps, "drain", new GeometryBenchmark.Op() {
+
+            public int run() {
+                int drained = 0;
+                while (drained < calls) {
+                    for (int c = 0; c < Log.CAPACITY; c++) {
+                        int i = c & (READINGS - 1);
+                        Log.info(SOLVED, angle[i], tilt[i]);
+                    }
+                    drained += Log.drain(DISCARD);
+                }
+                return drained;
+            }
+        });
+        Log.drain(DISCARD);
+        ps.println("(drain includes recording its records)");
+        ps.println();
+        ps.println("sample:");
+        Log.info(SOLVED, angle[0], tilt[0]);
+        Log.drain(ps);
+    }
+}
@@ -0,0 +1,78 @@
+package org.cmu.sim;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * PTLoc host -- reads a file through memory-mapped windows, so a trace of
+ * any size is replayed without copying it into the heap or a read() call
+ * per buffer. Only one window is mapped at a time.
+ */
+public class MappedInputStream extends InputStream {
+
+    public static final long WINDOW = 64L << 20;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+    private long windowAt;
+    private MappedByteBuffer window;
+
+    /**
+     * @param path File to read
+     * @throws IOException if the file cannot be opened or mapped
+     */
+    public MappedInputStream(String path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        channel = file.getChannel();
+        size = channel.size();
+        map(0);
+    }
+
+    private void map(long at) throws IOException {
+        windowAt = at;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(WINDOW, size - at));
+    }
+
+    /**
+     * @return false at the end of the file
+     */
+    private boolean fill() throws IOException {
+        if (window.hasRemaining()) {
+            return true;
+        }
+        long next = windowAt + window.limit();
+        if (next >= size) {
+            return false;
+        }
+        map(next);
+        return true;
+    }
+
+    public int read() throws IOException {
+        return fill() ? window.get() & 0xFF : -1;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, window.remaining());
+        window.get(b, off, n);
+        return n;
+    }
+
+    public int available() {
+        return window.remaining();
+    }
+
+    public void close() throws IOException {
+        channel.close();
+        file.close();
+    }
+}
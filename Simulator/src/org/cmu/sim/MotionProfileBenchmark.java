@@ -0,0 +1,160 @@
+package org.cmu.sim;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Random;
+import org.cmu.MountController;
+import org.cmu.control.MotionProfile;
+import org.cmu.control.ProfiledServo;
+import org.cmu.hal.ServoOutput;
+
+/**
+ * PTLoc simulator -- servo commands that jump against commands that follow
+ * a trapezoidal {@link MotionProfile}, on servos given inertia with
+ * {@link SimServo#setDynamics}. First single pan steps in the open loop:
+ * time until the horn stays within STEP_BAND of the target, overshoot, and
+ * the peak compass disturbance from motion and motor current. Then whole
+ * moves through the Mount's feedback loops after the startup servo sweep:
+ * time, corrections and final error.
+ * <p>
+ * The inertia figures are assumptions, not measurements of the real servos.
+ * The profile thread runs in real time, so at the default sim.scale its
+ * scheduling jitter shows in the open-loop rows; -Dsim.scale=4 is steadier.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.MotionProfileBenchmark run}.
+ */
+public class MotionProfileBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue();
+    public static final double PAN_NATURAL_HZ = 8;
+    public static final double TILT_NATURAL_HZ = 5;
+    public static final double DAMPING = 0.35;
+    public static final double PAN_MAX_ACCELERATION = 60;
+    public static final double TILT_MAX_ACCELERATION = 25;
+    /** Settled once within half a degree of pan. */
+    public static final double STEP_BAND = 0.5 / SimMount.PAN_RANGE_DEG;
+    public static final double[] STEPS = new double[]{0.05, 0.15, 0.3};
+    /** Profile accelerations tried on the open-loop steps, 0 for a jump. */
+    public static final double[] ACCELERATIONS = new double[]{0, 5, 10, 20, 40};
+    public static final double[] ANGLES = new double[]{150, 195, 165, 230, 140};
+    public static final double[] TILTS = new double[]{0.2, -0.1, 0.3, 0, -0.25};
+    public static final long STEP_TIMEOUT_MS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        SimClock clock = SimClock.fromProperties();
+        out.println("PTLoc motion profiles, " + TRIALS + " trials per case, simulated ms");
+        out.println("pan profile " + MountController.PAN_MAX_VELOCITY + " units/s, "
+                + MountController.PAN_MAX_ACCELERATION + " units/s^2; servo "
+                + PAN_NATURAL_HZ + " Hz, damping " + DAMPING);
+        out.println();
+        out.println("open-loop pan step");
+        out.println("step(deg)\taccel\tsettle p50\tovershoot(deg)\tpeak disturbance(deg)");
+        for (int s = 0; s < STEPS.length; s++) {
+            for (int a = 0; a < ACCELERATIONS.length; a++) {
+                step(out, clock, STEPS[s], ACCELERATIONS[a]);
+            }
+        }
+        out.println();
+        out.println("closed-loop moves after the servo sweep");
+        out.println("move\tcommand\t\tmean\tp50\tp95\tmax\titerations\terr");
+        for (int profiled = 0; profiled < 2; profiled++) {
+            moves(out, clock, profiled == 1);
+        }
+    }
+
+    private static SimMount inertialMount(SimClock clock, double heading) {
+        SimMount mount = new SimMount(clock, heading);
+        mount.getPanServo().setDynamics(PAN_NATURAL_HZ, DAMPING, PAN_MAX_ACCELERATION);
+        mount.getTiltServo().setDynamics(TILT_NATURAL_HZ, DAMPING, TILT_MAX_ACCELERATION);
+        return mount;
+    }
+
+    private static void step(PrintStream out, SimClock clock, double size,
+            double acceleration) {
+        Stats settle = new Stats();
+        Stats overshoot = new Stats();
+        Stats disturbance = new Stats();
+        for (int t = 0; t < TRIALS; t++) {
+            SimMount mount = inertialMount(clock, 180);
+            SimServo servo = mount.getPanServo();
+            ProfiledServo drive = new ProfiledServo(servo, clock,
+                    new MotionProfile(MountController.PAN_MAX_VELOCITY,
+                    acceleration > 0 ? acceleration : 1));
+            ServoOutput command = drive;
+            if (acceleration > 0) {
+                drive.start();
+            }
+            double from = 0.5 - size / 2;
+            command.setPosition((float) from);
+            drive.awaitArrival(0);
+            clock.sleepMillis(500);
+            double target = from + size;
+            double start = clock.nowMillis();
+            double settledAt = -1;
+            double peak = 0;
+            double beyond = 0;
+            command.setPosition((float) target);
+            while (clock.nowMillis() - start < STEP_TIMEOUT_MS) {
+                double x = servo.getActualPosition();
+                beyond = Math.max(beyond, x - target);
+                peak = Math.max(peak, mount.getMagneticDisturbance());
+                if (Math.abs(x - target) > STEP_BAND) {
+                    settledAt = -1;
+                } else if (settledAt < 0) {
+                    settledAt = clock.nowMillis();
+                }
+                clock.sleepMillis(1);
+            }
+            drive.stop();
+            settle.add(settledAt < 0 ? STEP_TIMEOUT_MS : settledAt - start);
+            overshoot.add(beyond * SimMount.PAN_RANGE_DEG);
+            disturbance.add(peak);
+        }
+        out.println(Stats.fmt(size * SimMount.PAN_RANGE_DEG) + "\t\t"
+                + (acceleration > 0 ? Stats.fmt(acceleration) : "jump") + "\t" + Stats.fmt(settle.percentile(50))
+                + "\t\t" + Stats.fmt(overshoot.mean()) + "\t\t" + Stats.fmt(disturbance.mean()));
+    }
+
+    private static void moves(PrintStream out, SimClock clock, boolean profiled)
+            throws IOException {
+        Stats pan = new Stats();
+        Stats tilt = new Stats();
+        Stats panIterations = new Stats();
+        Stats tiltIterations = new Stats();
+        Stats panError = new Stats();
+        Stats tiltError = new Stats();
+        for (int t = 0; t < TRIALS; t++) {
+            Random random = new Random(t);
+            SimMount mount = inertialMount(clock, 180);
+            MountController controller = new MountController(
+                    new SimCompass(mount, clock, random),
+                    new SimAccelerometer(mount, clock, random),
+                    mount.getPanServo(), mount.getTiltServo(), new SimLeds(clock), clock);
+            controller.setProfiledMotion(profiled);
+            controller.calibrateServoMaps();
+            for (int i = 0; i < ANGLES.length; i++) {
+                double start = clock.nowMillis();
+                controller.gotoAngle(ANGLES[i]);
+                pan.add(clock.nowMillis() - start);
+                panIterations.add(controller.getLastIterations());
+                clock.sleepMillis(300);
+                panError.add(Math.abs(SimMount.wrap(mount.getHeading() - ANGLES[i] + 180) - 180));
+
+                start = clock.nowMillis();
+                controller.gotoTilt(TILTS[i]);
+                tilt.add(clock.nowMillis() - start);
+                tiltIterations.add(controller.getLastIterations());
+                clock.sleepMillis(300);
+                tiltError.add(Math.abs(mount.getTiltY() - TILTS[i]));
+            }
+            controller.setProfiledMotion(false);
+        }
+        String command = profiled ? "profiled" : "jump    ";
+        out.println("pan\t" + command + "\t" + pan.summary() + "\t"
+                + Stats.fmt(panIterations.mean()) + "\t\t" + Stats.fmt(panError.mean()) + " deg");
+        out.println("tilt\t" + command + "\t" + tilt.summary() + "\t"
+                + Stats.fmt(tiltIterations.mean()) + "\t\t" + Stats.sci(tiltError.mean()) + " rad");
+    }
+}
@@ -0,0 +1,150 @@
+package org.cmu.sim;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Random;
+import org.cmu.LedService;
+import org.cmu.PointerController;
+import org.cmu.PointerState;
+import org.cmu.PointerTable;
+import org.cmu.math.Geometry;
+
+/**
+ * PTLoc simulator -- one Mount serving several Pointers at once. Every
+ * Pointer sends its reference, then keeps pressing for random targets with
+ * a pause between presses. Reports how the Mount's receive-to-actuation
+ * latency grows with the number of Pointers, how evenly the moves are
+ * shared (Jain's index over each Pointer's share of its own presses), and
+ * what happens past the Pointer table's capacity: the Pointers heard from
+ * first keep being served and the packets of the rest are refused.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.MultiPointerBenchmark run}.
+ */
+public class MultiPointerBenchmark {
+
+    public static final int[] POINTERS = new int[]{1, 2, 4, 8, 16};
+    public static final long DURATION_MS = Long.getLong("sim.duration", 30000).longValue();
+    public static final long PAUSE_MIN_MS = 500;
+    public static final long PAUSE_MAX_MS = 1500;
+    public static final double MOUNT_HEADING = 40;
+    public static final double MOUNT_DISTANCE = 120;
+    public static final double TARGET_DISTANCE = 110;
+    public static final double TILT = 0.05;
+    public static final double TARGET_MIN = 110;
+    public static final double TARGET_MAX = 170;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        out.println("PTLoc multi-Pointer load, " + DURATION_MS / 1000 + " s per case, "
+                + "table capacity " + PointerTable.DEFAULT_CAPACITY + ", simulated ms");
+        out.println("pointers\tpresses\tmoves\trejected\trefused\tfairness"
+                + "\tlatency mean\tworst pointer\tmax");
+        for (int c = 0; c < POINTERS.length; c++) {
+            run(out, POINTERS[c], c);
+        }
+    }
+
+    private static void run(PrintStream out, int count, long seed) throws Exception {
+        double low = Geometry.angle3(MOUNT_DISTANCE * 148, TARGET_DISTANCE * 148,
+                MOUNT_HEADING, TARGET_MIN);
+        double high = Geometry.angle3(MOUNT_DISTANCE * 148, TARGET_DISTANCE * 148,
+                MOUNT_HEADING, TARGET_MAX);
+        final SimRig rig = new SimRig(SimClock.fromProperties(), seed,
+                SimMount.wrap(low + PressToSettleBenchmark.headingError(high, low) / 2));
+        final SimPointer[] pointers = new SimPointer[count];
+        final PointerController[] controllers = new PointerController[count];
+        LedService[] leds = new LedService[count];
+        long[] addresses = new long[count];
+        pointers[0] = rig.pointer;
+        controllers[0] = rig.pointerController;
+        leds[0] = rig.pointerLeds;
+        addresses[0] = rig.pointerLink().getAddress();
+        for (int i = 1; i < count; i++) {
+            Random random = new Random(seed * 100 + i);
+            SimPacketLink link = SimPacketLink.connect(rig.mountLink(), 100 + i);
+            pointers[i] = new SimPointer();
+            leds[i] = new LedService(new SimLeds(rig.clock));
+            controllers[i] = new PointerController(new SimCompass(pointers[i], rig.clock, random),
+                    new SimRangeFinder(pointers[i], rig.clock, random),
+                    new SimAccelerometer(pointers[i], rig.clock, random),
+                    leds[i], rig.clock, link);
+            addresses[i] = link.getAddress();
+        }
+        rig.start();
+        for (int i = 1; i < count; i++) {
+            leds[i].start();
+            controllers[i].startCompassSampler();
+        }
+
+        final int[] presses = new int[count];
+        final long deadline = rig.clock.currentTimeMillis() + DURATION_MS;
+        Thread[] threads = new Thread[count];
+        for (int i = 0; i < count; i++) {
+            final int k = i;
+            threads[i] = new Thread(new Runnable() {
+
+                public void run() {
+                    Random random = new Random(k);
+                    try {
+                        pointers[k].aim(MOUNT_HEADING, TILT, MOUNT_DISTANCE);
+                        controllers[k].measureAndSend(1);
+                        while (rig.clock.currentTimeMillis() < deadline) {
+                            pointers[k].aim(TARGET_MIN + random.nextDouble()
+                                    * (TARGET_MAX - TARGET_MIN), TILT, TARGET_DISTANCE);
+                            controllers[k].measureAndSend(2);
+                            presses[k]++;
+                            rig.clock.sleep(PAUSE_MIN_MS
+                                    + (long) (random.nextDouble() * (PAUSE_MAX_MS - PAUSE_MIN_MS)));
+                        }
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }, "pointer-" + i);
+            threads[i].start();
+        }
+        for (int i = 0; i < count; i++) {
+            threads[i].join();
+        }
+        long idle = rig.clock.currentTimeMillis() + 10000;
+        while (!rig.mountController.getExecutor().isIdle() && rig.clock.currentTimeMillis() < idle) {
+            rig.clock.sleepMillis(10);
+        }
+
+        PointerTable table = rig.mountController.getPointers();
+        int pressed = 0;
+        int moves = 0;
+        double shareSum = 0;
+        double shareSquares = 0;
+        long worst = 0;
+        long max = 0;
+        double latencySum = 0;
+        for (int i = 0; i < count; i++) {
+            pressed += presses[i];
+            PointerState p = table.find(addresses[i]);
+            int m = p == null ? 0 : p.getMoves();
+            moves += m;
+            double share = presses[i] == 0 ? 0 : m / (double) presses[i];
+            shareSum += share;
+            shareSquares += share * share;
+            if (m > 0) {
+                latencySum += p.getMeanLatency() * (double) m;
+                worst = Math.max(worst, p.getMeanLatency());
+                max = Math.max(max, p.getMaxLatency());
+            }
+        }
+        int submitted = rig.mountController.getExecutor().getSubmitted();
+        double fairness = shareSquares == 0 ? 0 : shareSum * shareSum / (count * shareSquares);
+        out.println(count + "\t\t" + pressed + "\t" + moves + "\t" + (pressed - submitted)
+                + "\t\t" + table.getRefused() + "\t" + Stats.fmt(fairness)
+                + "\t" + Stats.fmt(moves == 0 ? 0 : latencySum / moves)
+                + "\t\t" + worst + "\t\t" + max);
+
+        for (int i = 1; i < count; i++) {
+            controllers[i].stopCompassSampler();
+            leds[i].stop();
+        }
+        rig.stop();
+    }
+}
@@ -0,0 +1,107 @@
+package org.cmu.sim;
+
+import java.io.File;
+import java.io.PrintStream;
+import org.cmu.MountMemory;
+import org.cmu.math.Geometry;
+
+/**
+ * PTLoc simulator -- what the Mount's persistent store saves. Boots a Mount
+ * with an empty store (calibration sweep) and again with the records the
+ * first boot left behind, then compares recalling a saved waypoint with
+ * sending the same target from the Pointer.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.PersistenceBenchmark run}.
+ */
+public class PersistenceBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue();
+    public static final long TIMEOUT_MS = 30000;
+    public static final double MOUNT_HEADING = 40;
+    public static final double MOUNT_DISTANCE = 120;
+    public static final double TARGET_DISTANCE = 110;
+    public static final double TILT = 0.05;
+    public static final double[] TARGETS = new double[]{110, 140, 170};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        File dir = new File(System.getProperty("java.io.tmpdir"), "ptloc-store");
+        out.println("PTLoc persistent store, " + TRIALS + " trials per target, simulated ms");
+        out.println("case\t\t\tmean\tp50\tp95\tmax");
+        Stats coldBoot = new Stats();
+        Stats warmBoot = new Stats();
+        Stats poseErr = new Stats();
+        Stats press = new Stats();
+        Stats recall = new Stats();
+        Stats recallErr = new Stats();
+        int writes = 0;
+        int moves = 0;
+        for (int t = 0; t < TARGETS.length; t++) {
+            for (int i = 0; i < TRIALS; i++) {
+                double goal = Geometry.angle3(MOUNT_DISTANCE * 148, TARGET_DISTANCE * 148,
+                        MOUNT_HEADING, TARGETS[t]);
+                double base = SimMount.wrap(goal - 20);
+                long seed = 100 * t + i;
+
+                // first boot: empty store, calibrate, take a reference, move
+                SimRig rig = new SimRig(SimClock.fromProperties(), seed, base);
+                SimStorage store = new SimStorage(dir, rig.clock);
+                store.clear();
+                rig.mountController.setMemory(new MountMemory(store));
+                double start = rig.clock.nowMillis();
+                rig.mountController.startCompassSampler();
+                if (!rig.mountController.restore()) {
+                    rig.mountController.calibrateServoMaps();
+                }
+                coldBoot.add(rig.clock.nowMillis() - start);
+                rig.start();
+                rig.pointer.aim(MOUNT_HEADING, TILT, MOUNT_DISTANCE);
+                rig.pointerController.measureAndSend(1);
+                rig.pointer.aim(TARGETS[t], TILT, TARGET_DISTANCE);
+                int before = rig.mountController.getCompletedMoves();
+                start = rig.clock.nowMillis();
+                rig.pointerController.measureAndSend(2);
+                if (!rig.awaitMove(before, TIMEOUT_MS)) {
+                    rig.stop();
+                    continue;
+                }
+                press.add(rig.clock.nowMillis() - start);
+                rig.mountController.saveWaypoint("target");
+                double saved = rig.mount.getHeading();
+                writes += store.getWrites();
+                moves++;
+                rig.stop();
+
+                // second boot: everything comes back from the store
+                rig = new SimRig(SimClock.fromProperties(), seed + 1, base);
+                rig.mountController.setMemory(new MountMemory(new SimStorage(dir, rig.clock)));
+                start = rig.clock.nowMillis();
+                rig.mountController.startCompassSampler();
+                if (!rig.mountController.restore()) {
+                    rig.mountController.calibrateServoMaps();
+                }
+                warmBoot.add(rig.clock.nowMillis() - start);
+                rig.clock.sleep(100);
+                poseErr.add(Math.abs(PressToSettleBenchmark.headingError(saved,
+                        rig.mount.getHeading())));
+                // aim elsewhere, then recall the waypoint
+                rig.mountController.gotoLocation(-TILT, SimMount.wrap(base));
+                start = rig.clock.nowMillis();
+                rig.mountController.recallWaypoint("target");
+                recall.add(rig.clock.nowMillis() - start);
+                recallErr.add(Math.abs(PressToSettleBenchmark.headingError(saved,
+                        rig.mount.getHeading())));
+                rig.mountController.stopCompassSampler();
+            }
+        }
+        out.println("boot, empty store\t" + coldBoot.summary());
+        out.println("boot, restored\t\t" + warmBoot.summary());
+        out.println("press-to-settle\t\t" + press.summary());
+        out.println("waypoint recall\t\t" + recall.summary());
+        out.println("restored pose error " + Stats.fmt(poseErr.mean()) + " deg, recalled waypoint error "
+                + Stats.fmt(recallErr.mean()) + " deg");
+        out.println("store writes per Pointer-directed session: "
+                + Stats.fmt(moves == 0 ? 0 : writes / (double) moves));
+    }
+}
@@ -0,0 +1,23 @@
+package org.cmu.sim;
+
+/**
+ * PTLoc simulator -- ground truth orientation of a simulated device.
+ */
+public interface Pose {
+
+    /**
+     * @return True heading in degrees, [0 360)
+     */
+    double getHeading();
+
+    /**
+     * @return True y-axis tilt in radians, negative pointing upwards
+     */
+    double getTiltY();
+
+    /**
+     * @return Disturbance added to the compass noise, in degrees (e.g. from
+     *      motor current while a servo is slewing)
+     */
+    double getMagneticDisturbance();
+}
@@ -0,0 +1,141 @@
+package org.cmu.sim;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import org.cmu.math.Geometry;
+
+/**
+ * PTLoc simulator -- headline benchmark. Measures the time from a switch 2
+ * press on the Pointer until the Mount's gotoLocation returns, plus the
+ * gotoAngle / gotoTilt costs on their own.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.PressToSettleBenchmark run}.
+ */
+public class PressToSettleBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue();
+    public static final long TIMEOUT_MS = 30000;
+    public static final double MOUNT_HEADING = 40; // from the Pointer
+    public static final double MOUNT_DISTANCE = 120; // inches
+    /** Target heading offset from the Mount (degrees), distance (inches). */
+    public static final double[][] TARGETS = new double[][]{
+        {-30, 100}, {-15, 150}, {10, 90}, {25, 140}, {40, 110}};
+    public static final double[] PAN_MOVES = new double[]{5, 15, 30, 60};
+    public static final double[] TILT_MOVES = new double[]{0.05, 0.15, 0.3};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        PrintStream quiet = new PrintStream(new OutputStream() {
+
+            public void write(int b) {
+            }
+        });
+        System.setOut(quiet);
+        System.setErr(quiet);
+
+        out.println("PTLoc press-to-settled, " + TRIALS + " trials per case, simulated ms");
+        out.println("case\tmean\tp50\tp95\tmax\terr(deg)\tfailed");
+        Stats all = new Stats();
+        int allFailed = 0;
+        for (int t = 0; t < TARGETS.length; t++) {
+            Stats time = new Stats();
+            Stats err = new Stats();
+            int failed = 0;
+            for (int i = 0; i < TRIALS; i++) {
+                double[] r = pressToSettle(TARGETS[t][0], TARGETS[t][1], 1000 * t + i);
+                if (r == null) {
+                    failed++;
+                    continue;
+                }
+                time.add(r[0]);
+                err.add(r[1]);
+                all.add(r[0]);
+            }
+            allFailed += failed;
+            out.println("target " + (int) TARGETS[t][0] + "deg/" + (int) TARGETS[t][1]
+                    + "in\t" + time.summary() + "\t" + Stats.fmt(err.mean()) + "\t" + failed);
+        }
+        out.println("ALL\t" + all.summary() + "\t\t" + allFailed);
+
+        out.println();
+        out.println("move\tmean\tp50\tp95\tmax\terr");
+        for (int m = 0; m < PAN_MOVES.length; m++) {
+            Stats time = new Stats();
+            Stats err = new Stats();
+            for (int i = 0; i < TRIALS; i++) {
+                double[] r = panMove(PAN_MOVES[m], 2000 * m + i);
+                time.add(r[0]);
+                err.add(r[1]);
+            }
+            out.println("gotoAngle " + (int) PAN_MOVES[m] + "deg\t" + time.summary()
+                    + "\t" + Stats.fmt(err.mean()));
+        }
+        for (int m = 0; m < TILT_MOVES.length; m++) {
+            Stats time = new Stats();
+            Stats err = new Stats();
+            for (int i = 0; i < TRIALS; i++) {
+                double[] r = tiltMove(TILT_MOVES[m], 3000 * m + i);
+                time.add(r[0]);
+                err.add(r[1] * 1000);
+            }
+            out.println("gotoTilt " + TILT_MOVES[m] + "\t" + time.summary()
+                    + "\t" + Stats.fmt(err.mean()) + "m");
+        }
+    }
+
+    /**
+     * Aims at the Mount, presses switch 1, aims at the target and presses
+     * switch 2.
+     * @return {press-to-settled ms, final heading error in degrees}, or
+     *      null if the Mount never finished the move
+     */
+    static double[] pressToSettle(double offset, double distance, long seed) throws Exception {
+        double targetHeading = MOUNT_HEADING + offset;
+        // where the noise-free solver will send the Mount
+        double goal = Geometry.angle3(MOUNT_DISTANCE * 148, distance * 148,
+                MOUNT_HEADING, SimMount.wrap(targetHeading));
+        // start the mount a quarter of its pan range away from the goal
+        SimRig rig = new SimRig(SimClock.fromProperties(), seed,
+                SimMount.wrap(goal - offset / 2));
+        rig.start();
+        rig.pointer.aim(MOUNT_HEADING, 0, MOUNT_DISTANCE);
+        rig.pointerController.measureAndSend(1);
+        rig.pointer.aim(targetHeading, 0, distance);
+        int before = rig.mountController.getCompletedMoves();
+        double start = rig.clock.nowMillis();
+        rig.pointerController.measureAndSend(2);
+        if (!rig.awaitMove(before, TIMEOUT_MS)) {
+            // e.g. the receive thread died on a "Bad tilt" Error
+            rig.stop();
+            return null;
+        }
+        double elapsed = rig.clock.nowMillis() - start;
+        double err = Math.abs(headingError(goal, rig.mount.getHeading()));
+        rig.stop();
+        return new double[]{elapsed, err};
+    }
+
+    static double[] panMove(double move, long seed) throws Exception {
+        SimRig rig = new SimRig(SimClock.fromProperties(), seed, 180);
+        double start = rig.clock.nowMillis();
+        rig.mountController.gotoAngle(180 + move);
+        double elapsed = rig.clock.nowMillis() - start;
+        return new double[]{elapsed, Math.abs(headingError(180 + move, rig.mount.getHeading()))};
+    }
+
+    static double[] tiltMove(double move, long seed) throws Exception {
+        SimRig rig = new SimRig(SimClock.fromProperties(), seed, 180);
+        double start = rig.clock.nowMillis();
+        rig.mountController.gotoTilt(move);
+        double elapsed = rig.clock.nowMillis() - start;
+        return new double[]{elapsed, Math.abs(move - rig.mount.getTiltY())};
+    }
+
+    /**
+     * @return Signed shortest difference goal - actual in degrees
+     */
+    static double headingError(double goal, double actual) {
+        double d = SimMount.wrap(goal - actual);
+        return d > 180 ? d - 360 : d;
+    }
+}
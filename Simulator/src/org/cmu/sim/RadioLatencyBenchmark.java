@@ -0,0 +1,168 @@
+package org.cmu.sim;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import org.cmu.MotionExecutor;
+import org.cmu.MountController;
+import org.cmu.Reading;
+import org.cmu.hal.StatusLeds;
+import org.cmu.math.Geometry;
+
+/**
+ * PTLoc simulator -- time from the Pointer sending a type 2 reading to the
+ * Mount's first servo command. Compares the original radiostream receive
+ * loop, which polls available() with 35 ms and 150 ms sleeps and blocks on
+ * an LED flash, with the blocking framed receiver and MotionExecutor.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.RadioLatencyBenchmark run}.
+ */
+public class RadioLatencyBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue() * 4;
+    public static final long TIMEOUT_MS = 30000;
+    public static final double MOUNT_HEADING = 40;
+    public static final double MOUNT_DISTANCE = 120 * 148;
+    public static final double TARGET_HEADING = 55;
+    public static final double TARGET_DISTANCE = 90 * 148;
+    public static final String[] NAMES = new String[]{"polling", "blocking"};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        out.println("PTLoc receive-to-actuation, " + TRIALS + " readings, simulated ms");
+        out.println("receiver\tmean\tp50\tp95\tmax\tdecode-to-actuation");
+        for (int mode = 0; mode < NAMES.length; mode++) {
+            Stats latency = new Stats();
+            Stats internal = new Stats();
+            for (int i = 0; i < TRIALS; i++) {
+                long[] r = run(mode == 1, i);
+                if (r != null) {
+                    latency.add(r[0]);
+                    if (r[1] >= 0) {
+                        internal.add(r[1]);
+                    }
+                }
+            }
+            out.println(NAMES[mode] + "\t" + latency.summary() + "\t"
+                    + (internal.count() == 0 ? "-" : Stats.fmt(internal.mean())));
+        }
+    }
+
+    /**
+     * Sends a type 1 and a type 2 reading and waits for the move.
+     * @param blocking true for MountController.serve, false for the original loop
+     * @param seed Noise seed, also staggers the send against the poll period
+     * @return {send-to-actuation ms, executor's mean decode-to-actuation ms or
+     *      -1}, or null if the move never finished
+     */
+    static long[] run(boolean blocking, long seed) throws Exception {
+        double goal = Geometry.angle3(MOUNT_DISTANCE, TARGET_DISTANCE,
+                MOUNT_HEADING, TARGET_HEADING);
+        final SimRig rig = new SimRig(SimClock.fromProperties(), seed, SimMount.wrap(goal - 8));
+        final MountController mc = rig.mountController;
+        final SimLink[] legacy = SimLink.pair(rig.clock);
+        final DataInputStream in = legacy[1].openDataInputStream();
+        final boolean[] stop = new boolean[1];
+        mc.startCompassSampler();
+        Thread mount;
+        if (blocking) {
+            mount = new Thread(new Runnable() {
+
+                public void run() {
+                    try {
+                        mc.serve(rig.mountLink());
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+        } else {
+            mount = new Thread(new Runnable() {
+
+                public void run() {
+                    try {
+                        pollingServe(mc, in, rig.clock, new SimLeds(rig.clock), stop);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            });
+        }
+        mount.setDaemon(true);
+        mount.start();
+
+        DataOutputStream out = legacy[0].openDataOutputStream();
+        send(rig, blocking ? null : out, 1, MOUNT_DISTANCE, MOUNT_HEADING);
+        // land the type 2 reading at a different point of the poll cycle each trial
+        rig.clock.sleepMillis(400 + (seed * 37) % 200);
+        int before = mc.getCompletedMoves();
+        long sent = rig.clock.currentTimeMillis();
+        send(rig, blocking ? null : out, 2, TARGET_DISTANCE, TARGET_HEADING);
+        boolean done = rig.awaitMove(before, TIMEOUT_MS);
+        MotionExecutor executor = mc.getExecutor();
+        long internal = -1;
+        if (done && blocking && executor != null) {
+            // the executor records latency just after the move count goes up
+            for (int i = 0; i < 100 && executor.getTimedMoves() == 0; i++) {
+                rig.clock.sleepMillis(1);
+            }
+            internal = executor.getMeanLatency();
+        }
+        stop[0] = true;
+        mc.stopCompassSampler();
+        mc.stop();
+        rig.mountLink().close();
+        return done ? new long[]{mc.getLastActuatedAt() - sent, internal} : null;
+    }
+
+    /**
+     * Sends a reading as a frame, or in the original stream format if out
+     * is given.
+     */
+    private static void send(SimRig rig, DataOutputStream out, int type, double d,
+            double angle) throws IOException {
+        if (out == null) {
+            rig.pointerController.send(new Reading[]{
+                new Reading(type, d, angle, 0, rig.clock.currentTimeMillis())}, 1);
+            return;
+        }
+        out.write(type);
+        out.writeDouble(d);
+        out.writeDouble(angle);
+        out.writeDouble(0);
+        out.flush();
+    }
+
+    /**
+     * The Mount's receive loop before the blocking receiver, for comparison.
+     */
+    static void pollingServe(MountController mc, DataInputStream stream, SimClock clock,
+            StatusLeds leds, boolean[] stop) throws IOException {
+        int j = 0;
+        while (!stop[0]) {
+            while (stream.available() > 0) {
+                leds.setOn(MountController.GREEN);
+                while (stream.available() > 0) {
+                    leds.flash(MountController.LIGHT_BLUE, 250);
+                    int in = stream.read();
+                    if (in == 1 || in == 2) {
+                        double d = stream.readDouble();
+                        double angle = stream.readDouble();
+                        double tilt = stream.readDouble();
+                        if (!mc.onReading(in, d, angle, tilt)) {
+                            break;
+                        }
+                    }
+                }
+                clock.sleep(35);
+            }
+            leds.setOff();
+            clock.sleep(150);
+            if (j++ % 15 == 0) {
+                mc.getAvgAngle();
+            }
+        }
+    }
+}
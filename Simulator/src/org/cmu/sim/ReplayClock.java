@@ -0,0 +1,47 @@
+package org.cmu.sim;
+
+import org.cmu.hal.Clock;
+
+/**
+ * PTLoc simulator -- virtual time for replaying a trace as fast as
+ * possible. Each thread keeps its own time: sleeping advances only the
+ * sleeper's time and returns at once, and a new thread starts at its
+ * creator's time. A thread's readings of the clock then depend only on what
+ * it has done, not on how the host scheduled it, so a control loop that
+ * times its steps with the clock repeats exactly. Threads that wait for
+ * one another do not bring their times together; a receiver can be moved
+ * on to the time of what it received with advanceTo().
+ */
+public class ReplayClock implements Clock {
+
+    private final InheritableThreadLocal<long[]> now = new InheritableThreadLocal<long[]>() {
+
+        protected long[] initialValue() {
+            return new long[1];
+        }
+
+        protected long[] childValue(long[] parent) {
+            return new long[]{parent[0]};
+        }
+    };
+
+    public long currentTimeMillis() {
+        return now.get()[0];
+    }
+
+    public void sleep(long millis) {
+        if (millis > 0) {
+            now.get()[0] += millis;
+        }
+        Thread.yield();
+    }
+
+    /**
+     * Moves the calling thread's time on, never back.
+     * @param millis Time to reach
+     */
+    public void advanceTo(long millis) {
+        long[] t = now.get();
+        t[0] = Math.max(t[0], millis);
+    }
+}
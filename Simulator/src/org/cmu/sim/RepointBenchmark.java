@@ -0,0 +1,102 @@
+package org.cmu.sim;
+
+import java.io.PrintStream;
+import org.cmu.MotionExecutor;
+import org.cmu.MountController;
+import org.cmu.Reading;
+import org.cmu.math.Geometry;
+
+/**
+ * PTLoc simulator -- the Pointer re-aims the Mount several times in quick
+ * succession. Compares running every target in order with keeping only the
+ * newest and preempting the move in progress: time from the last command
+ * until the Mount settles, moves started and final heading error.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.RepointBenchmark run}.
+ */
+public class RepointBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue();
+    public static final long TIMEOUT_MS = 60000;
+    public static final double MOUNT_HEADING = 40;
+    public static final double MOUNT_DISTANCE = 120 * 148;
+    public static final double REFERENCE_TILT = 0.05;
+    /** Target headings from the Pointer, sent in this order. */
+    public static final double[] TARGETS = new double[]{10, 65, 20, 75, 30, 70, 15, 50};
+    public static final double TARGET_DISTANCE = 110 * 148;
+    public static final long[] INTERVALS_MS = new long[]{25, 100, 250};
+    public static final String[] NAMES = new String[]{"in order", "latest wins"};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        out.println("PTLoc re-pointing, " + TARGETS.length + " targets, " + TRIALS
+                + " trials per case, simulated ms");
+        out.println("interval\tqueue\t\tlast-to-settled\tmoves\tpreempted\terr(deg)\tfailed");
+        for (int i = 0; i < INTERVALS_MS.length; i++) {
+            for (int m = 0; m < NAMES.length; m++) {
+                Stats time = new Stats();
+                Stats moves = new Stats();
+                Stats preempted = new Stats();
+                Stats err = new Stats();
+                int failed = 0;
+                for (int t = 0; t < TRIALS; t++) {
+                    double[] r = run(INTERVALS_MS[i], m == 1, 100 * i + t);
+                    if (r == null) {
+                        failed++;
+                        continue;
+                    }
+                    time.add(r[0]);
+                    moves.add(r[1]);
+                    preempted.add(r[2]);
+                    err.add(r[3]);
+                }
+                out.println(INTERVALS_MS[i] + "\t\t" + NAMES[m] + "\t" + Stats.fmt(time.mean())
+                        + "\t\t" + Stats.fmt(moves.mean()) + "\t" + Stats.fmt(preempted.mean())
+                        + "\t\t" + Stats.fmt(err.mean()) + "\t\t" + failed);
+            }
+        }
+    }
+
+    /**
+     * @return {last command to settled ms, moves started, moves preempted,
+     *      final heading error}, or null on timeout
+     */
+    static double[] run(long interval, boolean latestWins, long seed) throws Exception {
+        double goal = Geometry.angle3(MOUNT_DISTANCE, TARGET_DISTANCE, MOUNT_HEADING,
+                TARGETS[TARGETS.length - 1]);
+        SimRig rig = new SimRig(SimClock.fromProperties(), seed, 180);
+        MountController mc = rig.mountController;
+        mc.setLatestTargetWins(latestWins);
+        rig.start();
+        while (mc.getExecutor() == null) {
+            rig.clock.sleepMillis(1);
+        }
+        MotionExecutor executor = mc.getExecutor();
+        long last = 0;
+        for (int i = 0; i < TARGETS.length; i++) {
+            if (i > 0) {
+                rig.clock.sleepMillis(interval);
+            }
+            long now = rig.clock.currentTimeMillis();
+            last = now;
+            rig.pointerController.send(new Reading[]{
+                new Reading(1, MOUNT_DISTANCE, MOUNT_HEADING, REFERENCE_TILT, now),
+                new Reading(2, TARGET_DISTANCE, TARGETS[i], REFERENCE_TILT, now)}, 2);
+        }
+        long deadline = last + TIMEOUT_MS;
+        while (executor.getSubmitted() < TARGETS.length || !executor.isIdle()) {
+            if (rig.clock.currentTimeMillis() > deadline) {
+                rig.stop();
+                return null;
+            }
+            rig.clock.sleepMillis(1);
+        }
+        double elapsed = rig.clock.currentTimeMillis() - last;
+        double moves = executor.getSubmitted() - executor.getCoalesced();
+        double err = Math.abs(PressToSettleBenchmark.headingError(goal, rig.mount.getHeading()));
+        double preempted = mc.getPreemptedMoves();
+        rig.stop();
+        return new double[]{elapsed, moves, preempted, err};
+    }
+}
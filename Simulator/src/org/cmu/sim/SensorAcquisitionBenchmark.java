@@ -0,0 +1,71 @@
+package org.cmu.sim;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Random;
+import org.cmu.PointerController;
+
+/**
+ * PTLoc simulator -- time to take one Pointer reading with the distance read
+ * before or alongside the compass, and how long a reading takes to fail when
+ * the rangefinder stops answering. The old driver retried a missed echo
+ * forever, so at a 100% miss rate it never returns.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.SensorAcquisitionBenchmark run}.
+ */
+public class SensorAcquisitionBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 20).intValue();
+    public static final double[] MISS_RATES = new double[]{0.05, 0.3, 1.0};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        out.println("PTLoc reading acquisition, " + TRIALS + " readings per case, simulated ms");
+        out.println("miss\tcompass\t\tmode\t\tmean\tp50\tp95\tmax\tfailed");
+        for (int m = 0; m < MISS_RATES.length; m++) {
+            for (int sampled = 0; sampled < 2; sampled++) {
+                for (int parallel = 0; parallel < 2; parallel++) {
+                    Stats time = new Stats();
+                    int failed = run(MISS_RATES[m], sampled == 1, parallel == 1, 31 * m, time);
+                    out.println(MISS_RATES[m] + "\t"
+                            + (sampled == 1 ? "sampler " : "blocking") + "\t"
+                            + (parallel == 1 ? "parallel  " : "sequential") + "\t"
+                            + time.summary() + "\t" + failed);
+                }
+            }
+        }
+        out.println("At a miss rate of 1.0 the unbounded driver never returns.");
+    }
+
+    static int run(double missRate, boolean sampled, boolean parallel, long seed, Stats time)
+            throws IOException {
+        SimClock clock = SimClock.fromProperties();
+        Random random = new Random(seed);
+        SimPointer pointer = new SimPointer();
+        pointer.aim(90, 0.05, 100);
+        PointerController controller = new PointerController(
+                new SimCompass(pointer, clock, random),
+                new SimRangeFinder(pointer, clock, random, missRate),
+                new SimAccelerometer(pointer, clock, random),
+                new SimLeds(clock), clock, SimPacketLink.pair(clock)[0]);
+        controller.setParallelAcquisition(parallel);
+        if (sampled) {
+            controller.startCompassSampler();
+            clock.sleep(200);
+        }
+        int failed = 0;
+        for (int i = 0; i < TRIALS; i++) {
+            double start = clock.nowMillis();
+            try {
+                controller.measure(2);
+            } catch (IOException e) {
+                failed++;
+            }
+            time.add(clock.nowMillis() - start);
+            clock.sleep(100);
+        }
+        controller.stopCompassSampler();
+        return failed;
+    }
+}
@@ -0,0 +1,171 @@
+package org.cmu.sim;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Random;
+import org.cmu.MountController;
+import org.cmu.PointerController;
+import org.cmu.hal.RangeFinder;
+import org.cmu.sensor.HeadingEstimator;
+
+/**
+ * PTLoc simulator -- reads per measurement against accuracy when the number
+ * of readings averaged is fixed or chosen by a
+ * {@link org.cmu.sensor.SequentialEstimator}. The Mount's blocking heading
+ * is measured at random true headings under three compass noise levels and
+ * the Pointer's distance under three echo noise levels. Reads include the
+ * two discarded compass warm-up reads, times are simulated ms per
+ * measurement. Coverage is how often the true value lies within the
+ * reported 95% half-width.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.SequentialSamplingBenchmark run}.
+ */
+public class SequentialSamplingBenchmark {
+
+    public static final int MEASUREMENTS = Integer.getInteger("bench.measurements", 200).intValue();
+    /** Compass noise sigma in degrees. */
+    public static final double[] HEADING_NOISE = new double[]{SimCompass.NOISE_DEG, 1, 3};
+    /** Stopping half-widths in degrees, 0 for the fixed NUM_AVG_READINGS. */
+    public static final double[] HEADING_PRECISION = new double[]{0, 1, 0.5, 0.25};
+    /** Echo noise, relative. */
+    public static final double[] DISTANCE_NOISE = new double[]{0.003, SimRangeFinder.NOISE, 0.03};
+    /** Stopping half-widths in echo microseconds, 0 for the fixed NUM_AVG_READINGS. */
+    public static final double[] DISTANCE_PRECISION = new double[]{0, 296, 148, 74};
+    public static final double DISTANCE_IN = 100;
+
+    /** Holds still at a set heading, with extra compass noise. */
+    static class Still implements Pose {
+
+        volatile double heading;
+        final double disturbance;
+
+        Still(double noise) {
+            this.disturbance = noise - SimCompass.NOISE_DEG;
+        }
+
+        public double getHeading() {
+            return heading;
+        }
+
+        public double getTiltY() {
+            return 0;
+        }
+
+        public double getMagneticDisturbance() {
+            return disturbance;
+        }
+    }
+
+    /** Rangefinder with a set relative noise that never misses. */
+    static class Ranger implements RangeFinder {
+
+        final SimClock clock;
+        final Random random;
+        final double noise;
+        int pings;
+
+        Ranger(SimClock clock, Random random, double noise) {
+            this.clock = clock;
+            this.random = random;
+            this.noise = noise;
+        }
+
+        public int getEchoTime() {
+            double echo = DISTANCE_IN * 148;
+            clock.sleepMillis(SimRangeFinder.TRIGGER_OVERHEAD_MS + echo / 1000.0);
+            pings++;
+            return (int) (echo * (1 + random.nextGaussian() * noise));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        SimClock clock = SimClock.fromProperties();
+        out.println("PTLoc sequential sampling, " + MEASUREMENTS + " measurements per case");
+        out.println();
+        out.println("heading, blocking getAvgAngle, errors in degrees");
+        out.println("noise\tstop at\treads\tms\trms err\tp95 err\treported p50\tcoverage");
+        for (int n = 0; n < HEADING_NOISE.length; n++) {
+            for (int p = 0; p < HEADING_PRECISION.length; p++) {
+                heading(out, clock, HEADING_NOISE[n], HEADING_PRECISION[p], 17 * n + p);
+            }
+        }
+        out.println();
+        out.println("distance at " + DISTANCE_IN + " in, getAvgDist, errors in inches");
+        out.println("noise\tstop at\treads\tms\trms err\tp95 err\treported p50\tcoverage");
+        for (int n = 0; n < DISTANCE_NOISE.length; n++) {
+            for (int p = 0; p < DISTANCE_PRECISION.length; p++) {
+                distance(out, clock, DISTANCE_NOISE[n], DISTANCE_PRECISION[p], 17 * n + p);
+            }
+        }
+    }
+
+    private static void heading(PrintStream out, SimClock clock, double noise,
+            double precision, long seed) throws IOException {
+        Random random = new Random(seed);
+        Still pose = new Still(noise);
+        SimCompass compass = new SimCompass(pose, clock, random);
+        SimMount mount = new SimMount(clock, 0);
+        MountController controller = new MountController(compass,
+                new SimAccelerometer(mount, clock, random), mount.getPanServo(),
+                mount.getTiltServo(), new SimLeds(clock), clock);
+        controller.setHeadingPrecision(precision, MountController.HEADING_BUDGET_MS);
+        Stats error = new Stats();
+        Stats reported = new Stats();
+        double squares = 0;
+        int covered = 0;
+        double start = clock.nowMillis();
+        for (int i = 0; i < MEASUREMENTS; i++) {
+            pose.heading = 360 * random.nextDouble();
+            double e = Math.abs(HeadingEstimator.diff(controller.getAvgAngle(), pose.heading));
+            double reportedHalfWidth = controller.getHeadingPrecision();
+            error.add(e);
+            squares += e * e;
+            reported.add(reportedHalfWidth);
+            if (e <= reportedHalfWidth) {
+                covered++;
+            }
+        }
+        row(out, noise, precision == 0 ? "fixed" : Double.toString(precision),
+                compass.getReads(), clock.nowMillis() - start, squares, error, reported, covered);
+    }
+
+    private static void distance(PrintStream out, SimClock clock, double noise,
+            double precision, long seed) throws IOException {
+        Random random = new Random(seed);
+        Ranger ranger = new Ranger(clock, random, noise);
+        SimPointer pointer = new SimPointer();
+        PointerController controller = new PointerController(
+                new SimCompass(pointer, clock, random), ranger,
+                new SimAccelerometer(pointer, clock, random),
+                new SimLeds(clock), clock, null);
+        controller.setPrecision(PointerController.HEADING_PRECISION, precision);
+        Stats error = new Stats();
+        Stats reported = new Stats();
+        double squares = 0;
+        int covered = 0;
+        double start = clock.nowMillis();
+        for (int i = 0; i < MEASUREMENTS; i++) {
+            double e = Math.abs(controller.getAvgDist() - DISTANCE_IN * 148);
+            double reportedHalfWidth = controller.getDistancePrecision();
+            error.add(e / 148);
+            squares += e * e / (148 * 148);
+            reported.add(reportedHalfWidth / 148);
+            if (e <= reportedHalfWidth) {
+                covered++;
+            }
+        }
+        row(out, noise, precision == 0 ? "fixed" : Stats.fmt(precision / 148) + " in",
+                ranger.pings, clock.nowMillis() - start, squares, error, reported, covered);
+    }
+
+    private static void row(PrintStream out, double noise, String stopAt, int reads,
+            double ms, double squares, Stats error, Stats reported, int covered) {
+        double rms = Math.sqrt(squares / MEASUREMENTS);
+        out.println(noise + "\t" + stopAt + "\t" + Stats.fmt(reads / (double) MEASUREMENTS)
+                + "\t" + Stats.fmt(ms / MEASUREMENTS) + "\t" + Stats.fmt(rms)
+                + "\t" + Stats.fmt(error.percentile(95)) + "\t" + Stats.fmt(reported.percentile(50))
+                + "\t\t" + Stats.fmt(100.0 * covered / MEASUREMENTS) + "%");
+    }
+}
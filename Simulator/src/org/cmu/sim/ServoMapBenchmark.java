@@ -0,0 +1,81 @@
+package org.cmu.sim;
+
+import java.io.PrintStream;
+import java.util.Random;
+import org.cmu.control.MoveResult;
+import org.cmu.control.ServoMap;
+
+/**
+ * PTLoc simulator -- gotoLocation from feedback alone versus jumping to the
+ * position the calibrated servo maps predict first. Also reports the cost of
+ * the calibration sweep, and how far the pan map is off at the end of the
+ * first and the last moves when the Mount is knocked by BUMP_DEG after
+ * calibrating, as online updates correct it.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.ServoMapBenchmark run}.
+ */
+public class ServoMapBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue();
+    public static final int MOVES = 12;
+    public static final double BASE_HEADING = 200;
+    /** Goals are drawn within this many degrees of the centred heading. */
+    public static final double PAN_SPAN = 70;
+    public static final double TILT_SPAN = 0.5;
+    public static final double BUMP_DEG = 6;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        out.println("PTLoc servo maps, " + TRIALS + " rigs x " + MOVES + " moves, simulated ms");
+        out.println("mode\t\tmean\tp50\tp95\tmax\titerations\tfailed");
+        Stats calibration = new Stats();
+        Stats firstErr = new Stats();
+        Stats lastErr = new Stats();
+        for (int mode = 0; mode < 2; mode++) {
+            Stats time = new Stats();
+            Stats iterations = new Stats();
+            int failed = 0;
+            for (int t = 0; t < TRIALS; t++) {
+                SimRig rig = new SimRig(SimClock.fromProperties(), t, BASE_HEADING);
+                rig.mountController.startCompassSampler();
+                if (mode == 1) {
+                    double start = rig.clock.nowMillis();
+                    rig.mountController.calibrateServoMaps();
+                    calibration.add(rig.clock.nowMillis() - start);
+                    rig.mount.rotate(BUMP_DEG);
+                } else {
+                    rig.mountController.setUseServoMaps(false);
+                }
+                Random goals = new Random(1000 + t);
+                for (int m = 0; m < MOVES; m++) {
+                    double angle = SimMount.wrap(BASE_HEADING + (2 * goals.nextDouble() - 1) * PAN_SPAN);
+                    double tilt = (2 * goals.nextDouble() - 1) * TILT_SPAN;
+                    double start = rig.clock.nowMillis();
+                    rig.mountController.gotoLocation(tilt, angle);
+                    MoveResult move = rig.mountController.getLastMove();
+                    if (!move.isSettled()) {
+                        failed++;
+                        continue;
+                    }
+                    time.add(rig.clock.nowMillis() - start);
+                    iterations.add(move.getIterations(MoveResult.PAN)
+                            + move.getIterations(MoveResult.TILT));
+                    if (mode == 1 && (m == 0 || m == MOVES - 1)) {
+                        ServoMap map = rig.mountController.getPanMap();
+                        double predicted = map.predict(rig.mount.getPanServo().getPosition());
+                        double err = Math.abs(PressToSettleBenchmark.headingError(
+                                predicted, rig.mount.getHeading()));
+                        (m == 0 ? firstErr : lastErr).add(err);
+                    }
+                }
+                rig.mountController.stopCompassSampler();
+            }
+            out.println((mode == 1 ? "servo maps" : "feedback") + "\t" + time.summary() + "\t"
+                    + Stats.fmt(iterations.mean()) + "\t\t" + failed);
+        }
+        out.println("calibration sweep\t" + calibration.summary());
+        out.println("pan map error (deg) after move 1: " + Stats.fmt(firstErr.mean())
+                + ", after move " + MOVES + ": " + Stats.fmt(lastErr.mean()));
+    }
+}
@@ -0,0 +1,32 @@
+package org.cmu.sim;
+
+import java.io.IOException;
+import java.util.Random;
+import org.cmu.hal.Accelerometer;
+
+/**
+ * PTLoc simulator -- onboard accelerometer with Gaussian tilt noise.
+ */
+public class SimAccelerometer implements Accelerometer {
+
+    public static final double NOISE_RAD = 0.002;
+    public static final double READ_LATENCY_MS = 1;
+    private final Pose pose;
+    private final SimClock clock;
+    private final Random random;
+
+    public SimAccelerometer(Pose pose, SimClock clock, Random random) {
+        this.pose = pose;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    public double getTiltY() throws IOException {
+        clock.sleepMillis(READ_LATENCY_MS);
+        double noise;
+        synchronized (random) {
+            noise = random.nextGaussian() * NOISE_RAD;
+        }
+        return pose.getTiltY() + noise;
+    }
+}
@@ -0,0 +1,66 @@
+package org.cmu.sim;
+
+import java.util.concurrent.locks.LockSupport;
+import org.cmu.hal.Clock;
+
+/**
+ * PTLoc simulator -- scaled wall clock. Simulated time runs {@code scale}
+ * times faster than real time so threaded device code keeps its real
+ * structure while a benchmark finishes in seconds.
+ */
+public class SimClock implements Clock {
+
+    public static final double DEFAULT_SCALE = 20;
+    private final double scale;
+    private final long startNanos;
+
+    /**
+     * @param scale Simulated milliseconds per real millisecond.
+     */
+    public SimClock(double scale) {
+        this.scale = scale;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Scale taken from the "sim.scale" system property.
+     * @return Clock starting at 0
+     */
+    public static SimClock fromProperties() {
+        return new SimClock(Double.parseDouble(
+                System.getProperty("sim.scale", Double.toString(DEFAULT_SCALE))));
+    }
+
+    /**
+     * @return Simulated time in milliseconds with sub-millisecond resolution
+     */
+    public double nowMillis() {
+        return (System.nanoTime() - startNanos) * scale / 1e6;
+    }
+
+    public long currentTimeMillis() {
+        return (long) nowMillis();
+    }
+
+    public void sleep(long millis) {
+        sleepMillis(millis);
+    }
+
+    /**
+     * Sleeps for a fractional number of simulated milliseconds.
+     * @param millis Duration in simulated milliseconds
+     */
+    public void sleepMillis(double millis) {
+        if (millis <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + (long) (millis * 1e6 / scale);
+        long left;
+        while ((left = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(left);
+            if (Thread.interrupted()) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.cmu.sim;
+
+import java.io.IOException;
+import java.util.Random;
+import org.cmu.hal.CalibratingCompass;
+
+/**
+ * PTLoc simulator -- GY-26 with Gaussian noise, 0.1 degree resolution, the
+ * I2C write/read round-trip latency and optional hard- and soft-iron
+ * deviation.
+ */
+public class SimCompass implements CalibratingCompass {
+
+    public static final double NOISE_DEG = 0.3;
+    public static final double I2C_LATENCY_MS = 15;
+    private final Pose pose;
+    private final SimClock clock;
+    private final Random random;
+    private volatile int reads;
+    private volatile double[] deviation = new double[4];
+    private volatile boolean calibrating;
+
+    public SimCompass(Pose pose, SimClock clock, Random random) {
+        this.pose = pose;
+        this.clock = clock;
+        this.random = random;
+    }
+
+    public double getAngle() throws IOException {
+        clock.sleepMillis(I2C_LATENCY_MS);
+        reads++;
+        double sigma = NOISE_DEG + pose.getMagneticDisturbance();
+        double h = Math.toRadians(pose.getHeading());
+        double[] d = deviation;
+        double error = d[0] * Math.sin(h) + d[1] * Math.cos(h)
+                + d[2] * Math.sin(2 * h) + d[3] * Math.cos(2 * h);
+        double angle = SimMount.wrap(pose.getHeading() + error + gaussian() * sigma);
+        // module reports tenths of a degree, 0 - 3599
+        return Math.floor(angle * 10) / 10.0;
+    }
+
+    /**
+     * Makes the readings deviate from the true heading h by
+     * b sin h + c cos h + d sin 2h + e cos 2h degrees.
+     */
+    public void setDeviation(double b, double c, double d, double e) {
+        deviation = new double[]{b, c, d, e};
+    }
+
+    public void startCalibration() {
+        calibrating = true;
+    }
+
+    public void endCalibration() {
+        calibrating = false;
+    }
+
+    /**
+     * @return true between startCalibration and endCalibration
+     */
+    public boolean isCalibrating() {
+        return calibrating;
+    }
+
+    /**
+     * @return Number of bus round-trips so far
+     */
+    public int getReads() {
+        return reads;
+    }
+
+    private double gaussian() {
+        synchronized (random) {
+            return random.nextGaussian();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.cmu.sim;
+
+import org.cmu.hal.StatusLeds;
+
+/**
+ * PTLoc simulator -- LEDs that cost the same time as the real ones.
+ */
+public class SimLeds implements StatusLeds {
+
+    private final SimClock clock;
+
+    public SimLeds(SimClock clock) {
+        this.clock = clock;
+    }
+
+    public void flash(int[] rgb, int duration) {
+        clock.sleep(duration);
+    }
+
+    public void setOn(int[] rgb) {
+    }
+
+    public void setOff() {
+    }
+}
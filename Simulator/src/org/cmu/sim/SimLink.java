@@ -0,0 +1,114 @@
+package org.cmu.sim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * PTLoc simulator -- in-memory radiostream, as used before the framed
+ * radiogram protocol. Flushing blocks for the airtime of the buffered bytes
+ * plus a per-packet latency, then the peer can read them.
+ */
+public class SimLink {
+
+    /** 802.15.4 at 250 kbit/s. */
+    public static final double MS_PER_BYTE = 8 / 250.0;
+    public static final double PACKET_LATENCY_MS = 5;
+    private final SimClock clock;
+    private final Queue in = new Queue();
+    private SimLink peer;
+
+    private SimLink(SimClock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Creates both ends of a link.
+     * @param clock Simulation clock.
+     * @return Two connected ends
+     */
+    public static SimLink[] pair(SimClock clock) {
+        SimLink a = new SimLink(clock);
+        SimLink b = new SimLink(clock);
+        a.peer = b;
+        b.peer = a;
+        return new SimLink[]{a, b};
+    }
+
+    public DataInputStream openDataInputStream() throws IOException {
+        return new DataInputStream(in);
+    }
+
+    public DataOutputStream openDataOutputStream() throws IOException {
+        return new DataOutputStream(new Out());
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private class Out extends OutputStream {
+
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+        public void write(int b) throws IOException {
+            pending.write(b);
+        }
+
+        public void flush() throws IOException {
+            if (pending.size() == 0) {
+                return;
+            }
+            clock.sleepMillis(PACKET_LATENCY_MS + pending.size() * MS_PER_BYTE);
+            peer.in.append(pending.toByteArray());
+            pending.reset();
+        }
+    }
+
+    private static class Queue extends InputStream {
+
+        private byte[] buf = new byte[256];
+        private int head;
+        private int tail;
+        private boolean closed;
+
+        synchronized void append(byte[] data) {
+            if (tail + data.length > buf.length) {
+                byte[] grown = new byte[Math.max(buf.length * 2, tail - head + data.length)];
+                System.arraycopy(buf, head, grown, 0, tail - head);
+                tail -= head;
+                head = 0;
+                buf = grown;
+            }
+            System.arraycopy(data, 0, buf, tail, data.length);
+            tail += data.length;
+            notifyAll();
+        }
+
+        public synchronized int available() {
+            return tail - head;
+        }
+
+        public synchronized int read() throws IOException {
+            while (head == tail) {
+                if (closed) {
+                    return -1;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new IOException("interrupted");
+                }
+            }
+            return buf[head++] & 0xFF;
+        }
+
+        public synchronized void close() {
+            closed = true;
+            notifyAll();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.cmu.sim;
+
+/**
+ * PTLoc simulator -- physical Mount: an HS-81MG pan servo carrying an HS-311
+ * tilt servo, the compass and the SunSPOT.
+ */
+public class SimMount implements Pose {
+
+    /** HS-81MG: 0.09 s / 60 degrees over a 180 degree travel. */
+    public static final double PAN_SLEW_RATE = 60.0 / 0.09 / 180.0;
+    /** HS-311: 0.19 s / 60 degrees over a 180 degree travel. */
+    public static final double TILT_SLEW_RATE = 60.0 / 0.19 / 180.0;
+    public static final double PAN_RANGE_DEG = 180;
+    public static final double TILT_RANGE_RAD = Math.PI;
+    /** Extra compass noise in degrees per unit/s of pan servo speed. */
+    public static final double MOTOR_DISTURBANCE = 1.5;
+    /**
+     * Extra compass noise in degrees per unit/s^2 of servo acceleration, the
+     * field of the motor current; only inertial servos accelerate.
+     */
+    public static final double CURRENT_DISTURBANCE = 0.02;
+    private final SimServo pan;
+    private final SimServo tilt;
+    private volatile double baseHeading;
+
+    /**
+     * @param clock Simulation clock.
+     * @param baseHeading Heading with the pan servo centred.
+     */
+    public SimMount(SimClock clock, double baseHeading) {
+        this.pan = new SimServo(clock, PAN_SLEW_RATE, .5f);
+        this.tilt = new SimServo(clock, TILT_SLEW_RATE, .5f);
+        this.baseHeading = baseHeading;
+    }
+
+    /**
+     * Turns the whole Mount, as if it had been knocked on its base.
+     * @param degrees Heading change
+     */
+    public void rotate(double degrees) {
+        baseHeading = wrap(baseHeading + degrees);
+    }
+
+    public SimServo getPanServo() {
+        return pan;
+    }
+
+    public SimServo getTiltServo() {
+        return tilt;
+    }
+
+    public double getHeading() {
+        return wrap(baseHeading + (pan.getActualPosition() - .5) * PAN_RANGE_DEG);
+    }
+
+    public double getTiltY() {
+        // increasing servo2 -> pointing upwards -> negative tilt
+        return -(tilt.getActualPosition() - .5) * TILT_RANGE_RAD;
+    }
+
+    public double getMagneticDisturbance() {
+        return MOTOR_DISTURBANCE * (Math.abs(pan.getVelocity()) + Math.abs(tilt.getVelocity()))
+                + CURRENT_DISTURBANCE * (Math.abs(pan.getAcceleration())
+                + Math.abs(tilt.getAcceleration()));
+    }
+
+    /**
+     * @param x Angle in degrees
+     * @return Angle in [0 360)
+     */
+    public static double wrap(double x) {
+        x %= 360;
+        return x < 0 ? x + 360 : x;
+    }
+}
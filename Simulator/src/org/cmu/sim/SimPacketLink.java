@@ -0,0 +1,175 @@
+package org.cmu.sim;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.cmu.hal.PacketLink;
+
+/**
+ * PTLoc simulator -- in-memory radiogram. Sending blocks for the airtime of
+ * the packet and its 802.15.4 header, then the peer can receive it. Packets
+ * can be dropped or have bits flipped to exercise the frame decoder. More
+ * senders can be connected to one receiving end; they share the channel, so
+ * only one transmits at a time. A broadcasting end reaches any number of
+ * receivers with one transmission, each losing packets independently.
+ */
+public class SimPacketLink implements PacketLink {
+
+    /** 802.15.4 at 250 kbit/s. */
+    public static final double MS_PER_BYTE = SimLink.MS_PER_BYTE;
+    public static final double PACKET_LATENCY_MS = SimLink.PACKET_LATENCY_MS;
+    /** MAC and radiogram header bytes sent with every packet. */
+    public static final int HEADER_BYTES = 21;
+    public static final int MAX_PACKET_SIZE = 104;
+    private final SimClock clock;
+    private final long address;
+    private final Object channel;
+    private final LinkedList<Packet> in = new LinkedList<Packet>();
+    private long source;
+    private boolean closed;
+    private final List<SimPacketLink> peers = new CopyOnWriteArrayList<SimPacketLink>();
+    private Random faults;
+    private double lossRate;
+    private double bitErrorRate;
+
+    private SimPacketLink(SimClock clock, long address, Object channel) {
+        this.clock = clock;
+        this.address = address;
+        this.channel = channel;
+    }
+
+    /**
+     * Creates both ends of a link, with addresses 1 and 2.
+     * @param clock Simulation clock.
+     * @return Two connected ends
+     */
+    public static SimPacketLink[] pair(SimClock clock) {
+        Object channel = new Object();
+        SimPacketLink a = new SimPacketLink(clock, 1, channel);
+        SimPacketLink b = new SimPacketLink(clock, 2, channel);
+        a.peers.add(b);
+        b.peers.add(a);
+        return new SimPacketLink[]{a, b};
+    }
+
+    /**
+     * Creates a broadcasting end, address 1, and the ends that hear it,
+     * addresses 2 onwards.
+     * @param clock Simulation clock.
+     * @param receivers Ends that hear every packet
+     * @return The sender followed by the receivers
+     */
+    public static SimPacketLink[] broadcast(SimClock clock, int receivers) {
+        Object channel = new Object();
+        SimPacketLink[] ends = new SimPacketLink[receivers + 1];
+        ends[0] = new SimPacketLink(clock, 1, channel);
+        for (int i = 1; i <= receivers; i++) {
+            ends[i] = new SimPacketLink(clock, i + 1, channel);
+            ends[0].peers.add(ends[i]);
+            ends[i].peers.add(ends[0]);
+        }
+        return ends;
+    }
+
+    /**
+     * Creates another end sending to an existing one, as a further Pointer
+     * would.
+     * @param server End that receives from the new one
+     * @param address Address of the new end
+     * @return The new end
+     */
+    public static SimPacketLink connect(SimPacketLink server, long address) {
+        SimPacketLink c = new SimPacketLink(server.clock, address, server.channel);
+        c.peers.add(server);
+        return c;
+    }
+
+    public long getAddress() {
+        return address;
+    }
+
+    /**
+     * Makes packets sent from this end unreliable.
+     * @param random Fault source
+     * @param lossRate Fraction of packets dropped
+     * @param bitErrorRate Chance of each delivered bit being flipped
+     */
+    public void setFaults(Random random, double lossRate, double bitErrorRate) {
+        this.faults = random;
+        this.lossRate = lossRate;
+        this.bitErrorRate = bitErrorRate;
+    }
+
+    public void send(byte[] data, int offset, int length) throws IOException {
+        if (length > MAX_PACKET_SIZE) {
+            throw new IOException("packet too long: " + length);
+        }
+        synchronized (channel) {
+            clock.sleepMillis(PACKET_LATENCY_MS + (length + HEADER_BYTES) * MS_PER_BYTE);
+        }
+        for (SimPacketLink peer : peers) {
+            byte[] packet = new byte[length];
+            System.arraycopy(data, offset, packet, 0, length);
+            if (faults != null) {
+                synchronized (faults) {
+                    if (faults.nextDouble() < lossRate) {
+                        continue;
+                    }
+                    for (int i = 0; i < length * 8; i++) {
+                        if (faults.nextDouble() < bitErrorRate) {
+                            packet[i / 8] ^= 1 << (i % 8);
+                        }
+                    }
+                }
+            }
+            peer.deliver(new Packet(address, packet));
+        }
+    }
+
+    private synchronized void deliver(Packet packet) {
+        in.addLast(packet);
+        notifyAll();
+    }
+
+    public synchronized int receive(byte[] data) throws IOException {
+        while (in.isEmpty()) {
+            if (closed) {
+                return -1;
+            }
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                throw new IOException("interrupted");
+            }
+        }
+        Packet packet = in.removeFirst();
+        source = packet.source;
+        System.arraycopy(packet.data, 0, data, 0, packet.data.length);
+        return packet.data.length;
+    }
+
+    public synchronized long getSource() {
+        return source;
+    }
+
+    public int getMaxPacketSize() {
+        return MAX_PACKET_SIZE;
+    }
+
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    private static class Packet {
+        final long source;
+        final byte[] data;
+
+        Packet(long source, byte[] data) {
+            this.source = source;
+            this.data = data;
+        }
+    }
+}
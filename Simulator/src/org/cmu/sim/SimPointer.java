@@ -0,0 +1,42 @@
+package org.cmu.sim;
+
+/**
+ * PTLoc simulator -- hand-held Pointer, aimed by the benchmark.
+ */
+public class SimPointer implements Pose {
+
+    private volatile double heading;
+    private volatile double tiltY;
+    private volatile double distance;
+
+    /**
+     * Points the device.
+     * @param heading Heading in degrees
+     * @param tiltY Tilt in radians, negative pointing upwards
+     * @param distance Distance to whatever it points at, in inches
+     */
+    public void aim(double heading, double tiltY, double distance) {
+        this.heading = SimMount.wrap(heading);
+        this.tiltY = tiltY;
+        this.distance = distance;
+    }
+
+    public double getHeading() {
+        return heading;
+    }
+
+    public double getTiltY() {
+        return tiltY;
+    }
+
+    public double getMagneticDisturbance() {
+        return 0;
+    }
+
+    /**
+     * @return Distance in inches to the aimed-at object
+     */
+    public double getDistance() {
+        return distance;
+    }
+}
@@ -0,0 +1,46 @@
+package org.cmu.sim;
+
+import java.util.Random;
+import org.cmu.hal.RangeFinder;
+
+/**
+ * PTLoc simulator -- HC-SR04 with echo timing noise and missed echoes.
+ */
+public class SimRangeFinder implements RangeFinder {
+
+    public static final double NOISE = 0.01; // relative
+    public static final double MISS_PROBABILITY = 0.05;
+    public static final double TRIGGER_OVERHEAD_MS = 1;
+    private final SimPointer pointer;
+    private final SimClock clock;
+    private final Random random;
+    private final double missProbability;
+
+    public SimRangeFinder(SimPointer pointer, SimClock clock, Random random) {
+        this(pointer, clock, random, MISS_PROBABILITY);
+    }
+
+    /**
+     * @param missProbability Chance that a ping returns no echo.
+     */
+    public SimRangeFinder(SimPointer pointer, SimClock clock, Random random,
+            double missProbability) {
+        this.pointer = pointer;
+        this.clock = clock;
+        this.random = random;
+        this.missProbability = missProbability;
+    }
+
+    public int getEchoTime() {
+        double echo = pointer.getDistance() * 148;
+        boolean miss;
+        double noise;
+        synchronized (random) {
+            miss = random.nextDouble() < missProbability;
+            noise = random.nextGaussian() * NOISE;
+        }
+        // a missed echo waits for the module's 38ms timeout
+        clock.sleepMillis(TRIGGER_OVERHEAD_MS + (miss ? 38 : echo / 1000.0));
+        return miss ? 0 : (int) (echo * (1 + noise));
+    }
+}
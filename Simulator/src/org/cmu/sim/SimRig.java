@@ -0,0 +1,122 @@
+package org.cmu.sim;
+
+import java.io.IOException;
+import java.util.Random;
+import org.cmu.LedService;
+import org.cmu.MountController;
+import org.cmu.PointerController;
+
+/**
+ * PTLoc simulator -- a Pointer and a Mount wired together over a simulated
+ * radio, running the same controller code as the SunSPOTs.
+ */
+public class SimRig {
+
+    public final SimClock clock;
+    public final Random random;
+    public final SimMount mount;
+    public final SimCompass mountCompass;
+    public final LedService mountLeds;
+    public final MountController mountController;
+    public final SimPointer pointer;
+    public final SimCompass pointerCompass;
+    public final LedService pointerLeds;
+    public final PointerController pointerController;
+    private final SimPacketLink[] link;
+    private Thread mountThread;
+
+    /**
+     * @param clock Simulation clock.
+     * @param seed Seed for all sensor noise.
+     * @param baseHeading Mount heading with the pan servo centred.
+     * @throws IOException never, the simulated link cannot fail to open
+     */
+    public SimRig(SimClock clock, long seed, double baseHeading) throws IOException {
+        this.clock = clock;
+        this.random = new Random(seed);
+        this.mount = new SimMount(clock, baseHeading);
+        this.mountCompass = new SimCompass(mount, clock, random);
+        this.mountLeds = new LedService(new SimLeds(clock));
+        this.mountController = new MountController(mountCompass,
+                new SimAccelerometer(mount, clock, random),
+                mount.getPanServo(), mount.getTiltServo(), mountLeds, clock);
+        this.pointer = new SimPointer();
+        this.pointerCompass = new SimCompass(pointer, clock, random);
+        this.link = SimPacketLink.pair(clock);
+        this.pointerLeds = new LedService(new SimLeds(clock));
+        this.pointerController = new PointerController(pointerCompass,
+                new SimRangeFinder(pointer, clock, random),
+                new SimAccelerometer(pointer, clock, random),
+                pointerLeds, clock, link[0]);
+    }
+
+    /**
+     * Starts both LED services, both compass samplers and the Mount's
+     * receive loop on its own thread, as the MIDlets do.
+     */
+    public void start() {
+        mountLeds.start();
+        pointerLeds.start();
+        mountController.startCompassSampler();
+        pointerController.startCompassSampler();
+        mountThread = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    mountController.serve(link[1]);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }, "mount");
+        mountThread.setDaemon(true);
+        mountThread.start();
+    }
+
+    /**
+     * Stops the Mount's receive loop, the compass samplers and the LED
+     * services.
+     * @throws InterruptedException if interrupted while joining
+     * @throws IOException never
+     */
+    public void stop() throws InterruptedException, IOException {
+        mountController.stopCompassSampler();
+        pointerController.stopCompassSampler();
+        mountController.stop();
+        link[1].close();
+        mountThread.join();
+        mountLeds.stop();
+        pointerLeds.stop();
+    }
+
+    /**
+     * @return The Mount's end of the radio link
+     */
+    public SimPacketLink mountLink() {
+        return link[1];
+    }
+
+    /**
+     * @return The Pointer's end of the radio link
+     */
+    public SimPacketLink pointerLink() {
+        return link[0];
+    }
+
+    /**
+     * Waits for the Mount to finish a move.
+     * @param completed Move count before the move started
+     * @param timeoutMs Simulated timeout
+     * @return false on timeout
+     */
+    public boolean awaitMove(int completed, long timeoutMs) {
+        long deadline = clock.currentTimeMillis() + timeoutMs;
+        while (mountController.getCompletedMoves() == completed) {
+            if (clock.currentTimeMillis() > deadline) {
+                return false;
+            }
+            clock.sleepMillis(1);
+        }
+        return true;
+    }
+}
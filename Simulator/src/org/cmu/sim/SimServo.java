@@ -0,0 +1,123 @@
+package org.cmu.sim;
+
+import org.cmu.hal.ServoOutput;
+
+/**
+ * PTLoc simulator -- servo that slews from its current position towards the
+ * commanded one at a fixed rate. With {@link #setDynamics} the horn has
+ * inertia instead: the servo's own controller pulls it towards the command
+ * like a damped spring, within an acceleration limit and the slew rate, so
+ * a large jump overshoots and rings before it settles.
+ */
+public class SimServo implements ServoOutput {
+
+    /** Integration step of the inertial model. */
+    public static final double STEP_MS = 0.5;
+    private final SimClock clock;
+    private final double slewRate;
+    private float commanded;
+    private double actual;
+    private double velocity;
+    private double acceleration;
+    private double naturalHz;
+    private double damping;
+    private double maxAcceleration;
+    private double lastUpdate;
+
+    /**
+     * @param clock Simulation clock.
+     * @param slewRate Maximum speed in position units per second.
+     * @param position Initial position.
+     */
+    public SimServo(SimClock clock, double slewRate, float position) {
+        this.clock = clock;
+        this.slewRate = slewRate;
+        this.commanded = position;
+        this.actual = position;
+        this.lastUpdate = clock.nowMillis();
+    }
+
+    public synchronized void setPosition(float position) {
+        update();
+        // the real servo clamps to its bounds
+        commanded = Math.max(0f, Math.min(1f, position));
+    }
+
+    public synchronized float getPosition() {
+        return commanded;
+    }
+
+    /**
+     * Gives the horn inertia.
+     * @param naturalHz Natural frequency of the servo's position loop
+     * @param damping Damping ratio, below 1 overshoots
+     * @param maxAcceleration Torque limit, position units per second squared
+     */
+    public synchronized void setDynamics(double naturalHz, double damping,
+            double maxAcceleration) {
+        update();
+        this.naturalHz = naturalHz;
+        this.damping = damping;
+        this.maxAcceleration = maxAcceleration;
+    }
+
+    /**
+     * @return Physical position right now
+     */
+    public synchronized double getActualPosition() {
+        update();
+        return actual;
+    }
+
+    /**
+     * @return Physical speed in position units per second
+     */
+    public synchronized double getVelocity() {
+        update();
+        return velocity;
+    }
+
+    /**
+     * @return Physical acceleration in position units per second squared,
+     *      0 without inertia
+     */
+    public synchronized double getAcceleration() {
+        update();
+        return acceleration;
+    }
+
+    private void update() {
+        double now = clock.nowMillis();
+        double dt = (now - lastUpdate) / 1000.0;
+        lastUpdate = now;
+        if (dt <= 0) {
+            return;
+        }
+        if (naturalHz > 0) {
+            integrate(dt);
+            return;
+        }
+        double step = slewRate * dt;
+        double error = commanded - actual;
+        double before = actual;
+        if (Math.abs(error) <= step) {
+            actual = commanded;
+        } else {
+            actual += error > 0 ? step : -step;
+        }
+        velocity = (actual - before) / dt;
+    }
+
+    private void integrate(double dt) {
+        double w = 2 * Math.PI * naturalHz;
+        int steps = (int) Math.ceil(dt * 1000 / STEP_MS);
+        double h = dt / steps;
+        for (int i = 0; i < steps; i++) {
+            double a = w * w * (commanded - actual) - 2 * damping * w * velocity;
+            acceleration = Math.max(-maxAcceleration, Math.min(maxAcceleration, a));
+            velocity += acceleration * h;
+            velocity = Math.max(-slewRate, Math.min(slewRate, velocity));
+            actual += velocity * h;
+        }
+    }
+}
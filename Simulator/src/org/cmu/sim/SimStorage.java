@@ -0,0 +1,87 @@
+package org.cmu.sim;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.cmu.hal.Storage;
+
+/**
+ * PTLoc simulator -- records kept as files in a directory, one file per
+ * name, so a restarted rig finds what the last one wrote. Each write costs
+ * the simulated time of an RMS flash write.
+ */
+public class SimStorage implements Storage {
+
+    /** RMS write on the SunSPOT: erase and program of a flash sector. */
+    public static final double WRITE_MS = 25;
+    public static final double READ_MS = 2;
+    private final File dir;
+    private final SimClock clock;
+    private int writes;
+
+    /**
+     * @param dir Directory for the records, created if missing
+     * @param clock Simulation clock.
+     */
+    public SimStorage(File dir, SimClock clock) {
+        this.dir = dir;
+        this.clock = clock;
+        dir.mkdirs();
+    }
+
+    public synchronized byte[] read(String name) throws IOException {
+        clock.sleepMillis(READ_MS);
+        File file = new File(dir, name);
+        if (!file.exists()) {
+            return null;
+        }
+        byte[] data = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int off = 0;
+            while (off < data.length) {
+                int n = in.read(data, off, data.length - off);
+                if (n < 0) {
+                    break;
+                }
+                off += n;
+            }
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+
+    public synchronized void write(String name, byte[] data) throws IOException {
+        clock.sleepMillis(WRITE_MS);
+        FileOutputStream out = new FileOutputStream(new File(dir, name));
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        writes++;
+    }
+
+    public synchronized void delete(String name) {
+        new File(dir, name).delete();
+    }
+
+    /**
+     * @return Records written so far
+     */
+    public synchronized int getWrites() {
+        return writes;
+    }
+
+    /**
+     * Deletes every record.
+     */
+    public synchronized void clear() {
+        File[] files = dir.listFiles();
+        for (int i = 0; files != null && i < files.length; i++) {
+            files[i].delete();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.cmu.sim;
+
+/**
+ * PTLoc simulator -- sample collector for benchmark summaries.
+ */
+public class Stats {
+
+    private double[] values = new double[16];
+    private int n;
+
+    public void add(double x) {
+        if (n == values.length) {
+            double[] grown = new double[n * 2];
+            System.arraycopy(values, 0, grown, 0, n);
+            values = grown;
+        }
+        values[n++] = x;
+    }
+
+    public int count() {
+        return n;
+    }
+
+    public double mean() {
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += values[i];
+        }
+        return n == 0 ? Double.NaN : sum / n;
+    }
+
+    public double max() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return max;
+    }
+
+    /**
+     * @param p Percentile, [0 100]
+     * @return Nearest-rank percentile
+     */
+    public double percentile(double p) {
+        if (n == 0) {
+            return Double.NaN;
+        }
+        double[] sorted = new double[n];
+        System.arraycopy(values, 0, sorted, 0, n);
+        java.util.Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * n);
+        return sorted[Math.max(0, Math.min(n - 1, rank - 1))];
+    }
+
+    /**
+     * @return "mean p50 p95 max" with one decimal
+     */
+    public String summary() {
+        return fmt(mean()) + "\t" + fmt(percentile(50)) + "\t"
+                + fmt(percentile(95)) + "\t" + fmt(max());
+    }
+
+    public static String fmt(double x) {
+        return Double.isNaN(x) ? "-" : Double.toString(Math.round(x * 10) / 10.0);
+    }
+
+    /**
+     * @param x Value
+     * @return x in scientific notation, three significant digits
+     */
+    public static String sci(double x) {
+        return Double.isNaN(x) ? "-" : String.format("%.2e", x);
+    }
+}
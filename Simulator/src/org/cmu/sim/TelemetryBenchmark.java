@@ -0,0 +1,85 @@
+package org.cmu.sim;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import org.cmu.telemetry.Histogram;
+import org.cmu.telemetry.Telemetry;
+
+/**
+ * PTLoc simulator -- where the press-to-settled time goes. Presses switch 2
+ * at a run of targets, then the Pointer asks the Mount for its telemetry
+ * over the radio; the summary is rendered as received and as the Mount
+ * printed it to its console. Also times recording one duration, the cost
+ * added to each stage.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.TelemetryBenchmark run}.
+ */
+public class TelemetryBenchmark {
+
+    public static final int PRESSES = 4 * PressToSettleBenchmark.TRIALS;
+    public static final long TIMEOUT_MS = PressToSettleBenchmark.TIMEOUT_MS;
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(console, true));
+
+        SimRig rig = new SimRig(SimClock.fromProperties(), 1, 180);
+        rig.start();
+        double mountHeading = PressToSettleBenchmark.MOUNT_HEADING;
+        rig.pointer.aim(mountHeading, 0, PressToSettleBenchmark.MOUNT_DISTANCE);
+        rig.pointerController.measureAndSend(1);
+        int failed = 0;
+        Stats pressToSettle = new Stats();
+        for (int i = 0; i < PRESSES; i++) {
+            double[] target = PressToSettleBenchmark.TARGETS[i % PressToSettleBenchmark.TARGETS.length];
+            rig.pointer.aim(SimMount.wrap(mountHeading + target[0]), 0, target[1]);
+            int before = rig.mountController.getCompletedMoves();
+            double start = rig.clock.nowMillis();
+            rig.pointerController.measureAndSend(2);
+            if (rig.awaitMove(before, TIMEOUT_MS)) {
+                pressToSettle.add(rig.clock.nowMillis() - start);
+            } else {
+                failed++;
+            }
+        }
+        byte[] reply = new byte[rig.pointerLink().getMaxPacketSize()];
+        int[][] summary = rig.pointerController.queryTelemetry(reply);
+        rig.stop();
+
+        out.println("PTLoc stage telemetry, " + PRESSES + " presses, " + failed
+                + " failed, simulated ms");
+        out.println("press-to-settled (host clock)\t" + pressToSettle.summary());
+        out.println();
+        out.println("radio query, " + Telemetry.SIZE + " byte reply:");
+        TelemetryReport.render(out, summary);
+        out.println();
+        out.println("Mount USB console:");
+        List<String> names = new ArrayList<String>();
+        List<int[]> rows = new ArrayList<int[]>();
+        TelemetryReport.parse(new BufferedReader(new StringReader(console.toString())),
+                names, rows);
+        TelemetryReport.render(out, names.toArray(new String[0]), rows.toArray(new int[0][]));
+        out.println("(pointer stages are marks carried in the frames; the mount stage runs "
+                + "from decoding to settled)");
+
+        out.println();
+        out.println("op\t\t\tns/call p50\tns/call min\tbytes/call");
+        final Histogram h = new Histogram();
+        final int calls = GeometryBenchmark.CALLS_PER_ROUND;
+        GeometryBenchmark.report(out, "Histogram.record", new GeometryBenchmark.Op() {
+
+            public int run() {
+                for (int c = 0; c < calls; c++) {
+                    h.record(c & 4095);
+                }
+                return calls;
+            }
+        });
+    }
+}
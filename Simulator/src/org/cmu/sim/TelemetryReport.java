@@ -0,0 +1,116 @@
+package org.cmu.sim;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.cmu.telemetry.Telemetry;
+
+/**
+ * PTLoc host tool -- renders the Mount's latency telemetry as a table with
+ * a bar per stage. Reads the {@code telemetry ...} lines the Mount prints
+ * to its USB console, from a saved log or standard input; other lines are
+ * skipped.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.TelemetryReport -Dsim.log=mount.log run}
+ * or {@code java -cp build/classes org.cmu.sim.TelemetryReport mount.log}.
+ */
+public class TelemetryReport {
+
+    public static final int BAR_WIDTH = 40;
+
+    public static void main(String[] args) throws IOException {
+        String file = args.length > 0 ? args[0] : System.getProperty("sim.log");
+        BufferedReader in = new BufferedReader(file == null
+                ? new InputStreamReader(System.in) : new FileReader(file));
+        List<String> names = new ArrayList<String>();
+        List<int[]> rows = new ArrayList<int[]>();
+        try {
+            parse(in, names, rows);
+        } finally {
+            in.close();
+        }
+        if (rows.isEmpty()) {
+            System.err.println("no " + Telemetry.PREFIX + " lines found");
+            System.exit(1);
+        }
+        render(System.out, names.toArray(new String[0]), rows.toArray(new int[0][]));
+    }
+
+    /**
+     * Collects the stages of the last report in the input: a stage printed
+     * again replaces its earlier row.
+     * @param in Console output
+     * @param names Receives stage names
+     * @param rows Receives {count, p50, p95, max} per stage
+     * @throws IOException if the input cannot be read
+     */
+    public static void parse(BufferedReader in, List<String> names, List<int[]> rows)
+            throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] f = line.trim().split("\\s+");
+            if (f.length != 6 || !f[0].equals(Telemetry.PREFIX)) {
+                continue;
+            }
+            int[] row = new int[4];
+            try {
+                for (int i = 0; i < 4; i++) {
+                    row[i] = Integer.parseInt(f[i + 2]);
+                }
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            int at = names.indexOf(f[1]);
+            if (at < 0) {
+                names.add(f[1]);
+                rows.add(row);
+            } else {
+                rows.set(at, row);
+            }
+        }
+    }
+
+    /**
+     * Prints one row per stage, with a bar from p50 to p95 scaled to the
+     * largest p95: '=' up to p50, '-' on to p95.
+     * @param out Where to print
+     * @param names Stage names
+     * @param rows {count, p50, p95, max} per stage, in ms
+     */
+    public static void render(PrintStream out, String[] names, int[][] rows) {
+        int scale = 1;
+        for (int[] row : rows) {
+            scale = Math.max(scale, row[2]);
+        }
+        out.println(String.format("%-9s %6s %6s %6s %6s  p50 '=', p95 '-', %d ms full width",
+                "stage", "count", "p50", "p95", "max", scale));
+        for (int s = 0; s < rows.length; s++) {
+            int[] row = rows[s];
+            int p50 = row[1] * BAR_WIDTH / scale;
+            int p95 = row[2] * BAR_WIDTH / scale;
+            StringBuilder bar = new StringBuilder();
+            for (int i = 0; i < p95; i++) {
+                bar.append(i < p50 ? '=' : '-');
+            }
+            out.println(String.format("%-9s %6d %6d %6d %6d  %s",
+                    names[s], row[0], row[1], row[2], row[3], bar));
+        }
+    }
+
+    /**
+     * Renders a summary decoded from the radio reply.
+     * @param out Where to print
+     * @param summary From {@link Telemetry#decode(byte[], int)}
+     */
+    public static void render(PrintStream out, int[][] summary) {
+        String[] names = new String[summary.length];
+        for (int s = 0; s < summary.length; s++) {
+            names[s] = s < Telemetry.NAMES.length ? Telemetry.NAMES[s] : "stage" + s;
+        }
+        render(out, names, summary);
+    }
+}
@@ -0,0 +1,332 @@
+package org.cmu.sim;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.cmu.MountController;
+import org.cmu.PointerController;
+import org.cmu.hal.Clock;
+import org.cmu.hal.Compass;
+import org.cmu.hal.PacketLink;
+import org.cmu.hal.ServoOutput;
+import org.cmu.trace.Trace;
+import org.cmu.trace.TracePlayer;
+import org.cmu.trace.TraceRecorder;
+
+/**
+ * PTLoc simulator -- records the Mount's compass, tilt and radio input
+ * while a Pointer sends a run of presses, then replays the trace through
+ * fresh Mounts: twice as fast as possible on a {@link ReplayClock}, to show
+ * a replay repeats exactly, once at recorded speed on the simulation clock,
+ * and once with the fixed-step loops in place of PID, the comparison replay
+ * exists for. A replay is open loop:
+ * the compass reports the recorded headings whatever the servos are told,
+ * so it compares what the logic does with the same input, not how the
+ * Mount would have moved. Also reads a large synthetic trace streamed and
+ * memory-mapped.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.TraceBenchmark run}.
+ */
+public class TraceBenchmark {
+
+    public static final int PRESSES = 2 * PressToSettleBenchmark.TRIALS;
+    public static final long TIMEOUT_MS = PressToSettleBenchmark.TIMEOUT_MS;
+    /** Longest a replay may take, host ms. */
+    public static final long REPLAY_TIMEOUT_MS = 60000;
+    public static final int SYNTHETIC_RECORDS = Integer.getInteger("bench.records", 4000000).intValue();
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        File file = File.createTempFile("ptloc", ".trace");
+        file.deleteOnExit();
+
+        Run recorded = record(file);
+        out.println("PTLoc trace record and replay, " + PRESSES + " presses, Mount input");
+        out.println("recorded " + recorded.records + " records, " + file.length() + " bytes ("
+                + Stats.fmt(file.length() / (double) recorded.records) + " per record)");
+        InputStream dump = TraceTool.open(file.getPath(), false);
+        TraceTool.dump(dump, out);
+        dump.close();
+        out.println();
+        out.println("run\t\t\tmoves\tcompass\ttilt\tpackets\tpan/tilt commands\twall ms"
+                + "\tpast end\tsame commands as");
+        out.println("recording\t\t" + recorded);
+        int moves = recorded.moves;
+        Run fast1 = replay(file, false, true, moves);
+        out.println("replay fast\t\t" + fast1 + "\trecording: " + fast1.sameAs(recorded));
+        Run fast2 = replay(file, false, true, moves);
+        out.println("replay fast again\t" + fast2 + "\treplay fast: " + fast2.sameAs(fast1));
+        Run timed = replay(file, true, true, moves);
+        out.println("replay recorded speed\t" + timed + "\treplay fast: " + timed.sameAs(fast1));
+        Run fixed = replay(file, false, false, moves);
+        out.println("replay fixed-step\t" + fixed + "\treplay fast: " + fixed.sameAs(fast1));
+        out.println("(past end: sensor reads after the trace ran out, answered with the last value;"
+                + " same: identical pan and tilt command sequences, else the first that differs;"
+                + " the recording and the timed replay step the PID by host-timed intervals)");
+
+        out.println();
+        synthetic(out, file);
+    }
+
+    /**
+     * Runs a Mount and a Pointer over a simulated radio, recording the
+     * Mount's input.
+     */
+    private static Run record(File file) throws Exception {
+        SimClock clock = SimClock.fromProperties();
+        Random random = new Random(1);
+        SimMount mount = new SimMount(clock, 180);
+        OutputStream stream = new BufferedOutputStream(new FileOutputStream(file));
+        TraceRecorder trace = new TraceRecorder(stream, clock);
+        Run run = new Run();
+        final MountController mountController = new MountController(
+                trace.compass(new SimCompass(mount, clock, random)),
+                trace.accelerometer(new SimAccelerometer(mount, clock, random)),
+                run.log(mount.getPanServo(), run.pan), run.log(mount.getTiltServo(), run.tilt),
+                new SimLeds(clock), clock);
+        final SimPacketLink[] link = SimPacketLink.pair(clock);
+        SimPointer pointer = new SimPointer();
+        PointerController pointerController = new PointerController(
+                new SimCompass(pointer, clock, random),
+                new SimRangeFinder(pointer, clock, random),
+                new SimAccelerometer(pointer, clock, random),
+                new SimLeds(clock), clock, link[0]);
+        Thread serving = serve(mountController, trace.link(link[1]));
+        long start = System.currentTimeMillis();
+        double heading = PressToSettleBenchmark.MOUNT_HEADING;
+        pointer.aim(heading, 0, PressToSettleBenchmark.MOUNT_DISTANCE);
+        pointerController.measureAndSend(1);
+        for (int i = 0; i < PRESSES; i++) {
+            double[] target = PressToSettleBenchmark.TARGETS[i % PressToSettleBenchmark.TARGETS.length];
+            pointer.aim(SimMount.wrap(heading + target[0]), 0, target[1]);
+            int before = mountController.getCompletedMoves();
+            pointerController.measureAndSend(2);
+            long deadline = clock.currentTimeMillis() + TIMEOUT_MS;
+            while (mountController.getCompletedMoves() == before
+                    && clock.currentTimeMillis() < deadline) {
+                clock.sleepMillis(1);
+            }
+        }
+        mountController.stop();
+        link[1].close();
+        serving.join();
+        trace.close();
+        run.finish(mountController, System.currentTimeMillis() - start);
+        run.records = trace.getRecords();
+        return run;
+    }
+
+    /**
+     * Replays the trace through a new Mount that runs every target in
+     * order, so a replay does not depend on when packets arrive.
+     * @param realTime true for recorded speed on the simulation clock, false
+     *      for as fast as possible on a ReplayClock
+     * @param moves Moves the recorded Mount made
+     */
+    private static Run replay(File file, boolean realTime, boolean pid, int moves)
+            throws Exception {
+        SimClock simClock = SimClock.fromProperties();
+        final Clock clock = realTime ? (Clock) simClock : new ReplayClock();
+        SimMount mount = new SimMount(simClock, 180);
+        InputStream in = TraceTool.open(file.getPath(), false);
+        final TracePlayer player = new TracePlayer(in, clock, realTime);
+        Run run = new Run();
+        MountController mountController = new MountController(player.compass(),
+                player.accelerometer(), run.log(mount.getPanServo(), run.pan),
+                run.log(mount.getTiltServo(), run.tilt), new SimLeds(simClock), clock);
+        mountController.setLatestTargetWins(false);
+        if (!pid) {
+            mountController.setControllers(null, null);
+        }
+        final PacketLink replayed = player.link(SimPacketLink.MAX_PACKET_SIZE);
+        PacketLink link = replayed;
+        if (!realTime) {
+            // the receiver's time follows the packets, as it would have
+            link = new PacketLink() {
+
+                public void send(byte[] data, int offset, int length) throws IOException {
+                    replayed.send(data, offset, length);
+                }
+
+                public int receive(byte[] data) throws IOException {
+                    int length = replayed.receive(data);
+                    ((ReplayClock) clock).advanceTo(player.getTime(Trace.PACKET));
+                    return length;
+                }
+
+                public long getSource() {
+                    return replayed.getSource();
+                }
+
+                public int getMaxPacketSize() {
+                    return replayed.getMaxPacketSize();
+                }
+
+                public void close() throws IOException {
+                    replayed.close();
+                }
+            };
+        }
+        long start = System.currentTimeMillis();
+        Thread serving = serve(mountController, link);
+        awaitMoves(mountController, moves);
+        mountController.stop();
+        player.close();
+        serving.join();
+        run.finish(mountController, System.currentTimeMillis() - start);
+        run.compassReads = player.getPlayed(Trace.COMPASS);
+        run.tiltReads = player.getPlayed(Trace.TILT);
+        run.packets = player.getPlayed(Trace.PACKET);
+        run.underruns = player.getUnderruns(Trace.COMPASS) + player.getUnderruns(Trace.TILT);
+        in.close();
+        return run;
+    }
+
+    private static Thread serve(final MountController mount, final PacketLink link) {
+        Thread t = new Thread(new Runnable() {
+
+            public void run() {
+                try {
+                    mount.serve(link);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }, "mount");
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    /**
+     * Waits, in host time, for a Mount to finish a number of moves.
+     */
+    private static void awaitMoves(MountController mount, int moves) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + REPLAY_TIMEOUT_MS;
+        while (mount.getCompletedMoves() + mount.getPreemptedMoves() < moves
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Writes a trace of compass records and reads it back through a
+     * player, streamed and memory-mapped.
+     */
+    private static void synthetic(PrintStream out, File small) throws IOException {
+        File file = File.createTempFile("ptloc-large", ".trace");
+        file.deleteOnExit();
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), 1 << 16));
+        data.writeInt(Trace.MAGIC);
+        data.writeByte(Trace.VERSION);
+        Random random = new Random(2);
+        for (int i = 0; i < SYNTHETIC_RECORDS; i++) {
+            data.writeByte(Trace.COMPASS);
+            Trace.writeVarint(data, 15);
+            data.writeFloat((float) (360 * random.nextDouble()));
+        }
+        data.close();
+        out.println("synthetic trace, " + SYNTHETIC_RECORDS + " compass records, "
+                + (file.length() >> 20) + " MB, played as fast as possible");
+        out.println("input\t\tms p50\tns/record\trecords/s");
+        for (int mapped = 0; mapped < 2; mapped++) {
+            Stats ms = new Stats();
+            for (int round = 0; round < 5; round++) {
+                InputStream in = TraceTool.open(file.getPath(), mapped == 1);
+                TracePlayer player = new TracePlayer(in, new SimClock(1), false);
+                Compass compass = player.compass();
+                long start = System.nanoTime();
+                double sum = 0;
+                for (int i = 0; i < SYNTHETIC_RECORDS; i++) {
+                    sum += compass.getAngle();
+                }
+                ms.add((System.nanoTime() - start) / 1e6);
+                GeometryBenchmark.sink = sum;
+                in.close();
+            }
+            double p50 = ms.percentile(50);
+            out.println((mapped == 1 ? "memory-mapped" : "streamed") + "\t" + Stats.fmt(p50)
+                    + "\t" + Stats.fmt(p50 * 1e6 / SYNTHETIC_RECORDS) + "\t\t"
+                    + Stats.sci(SYNTHETIC_RECORDS / p50 * 1000));
+        }
+    }
+
+    /**
+     * What one Mount did with its input.
+     */
+    private static class Run {
+        final List<Float> pan = new ArrayList<Float>();
+        final List<Float> tilt = new ArrayList<Float>();
+        int moves;
+        int records;
+        int compassReads;
+        int tiltReads;
+        int packets;
+        int underruns;
+        long wallMs;
+
+        /**
+         * @return Servo that also logs every position commanded
+         */
+        ServoOutput log(final ServoOutput servo, final List<Float> commands) {
+            return new ServoOutput() {
+
+                public void setPosition(float position) {
+                    synchronized (commands) {
+                        commands.add(position);
+                    }
+                    servo.setPosition(position);
+                }
+
+                public float getPosition() {
+                    return servo.getPosition();
+                }
+            };
+        }
+
+        void finish(MountController mount, long wallMs) {
+            this.moves = mount.getCompletedMoves() + mount.getPreemptedMoves();
+            this.wallMs = wallMs;
+        }
+
+        String sameAs(Run other) {
+            int p = firstDifference(pan, other.pan);
+            int t = firstDifference(tilt, other.tilt);
+            if (p < 0 && t < 0) {
+                return "yes";
+            }
+            return "no, pan #" + (p < 0 ? "-" : String.valueOf(p)) + " tilt #"
+                    + (t < 0 ? "-" : String.valueOf(t));
+        }
+
+        private static int firstDifference(List<Float> a, List<Float> b) {
+            int n = Math.min(a.size(), b.size());
+            for (int i = 0; i < n; i++) {
+                if (!a.get(i).equals(b.get(i))) {
+                    return i;
+                }
+            }
+            return a.size() == b.size() ? -1 : n;
+        }
+
+        public String toString() {
+            return moves + "\t" + count(compassReads) + "\t" + count(tiltReads) + "\t"
+                    + count(packets) + "\t" + pan.size() + "/" + tilt.size() + "\t\t\t" + wallMs
+                    + "\t" + count(underruns) + "\t";
+        }
+
+        private static String count(int n) {
+            return n > 0 ? String.valueOf(n) : "-";
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.cmu.sim;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import org.cmu.trace.HexOutputStream;
+import org.cmu.trace.Trace;
+
+/**
+ * PTLoc host tool -- handles traces captured with Mount.TRACE or
+ * Pointer.TRACE.
+ * <pre>
+ * TraceTool unhex console.log out.trace   extract the trace from a saved USB console
+ * TraceTool dump in.trace                 records, bytes and duration per kind
+ * </pre>
+ * Run with {@code java -cp build/classes org.cmu.sim.TraceTool ...}.
+ */
+public class TraceTool {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("unhex")) {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(args[2]));
+            try {
+                System.out.println(unhex(new BufferedReader(new FileReader(args[1])), out)
+                        + " bytes written to " + args[2]);
+            } finally {
+                out.close();
+            }
+        } else if (args.length == 2 && args[0].equals("dump")) {
+            InputStream in = open(args[1], false);
+            try {
+                dump(in, System.out);
+            } finally {
+                in.close();
+            }
+        } else {
+            System.err.println("usage: TraceTool unhex console.log out.trace | dump in.trace");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Opens a trace file for replay.
+     * @param path Trace file
+     * @param mapped true to memory-map it, false to stream it
+     * @return The stream
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputStream open(String path, boolean mapped) throws IOException {
+        return mapped ? new MappedInputStream(path)
+                : new BufferedInputStream(new FileInputStream(path), 1 << 16);
+    }
+
+    /**
+     * Copies the bytes of the {@link HexOutputStream} lines of a console log.
+     * @param in Console log
+     * @param out Receives the trace
+     * @return Bytes written
+     * @throws IOException if either stream fails
+     */
+    public static long unhex(BufferedReader in, OutputStream out) throws IOException {
+        long n = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            int at = line.indexOf(HexOutputStream.PREFIX);
+            if (at < 0) {
+                continue;
+            }
+            String hex = line.substring(at + HexOutputStream.PREFIX.length()).trim();
+            for (int i = 0; i + 1 < hex.length(); i += 2) {
+                out.write(Integer.parseInt(hex.substring(i, i + 2), 16));
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Prints the records, bytes and time span of each kind in a trace.
+     * @param in Trace
+     * @param out Where to print
+     * @throws IOException if in is not a trace or is damaged
+     */
+    public static void dump(InputStream in, PrintStream out) throws IOException {
+        final long[] read = new long[1];
+        DataInputStream data = new DataInputStream(new FilterInputStream(in) {
+
+            public int read() throws IOException {
+                int b = super.read();
+                read[0] += b < 0 ? 0 : 1;
+                return b;
+            }
+
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                read[0] += Math.max(n, 0);
+                return n;
+            }
+        });
+        Trace.readHeader(data);
+        long[] records = new long[Trace.KINDS];
+        long[] bytes = new long[Trace.KINDS];
+        long[] first = new long[Trace.KINDS];
+        long[] last = new long[Trace.KINDS];
+        long time = 0;
+        int kind;
+        long at = read[0];
+        while ((kind = data.read()) >= 0) {
+            if (kind >= Trace.KINDS) {
+                throw new IOException("Bad trace record kind: " + kind);
+            }
+            time += Trace.readVarint(data);
+            if (kind == Trace.COMPASS || kind == Trace.TILT) {
+                data.readFloat();
+            } else if (kind == Trace.ECHO) {
+                Trace.readVarint(data);
+            } else {
+                data.readFully(new byte[(int) Trace.readVarint(data)]);
+                data.readLong();
+            }
+            if (records[kind]++ == 0) {
+                first[kind] = time;
+            }
+            last[kind] = time;
+            bytes[kind] += read[0] - at;
+            at = read[0];
+        }
+        out.println("kind\trecords\tbytes\tfirst(ms)\tlast(ms)\trate(/s)");
+        for (int k = 0; k < Trace.KINDS; k++) {
+            long span = last[k] - first[k];
+            out.println(Trace.NAMES[k] + "\t" + records[k] + "\t" + bytes[k] + "\t" + first[k]
+                    + "\t\t" + last[k] + "\t\t"
+                    + (span > 0 ? Stats.fmt(1000.0 * (records[k] - 1) / span) : "-"));
+        }
+        out.println("duration " + time + " ms, " + read[0] + " bytes");
+    }
+}
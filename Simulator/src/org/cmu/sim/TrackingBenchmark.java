@@ -0,0 +1,121 @@
+package org.cmu.sim;
+
+import java.io.PrintStream;
+import org.cmu.Reading;
+import org.cmu.math.Geometry;
+
+/**
+ * PTLoc simulator -- the Pointer sweeps across a scene while the Mount
+ * follows it. Compares repeated switch 2 presses with streaming readings at
+ * several rates: mean and 95th percentile heading error against where the
+ * Mount should point for the Pointer's current aim.
+ * <p>
+ * Run with {@code ant -Drun.class=org.cmu.sim.TrackingBenchmark run}.
+ */
+public class TrackingBenchmark {
+
+    public static final int TRIALS = Integer.getInteger("sim.trials", 5).intValue();
+    public static final double MOUNT_HEADING = 40;
+    public static final double MOUNT_DISTANCE = 120;
+    public static final double TARGET_DISTANCE = 110;
+    public static final double TILT = 0.05;
+    /** The Pointer sweeps between these headings at SWEEP_DEG_PER_S. */
+    public static final double SWEEP_FROM = 105;
+    public static final double SWEEP_TO = 180;
+    public static final double SWEEP_DEG_PER_S = 20;
+    public static final long RUN_MS = 8000;
+    /** Error is only sampled after the Mount has caught up once. */
+    public static final long WARMUP_MS = 2000;
+    /** 0 stands for discrete switch 2 presses. */
+    public static final long[] PERIODS_MS = new long[]{0, 500, 200, 100, 50};
+
+    public static void main(String[] args) throws Exception {
+        PrintStream out = System.out;
+        ControllerBenchmark.quiet();
+        out.println("PTLoc tracking a " + SWEEP_DEG_PER_S + " deg/s sweep, " + TRIALS
+                + " trials per case");
+        out.println("mode\t\treadings/s\tmean err(deg)\tp95 err\tmoves preempted");
+        for (int p = 0; p < PERIODS_MS.length; p++) {
+            Stats err = new Stats();
+            Stats rate = new Stats();
+            Stats preempted = new Stats();
+            for (int i = 0; i < TRIALS; i++) {
+                run(PERIODS_MS[p], 10 * p + i, err, rate, preempted);
+            }
+            String mode = PERIODS_MS[p] == 0 ? "presses\t" : "stream " + PERIODS_MS[p] + "ms";
+            out.println(mode + "\t" + Stats.fmt(rate.mean()) + "\t\t" + Stats.fmt(err.mean())
+                    + "\t\t" + Stats.fmt(err.percentile(95)) + "\t" + Stats.fmt(preempted.mean()));
+        }
+    }
+
+    static double sweep(double t) {
+        double span = SWEEP_TO - SWEEP_FROM;
+        double x = (t / 1000.0 * SWEEP_DEG_PER_S) % (2 * span);
+        return SWEEP_FROM + (x < span ? x : 2 * span - x);
+    }
+
+    static void run(long period, long seed, Stats err, Stats rate, Stats preempted)
+            throws Exception {
+        double mid = Geometry.angle3(MOUNT_DISTANCE * 148, TARGET_DISTANCE * 148,
+                MOUNT_HEADING, (SWEEP_FROM + SWEEP_TO) / 2);
+        final SimRig rig = new SimRig(SimClock.fromProperties(), seed, mid);
+        rig.start();
+        rig.pointer.aim(MOUNT_HEADING, TILT, MOUNT_DISTANCE);
+        rig.pointerController.measureAndSend(1);
+        Reading reference = new Reading(1, MOUNT_DISTANCE * 148, MOUNT_HEADING, TILT, 0);
+
+        final long begin = rig.clock.currentTimeMillis();
+        final boolean[] done = new boolean[1];
+        Thread hand = new Thread(new Runnable() {
+
+            public void run() {
+                while (!done[0]) {
+                    rig.pointer.aim(sweep(rig.clock.currentTimeMillis() - begin), TILT,
+                            TARGET_DISTANCE);
+                    rig.clock.sleepMillis(5);
+                }
+            }
+        });
+        hand.start();
+        Thread probe = new Thread(new Runnable() {
+
+            public void run() {
+                while (!done[0]) {
+                    long t = rig.clock.currentTimeMillis() - begin;
+                    if (t > WARMUP_MS) {
+                        double goal = Geometry.angle3(MOUNT_DISTANCE * 148,
+                                TARGET_DISTANCE * 148, MOUNT_HEADING, sweep(t));
+                        double e = PressToSettleBenchmark.headingError(goal, rig.mount.getHeading());
+                        synchronized (err) {
+                            err.add(Math.abs(e));
+                        }
+                    }
+                    rig.clock.sleepMillis(10);
+                }
+            }
+        });
+        probe.start();
+
+        int sent = 0;
+        if (period > 0) {
+            rig.pointerController.setTrackPeriod(period);
+            rig.pointerController.startTracking();
+            rig.clock.sleepMillis(RUN_MS);
+            rig.pointerController.stopTracking();
+            sent = rig.pointerController.getTrackedReadings();
+        } else {
+            while (rig.clock.currentTimeMillis() - begin < RUN_MS) {
+                // type 1 again, then a press of switch 2
+                rig.pointerController.send(new Reading[]{reference}, 1);
+                rig.pointerController.measureAndSend(2);
+                sent++;
+            }
+        }
+        done[0] = true;
+        hand.join();
+        probe.join();
+        rate.add(sent * 1000.0 / RUN_MS);
+        preempted.add(rig.mountController.getPreemptedMoves());
+        rig.stop();
+    }
+}